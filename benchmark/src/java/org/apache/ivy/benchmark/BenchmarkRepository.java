@@ -0,0 +1,78 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.benchmark;
+
+import java.io.File;
+
+import org.apache.ivy.Ivy;
+import org.apache.ivy.core.settings.IvySettings;
+import org.apache.ivy.plugins.resolver.FileSystemResolver;
+
+/**
+ * A repository created by a {@link RepositoryGenerator}.
+ */
+public final class BenchmarkRepository {
+    public static final String PATTERN = "[module]/[artifact]-[revision].[ext]";
+
+    private final File root;
+
+    private final int versions;
+
+    BenchmarkRepository(File root, int versions) {
+        this.root = root;
+        this.versions = versions;
+    }
+
+    public File getRoot() {
+        return root;
+    }
+
+    /**
+     * Returns the ivy file of the root module, depending on all the modules of the first level.
+     */
+    public File getRootIvyFile() {
+        return new File(root, RepositoryGenerator.ROOT_MODULE + "/ivy-1.0.xml");
+    }
+
+    /**
+     * Returns the ivy file of the latest version of the given module.
+     */
+    public File getIvyFile(int module) {
+        return new File(root, "mod" + module + "/ivy-"
+                + RepositoryGenerator.revision(versions - 1) + ".xml");
+    }
+
+    /**
+     * Returns an Ivy instance resolving from this repository, using the given cache directory.
+     */
+    public Ivy newIvy(File cache) {
+        IvySettings settings = new IvySettings();
+        settings.setDefaultCache(cache);
+
+        FileSystemResolver resolver = new FileSystemResolver();
+        resolver.setName("bench");
+        resolver.setSettings(settings);
+        String pattern = new File(root, PATTERN).getAbsolutePath();
+        resolver.addIvyPattern(pattern);
+        resolver.addArtifactPattern(pattern);
+
+        settings.addResolver(resolver);
+        settings.setDefaultResolver("bench");
+        return Ivy.newInstance(settings);
+    }
+}
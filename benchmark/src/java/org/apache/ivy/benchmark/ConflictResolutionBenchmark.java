@@ -0,0 +1,93 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.benchmark;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ivy.Ivy;
+import org.apache.ivy.core.LogOptions;
+import org.apache.ivy.core.module.descriptor.ModuleDescriptor;
+import org.apache.ivy.core.report.ResolveReport;
+import org.apache.ivy.core.resolve.IvyNode;
+import org.apache.ivy.core.resolve.ResolveOptions;
+import org.apache.ivy.plugins.parser.xml.XmlModuleDescriptorParser;
+import org.apache.ivy.util.FileUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measures the computation of the dependency graph of a generated repository in which every
+ * dependency asks for a fixed revision, so that each module is reached in many of its revisions
+ * and most of the time is spent in conflict resolution.
+ * <p>
+ * All the descriptors are put in the cache before the measure, and no artifact is downloaded.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ConflictResolutionBenchmark {
+    @Param({"100", "500"})
+    private int modules;
+
+    private File dir;
+
+    private Ivy ivy;
+
+    private ModuleDescriptor md;
+
+    private ResolveOptions options;
+
+    @Setup
+    public void setUp() throws Exception {
+        dir = File.createTempFile("ivy-bench", "");
+        dir.delete();
+        BenchmarkRepository repository = new RepositoryGenerator().setModules(modules)
+                .setDepth(10).setFanOut(4).setVersions(10).setConflictRatio(100)
+                .generate(new File(dir, "repository"));
+        ivy = repository.newIvy(new File(dir, "cache"));
+        options = new ResolveOptions().setConfs(new String[] {"default"}).setDownload(false);
+        options.setLog(LogOptions.LOG_QUIET);
+        md = XmlModuleDescriptorParser.getInstance().parseDescriptor(ivy.getSettings(),
+            repository.getRootIvyFile().toURI().toURL(), true);
+        // put every module descriptor in cache
+        ResolveReport report = ivy.resolve(md, options);
+        if (report.hasError()) {
+            throw new IllegalStateException("resolve failed: " + report.getAllProblemMessages());
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        FileUtil.forceDelete(dir);
+    }
+
+    @Benchmark
+    public IvyNode[] getDependencies() {
+        return ivy.getResolveEngine().getDependencies(md, options,
+            new ResolveReport(md, options.getResolveId()));
+    }
+}
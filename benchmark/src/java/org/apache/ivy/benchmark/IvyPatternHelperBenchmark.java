@@ -0,0 +1,48 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ivy.core.IvyPatternHelper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures the substitution of the tokens of a pattern by {@link IvyPatternHelper}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class IvyPatternHelperBenchmark {
+    @Param({"[organisation]/[module]/[revision]/[artifact]-[revision].[ext]",
+            "[organisation]/[module]/([branch]/)[revision]/[type]s/"
+                    + "[artifact]-[revision](-[classifier]).[ext]"})
+    private String pattern;
+
+    @Benchmark
+    public String substitute() {
+        return IvyPatternHelper.substitute(pattern, "org.apache.ivy", "ivy", "2.3.0", "ivy",
+            "jar", "jar");
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.benchmark;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ivy.plugins.latest.ArtifactInfo;
+import org.apache.ivy.plugins.latest.LatestRevisionStrategy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures the sorting of revisions by {@link LatestRevisionStrategy}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LatestRevisionStrategyBenchmark {
+    private static final String[] QUALIFIERS = {"", "-alpha", "-beta-2", "-rc1", "-dev",
+            "-SNAPSHOT", ".final"};
+
+    @Param({"10", "100", "1000"})
+    private int revisions;
+
+    private LatestRevisionStrategy strategy;
+
+    private ArtifactInfo[] infos;
+
+    @Setup
+    public void setUp() {
+        strategy = new LatestRevisionStrategy();
+        Random random = new Random(42L);
+        infos = new ArtifactInfo[revisions];
+        for (int i = 0; i < revisions; i++) {
+            infos[i] = new Revision(random.nextInt(5) + "." + random.nextInt(20) + "."
+                    + random.nextInt(10) + QUALIFIERS[random.nextInt(QUALIFIERS.length)]);
+        }
+    }
+
+    @Benchmark
+    public List sort() {
+        return strategy.sort(infos);
+    }
+
+    private static final class Revision implements ArtifactInfo {
+        private final String revision;
+
+        Revision(String revision) {
+            this.revision = revision;
+        }
+
+        public String getRevision() {
+            return revision;
+        }
+
+        public long getLastModified() {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.benchmark;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.PrintWriter;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ivy.core.module.descriptor.ModuleDescriptor;
+import org.apache.ivy.core.settings.IvySettings;
+import org.apache.ivy.plugins.parser.m2.PomModuleDescriptorParser;
+import org.apache.ivy.util.FileUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measures the parsing of a pom without parent by {@link PomModuleDescriptorParser}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PomModuleDescriptorParserBenchmark {
+    @Param({"5", "50"})
+    private int dependencies;
+
+    private IvySettings settings;
+
+    private File dir;
+
+    private URL pomFile;
+
+    @Setup
+    public void setUp() throws Exception {
+        settings = new IvySettings();
+        dir = File.createTempFile("ivy-bench", "");
+        dir.delete();
+        dir.mkdirs();
+        File file = new File(dir, "bench-1.0.pom");
+        PrintWriter out = new PrintWriter(new FileWriter(file));
+        try {
+            out.println("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+            out.println("<project>");
+            out.println("  <modelVersion>4.0.0</modelVersion>");
+            out.println("  <groupId>" + RepositoryGenerator.ORGANISATION + "</groupId>");
+            out.println("  <artifactId>bench</artifactId>");
+            out.println("  <version>1.0</version>");
+            out.println("  <properties><dep.version>1.0</dep.version></properties>");
+            out.println("  <dependencies>");
+            for (int i = 0; i < dependencies; i++) {
+                out.println("    <dependency>");
+                out.println("      <groupId>" + RepositoryGenerator.ORGANISATION
+                        + "</groupId>");
+                out.println("      <artifactId>mod" + i + "</artifactId>");
+                out.println("      <version>${dep.version}</version>");
+                if (i % 3 == 1) {
+                    out.println("      <scope>test</scope>");
+                }
+                if (i % 5 == 2) {
+                    out.println("      <exclusions><exclusion>");
+                    out.println("        <groupId>excluded</groupId>");
+                    out.println("        <artifactId>excluded</artifactId>");
+                    out.println("      </exclusion></exclusions>");
+                }
+                out.println("    </dependency>");
+            }
+            out.println("  </dependencies>");
+            out.println("</project>");
+        } finally {
+            out.close();
+        }
+        pomFile = file.toURI().toURL();
+    }
+
+    @TearDown
+    public void tearDown() {
+        FileUtil.forceDelete(dir);
+    }
+
+    @Benchmark
+    public ModuleDescriptor parse() throws Exception {
+        return PomModuleDescriptorParser.getInstance().parseDescriptor(settings, pomFile, false);
+    }
+}
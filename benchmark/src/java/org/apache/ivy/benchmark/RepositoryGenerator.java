@@ -0,0 +1,277 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.benchmark;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.apache.ivy.core.module.descriptor.Configuration;
+import org.apache.ivy.core.module.descriptor.DefaultArtifact;
+import org.apache.ivy.core.module.descriptor.DefaultDependencyDescriptor;
+import org.apache.ivy.core.module.descriptor.DefaultExcludeRule;
+import org.apache.ivy.core.module.descriptor.DefaultModuleDescriptor;
+import org.apache.ivy.core.module.descriptor.ModuleDescriptor;
+import org.apache.ivy.core.module.id.ArtifactId;
+import org.apache.ivy.core.module.id.ModuleId;
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.plugins.matcher.ExactPatternMatcher;
+import org.apache.ivy.plugins.matcher.PatternMatcher;
+import org.apache.ivy.plugins.parser.xml.XmlModuleDescriptorWriter;
+import org.apache.ivy.plugins.resolver.FileSystemResolver;
+import org.apache.ivy.util.FileUtil;
+
+/**
+ * Generates a repository of modules laid out for a {@link FileSystemResolver}.
+ * <p>
+ * The modules are split in <code>depth</code> levels of equal size, and each module depends on
+ * <code>fanOut</code> distinct modules of the next level, so the dependency graph never contains
+ * cycles and its depth is bounded. The modules of the last level have no dependency. A root
+ * module, <code>bench#root;1.0</code>, depends on all the modules of the first level.
+ * </p>
+ * <p>
+ * By default dependencies ask for <code>latest.integration</code>. Given ratios of them use a
+ * version range, or a fixed revision which is not the latest one and so will be in conflict with
+ * the other dependencies on the same module, or exclude a module of the level after the next one.
+ * </p>
+ * <p>
+ * The modules are generated from a seed, so that two repositories generated with the same
+ * parameters are identical.
+ * </p>
+ */
+public class RepositoryGenerator {
+    public static final String ORGANISATION = "bench";
+
+    public static final String ROOT_MODULE = "root";
+
+    private int modules = 100;
+
+    private int fanOut = 5;
+
+    private int depth = 5;
+
+    private int versions = 3;
+
+    private int rangeRatio = 0;
+
+    private int conflictRatio = 20;
+
+    private int excludeRatio = 0;
+
+    private long seed = 42L;
+
+    public int getModules() {
+        return modules;
+    }
+
+    public RepositoryGenerator setModules(int modules) {
+        this.modules = modules;
+        return this;
+    }
+
+    public int getFanOut() {
+        return fanOut;
+    }
+
+    public RepositoryGenerator setFanOut(int fanOut) {
+        this.fanOut = fanOut;
+        return this;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public RepositoryGenerator setDepth(int depth) {
+        this.depth = Math.max(1, depth);
+        return this;
+    }
+
+    public int getVersions() {
+        return versions;
+    }
+
+    public RepositoryGenerator setVersions(int versions) {
+        this.versions = Math.max(1, versions);
+        return this;
+    }
+
+    /**
+     * Sets the percentage of the dependencies using a version range.
+     */
+    public RepositoryGenerator setRangeRatio(int rangeRatio) {
+        this.rangeRatio = rangeRatio;
+        return this;
+    }
+
+    /**
+     * Sets the percentage of the dependencies asking for a fixed revision, which is usually not
+     * the latest one.
+     */
+    public RepositoryGenerator setConflictRatio(int conflictRatio) {
+        this.conflictRatio = conflictRatio;
+        return this;
+    }
+
+    /**
+     * Sets the percentage of the dependencies excluding a transitive module.
+     */
+    public RepositoryGenerator setExcludeRatio(int excludeRatio) {
+        this.excludeRatio = excludeRatio;
+        return this;
+    }
+
+    public RepositoryGenerator setSeed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    /**
+     * Generates the repository in the given directory, which is deleted first.
+     */
+    public BenchmarkRepository generate(File root) throws IOException {
+        FileUtil.forceDelete(root);
+        Random random = new Random(seed);
+        for (int module = 0; module < modules; module++) {
+            for (int version = 0; version < versions; version++) {
+                write(root, newModuleDescriptor(module, version, random));
+            }
+        }
+        write(root, newRootModuleDescriptor());
+        return new BenchmarkRepository(root, versions);
+    }
+
+    /**
+     * Returns the descriptors of all the versions of all the modules, in the order in which they
+     * are generated, without the root module.
+     */
+    public List/*<ModuleDescriptor>*/ newModuleDescriptors() {
+        List mds = new ArrayList(modules * versions);
+        Random random = new Random(seed);
+        for (int module = 0; module < modules; module++) {
+            for (int version = 0; version < versions; version++) {
+                mds.add(newModuleDescriptor(module, version, random));
+            }
+        }
+        return mds;
+    }
+
+    /**
+     * Returns the descriptor of the root module, depending on all the modules of the first
+     * level.
+     */
+    public ModuleDescriptor newRootModuleDescriptor() {
+        DefaultModuleDescriptor md = newModuleDescriptor(ROOT_MODULE, "1.0");
+        for (int module = 0; module < levelStart(1); module++) {
+            addDependency(md, module, "latest.integration");
+        }
+        return md;
+    }
+
+    private ModuleDescriptor newModuleDescriptor(int module, int version, Random random) {
+        DefaultModuleDescriptor md = newModuleDescriptor("mod" + module, revision(version));
+        md.addArtifact("default", new DefaultArtifact(md.getModuleRevisionId(), new Date(0),
+                "mod" + module, "jar", "jar"));
+        int level = level(module);
+        int start = levelStart(level + 1);
+        int size = levelStart(level + 2) - start;
+        Set/*<Integer>*/ added = new HashSet();
+        for (int i = 0; i < Math.min(fanOut, size); i++) {
+            int dep;
+            do {
+                dep = start + random.nextInt(size);
+            } while (!added.add(new Integer(dep)));
+
+            int kind = random.nextInt(100);
+            String depRevision;
+            if (kind < rangeRatio) {
+                depRevision = "[" + revision(0) + "," + revision(random.nextInt(versions)) + "]";
+            } else if (kind < rangeRatio + conflictRatio) {
+                depRevision = revision(random.nextInt(versions));
+            } else {
+                depRevision = "latest.integration";
+            }
+            DefaultDependencyDescriptor dd = addDependency(md, dep, depRevision);
+
+            int excludedStart = levelStart(level + 2);
+            int excludedSize = levelStart(level + 3) - excludedStart;
+            if (excludedSize > 0 && random.nextInt(100) < excludeRatio) {
+                ModuleId excluded = ModuleId.newInstance(ORGANISATION, "mod"
+                        + (excludedStart + random.nextInt(excludedSize)));
+                dd.addExcludeRule("default", new DefaultExcludeRule(new ArtifactId(excluded,
+                        PatternMatcher.ANY_EXPRESSION, PatternMatcher.ANY_EXPRESSION,
+                        PatternMatcher.ANY_EXPRESSION), ExactPatternMatcher.INSTANCE, null));
+            }
+        }
+        return md;
+    }
+
+    private static DefaultModuleDescriptor newModuleDescriptor(String module, String revision) {
+        DefaultModuleDescriptor md = new DefaultModuleDescriptor(ModuleRevisionId.newInstance(
+            ORGANISATION, module, revision), "integration", new Date(0));
+        md.addConfiguration(new Configuration("default"));
+        return md;
+    }
+
+    private static DefaultDependencyDescriptor addDependency(DefaultModuleDescriptor md,
+            int module, String revision) {
+        DefaultDependencyDescriptor dd = new DefaultDependencyDescriptor(md,
+                ModuleRevisionId.newInstance(ORGANISATION, "mod" + module, revision), false,
+                false, true);
+        dd.addDependencyConfiguration("default", "default");
+        md.addDependency(dd);
+        return dd;
+    }
+
+    private int level(int module) {
+        return (int) ((long) module * depth / modules);
+    }
+
+    /**
+     * Returns the first module of the given level, or the number of modules if there is no such
+     * level.
+     */
+    private int levelStart(int level) {
+        if (level >= depth) {
+            return modules;
+        }
+        // smallest module m such that m * depth / modules >= level
+        return (int) (((long) level * modules + depth - 1) / depth);
+    }
+
+    static String revision(int version) {
+        return "1." + version;
+    }
+
+    private static void write(File root, ModuleDescriptor md) throws IOException {
+        ModuleRevisionId mrid = md.getModuleRevisionId();
+        File dir = new File(root, mrid.getName());
+        XmlModuleDescriptorWriter.write(md, new File(dir, "ivy-" + mrid.getRevision() + ".xml"));
+        if (md.getAllArtifacts().length > 0) {
+            // the content of the artifacts is never read, only their presence matters
+            new FileOutputStream(new File(dir, mrid.getName() + "-" + mrid.getRevision()
+                    + ".jar")).close();
+        }
+    }
+}
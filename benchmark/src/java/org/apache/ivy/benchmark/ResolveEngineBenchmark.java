@@ -0,0 +1,101 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.benchmark;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ivy.Ivy;
+import org.apache.ivy.core.LogOptions;
+import org.apache.ivy.core.cache.DefaultRepositoryCacheManager;
+import org.apache.ivy.core.report.ResolveReport;
+import org.apache.ivy.core.resolve.ResolveOptions;
+import org.apache.ivy.util.FileUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measures an end to end resolve of the root module of a generated repository.
+ * <p>
+ * With a <code>cold</code> cache, the cache is cleaned before each resolve, so every descriptor
+ * is parsed and every artifact downloaded again. With a <code>warm</code> cache, the same cache
+ * is used by all the resolves of an iteration. A <code>binary</code> cache is a warm cache which
+ * also stores the cached descriptors in binary form.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ResolveEngineBenchmark {
+    @Param({"100", "500"})
+    private int modules;
+
+    @Param({"cold", "warm", "binary"})
+    private String cache;
+
+    private File dir;
+
+    private BenchmarkRepository repository;
+
+    private Ivy ivy;
+
+    private ResolveOptions options;
+
+    @Setup
+    public void setUp() throws Exception {
+        dir = File.createTempFile("ivy-bench", "");
+        dir.delete();
+        repository = new RepositoryGenerator().setModules(modules).generate(
+            new File(dir, "repository"));
+        ivy = repository.newIvy(new File(dir, "cache"));
+        ((DefaultRepositoryCacheManager) ivy.getSettings().getDefaultRepositoryCacheManager())
+                .setBinaryDescriptors("binary".equals(cache));
+        options = new ResolveOptions().setConfs(new String[] {"default"});
+        options.setLog(LogOptions.LOG_QUIET);
+    }
+
+    @Setup(Level.Invocation)
+    public void cleanCache() {
+        if ("cold".equals(cache)) {
+            ivy.getSettings().getResolutionCacheManager().clean();
+            ivy.getSettings().getDefaultRepositoryCacheManager().clean();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        FileUtil.forceDelete(dir);
+    }
+
+    @Benchmark
+    public ResolveReport resolve() throws Exception {
+        ResolveReport report = ivy.resolve(repository.getRootIvyFile().toURI().toURL(), options);
+        if (report.hasError()) {
+            throw new IllegalStateException("resolve failed: " + report.getAllProblemMessages());
+        }
+        return report;
+    }
+}
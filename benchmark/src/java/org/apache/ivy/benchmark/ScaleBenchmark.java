@@ -0,0 +1,283 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.benchmark;
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.ivy.Ivy;
+import org.apache.ivy.core.LogOptions;
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.core.report.ResolveReport;
+import org.apache.ivy.core.resolve.ResolveOptions;
+import org.apache.ivy.core.retrieve.RetrieveOptions;
+import org.apache.ivy.core.sort.SortOptions;
+import org.apache.ivy.util.FileUtil;
+import org.apache.ivy.util.cli.CommandLine;
+import org.apache.ivy.util.cli.CommandLineParser;
+import org.apache.ivy.util.cli.OptionBuilder;
+import org.apache.ivy.util.cli.ParseException;
+
+/**
+ * Measures resolve, retrieve and sort on repositories of increasing size generated by a
+ * {@link RepositoryGenerator}.
+ * <p>
+ * For each phase the wall time, the bytes allocated by the live threads and the peak heap usage
+ * are printed, as well as the time per module, which should stay roughly constant when the size
+ * of the repository grows. Valid arguments can be obtained with the -? argument.
+ * </p>
+ */
+public final class ScaleBenchmark {
+    private static final int HELP_WIDTH = 80;
+
+    private static final String[] CONFS = new String[] {"default"};
+
+    static CommandLineParser getParser() {
+        return new CommandLineParser()
+            .addCategory("repository options")
+            .addOption(new OptionBuilder("modules").arg("sizes")
+                .description("comma separated numbers of modules to generate, "
+                    + "defaults to 1000,10000").create())
+            .addOption(new OptionBuilder("fanout").arg("fanout")
+                .description("number of direct dependencies of each module").create())
+            .addOption(new OptionBuilder("depth").arg("depth")
+                .description("number of levels of the dependency graph").create())
+            .addOption(new OptionBuilder("versions").arg("versions")
+                .description("number of versions of each module").create())
+            .addOption(new OptionBuilder("ranges").arg("percent")
+                .description("percentage of dependencies using a version range").create())
+            .addOption(new OptionBuilder("conflicts").arg("percent")
+                .description("percentage of dependencies on a fixed, often evicted, revision")
+                .create())
+            .addOption(new OptionBuilder("excludes").arg("percent")
+                .description("percentage of dependencies excluding a transitive module")
+                .create())
+            .addOption(new OptionBuilder("seed").arg("seed")
+                .description("seed of the generated repository").create())
+            .addOption(new OptionBuilder("dir").arg("dir")
+                .description("working directory, defaults to build/scale").create())
+
+            .addCategory("help options")
+            .addOption(new OptionBuilder("?")
+                .description("display this help").create());
+    }
+
+    public static void main(String[] args) throws Exception {
+        CommandLineParser parser = getParser();
+        try {
+            CommandLine line = parser.parse(args);
+            if (line.hasOption("?")) {
+                usage(parser);
+                return;
+            }
+            run(line);
+        } catch (ParseException ex) {
+            System.err.println(ex.getMessage());
+            usage(parser);
+            System.exit(1);
+        } catch (NumberFormatException ex) {
+            System.err.println("invalid number: " + ex.getMessage());
+            usage(parser);
+            System.exit(1);
+        }
+    }
+
+    private static void run(CommandLine line) throws Exception {
+        RepositoryGenerator generator = new RepositoryGenerator();
+        if (line.hasOption("fanout")) {
+            generator.setFanOut(Integer.parseInt(line.getOptionValue("fanout")));
+        }
+        if (line.hasOption("depth")) {
+            generator.setDepth(Integer.parseInt(line.getOptionValue("depth")));
+        }
+        if (line.hasOption("versions")) {
+            generator.setVersions(Integer.parseInt(line.getOptionValue("versions")));
+        }
+        if (line.hasOption("ranges")) {
+            generator.setRangeRatio(Integer.parseInt(line.getOptionValue("ranges")));
+        }
+        if (line.hasOption("conflicts")) {
+            generator.setConflictRatio(Integer.parseInt(line.getOptionValue("conflicts")));
+        }
+        if (line.hasOption("excludes")) {
+            generator.setExcludeRatio(Integer.parseInt(line.getOptionValue("excludes")));
+        }
+        if (line.hasOption("seed")) {
+            generator.setSeed(Long.parseLong(line.getOptionValue("seed")));
+        }
+        File dir = new File(line.getOptionValue("dir", "build/scale"));
+        String[] sizes = line.getOptionValue("modules", "1000,10000").split(",");
+
+        PrintWriter out = new PrintWriter(System.out, true);
+        out.println("modules\tphase\ttime (ms)\tper module (us)\tallocated (MB)\tpeak heap (MB)");
+        for (int i = 0; i < sizes.length; i++) {
+            generator.setModules(Integer.parseInt(sizes[i].trim()));
+            run(generator, dir, out);
+        }
+    }
+
+    private static void run(RepositoryGenerator generator, File dir, PrintWriter out)
+            throws Exception {
+        final int modules = generator.getModules();
+        FileUtil.forceDelete(dir);
+
+        Measure measure = new Measure(modules, out);
+        measure.start();
+        final BenchmarkRepository repository = generator.generate(new File(dir, "repository"));
+        measure.stop("generate");
+
+        Ivy ivy = repository.newIvy(new File(dir, "cache"));
+        ResolveOptions options = new ResolveOptions().setConfs(CONFS);
+        options.setLog(LogOptions.LOG_QUIET);
+
+        measure.start();
+        ResolveReport report = ivy.resolve(repository.getRootIvyFile().toURI().toURL(), options);
+        measure.stop("resolve (cold)");
+        checkReport(report);
+
+        measure.start();
+        report = ivy.resolve(repository.getRootIvyFile().toURI().toURL(), options);
+        measure.stop("resolve (warm)");
+        checkReport(report);
+
+        ModuleRevisionId mrid = report.getModuleDescriptor().getModuleRevisionId();
+        RetrieveOptions retrieveOptions = new RetrieveOptions().setConfs(CONFS)
+                .setDestArtifactPattern(new File(dir, "lib").getAbsolutePath()
+                        + "/[artifact]-[revision].[ext]");
+        retrieveOptions.setLog(LogOptions.LOG_QUIET);
+        measure.start();
+        ivy.retrieve(mrid, retrieveOptions);
+        measure.stop("retrieve");
+
+        List mds = generator.newModuleDescriptors();
+        measure.start();
+        ivy.sortModuleDescriptors(mds, SortOptions.SILENT);
+        measure.stop("sort");
+
+        out.println(modules + "\t(" + report.getConfigurationReport(CONFS[0]).getNodesNumber()
+                + " resolved modules, "
+                + report.getConfigurationReport(CONFS[0]).getEvictedNodes().length
+                + " evicted)");
+        FileUtil.forceDelete(dir);
+    }
+
+    private static void checkReport(ResolveReport report) {
+        if (report.hasError()) {
+            throw new IllegalStateException("resolve failed: " + report.getAllProblemMessages());
+        }
+    }
+
+    private static void usage(CommandLineParser parser) {
+        PrintWriter pw = new PrintWriter(System.out);
+        parser.printHelp(pw, HELP_WIDTH, "ScaleBenchmark", false);
+        pw.flush();
+    }
+
+    /**
+     * Measures the wall time, the allocations and the peak heap usage of a phase.
+     * <p>
+     * The allocations are the ones of the threads alive at the end of the phase, so the
+     * allocations of short lived worker threads are not counted. They are only available on JVMs
+     * supporting thread allocation accounting, -1 being printed otherwise.
+     * </p>
+     */
+    private static final class Measure {
+        private static final double MB = 1024 * 1024;
+
+        private final int modules;
+
+        private final PrintWriter out;
+
+        private long startTime;
+
+        private long startAllocated;
+
+        Measure(int modules, PrintWriter out) {
+            this.modules = modules;
+            this.out = out;
+        }
+
+        void start() {
+            System.gc();
+            for (Iterator it = heapPools().iterator(); it.hasNext();) {
+                ((MemoryPoolMXBean) it.next()).resetPeakUsage();
+            }
+            startAllocated = allocated();
+            startTime = System.nanoTime();
+        }
+
+        void stop(String phase) {
+            long time = System.nanoTime() - startTime;
+            long allocated = allocated();
+            long peak = 0;
+            for (Iterator it = heapPools().iterator(); it.hasNext();) {
+                peak += ((MemoryPoolMXBean) it.next()).getPeakUsage().getUsed();
+            }
+            out.println(modules + "\t" + phase + "\t" + time / 1000000 + "\t"
+                    + time / 1000 / modules + "\t"
+                    + (allocated < 0 ? "-1" : format((allocated - startAllocated) / MB)) + "\t"
+                    + format(peak / MB));
+        }
+
+        private static String format(double d) {
+            return String.valueOf(Math.round(d * 10) / 10.0);
+        }
+
+        private static List heapPools() {
+            List pools = new ArrayList();
+            for (Iterator it = ManagementFactory.getMemoryPoolMXBeans().iterator(); it
+                    .hasNext();) {
+                MemoryPoolMXBean pool = (MemoryPoolMXBean) it.next();
+                if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+                    pools.add(pool);
+                }
+            }
+            return pools;
+        }
+
+        private static long allocated() {
+            ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+            if (!(threads instanceof com.sun.management.ThreadMXBean)) {
+                return -1;
+            }
+            com.sun.management.ThreadMXBean sunThreads = (com.sun.management.ThreadMXBean) threads;
+            if (!sunThreads.isThreadAllocatedMemorySupported()
+                    || !sunThreads.isThreadAllocatedMemoryEnabled()) {
+                return -1;
+            }
+            long[] allocated = sunThreads.getThreadAllocatedBytes(threads.getAllThreadIds());
+            long total = 0;
+            for (int i = 0; i < allocated.length; i++) {
+                if (allocated[i] > 0) {
+                    total += allocated[i];
+                }
+            }
+            return total;
+        }
+    }
+
+    private ScaleBenchmark() {
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.benchmark;
+
+import java.io.File;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ivy.core.module.descriptor.ModuleDescriptor;
+import org.apache.ivy.core.settings.IvySettings;
+import org.apache.ivy.plugins.parser.xml.XmlModuleDescriptorParser;
+import org.apache.ivy.plugins.parser.xml.XmlModuleDescriptorWriter;
+import org.apache.ivy.util.FileUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measures the parsing of an ivy file by {@link XmlModuleDescriptorParser}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class XmlModuleDescriptorParserBenchmark {
+    @Param({"5", "50"})
+    private int dependencies;
+
+    private IvySettings settings;
+
+    private File dir;
+
+    private URL ivyFile;
+
+    @Setup
+    public void setUp() throws Exception {
+        settings = new IvySettings();
+        dir = File.createTempFile("ivy-bench", "");
+        dir.delete();
+        ModuleDescriptor md = (ModuleDescriptor) new RepositoryGenerator()
+                .setModules(dependencies * 2).setDepth(2).setFanOut(dependencies)
+                .setVersions(1).setRangeRatio(20).setExcludeRatio(20).newModuleDescriptors()
+                .get(0);
+        File file = new File(dir, "ivy.xml");
+        XmlModuleDescriptorWriter.write(md, file);
+        ivyFile = file.toURI().toURL();
+    }
+
+    @TearDown
+    public void tearDown() {
+        FileUtil.forceDelete(dir);
+    }
+
+    @Benchmark
+    public ModuleDescriptor parse() throws Exception {
+        return XmlModuleDescriptorParser.getInstance().parseDescriptor(settings, ivyFile, false);
+    }
+}
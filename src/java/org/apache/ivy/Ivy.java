@@ -30,7 +30,10 @@ import java.util.Map;
 import java.util.Properties;
 
 import org.apache.ivy.core.IvyContext;
+import org.apache.ivy.core.IvyMBeans;
 import org.apache.ivy.core.LogOptions;
+import org.apache.ivy.core.cache.DefaultRepositoryCacheManager;
+import org.apache.ivy.core.cache.RepositoryCacheManager;
 import org.apache.ivy.core.cache.ResolutionCacheManager;
 import org.apache.ivy.core.check.CheckEngine;
 import org.apache.ivy.core.deliver.DeliverEngine;
@@ -244,6 +247,14 @@ public class Ivy {
     private InstallEngine installEngine;
 
     private RepositoryManagementEngine repositoryEngine;
+
+    /**
+     * The instance under which the MBeans of this Ivy instance are registered, null if they are
+     * not registered.
+     * 
+     * @see IvyMBeans
+     */
+    private String mbeansInstance;
     
     /**
      * The logger engine to use to log messages when using this Ivy instance.
@@ -520,6 +531,16 @@ public class Ivy {
         }
     }
 
+    public List/*<ResolveReport>*/ resolve(Collection/*<ModuleDescriptor>*/ mds,
+            ResolveOptions options) throws ParseException, IOException {
+        pushContext();
+        try {
+            return resolveEngine.resolve(mds, options);
+        } finally {
+            popContext();
+        }
+    }
+
     // ///////////////////////////////////////////////////////////////////////
     // INSTALL
     // ///////////////////////////////////////////////////////////////////////
@@ -840,6 +861,42 @@ public class Ivy {
                 ((BasicResolver) resolver).setEventManager(eventManager);
     }
         }
+
+        if (IvyMBeans.isEnabled(settings)) {
+            if (mbeansInstance == null) {
+                mbeansInstance = IvyMBeans.newInstance();
+            }
+            IvyMBeans.register(settings, mbeansInstance);
+        }
+    }
+
+    /**
+     * Returns the instance under which the MBeans of this Ivy instance are registered, or
+     * <code>null</code> if they are not registered.
+     */
+    public String getMBeansInstance() {
+        return mbeansInstance;
+    }
+
+    /**
+     * Releases what this Ivy instance registered outside of itself, i.e. the MBeans of its
+     * statistics when JMX is enabled, and the threads revalidating stale cache entries, so that
+     * it can be garbage collected. Pending revalidations are still run in background. This
+     * instance should not be used anymore after this call.
+     */
+    public void dispose() {
+        if (mbeansInstance != null) {
+            IvyMBeans.unregister(settings, mbeansInstance);
+            mbeansInstance = null;
+        }
+        if (settings != null) {
+            RepositoryCacheManager[] caches = settings.getRepositoryCacheManagers();
+            for (int i = 0; i < caches.length; i++) {
+                if (caches[i] instanceof DefaultRepositoryCacheManager) {
+                    ((DefaultRepositoryCacheManager) caches[i]).dispose();
+                }
+            }
+        }
     }
 
     public String getVariable(String name) {
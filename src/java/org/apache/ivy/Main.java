@@ -35,6 +35,8 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.StringTokenizer;
 
+import org.apache.ivy.core.cache.DefaultRepositoryCacheManager;
+import org.apache.ivy.core.cache.RepositoryCacheManager;
 import org.apache.ivy.core.cache.ResolutionCacheManager;
 import org.apache.ivy.core.deliver.DeliverOptions;
 import org.apache.ivy.core.module.descriptor.DefaultDependencyDescriptor;
@@ -50,6 +52,7 @@ import org.apache.ivy.core.settings.IvySettings;
 import org.apache.ivy.plugins.parser.xml.XmlModuleDescriptorWriter;
 import org.apache.ivy.plugins.report.XmlReportParser;
 import org.apache.ivy.util.DefaultMessageLogger;
+import org.apache.ivy.util.FileUtil;
 import org.apache.ivy.util.Message;
 import org.apache.ivy.util.cli.CommandLine;
 import org.apache.ivy.util.cli.CommandLineParser;
@@ -69,6 +72,9 @@ import org.apache.ivy.util.url.URLHandlerRegistry;
 public final class Main {
     private static final int HELP_WIDTH = 80;
 
+    // time given to the background revalidations of stale cache entries before exiting
+    private static final long REVALIDATION_TIMEOUT = 5000;
+
     static CommandLineParser getParser() {
         return new CommandLineParser()
             .addCategory("settings options")
@@ -146,6 +152,14 @@ public final class Main {
             .addOption(new OptionBuilder("passwd").arg("passwd")
                 .description("use given password for HTTP AUTH").create())
 
+            .addCategory("cache eviction options")
+            .addOption(new OptionBuilder("evict")
+                .description("evict least recently used modules from caches").create())
+            .addOption(new OptionBuilder("maxsize").arg("size")
+                .description("max size of caches to evict to, like 500m").create())
+            .addOption(new OptionBuilder("maxage").arg("age")
+                .description("max time since modules were used, like 30d").create())
+
             .addCategory("launcher options")
             .addOption(new OptionBuilder("main").arg("main")
                 .description("the FQCN of the main class to launch").create())
@@ -154,6 +168,12 @@ public final class Main {
             .addOption(new OptionBuilder("cp").arg("cp")
                 .description("extra classpath to use when launching process").create())
 
+            .addCategory("daemon options")
+            .addOption(new OptionBuilder("daemon").arg("port")
+                .description("serve commands on the given local port").create())
+            .addOption(new OptionBuilder("usedaemon").arg("port")
+                .description("run in the daemon on the given local port if any").create())
+
             .addCategory("message options")
             .addOption(new OptionBuilder("debug")
                 .description("set message level to debug").create())
@@ -176,8 +196,18 @@ public final class Main {
     public static void main(String[] args) throws Exception {
         CommandLineParser parser = getParser();
         try {
-            run(parser, args);
-            System.exit(0);
+            CommandLine line = parser.parse(args);
+            if (line.hasOption("daemon")) {
+                new MainDaemon(parser, getPort(line, "daemon")).serve();
+                return;
+            }
+            if (line.hasOption("usedaemon") && !line.hasOption("main")) {
+                int status = MainDaemon.forward(getPort(line, "usedaemon"), args);
+                if (status != MainDaemon.NO_DAEMON) {
+                    System.exit(status);
+                }
+            }
+            System.exit(run(parser, line, null, null));
         } catch (ParseException ex) {
             System.err.println(ex.getMessage());
             usage(parser, false);
@@ -186,30 +216,59 @@ public final class Main {
     }
     
     static void run(CommandLineParser parser, String[] args) throws Exception {
-            // parse the command line arguments
-            CommandLine line = parser.parse(args);
+        // parse the command line arguments
+        int status = run(parser, parser.parse(args), null, null);
+        if (status != 0) {
+            System.exit(status);
+        }
+    }
 
-            if (line.hasOption("?")) {
-                usage(parser, line.hasOption("deprecated"));
-                return;
-            }
-            
-            if (line.hasOption("version")) {
-                System.out.println("Apache Ivy " + Ivy.getIvyVersion() + " - "
-                    + Ivy.getIvyDate() + " :: " + Ivy.getIvyHomeURL());
-                return;
-            }
+    /**
+     * Runs the given command line.
+     * 
+     * @param basedir
+     *            the directory against which relative paths are resolved, or <code>null</code>
+     *            to use the current directory
+     * @param daemon
+     *            the daemon providing an already configured Ivy instance, or <code>null</code>
+     *            to configure a new one
+     * @return the exit status of the command
+     */
+    static int run(CommandLineParser parser, CommandLine line, File basedir, MainDaemon daemon)
+            throws Exception {
+        if (line.hasOption("?")) {
+            usage(parser, line.hasOption("deprecated"));
+            return 0;
+        }
+
+        if (line.hasOption("version")) {
+            System.out.println("Apache Ivy " + Ivy.getIvyVersion() + " - "
+                + Ivy.getIvyDate() + " :: " + Ivy.getIvyHomeURL());
+            return 0;
+        }
+        if (daemon != null && line.hasOption("main")) {
+            error("-main can't be run by the daemon");
+        }
 
+        boolean validate = line.hasOption("novalidate") ? false : true;
 
-            boolean validate = line.hasOption("novalidate") ? false : true;
+        configureURLHandler(line.getOptionValue("realm", null), line.getOptionValue("host",
+            null), line.getOptionValue("username", null), line.getOptionValue("passwd", null));
 
-            Ivy ivy = Ivy.newInstance();
+        Ivy ivy;
+        if (daemon == null) {
+            ivy = Ivy.newInstance();
             initMessage(line, ivy);
-            IvySettings settings = initSettings(line, ivy);
-            ivy.pushContext();
-
-            File cache = new File(settings.substitute(line.getOptionValue("cache", settings
-                    .getDefaultCache().getAbsolutePath())));
+            initSettings(line, ivy, basedir);
+        } else {
+            ivy = daemon.getIvy(line, basedir);
+            initMessage(line, ivy);
+        }
+        IvySettings settings = ivy.getSettings();
+        ivy.pushContext();
+        try {
+            File cache = resolveFile(basedir, settings.substitute(line.getOptionValue("cache",
+                settings.getDefaultCache().getAbsolutePath())));
 
             if (line.hasOption("cache")) {
                 //override default cache path with user supplied cache path
@@ -222,6 +281,11 @@ public final class Main {
                 error(cache + " is not a directory");
             }
 
+            if (line.hasOption("evict")) {
+                evict(settings, line.getOptionValue("maxsize"), line.getOptionValue("maxage"));
+                return 0;
+            }
+
             String[] confs;
             if (line.hasOption("confs")) {
                 confs = line.getOptionValues("confs");
@@ -233,7 +297,9 @@ public final class Main {
             if (line.hasOption("dependency")) {
                 String[] dep = line.getOptionValues("dependency");
                 ivyfile = File.createTempFile("ivy", ".xml");
-                ivyfile.deleteOnExit();
+                if (daemon == null) {
+                    ivyfile.deleteOnExit();
+                }
                 DefaultModuleDescriptor md = DefaultModuleDescriptor
                         .newDefaultInstance(ModuleRevisionId.newInstance(dep[0],
                             dep[1] + "-caller", "working"));
@@ -246,7 +312,8 @@ public final class Main {
                 XmlModuleDescriptorWriter.write(md, ivyfile);
                 confs = new String[] {"default"};
             } else {
-                ivyfile = new File(settings.substitute(line.getOptionValue("ivy", "ivy.xml")));
+                ivyfile = resolveFile(basedir, settings.substitute(line.getOptionValue("ivy",
+                    "ivy.xml")));
                 if (!ivyfile.exists()) {
                     error("ivy file not found: " + ivyfile);
                 } else if (ivyfile.isDirectory()) {
@@ -268,8 +335,12 @@ public final class Main {
                 resolveOptions.setRefresh(true);
             }
             ResolveReport report = ivy.resolve(ivyfile.toURI().toURL(), resolveOptions);
+            if (daemon != null && line.hasOption("dependency")) {
+                // the daemon doesn't exit, the temporary file must not wait for it
+                ivyfile.delete();
+            }
             if (report.hasError()) {
-                System.exit(1);
+                return 1;
             }
             ModuleDescriptor md = report.getModuleDescriptor();
 
@@ -281,7 +352,9 @@ public final class Main {
                 if (retrievePattern.indexOf("[") == -1) {
                     retrievePattern = retrievePattern + "/lib/[conf]/[artifact].[ext]";
                 }
-                String ivyPattern = settings.substitute(line.getOptionValue("ivypattern"));
+                retrievePattern = resolvePath(basedir, retrievePattern);
+                String ivyPattern = resolvePath(basedir, 
+                    settings.substitute(line.getOptionValue("ivypattern")));
                 ivy.retrieve(md.getModuleRevisionId(), retrievePattern, new RetrieveOptions()
                         .setConfs(confs).setSync(line.hasOption("sync"))
                         .setUseOrigin(line.hasOption("useOrigin"))
@@ -290,25 +363,26 @@ public final class Main {
                         .setMakeSymlinks(line.hasOption("symlink")));
             }
             if (line.hasOption("cachepath")) {
-                outputCachePath(ivy, cache, md, confs, line.getOptionValue("cachepath",
-                    "ivycachepath.txt"));
+                outputCachePath(ivy, cache, md, confs, resolvePath(basedir, 
+                    line.getOptionValue("cachepath", "ivycachepath.txt")));
             }
 
             if (line.hasOption("revision")) {
+                String deliverPattern = resolvePath(basedir, settings.substitute(
+                    line.getOptionValue("deliverto", "ivy-[revision].xml")));
                 ivy.deliver(md.getResolvedModuleRevisionId(), settings.substitute(line
-                        .getOptionValue("revision")), settings.substitute(line.getOptionValue(
-                    "deliverto", "ivy-[revision].xml")), DeliverOptions.newInstance(settings)
+                        .getOptionValue("revision")), deliverPattern, 
+                    DeliverOptions.newInstance(settings)
                         .setStatus(settings.substitute(line.getOptionValue("status", "release")))
                         .setValidate(validate));
                 if (line.hasOption("publish")) {
-                    ivy.publish(md.getResolvedModuleRevisionId(), Collections.singleton(settings
-                            .substitute(line.getOptionValue("publishpattern",
-                                "distrib/[type]s/[artifact]-[revision].[ext]"))), line
-                            .getOptionValue("publish"), new PublishOptions()
+                    ivy.publish(md.getResolvedModuleRevisionId(), Collections.singleton(
+                            resolvePath(basedir, settings.substitute(line.getOptionValue(
+                                "publishpattern", "distrib/[type]s/[artifact]-[revision].[ext]")))),
+                            line.getOptionValue("publish"), new PublishOptions()
                             .setPubrevision(settings.substitute(line.getOptionValue("revision")))
-                            .setValidate(validate).setSrcIvyPattern(
-                                settings.substitute(line.getOptionValue("deliverto",
-                                    "ivy-[revision].xml"))).setOverwrite(line.hasOption("overwrite")));
+                            .setValidate(validate).setSrcIvyPattern(deliverPattern)
+                            .setOverwrite(line.hasOption("overwrite")));
                 }
             }
             if (line.hasOption("main")) {
@@ -330,8 +404,58 @@ public final class Main {
                 // invoke with given main class and merged params
                 invoke(ivy, cache, md, confs, fileList, line.getOptionValue("main"), params);
             }
+            return 0;
+        } finally {
             ivy.getLoggerEngine().popLogger();
             ivy.popContext();
+            if (daemon == null) {
+                dispose(ivy);
+            }
+        }
+    }
+
+    /**
+     * Disposes the given Ivy instance, and waits a little for the background revalidations of
+     * stale cache entries, which would otherwise be lost when the JVM exits.
+     */
+    private static void dispose(Ivy ivy) throws InterruptedException {
+        ivy.dispose();
+        long deadline = System.currentTimeMillis() + REVALIDATION_TIMEOUT;
+        RepositoryCacheManager[] caches = ivy.getSettings().getRepositoryCacheManagers();
+        for (int i = 0; i < caches.length; i++) {
+            if (caches[i] instanceof DefaultRepositoryCacheManager
+                    && !((DefaultRepositoryCacheManager) caches[i]).awaitRevalidations(
+                        Math.max(0, deadline - System.currentTimeMillis()))) {
+                Message.verbose("pending revalidations of " + caches[i].getName()
+                    + " cache abandoned");
+            }
+        }
+    }
+
+    private static int getPort(CommandLine line, String option) throws ParseException {
+        String port = line.getOptionValue(option);
+        try {
+            return Integer.parseInt(port);
+        } catch (NumberFormatException e) {
+            throw new ParseException("invalid port for " + option + ": " + port);
+        }
+    }
+
+    /**
+     * Resolves the given file name against the given base directory, or the current directory
+     * if it is <code>null</code>.
+     */
+    private static File resolveFile(File basedir, String fileName) {
+        return basedir == null ? new File(fileName) : FileUtil.resolveFile(basedir, fileName);
+    }
+
+    /**
+     * Resolves the given path or pattern against the given base directory, or returns it as is
+     * if the base directory is <code>null</code>.
+     */
+    private static String resolvePath(File basedir, String path) {
+        return basedir == null || path == null ? path 
+            : FileUtil.resolveFile(basedir, path).getPath();
     }
 
     /**
@@ -369,28 +493,21 @@ public final class Main {
         return fileList;
     }
 
-    private static IvySettings initSettings(CommandLine line, Ivy ivy) 
+    static IvySettings initSettings(CommandLine line, Ivy ivy, File basedir) 
             throws java.text.ParseException, IOException, ParseException {
         IvySettings settings = ivy.getSettings();
         settings.addAllVariables(System.getProperties());
+        if (basedir != null) {
+            settings.setBaseDir(basedir);
+        }
         if (line.hasOption("m2compatible")) {
             settings.setVariable("ivy.default.configuration.m2compatible", "true");
         }
 
-        configureURLHandler(line.getOptionValue("realm", null), line.getOptionValue("host",
-            null), line.getOptionValue("username", null), line.getOptionValue("passwd", null));
-
-        String settingsPath = line.getOptionValue("settings", "");
-        if ("".equals(settingsPath)) {
-            settingsPath = line.getOptionValue("conf", "");
-            if (!"".equals(settingsPath)) {
-                Message.deprecated("-conf is deprecated, use -settings instead");
-            }
-        }
-        if ("".equals(settingsPath)) {
+        File conffile = getSettingsFile(line, basedir);
+        if (conffile == null) {
             ivy.configureDefault();
         } else {
-            File conffile = new File(settingsPath);
             if (!conffile.exists()) {
                 error("ivy configuration file not found: " + conffile);
             } else if (conffile.isDirectory()) {
@@ -401,6 +518,21 @@ public final class Main {
         return settings;
     }
 
+    /**
+     * Returns the settings file given on the command line, or <code>null</code> if the default
+     * settings should be used.
+     */
+    static File getSettingsFile(CommandLine line, File basedir) {
+        String settingsPath = line.getOptionValue("settings", "");
+        if ("".equals(settingsPath)) {
+            settingsPath = line.getOptionValue("conf", "");
+            if (!"".equals(settingsPath)) {
+                Message.deprecated("-conf is deprecated, use -settings instead");
+            }
+        }
+        return "".equals(settingsPath) ? null : resolveFile(basedir, settingsPath);
+    }
+
     private static void initMessage(CommandLine line, Ivy ivy) {
         if (line.hasOption("debug")) {
             ivy.getLoggerEngine().pushLogger(new DefaultMessageLogger(Message.MSG_DEBUG));
@@ -525,11 +657,27 @@ public final class Main {
         URLHandlerRegistry.setDefault(dispatcher);
     }
 
+    private static void evict(IvySettings settings, String maxSize, String maxAge) 
+            throws ParseException {
+        RepositoryCacheManager[] caches = settings.getRepositoryCacheManagers();
+        for (int i = 0; i < caches.length; i++) {
+            if (caches[i] instanceof DefaultRepositoryCacheManager) {
+                try {
+                    int evicted = ((DefaultRepositoryCacheManager) caches[i])
+                            .evict(maxSize, maxAge);
+                    Message.info("evicted " + evicted + " module revisions from " + caches[i]);
+                } catch (IllegalArgumentException e) {
+                    error(e.getMessage());
+                }
+            }
+        }
+    }
+
     private static void error(String msg) throws ParseException {
         throw new ParseException(msg);
     }
 
-    private static void usage(CommandLineParser parser, boolean showDeprecated) {
+    static void usage(CommandLineParser parser, boolean showDeprecated) {
         // automatically generate the help statement
         PrintWriter pw = new PrintWriter(System.out);
         parser.printHelp(pw, HELP_WIDTH, "ivy", showDeprecated);
@@ -0,0 +1,406 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.ivy.util.ChecksumHelper;
+import org.apache.ivy.util.FileUtil;
+import org.apache.ivy.util.Message;
+import org.apache.ivy.util.cli.CommandLine;
+import org.apache.ivy.util.cli.CommandLineParser;
+import org.apache.ivy.util.cli.ParseException;
+
+/**
+ * Runs the commands of {@link Main} in a long lived process, so that they don't pay for the JVM
+ * startup, the settings parsing and cold memory caches.
+ * <p>
+ * The daemon listens on a port of the loopback interface. A client sends its current directory
+ * and its arguments, the daemon runs them and streams back the standard and error outputs of
+ * the command, and then its exit status. Commands are run one at a time.
+ * </p>
+ * <p>
+ * Clients must first send a random token, which the daemon writes at startup in a file only
+ * readable by its owner, in the <code>.ivy2</code> directory of the user home. Other users of the
+ * machine thus can't run commands with the permissions of the daemon owner.
+ * </p>
+ * <p>
+ * The configured Ivy instances are kept by settings file, base directory, cache and maven 2
+ * compatibility options. An instance is configured again when its settings file has been
+ * modified since it was loaded. Files included by the settings file are not checked. Instances
+ * which are dropped are disposed.
+ * </p>
+ */
+final class MainDaemon {
+    /**
+     * Status returned by {@link #forward(int, String[])} when no daemon is listening.
+     */
+    static final int NO_DAEMON = -1;
+
+    private static final int MAX_INSTANCES = 10;
+
+    private static final int TOKEN_LENGTH = 32;
+
+    private static final byte EXIT = 0;
+
+    private static final byte OUT = 1;
+
+    private static final byte ERR = 2;
+
+    private final CommandLineParser parser;
+
+    private final ServerSocket serverSocket;
+
+    private final File tokenFile;
+
+    private final String token;
+
+    // Map (String key -> ConfiguredIvy), the least recently used first
+    private final Map instances = new LinkedHashMap(MAX_INSTANCES, 0.75f, true) {
+        protected boolean removeEldestEntry(Map.Entry eldest) {
+            if (size() > MAX_INSTANCES) {
+                ((ConfiguredIvy) eldest.getValue()).ivy.dispose();
+                return true;
+            }
+            return false;
+        }
+    };
+
+    private int loads = 0;
+
+    /**
+     * Creates a daemon listening on the given port of the loopback interface, 0 meaning any free
+     * port.
+     */
+    MainDaemon(CommandLineParser parser, int port) throws IOException {
+        this(parser, port, getDefaultTokenDir());
+    }
+
+    /**
+     * Creates a daemon listening on the given port of the loopback interface, 0 meaning any free
+     * port, and writing its token in the given directory.
+     */
+    MainDaemon(CommandLineParser parser, int port, File tokenDir) throws IOException {
+        this.parser = parser;
+        this.serverSocket = new ServerSocket(port, 50, InetAddress.getByName(null));
+        this.tokenFile = getTokenFile(tokenDir, getPort());
+        try {
+            this.token = writeToken(tokenFile);
+        } catch (IOException e) {
+            serverSocket.close();
+            throw e;
+        }
+    }
+
+    int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Returns the number of times an Ivy instance has been configured by this daemon.
+     */
+    synchronized int getLoads() {
+        return loads;
+    }
+
+    /**
+     * Serves the commands sent to this daemon, until it is closed.
+     */
+    void serve() throws IOException {
+        Message.info("ivy daemon listening on " + serverSocket.getLocalSocketAddress());
+        while (!serverSocket.isClosed()) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException e) {
+                if (serverSocket.isClosed()) {
+                    return;
+                }
+                throw e;
+            }
+            try {
+                serve(socket);
+            } catch (IOException e) {
+                Message.warn("ivy daemon: client connection failed: " + e);
+            } finally {
+                socket.close();
+            }
+        }
+    }
+
+    void close() throws IOException {
+        serverSocket.close();
+        tokenFile.delete();
+        synchronized (this) {
+            for (Iterator iter = instances.values().iterator(); iter.hasNext();) {
+                ((ConfiguredIvy) iter.next()).ivy.dispose();
+            }
+            instances.clear();
+        }
+    }
+
+    private void serve(Socket socket) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(
+                socket.getInputStream()));
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                socket.getOutputStream()));
+        if (!MessageDigest.isEqual(token.getBytes("UTF-8"), in.readUTF().getBytes("UTF-8"))) {
+            Message.warn("ivy daemon: rejected a client with an invalid token");
+            PrintStream stderr = new PrintStream(new FrameOutputStream(out, ERR), true);
+            stderr.println("invalid ivy daemon token: the daemon may have been restarted");
+            writeExit(out, 1);
+            return;
+        }
+        File basedir = new File(in.readUTF());
+        String[] args = new String[in.readInt()];
+        for (int i = 0; i < args.length; i++) {
+            args[i] = in.readUTF();
+        }
+
+        PrintStream stdout = new PrintStream(new FrameOutputStream(out, OUT), true);
+        PrintStream stderr = new PrintStream(new FrameOutputStream(out, ERR), true);
+        PrintStream previousOut = System.out;
+        PrintStream previousErr = System.err;
+        System.setOut(stdout);
+        System.setErr(stderr);
+        int status;
+        try {
+            status = run(basedir, args);
+        } finally {
+            stdout.flush();
+            stderr.flush();
+            System.setOut(previousOut);
+            System.setErr(previousErr);
+        }
+        writeExit(out, status);
+    }
+
+    private static void writeExit(DataOutputStream out, int status) throws IOException {
+        synchronized (out) {
+            out.writeByte(EXIT);
+            out.writeInt(status);
+            out.flush();
+        }
+    }
+
+    private int run(File basedir, String[] args) {
+        try {
+            return Main.run(parser, parser.parse(args), basedir, this);
+        } catch (ParseException ex) {
+            System.err.println(ex.getMessage());
+            Main.usage(parser, false);
+            return 1;
+        } catch (Exception ex) {
+            ex.printStackTrace();
+            return 1;
+        }
+    }
+
+    /**
+     * Returns the Ivy instance configured for the given command line, configuring a new one if
+     * there is none or if its settings file has been modified since it was configured.
+     */
+    synchronized Ivy getIvy(CommandLine line, File basedir) throws Exception {
+        File settingsFile = Main.getSettingsFile(line, basedir);
+        String key = (settingsFile == null ? "" : settingsFile.getAbsolutePath()) + "|"
+                + basedir + "|" + line.getOptionValue("cache", "") + "|"
+                + line.hasOption("m2compatible");
+        long lastModified = settingsFile == null ? 0 : settingsFile.lastModified();
+        ConfiguredIvy configured = (ConfiguredIvy) instances.get(key);
+        if (configured != null && configured.lastModified == lastModified) {
+            return configured.ivy;
+        }
+        if (configured != null) {
+            Message.info("ivy daemon: reloading modified settings " + settingsFile);
+        }
+        if (configured != null) {
+            configured.ivy.dispose();
+            instances.remove(key);
+        }
+        Ivy ivy = Ivy.newInstance();
+        Main.initSettings(line, ivy, basedir);
+        loads++;
+        instances.put(key, new ConfiguredIvy(ivy, lastModified));
+        return ivy;
+    }
+
+    /**
+     * Sends the given arguments to the daemon listening on the given local port, and copies its
+     * outputs to the outputs of this process.
+     * 
+     * @return the exit status of the command, or {@link #NO_DAEMON} if no daemon is listening on
+     *         the given port
+     */
+    static int forward(int port, String[] args) throws IOException {
+        return forward(port, getDefaultTokenDir(), args);
+    }
+
+    /**
+     * Sends the given arguments to the daemon listening on the given local port, authenticating
+     * with the token written in the given directory.
+     * 
+     * @return the exit status of the command, or {@link #NO_DAEMON} if no daemon is listening on
+     *         the given port, or if its token can't be found
+     */
+    static int forward(int port, File tokenDir, String[] args) throws IOException {
+        File tokenFile = getTokenFile(tokenDir, port);
+        if (!tokenFile.exists()) {
+            return NO_DAEMON;
+        }
+        String token = FileUtil.readEntirely(tokenFile).trim();
+        Socket socket;
+        try {
+            socket = new Socket(InetAddress.getByName(null), port);
+        } catch (ConnectException e) {
+            return NO_DAEMON;
+        }
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    socket.getOutputStream()));
+            out.writeUTF(token);
+            out.writeUTF(new File("").getAbsolutePath());
+            out.writeInt(args.length);
+            for (int i = 0; i < args.length; i++) {
+                out.writeUTF(args[i]);
+            }
+            out.flush();
+
+            DataInputStream in = new DataInputStream(new BufferedInputStream(
+                    socket.getInputStream()));
+            while (true) {
+                byte type = in.readByte();
+                if (type == EXIT) {
+                    return in.readInt();
+                }
+                byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                PrintStream stream = type == ERR ? System.err : System.out;
+                stream.write(bytes);
+                stream.flush();
+            }
+        } finally {
+            socket.close();
+        }
+    }
+
+    /**
+     * Returns the directory in which daemons write their token by default.
+     */
+    static File getDefaultTokenDir() {
+        return new File(System.getProperty("user.home"), ".ivy2");
+    }
+
+    private static File getTokenFile(File tokenDir, int port) {
+        return new File(tokenDir, "daemon-" + port + ".token");
+    }
+
+    /**
+     * Writes a new random token in the given file, which only the current user can read.
+     */
+    private static String writeToken(File tokenFile) throws IOException {
+        byte[] bytes = new byte[TOKEN_LENGTH];
+        new SecureRandom().nextBytes(bytes);
+        String token = ChecksumHelper.byteArrayToHexString(bytes);
+
+        tokenFile.getParentFile().mkdirs();
+        if (tokenFile.exists() && !tokenFile.delete() || !tokenFile.createNewFile()) {
+            throw new IOException("impossible to create ivy daemon token file " + tokenFile);
+        }
+        tokenFile.deleteOnExit();
+        // permissions are restricted before the token is written
+        if (!tokenFile.setReadable(false, false) || !tokenFile.setReadable(true, true)
+                || !tokenFile.setWritable(false, false) || !tokenFile.setWritable(true, true)) {
+            tokenFile.delete();
+            throw new IOException(
+                "impossible to make ivy daemon token file readable by its owner only: "
+                + tokenFile);
+        }
+        Writer writer = new OutputStreamWriter(new FileOutputStream(tokenFile), "UTF-8");
+        try {
+            writer.write(token);
+        } finally {
+            writer.close();
+        }
+        return token;
+    }
+
+    private static final class ConfiguredIvy {
+        private final Ivy ivy;
+
+        private final long lastModified;
+
+        ConfiguredIvy(Ivy ivy, long lastModified) {
+            this.ivy = ivy;
+            this.lastModified = lastModified;
+        }
+    }
+
+    /**
+     * Sends what is written to it as frames of the given type.
+     */
+    private static final class FrameOutputStream extends OutputStream {
+        private final DataOutputStream out;
+
+        private final byte type;
+
+        FrameOutputStream(DataOutputStream out, byte type) {
+            this.out = out;
+            this.type = type;
+        }
+
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return;
+            }
+            synchronized (out) {
+                out.writeByte(type);
+                out.writeInt(len);
+                out.write(b, off, len);
+            }
+        }
+
+        public void flush() throws IOException {
+            synchronized (out) {
+                out.flush();
+            }
+        }
+    }
+}
@@ -33,7 +33,9 @@ import org.apache.ivy.util.url.CredentialsStore;
 import org.apache.ivy.util.url.URLHandler;
 import org.apache.ivy.util.url.URLHandlerDispatcher;
 import org.apache.ivy.util.url.URLHandlerRegistry;
+import org.apache.tools.ant.BuildEvent;
 import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.BuildListener;
 import org.apache.tools.ant.Project;
 import org.apache.tools.ant.ProjectComponent;
 import org.apache.tools.ant.Task;
@@ -295,6 +297,7 @@ public class IvyAntSettings extends DataType {
             }
             ivyAntVariableContainer.updateProject(id);
             ivyEngine = ivy;
+            disposeOnBuildFinished(project, ivy);
         } catch (ParseException e) {
             throw new BuildException("impossible to configure ivy:settings with given "
                     + (file != null ? "file: " + file : "url: " + url) + " : " + e, e);
@@ -306,6 +309,39 @@ public class IvyAntSettings extends DataType {
         }
     }
 
+    /**
+     * Disposes the given {@link Ivy} instance when the build finishes, so that a build
+     * configuring many settings doesn't keep all of them registered.
+     */
+    private void disposeOnBuildFinished(Project project, final Ivy ivy) {
+        project.addBuildListener(new BuildListener() {
+            public void buildFinished(BuildEvent event) {
+                ivy.dispose();
+                if (ivyEngine == ivy) {
+                    ivyEngine = null;
+                }
+            }
+
+            public void buildStarted(BuildEvent event) {
+            }
+
+            public void targetStarted(BuildEvent event) {
+            }
+
+            public void targetFinished(BuildEvent event) {
+            }
+
+            public void taskStarted(BuildEvent event) {
+            }
+
+            public void taskFinished(BuildEvent event) {
+            }
+
+            public void messageLogged(BuildEvent event) {
+            }
+        });
+    }
+
     protected Properties getDefaultProperties(ProjectComponent task) {
         URL url = IvySettings.getDefaultPropertiesURL();
         // this is copy of loadURL code from ant Property task (not available in 1.5.1)
@@ -0,0 +1,103 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.ant;
+
+import org.apache.ivy.core.cache.DefaultRepositoryCacheManager;
+import org.apache.ivy.core.cache.RepositoryCacheManager;
+import org.apache.ivy.core.settings.IvySettings;
+import org.apache.ivy.util.Message;
+import org.apache.tools.ant.BuildException;
+
+/**
+ * Removes the least recently used module revisions of Ivy repository cache(s), according to a
+ * maximum size and a maximum age.
+ */
+public class IvyEvictCache extends IvyTask {
+    private String cache = IvyCleanCache.ALL;
+
+    private String maxSize;
+
+    private String maxAge;
+
+    public String getCache() {
+        return cache;
+    }
+
+    /**
+     * Sets the name of the repository cache to evict module revisions from, '*' for all caches.
+     * 
+     * @param cache
+     *            the name of the cache. Must not be <code>null</code>.
+     */
+    public void setCache(String cache) {
+        this.cache = cache;
+    }
+
+    public String getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Sets the maximum size of the cache(s), in bytes or with a k, m or g unit. Defaults to the
+     * maxSize setting of each cache.
+     */
+    public void setMaxSize(String maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public String getMaxAge() {
+        return maxAge;
+    }
+
+    /**
+     * Sets the maximum time since the module revisions kept were last used, like '30d'. Defaults
+     * to the maxAge setting of each cache.
+     */
+    public void setMaxAge(String maxAge) {
+        this.maxAge = maxAge;
+    }
+
+    public void doExecute() throws BuildException {
+        IvySettings settings = getIvyInstance().getSettings();
+        if (IvyCleanCache.ALL.equals(getCache())) {
+            RepositoryCacheManager[] caches = settings.getRepositoryCacheManagers();
+            for (int i = 0; i < caches.length; i++) {
+                evict(caches[i]);
+            }
+        } else {
+            RepositoryCacheManager cache = settings.getRepositoryCacheManager(getCache());
+            if (cache == null) {
+                throw new BuildException("unknown cache '" + getCache() + "'");
+            }
+            evict(cache);
+        }
+    }
+
+    private void evict(RepositoryCacheManager cache) {
+        if (!(cache instanceof DefaultRepositoryCacheManager)) {
+            Message.verbose("eviction not supported by " + cache + ": ignored");
+            return;
+        }
+        try {
+            int evicted = ((DefaultRepositoryCacheManager) cache).evict(getMaxSize(), getMaxAge());
+            Message.info("evicted " + evicted + " module revisions from " + cache);
+        } catch (IllegalArgumentException e) {
+            throw new BuildException(e.getMessage(), e);
+        }
+    }
+}
@@ -90,6 +90,8 @@ public class IvyResolve extends IvyTask {
     
     private boolean checkIfChanged = true; //for backward compatibility
 
+    private boolean reuseResolution = false;
+
     private List/* <IvyDependency> */dependencies = new ArrayList();
 
     private List/* <IvyExclude> */excludes = new ArrayList();
@@ -422,7 +424,8 @@ public class IvyResolve extends IvyTask {
                 .setTransitive(transitive)
                 .setResolveMode(resolveMode)
                 .setResolveId(resolveId)
-                .setCheckIfChanged(checkIfChanged);
+                .setCheckIfChanged(checkIfChanged)
+                .setReuseResolution(reuseResolution);
     }
 
     public String getModule() {
@@ -496,4 +499,12 @@ public class IvyResolve extends IvyTask {
     public void setCheckIfChanged(boolean checkIfChanged) {
         this.checkIfChanged = checkIfChanged;
     }
+
+    public boolean isReuseResolution() {
+        return reuseResolution;
+    }
+
+    public void setReuseResolution(boolean reuseResolution) {
+        this.reuseResolution = reuseResolution;
+    }
 }
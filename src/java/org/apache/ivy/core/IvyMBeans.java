@@ -0,0 +1,157 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.core;
+
+import java.lang.management.ManagementFactory;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.ivy.core.cache.DefaultRepositoryCacheManager;
+import org.apache.ivy.core.cache.RepositoryCacheManager;
+import org.apache.ivy.core.settings.IvySettings;
+import org.apache.ivy.plugins.resolver.BasicResolver;
+import org.apache.ivy.plugins.resolver.DependencyResolver;
+import org.apache.ivy.util.Message;
+
+/**
+ * Registers the statistics of the repository cache managers and of the resolvers of some
+ * settings as MBeans in the platform MBean server, so that they can be monitored through JMX.
+ * <p>
+ * The statistics of a cache manager are registered as
+ * <code>org.apache.ivy:type=RepositoryCache,ivy=&lt;instance&gt;,name=&lt;cache name&gt;</code>,
+ * and the ones of a resolver as
+ * <code>org.apache.ivy:type=Resolver,ivy=&lt;instance&gt;,name=&lt;resolver name&gt;</code>, the
+ * instance identifying the Ivy instance using the settings (see {@link #newInstance()}).
+ * Registering a component replaces any MBean previously registered under the same name.
+ * </p>
+ * <p>
+ * Registration is done when Ivy is configured with the variable {@link #JMX_ENABLED_VAR} set to
+ * true, and the MBeans are unregistered by {@link org.apache.ivy.Ivy#dispose()}. Since the MBean
+ * server keeps the registered statistics, and thus the caches and resolvers they come from,
+ * reachable, each registration must be paired with an unregistration.
+ * </p>
+ */
+public final class IvyMBeans {
+
+    public static final String JMX_ENABLED_VAR = "ivy.jmx.enabled";
+
+    public static final String DOMAIN = "org.apache.ivy";
+
+    private static final AtomicInteger NEXT_INSTANCE = new AtomicInteger();
+
+    private IvyMBeans() {
+        // Utility class
+    }
+
+    /**
+     * Tells if the given settings request the registration of the MBeans.
+     */
+    public static boolean isEnabled(IvySettings settings) {
+        return Boolean.valueOf(settings.getVariable(JMX_ENABLED_VAR)).booleanValue();
+    }
+
+    /**
+     * Returns a new identifier of instance, to be used to register the MBeans of an Ivy instance.
+     */
+    public static String newInstance() {
+        return String.valueOf(NEXT_INSTANCE.incrementAndGet());
+    }
+
+    /**
+     * Registers the statistics of the cache managers and resolvers of the given settings, under
+     * the given instance.
+     */
+    public static void register(IvySettings settings, String instance) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        RepositoryCacheManager[] caches = settings.getRepositoryCacheManagers();
+        for (int i = 0; i < caches.length; i++) {
+            if (caches[i] instanceof DefaultRepositoryCacheManager) {
+                register(server, getCacheObjectName(instance, caches[i].getName()),
+                    ((DefaultRepositoryCacheManager) caches[i]).getStatistics());
+            }
+        }
+        for (Iterator iter = settings.getResolvers().iterator(); iter.hasNext();) {
+            DependencyResolver resolver = (DependencyResolver) iter.next();
+            if (resolver instanceof BasicResolver) {
+                register(server, getResolverObjectName(instance, resolver.getName()),
+                    ((BasicResolver) resolver).getStatistics());
+            }
+        }
+    }
+
+    /**
+     * Unregisters the statistics of the cache managers and resolvers of the given settings,
+     * registered under the given instance.
+     */
+    public static void unregister(IvySettings settings, String instance) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        RepositoryCacheManager[] caches = settings.getRepositoryCacheManagers();
+        for (int i = 0; i < caches.length; i++) {
+            unregister(server, getCacheObjectName(instance, caches[i].getName()));
+        }
+        for (Iterator iter = settings.getResolvers().iterator(); iter.hasNext();) {
+            DependencyResolver resolver = (DependencyResolver) iter.next();
+            unregister(server, getResolverObjectName(instance, resolver.getName()));
+        }
+    }
+
+    public static ObjectName getCacheObjectName(String instance, String cacheName) {
+        return getObjectName("RepositoryCache", instance, cacheName);
+    }
+
+    public static ObjectName getResolverObjectName(String instance, String resolverName) {
+        return getObjectName("Resolver", instance, resolverName);
+    }
+
+    private static ObjectName getObjectName(String type, String instance, String name) {
+        try {
+            return new ObjectName(DOMAIN + ":type=" + type + ",ivy=" + ObjectName.quote(instance)
+                + ",name=" + ObjectName.quote(name));
+        } catch (JMException e) {
+            throw new IllegalArgumentException("invalid mbean name for " + type + " " + name 
+                + ": " + e.getMessage());
+        }
+    }
+
+    private static void register(MBeanServer server, ObjectName objectName, Object mbean) {
+        try {
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+            server.registerMBean(mbean, objectName);
+            Message.debug("registered mbean " + objectName);
+        } catch (JMException e) {
+            Message.warn("impossible to register mbean " + objectName + ": " + e.getMessage());
+        }
+    }
+
+    private static void unregister(MBeanServer server, ObjectName objectName) {
+        try {
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+        } catch (JMException e) {
+            Message.verbose("impossible to unregister mbean " + objectName + ": " 
+                + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.core.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+
+import org.apache.ivy.util.ChecksumHelper;
+import org.apache.ivy.util.FileUtil;
+import org.apache.ivy.util.Message;
+
+/**
+ * Stores the content of the artifacts of a cache once, by SHA-1, so that artifacts with the same
+ * content found at several places of the cache share the same file.
+ * <p>
+ * The content is stored in <tt>.sha1/xx/xxxxxxxx...</tt> under the cache root, and the artifact
+ * files at the cache pattern locations are hard links to it. As the downloaded artifacts replace
+ * the files in cache rather than writing into them, changing one of these files never changes the
+ * others. When hard links are not supported, the artifact files are left as they are.
+ * </p>
+ */
+final class ArtifactContentStore {
+    static final String DIR_NAME = ".sha1";
+
+    private static final String ALGORITHM = "sha1";
+
+    private final File root;
+
+    ArtifactContentStore(File cacheRoot) {
+        this.root = new File(cacheRoot, DIR_NAME);
+    }
+
+    /**
+     * Stores the content of the given artifact file, replacing the file by a link to the content
+     * already stored if there is one.
+     * 
+     * @param file
+     *            an artifact file of the cache, which has just been downloaded
+     * @return true if the file is linked to the stored content
+     */
+    boolean store(File file) {
+        String sha1;
+        try {
+            sha1 = ChecksumHelper.computeAsString(file, ALGORITHM);
+        } catch (IOException e) {
+            Message.verbose("impossible to compute the sha1 of " + file + ": " + e.getMessage());
+            return false;
+        }
+        File content = getContentFile(sha1);
+        if (!content.exists() && FileUtil.hardlink(file, content)) {
+            Message.debug("stored content of " + file + " as " + content);
+            return true;
+        }
+        // the content is already stored, or has been concurrently
+        if (!content.exists() || content.length() != file.length()) {
+            return false;
+        }
+        File link = new File(file.getParentFile(), file.getName() + ".link");
+        link.delete();
+        if (!FileUtil.hardlink(content, link)) {
+            return false;
+        }
+        if (!link.renameTo(file) && !(file.delete() && link.renameTo(file))) {
+            link.delete();
+            return false;
+        }
+        Message.debug("linked " + file + " to " + content);
+        return true;
+    }
+
+    /**
+     * Removes the stored content which is not linked from the artifact files anymore. Nothing is
+     * done when the number of links of a file cannot be known.
+     * 
+     * @return the number of content files removed
+     */
+    int purge() {
+        File[] dirs = root.listFiles();
+        if (dirs == null) {
+            return 0;
+        }
+        int purged = 0;
+        for (int i = 0; i < dirs.length; i++) {
+            File[] files = dirs[i].listFiles();
+            for (int j = 0; files != null && j < files.length; j++) {
+                if (getLinkCount(files[j]) == 1 && files[j].delete()) {
+                    purged++;
+                }
+            }
+            dirs[i].delete(); // only if empty
+        }
+        return purged;
+    }
+
+    /**
+     * Returns the number of hard links to the given file, -1 if it cannot be known.
+     */
+    private static int getLinkCount(File file) {
+        try {
+            // java.nio.file.Files.getAttribute(file.toPath(), "unix:nlink"), on java 7+ unix
+            Method toPath = File.class.getMethod("toPath", new Class[0]);
+            Class linkOptionClass = Class.forName("java.nio.file.LinkOption");
+            Method getAttribute = Class.forName("java.nio.file.Files").getMethod("getAttribute", 
+                new Class[] {toPath.getReturnType(), String.class, 
+                        Array.newInstance(linkOptionClass, 0).getClass()});
+            Object count = getAttribute.invoke(null, new Object[] {
+                    toPath.invoke(file, new Object[0]), "unix:nlink", 
+                    Array.newInstance(linkOptionClass, 0)});
+            return ((Number) count).intValue();
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    File getContentFile(String sha1) {
+        return new File(root, sha1.substring(0, 2) + File.separator + sha1.substring(2));
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.core.cache;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ivy.Ivy;
+import org.apache.ivy.core.IvyContext;
+import org.apache.ivy.core.event.EventManager;
+import org.apache.ivy.core.event.resolve.EndRevalidateDependencyEvent;
+import org.apache.ivy.core.event.resolve.StartRevalidateDependencyEvent;
+import org.apache.ivy.core.module.descriptor.DefaultDependencyDescriptor;
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.core.resolve.ResolveData;
+import org.apache.ivy.core.resolve.ResolveOptions;
+import org.apache.ivy.core.resolve.ResolvedModuleRevision;
+import org.apache.ivy.plugins.resolver.DependencyResolver;
+import org.apache.ivy.util.Message;
+
+/**
+ * Checks module revisions served stale from a repository cache against their repository, in a
+ * background thread.
+ * <p>
+ * The check is a resolve of the module revision in refresh mode with the resolver configured for
+ * it, which updates the cache as any resolve would: the next resolve will then use the fresh
+ * data. A module revision is checked only once at a time, further requests being ignored until
+ * the pending check is finished.
+ * </p>
+ * <p>
+ * Checks run in a daemon thread, which is released when there is nothing left to check. The
+ * resolvers track their attempts per thread, so a check can use a resolver while a foreground
+ * resolve is using it. Checks still pending when the JVM exits are lost: the command line waits
+ * for them a few seconds before exiting, see {@link #awaitTermination(long)}.
+ * </p>
+ */
+final class CacheRevalidator {
+    // time after which the revalidation thread is released when there is nothing to check
+    private static final long IDLE_TIMEOUT = 30 * 1000;
+
+    // Map (ModuleRevisionId -> Boolean): the module revisions being checked
+    private final Map/*<ModuleRevisionId,Boolean>*/ pending = new ConcurrentHashMap();
+
+    private final String name;
+
+    private ExecutorService executor;
+
+    private boolean shutdown = false;
+
+    CacheRevalidator(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Schedules a background check of the given module revision.
+     * 
+     * @param mrid
+     *            the module revision, as requested (i.e. possibly dynamic)
+     * @param cachedRevision
+     *            the revision served from the cache
+     * @param changing
+     *            true if the module revision is a changing one
+     * @return false if the check could not be scheduled, in which case the stale data must not be
+     *         used
+     */
+    boolean revalidate(final ModuleRevisionId mrid, final String cachedRevision,
+            final boolean changing) {
+        final Ivy ivy = IvyContext.getContext().peekIvy();
+        if (ivy == null) {
+            Message.verbose(name + ": no ivy instance available to revalidate " + mrid);
+            return false;
+        }
+        if (pending.put(mrid, Boolean.TRUE) != null) {
+            Message.debug(name + ": revalidation of " + mrid + " already pending");
+            return true;
+        }
+        try {
+            getExecutor().execute(new Runnable() {
+                public void run() {
+                    try {
+                        doRevalidate(ivy, mrid, cachedRevision, changing);
+                    } finally {
+                        pending.remove(mrid);
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            pending.remove(mrid);
+            Message.verbose(name + ": impossible to revalidate " + mrid + ": " + e);
+            return false;
+        }
+        return true;
+    }
+
+    private void doRevalidate(Ivy ivy, ModuleRevisionId mrid, String cachedRevision, 
+            boolean changing) {
+        IvyContext.pushNewContext().setIvy(ivy);
+        try {
+            DependencyResolver resolver = ivy.getSettings().getResolver(mrid);
+            if (resolver == null) {
+                Message.verbose(name + ": no resolver found to revalidate " + mrid);
+                return;
+            }
+            DefaultDependencyDescriptor dd = new DefaultDependencyDescriptor(mrid, false, changing);
+            ResolveData data = new ResolveData(
+                ivy.getResolveEngine(), new ResolveOptions().setRefresh(true));
+            EventManager eventManager = ivy.getEventManager();
+            eventManager.fireIvyEvent(
+                new StartRevalidateDependencyEvent(resolver, dd, mrid, cachedRevision));
+            long start = System.currentTimeMillis();
+            ResolvedModuleRevision rmr = null;
+            try {
+                Message.verbose(name + ": revalidating " + mrid + " (cached: " 
+                    + cachedRevision + ")");
+                rmr = resolver.getDependency(dd, data);
+            } catch (Exception e) {
+                Message.verbose(name + ": problem while revalidating " + mrid + ": " + e);
+            } finally {
+                eventManager.fireIvyEvent(new EndRevalidateDependencyEvent(resolver, dd, mrid, 
+                    cachedRevision, rmr, System.currentTimeMillis() - start));
+            }
+        } finally {
+            IvyContext.popContext();
+        }
+    }
+
+    private synchronized ExecutorService getExecutor() {
+        if (shutdown) {
+            throw new RejectedExecutionException("revalidations have been shut down");
+        }
+        if (executor == null) {
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(1, 1, IDLE_TIMEOUT,
+                TimeUnit.MILLISECONDS, new LinkedBlockingQueue(), new ThreadFactory() {
+                    public Thread newThread(Runnable r) {
+                        Thread t = new Thread(r, "ivy-revalidate-" + name);
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+            pool.allowCoreThreadTimeOut(true);
+            executor = pool;
+        }
+        return executor;
+    }
+
+    /**
+     * Stops accepting new revalidations. The pending ones are still run, in background.
+     */
+    synchronized void shutdown() {
+        shutdown = true;
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Waits for the pending revalidations to be done, after a {@link #shutdown()}.
+     * 
+     * @param timeout
+     *            the maximum time to wait, in milliseconds
+     * @return false if some revalidations were still pending when the timeout elapsed
+     */
+    boolean awaitTermination(long timeout) throws InterruptedException {
+        ExecutorService executor;
+        synchronized (this) {
+            executor = this.executor;
+        }
+        return executor == null || executor.awaitTermination(timeout, TimeUnit.MILLISECONDS);
+    }
+}
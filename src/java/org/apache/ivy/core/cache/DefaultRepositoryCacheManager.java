@@ -23,13 +23,24 @@ import java.io.UnsupportedEncodingException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 
 import org.apache.ivy.Ivy;
+import org.apache.ivy.core.IvyContext;
 import org.apache.ivy.core.IvyPatternHelper;
+import org.apache.ivy.core.event.resolve.EndDescriptorParseEvent;
 import org.apache.ivy.core.module.descriptor.Artifact;
 import org.apache.ivy.core.module.descriptor.DefaultArtifact;
 import org.apache.ivy.core.module.descriptor.DependencyDescriptor;
@@ -66,9 +77,12 @@ import org.apache.ivy.util.Checks;
 import org.apache.ivy.util.FileUtil;
 import org.apache.ivy.util.HexEncoder;
 import org.apache.ivy.util.Message;
-import org.apache.ivy.util.PropertiesFile;
 
 public class DefaultRepositoryCacheManager implements RepositoryCacheManager, IvySettingsAware {
+    public static final String DATA_STORE_PROPERTIES = "properties";
+
+    public static final String DATA_STORE_LOG = "log";
+
     private static final String DEFAULT_ARTIFACT_PATTERN =
         "[organisation]/[module](/[branch])/[type]s/[artifact]-[revision](-[classifier])(.[ext])";
 
@@ -79,6 +93,14 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
         "[organisation]/[module](/[branch])/ivy-[revision].xml";
     
     private static final int DEFAULT_MEMORY_CACHE_SIZE = 150;
+
+    /**
+     * The accesses to a module revision are recorded at most once during this time, to avoid
+     * saving its data on each access.
+     */
+    private static final long ACCESS_RECORD_PERIOD = 60 * 60 * 1000L;
+
+    private static final Pattern SIZE_PATTERN = Pattern.compile("(\\d+)\\s*([kKmMgG]?)");
     
     private static MessageDigest SHA_DIGEST;
     static {
@@ -93,6 +115,10 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
     
     private File basedir;
 
+    private File sharedBasedir;
+
+    private ModuleDataStore sharedDataStore;
+
     private LockStrategy lockStrategy;
 
     private String name;
@@ -117,8 +143,45 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
 
     private Long defaultTTL = null;
 
+    private ModuleRules/*<Long>*/ missingTtlRules = new ModuleRules();
+
+    private long defaultMissingTTL = 0;
+
+    private int memorySize = DEFAULT_MEMORY_CACHE_SIZE;
+
+    private long memoryWeight = 0;
+
     private ModuleDescriptorMemoryCache memoryModuleDescrCache;
 
+    private ModuleDescriptorBinaryCache binaryModuleDescrCache;
+
+    private String dataStore = DATA_STORE_PROPERTIES;
+
+    private boolean contentAddressed;
+
+    private boolean atomicDownloads;
+
+    private long maxSize;
+
+    private long maxAge;
+
+    private long maxStale;
+
+    private CacheRevalidator revalidator;
+
+    private final RepositoryCacheStatistics statistics = new RepositoryCacheStatistics(this);
+
+    // Map (ModuleRevisionId -> String): the stale resolved revision served by the last cache
+    // lookup of the current thread, which must not be saved back as a fresh one by the resolver
+    // having made this lookup
+    private final ThreadLocal/*<Map<ModuleRevisionId,String>>*/ staleResolvedRevision 
+        = new ThreadLocal();
+
+    // Map (ModuleRevisionId -> Long): the last accesses recorded in the data store
+    private final Map/*<ModuleRevisionId,Long>*/ recordedAccesses = new ConcurrentHashMap();
+
+    private ModuleDataStore moduleDataStore;
+
     public DefaultRepositoryCacheManager() {
     }
 
@@ -178,8 +241,25 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
         return basedir;
     }
 
-    public void setBasedir(File cache) {
+    public synchronized void setBasedir(File cache) {
         this.basedir = cache;
+        moduleDataStore = null;
+    }
+
+    public File getSharedBasedir() {
+        return sharedBasedir;
+    }
+
+    /**
+     * Sets the base directory of a read-only cache, shared by several users or builds, which is
+     * looked up before this cache. The shared cache must have been populated by a cache using the
+     * same patterns and the properties data store. Modules and artifacts found there are used in
+     * place, and nothing is ever written to it: what isn't found there is resolved in this cache
+     * as usual.
+     */
+    public synchronized void setSharedBasedir(File sharedBasedir) {
+        this.sharedBasedir = sharedBasedir;
+        sharedDataStore = null;
     }
     
     public long getDefaultTTL() {
@@ -197,13 +277,51 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
         this.defaultTTL = new Long(parseDuration(defaultTTL));
     }
 
+    public long getDefaultMissingTTL() {
+        return defaultMissingTTL;
+    }
+
+    /**
+     * Sets the time during which a resource found missing in a repository is considered missing
+     * without looking for it again, when no missing ttl rule matches its module revision. 0, the
+     * default, means that missing resources are always looked for.
+     */
+    public void setDefaultMissingTTL(long defaultMissingTTL) {
+        this.defaultMissingTTL = defaultMissingTTL;
+    }
+
+    public void setDefaultMissingTTL(String defaultMissingTTL) {
+        this.defaultMissingTTL = parseDuration(defaultMissingTTL);
+    }
+
     public String getDataFilePattern() {
         return dataFilePattern;
     }
 
-    public void setDataFilePattern(String dataFilePattern) {
+    public synchronized void setDataFilePattern(String dataFilePattern) {
         CacheUtil.checkCachePattern(dataFilePattern);
         this.dataFilePattern = dataFilePattern;
+        moduleDataStore = null;
+        sharedDataStore = null;
+    }
+
+    public String getDataStore() {
+        return dataStore;
+    }
+
+    /**
+     * Sets how the data kept about the module revisions of this cache is stored: either
+     * {@link #DATA_STORE_PROPERTIES} for a properties file per module revision, located with the
+     * data file pattern, or {@link #DATA_STORE_LOG} for a single log file at the root of the cache.
+     */
+    public synchronized void setDataStore(String dataStore) {
+        if (!DATA_STORE_PROPERTIES.equals(dataStore) && !DATA_STORE_LOG.equals(dataStore)) {
+            throw new IllegalArgumentException("unknown data store '" + dataStore 
+                + "' for cache " + getName() + ": should be '" + DATA_STORE_PROPERTIES 
+                + "' or '" + DATA_STORE_LOG + "'");
+        }
+        this.dataStore = dataStore;
+        moduleDataStore = null;
     }
 
     public void setIvyPattern(String ivyPattern) {
@@ -251,13 +369,189 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
                     parseDuration(duration));
     }
 
-    public void setMemorySize(int size) {
-        memoryModuleDescrCache = new ModuleDescriptorMemoryCache(size);
+    public void addMissingTTL(Map attributes, PatternMatcher matcher, long duration) {
+        missingTtlRules.defineRule(new MapMatcher(attributes, matcher), new Long(duration));
+    }
+    
+    public void addConfiguredMissingTtl(Map/*<String,String>*/ attributes) {
+        String duration = (String) attributes.remove("duration");
+        if (duration == null) {
+            throw new IllegalArgumentException("'duration' attribute is mandatory for missingTtl");
+        }
+        String matcher = (String) attributes.remove("matcher");
+        addMissingTTL(
+            attributes, 
+            matcher == null ? ExactPatternMatcher.INSTANCE : settings.getMatcher(matcher), 
+                    parseDuration(duration));
+    }
+
+    public synchronized void setMemorySize(int size) {
+        memorySize = size;
+        memoryModuleDescrCache = null;
+    }
+    
+    /**
+     * Sets the maximum total weight of the module descriptors kept in the memory cache, the weight
+     * of a descriptor being roughly the number of elements it is made of. 0 means no limit.
+     */
+    public synchronized void setMemoryWeight(long weight) {
+        memoryWeight = weight;
+        memoryModuleDescrCache = null;
+    }
+    
+    /**
+     * Tells if the module descriptors parsed from the ivy files of this cache are also stored in
+     * a binary form next to these files, to be read back in place of parsing the xml.
+     */
+    public boolean isBinaryDescriptors() {
+        return binaryModuleDescrCache != null;
+    }
+
+    public void setBinaryDescriptors(boolean binaryDescriptors) {
+        binaryModuleDescrCache = binaryDescriptors ? new ModuleDescriptorBinaryCache() : null;
+    }
+    
+    /**
+     * Tells if the downloaded artifacts are stored once by content, the artifact files of the
+     * cache with the same content being hard links to the same file.
+     */
+    public boolean isContentAddressed() {
+        return contentAddressed;
+    }
+
+    public void setContentAddressed(boolean contentAddressed) {
+        this.contentAddressed = contentAddressed;
+    }
+
+    /**
+     * Tells if the artifacts are downloaded without holding the lock of their module revision.
+     * Each download is then done in a temporary file of the cache, which is moved to its
+     * definitive location in one step once complete. Concurrent downloads of the same artifact
+     * are thus safe, the last one winning, and the lock is only held to update the cached data.
+     */
+    public boolean isAtomicDownloads() {
+        return atomicDownloads;
+    }
+
+    public void setAtomicDownloads(boolean atomicDownloads) {
+        this.atomicDownloads = atomicDownloads;
+    }
+    
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Sets the maximum total size of the module revisions kept in this cache, in bytes or with a
+     * k, m or g unit (e.g. 500m), used by {@link #evict()}. 0 means no limit.
+     */
+    public void setMaxSize(String maxSize) {
+        this.maxSize = parseSize(maxSize);
+    }
+
+    public long getMaxAge() {
+        return maxAge;
+    }
+
+    /**
+     * Sets the time after which the module revisions which have not been used are removed from
+     * this cache by {@link #evict()}, as a duration like the ttl ones. 0 means no limit.
+     */
+    public void setMaxAge(String maxAge) {
+        this.maxAge = parseDuration(maxAge);
+    }
+
+    public long getMaxStale() {
+        return maxStale;
+    }
+
+    /**
+     * Sets the time during which an expired resolved revision or changing module revision is still
+     * used from this cache, while being checked against its repository in the background. The
+     * result of this check is used by the next resolve. 0, the default, means that expired
+     * entries are checked before being used.
+     */
+    public void setMaxStale(long maxStale) {
+        this.maxStale = maxStale;
+    }
+
+    public void setMaxStale(String maxStale) {
+        this.maxStale = parseDuration(maxStale);
+    }
+
+    private synchronized CacheRevalidator getRevalidator() {
+        if (revalidator == null) {
+            revalidator = new CacheRevalidator(getName());
+        }
+        return revalidator;
+    }
+
+    /**
+     * Releases the resources of this cache manager: stale entries are not served anymore, since
+     * they can't be revalidated, and the revalidation thread stops once the pending revalidations
+     * are done.
+     */
+    public synchronized void dispose() {
+        if (revalidator != null) {
+            revalidator.shutdown();
+        }
+    }
+
+    /**
+     * Waits for the pending background revalidations of a disposed cache manager to be done.
+     * 
+     * @param timeout
+     *            the maximum time to wait, in milliseconds
+     * @return false if some revalidations were still pending when the timeout elapsed
+     * @see #dispose()
+     */
+    public boolean awaitRevalidations(long timeout) throws InterruptedException {
+        CacheRevalidator revalidator;
+        synchronized (this) {
+            revalidator = this.revalidator;
+        }
+        return revalidator == null || revalidator.awaitTermination(timeout);
+    }
+
+    /**
+     * Tells if an entry expired at the given time can still be used, and if so schedules its
+     * background revalidation.
+     */
+    private boolean serveStale(ModuleRevisionId mrid, long expiration, String cachedRevision, 
+            boolean changing) {
+        if (maxStale <= 0) {
+            return false;
+        }
+        long staleExpiration = expiration + maxStale;
+        // negative expiration means that Long.MAX_VALUE has been exceeded
+        if (staleExpiration > 0 && System.currentTimeMillis() > staleExpiration) {
+            Message.verbose(getName() + ": cached data too stale to be used for " + mrid);
+            return false;
+        }
+        if (!getRevalidator().revalidate(mrid, cachedRevision, changing)) {
+            return false;
+        }
+        Message.verbose(getName() + ": using stale cached data for " + mrid 
+            + ": revalidating in background");
+        statistics.staleServed();
+        return true;
+    }
+
+    private boolean isAccessRecorded() {
+        return maxSize > 0 || maxAge > 0;
     }
     
-    public ModuleDescriptorMemoryCache getMemoryCache() {
+    /**
+     * Returns the statistics of this cache manager, which are updated on each lookup and
+     * download.
+     */
+    public RepositoryCacheStatistics getStatistics() {
+        return statistics;
+    }
+
+    public synchronized ModuleDescriptorMemoryCache getMemoryCache() {
         if (memoryModuleDescrCache == null) {
-            memoryModuleDescrCache = new ModuleDescriptorMemoryCache(DEFAULT_MEMORY_CACHE_SIZE);
+            memoryModuleDescrCache = new ModuleDescriptorMemoryCache(memorySize, memoryWeight);
         }
         return memoryModuleDescrCache;
     }
@@ -288,8 +582,8 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
             int millis = getGroupIntValue(m, 5);
             //CheckStyle:MagicNumber| ON
             
-            return days * MILLIS_IN_DAY 
-            + hours * MILLIS_IN_HOUR
+            return (long) days * MILLIS_IN_DAY 
+            + (long) hours * MILLIS_IN_HOUR
             + minutes * MILLIS_IN_MINUTES
             + seconds * MILLIS_IN_SECONDS
             + millis;
@@ -300,6 +594,25 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
         }
     }
 
+    private static long parseSize(String size) {
+        java.util.regex.Matcher m = SIZE_PATTERN.matcher(size.trim());
+        if (!m.matches()) {
+            throw new IllegalArgumentException("invalid size '" + size 
+                + "': it must be a number of bytes, optionally followed by k, m or g");
+        }
+        long value = Long.parseLong(m.group(1));
+        switch (Character.toLowerCase((m.group(2) + " ").charAt(0))) {
+            case 'g':
+                value *= 1024;
+            case 'm':
+                value *= 1024;
+            case 'k':
+                value *= 1024;
+            default:
+                return value;
+        }
+    }
+
     private int getGroupIntValue(java.util.regex.Matcher m, int groupNumber) {
         String g = m.group(groupNumber);
         return g == null || g.length() == 0 ? 0 : Integer.parseInt(g);
@@ -413,9 +726,10 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
      */
     private void saveResolver(ModuleDescriptor md, String name) {
         // should always be called with a lock on module metadata artifact
-        PropertiesFile cdf = getCachedDataFile(md);
+        ModuleRevisionId mrid = md.getResolvedModuleRevisionId();
+        Properties cdf = getCachedData(mrid);
         cdf.setProperty("resolver", name);
-        cdf.save();
+        saveCachedData(mrid, cdf);
     }
 
     /**
@@ -435,10 +749,11 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
             return;
         }
         try {
-            PropertiesFile cdf = getCachedDataFile(md);
+            Properties cdf = getCachedData(mrid);
             cdf.setProperty("resolver", metadataResolverName);
             cdf.setProperty("artifact.resolver", artifactResolverName);
-            cdf.save();
+            cdf.setProperty("last.access", String.valueOf(System.currentTimeMillis()));
+            saveCachedData(mrid, cdf);
         } finally {
             unlockMetadataArtifact(mrid);
         }
@@ -446,35 +761,37 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
 
     private String getSavedResolverName(ModuleDescriptor md) {
         // should always be called with a lock on module metadata artifact
-        PropertiesFile cdf = getCachedDataFile(md);
+        Properties cdf = getCachedData(md.getResolvedModuleRevisionId());
         return cdf.getProperty("resolver");
     }
 
     private String getSavedArtResolverName(ModuleDescriptor md) {
         // should always be called with a lock on module metadata artifact
-        PropertiesFile cdf = getCachedDataFile(md);
+        Properties cdf = getCachedData(md.getResolvedModuleRevisionId());
         return cdf.getProperty("artifact.resolver");
     }
 
     void saveArtifactOrigin(Artifact artifact, ArtifactOrigin origin) {
         // should always be called with a lock on module metadata artifact
-        PropertiesFile cdf = getCachedDataFile(artifact.getModuleRevisionId());
+        ModuleRevisionId mrid = artifact.getModuleRevisionId();
+        Properties cdf = getCachedData(mrid);
         cdf.setProperty(getIsLocalKey(artifact), String.valueOf(origin.isLocal()));
         cdf.setProperty(getLocationKey(artifact), origin.getLocation());
         if (origin.getLastChecked() != null) {
             cdf.setProperty(getLastCheckedKey(artifact), origin.getLastChecked().toString());
         }
         cdf.setProperty(getExistsKey(artifact), Boolean.toString(origin.isExists()));
-        cdf.save();
+        saveCachedData(mrid, cdf);
     }
 
     private void removeSavedArtifactOrigin(Artifact artifact) {
         // should always be called with a lock on module metadata artifact
-        PropertiesFile cdf = getCachedDataFile(artifact.getModuleRevisionId());
+        ModuleRevisionId mrid = artifact.getModuleRevisionId();
+        Properties cdf = getCachedData(mrid);
         cdf.remove(getLocationKey(artifact));
         cdf.remove(getIsLocalKey(artifact));
         cdf.remove(getLastCheckedKey(artifact));
-        cdf.save();
+        saveCachedData(mrid, cdf);
     }
 
     public ArtifactOrigin getSavedArtifactOrigin(Artifact artifact) {
@@ -484,31 +801,34 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
             return ArtifactOrigin.unkwnown(artifact);
         }
         try {
-            PropertiesFile cdf = getCachedDataFile(artifact.getModuleRevisionId());
-            String location = cdf.getProperty(getLocationKey(artifact));
-            String local = cdf.getProperty(getIsLocalKey(artifact));
-            String lastChecked = cdf.getProperty(getLastCheckedKey(artifact));
-            String exists = cdf.getProperty(getExistsKey(artifact));
+            return toArtifactOrigin(artifact, getCachedData(mrid));
+        } finally {
+            unlockMetadataArtifact(mrid);
+        }
+    }
 
-            boolean isLocal = Boolean.valueOf(local).booleanValue();
+    private ArtifactOrigin toArtifactOrigin(Artifact artifact, Properties cdf) {
+        String location = cdf.getProperty(getLocationKey(artifact));
+        String local = cdf.getProperty(getIsLocalKey(artifact));
+        String lastChecked = cdf.getProperty(getLastCheckedKey(artifact));
+        String exists = cdf.getProperty(getExistsKey(artifact));
 
-            if (location == null) {
-                // origin has not been specified, return null
-                return ArtifactOrigin.unkwnown(artifact);
-            }
+        boolean isLocal = Boolean.valueOf(local).booleanValue();
 
-            ArtifactOrigin origin = new ArtifactOrigin(artifact, isLocal, location);
-            if (lastChecked != null) {
-                origin.setLastChecked(Long.valueOf(lastChecked));
-            }
-            if (exists != null) {
-                origin.setExist(Boolean.valueOf(exists).booleanValue());
-            }
+        if (location == null) {
+            // origin has not been specified, return null
+            return ArtifactOrigin.unkwnown(artifact);
+        }
 
-            return origin;
-        } finally {
-            unlockMetadataArtifact(mrid);
+        ArtifactOrigin origin = new ArtifactOrigin(artifact, isLocal, location);
+        if (lastChecked != null) {
+            origin.setLastChecked(Long.valueOf(lastChecked));
+        }
+        if (exists != null) {
+            origin.setExist(Boolean.valueOf(exists).booleanValue());
         }
+
+        return origin;
     }
 
     /**
@@ -574,33 +894,113 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
         return prefix + ".exists";
     }
 
-    private PropertiesFile getCachedDataFile(ModuleDescriptor md) {
-        return getCachedDataFile(md.getResolvedModuleRevisionId());
+    /**
+     * Records that a module revision of this cache has been used, for {@link #evict()}.
+     */
+    private void recordAccess(ModuleRevisionId mrid) {
+        // should always be called with a lock on module metadata artifact
+        if (!isAccessRecorded()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        Long recorded = (Long) recordedAccesses.get(mrid);
+        if (recorded != null && now - recorded.longValue() < ACCESS_RECORD_PERIOD) {
+            return;
+        }
+        Properties cdf = getCachedData(mrid);
+        long lastAccess = getLastAccess(cdf);
+        if (now - lastAccess >= ACCESS_RECORD_PERIOD) {
+            cdf.setProperty("last.access", String.valueOf(now));
+            saveCachedData(mrid, cdf);
+            lastAccess = now;
+        }
+        recordedAccesses.put(mrid, new Long(lastAccess));
     }
 
-    private PropertiesFile getCachedDataFile(ModuleRevisionId mRevId) {
-        return new PropertiesFile(new File(getRepositoryCacheRoot(), 
-            IvyPatternHelper.substitute(
-                getDataFilePattern(), mRevId)), "ivy cached data file for " + mRevId);
+    private static long getLastAccess(Properties cdf) {
+        String lastAccess = cdf.getProperty("last.access");
+        try {
+            return lastAccess == null ? 0 : Long.parseLong(lastAccess);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private Properties getCachedData(ModuleRevisionId mRevId) {
+        return getModuleDataStore().load(mRevId);
+    }
+
+    private void saveCachedData(ModuleRevisionId mRevId, Properties data) {
+        getModuleDataStore().save(mRevId, data);
+    }
+
+    private synchronized ModuleDataStore getModuleDataStore() {
+        if (moduleDataStore == null) {
+            if (DATA_STORE_LOG.equals(dataStore)) {
+                moduleDataStore = new LogModuleDataStore(
+                    getRepositoryCacheRoot(), getDataFilePattern());
+            } else {
+                moduleDataStore = new PropertiesModuleDataStore(
+                    getRepositoryCacheRoot(), getDataFilePattern());
+            }
+        }
+        return moduleDataStore;
+    }
+
+    /**
+     * Returns the data kept in the shared cache about the given module revision, an empty
+     * Properties if there is none. It must never be saved.
+     */
+    private Properties getSharedCachedData(ModuleRevisionId mrid) {
+        ModuleDataStore store;
+        synchronized (this) {
+            if (sharedDataStore == null) {
+                sharedDataStore = new PropertiesModuleDataStore(
+                    sharedBasedir, getDataFilePattern());
+            }
+            store = sharedDataStore;
+        }
+        return store.load(mrid);
     }
 
     public ResolvedModuleRevision findModuleInCache(
             DependencyDescriptor dd, ModuleRevisionId requestedRevisionId, 
             CacheMetadataOptions options, String expectedResolver) {
-        ModuleRevisionId mrid = requestedRevisionId;
-        if (isCheckmodified(dd, requestedRevisionId, options)) {
-            Message.verbose("don't use cache for " + mrid + ": checkModified=true");
-            return null;
-        }
-        if (!options.isUseCacheOnly() && isChanging(dd, requestedRevisionId, options)) {
-            Message.verbose("don't use cache for " + mrid + ": changing=true");
-            return null;
+        long start = System.nanoTime();
+        ResolvedModuleRevision rmr = null;
+        // only the revision served by this lookup can be saved back by the resolver
+        staleResolvedRevision.remove();
+        try {
+            ModuleRevisionId mrid = requestedRevisionId;
+            if (isCheckmodified(dd, requestedRevisionId, options)) {
+                Message.verbose("don't use cache for " + mrid + ": checkModified=true");
+                return null;
+            }
+            if (!options.isUseCacheOnly() && isChanging(dd, requestedRevisionId, options)
+                    && !isCheckedChangingModule(mrid, options)) {
+                Message.verbose("don't use cache for " + mrid + ": changing=true");
+                return null;
+            }
+            rmr = doFindModuleInCache(mrid, options, expectedResolver);
+            return rmr;
+        } finally {
+            if (rmr == null) {
+                // nothing is served from the cache: the revision found by the resolver, even
+                // the same as the stale one, is fresh and must be saved
+                staleResolvedRevision.remove();
+            }
+            statistics.moduleLookup(rmr != null, System.nanoTime() - start);
         }
-        return doFindModuleInCache(mrid, options, expectedResolver);
     }
 
     private ResolvedModuleRevision doFindModuleInCache(
             ModuleRevisionId mrid, CacheMetadataOptions options, String expectedResolver) {
+        if (!settings.getVersionMatcher().isDynamic(mrid)) {
+            ResolvedModuleRevision rmr = findModuleInSharedCache(mrid, options, expectedResolver);
+            if (rmr != null) {
+                return rmr;
+            }
+        }
         if (!lockMetadataArtifact(mrid)) {
             Message.error("impossible to acquire lock for " + mrid);
             return null;
@@ -628,6 +1028,11 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
                         unlock = false;
                         return null;
                     }
+                    ResolvedModuleRevision rmr = findModuleInSharedCache(
+                        mrid, options, expectedResolver);
+                    if (rmr != null) {
+                        return rmr;
+                    }
                 } else {
                     return null;
                 }
@@ -671,6 +1076,7 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
                             madr.setSize(ivyFile.length());
                             madr.setArtifactOrigin(
                                 getSavedArtifactOrigin(depMD.getMetadataArtifact()));
+                            recordAccess(mrid);
                             return new ResolvedModuleRevision(
                                 resolver, artResolver, depMD, madr);
                         } else {
@@ -700,28 +1106,127 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
         return null;
     }
 
+    /**
+     * Looks for the given static module revision in the shared cache, if any. Since the shared
+     * cache is read-only, no lock is needed, and neither the resolver nor the access are saved.
+     */
+    private ResolvedModuleRevision findModuleInSharedCache(
+            ModuleRevisionId mrid, CacheMetadataOptions options, String expectedResolver) {
+        if (sharedBasedir == null) {
+            return null;
+        }
+        File ivyFile = new File(sharedBasedir, IvyPatternHelper.substitute(getIvyPattern(), 
+            DefaultArtifact.newIvyArtifact(mrid, null)));
+        if (!ivyFile.exists()) {
+            return null;
+        }
+        try {
+            // an existing binary descriptor is used, but none is written to the shared cache
+            ModuleDescriptor depMD = getMdFromCache(
+                XmlModuleDescriptorParser.getInstance(), options, ivyFile, false);
+            Properties cdf = getSharedCachedData(depMD.getResolvedModuleRevisionId());
+            DependencyResolver resolver = settings.getResolver(cdf.getProperty("resolver"));
+            if (resolver == null) {
+                resolver = settings.getResolver(depMD.getResolvedModuleRevisionId());
+            }
+            if (resolver == null) {
+                Message.debug("\tresolver not found for " + mrid 
+                    + " => cannot use shared cached ivy file " + ivyFile);
+                return null;
+            }
+            if (expectedResolver != null && !expectedResolver.equals(resolver.getName())) {
+                Message.debug("found module in shared cache but with a different resolver: "
+                    + "discarding: " + mrid + "; expected resolver=" + expectedResolver 
+                    + "; resolver=" + resolver.getName());
+                return null;
+            }
+            DependencyResolver artResolver = settings.getResolver(
+                cdf.getProperty("artifact.resolver"));
+            if (artResolver == null) {
+                artResolver = resolver;
+            }
+            Message.debug("\tfound ivy file in shared cache for " + mrid + " (resolved by "
+                + resolver.getName() + "): " + ivyFile);
+            MetadataArtifactDownloadReport madr = new MetadataArtifactDownloadReport(
+                depMD.getMetadataArtifact());
+            madr.setDownloadStatus(DownloadStatus.NO);
+            madr.setSearched(false);
+            madr.setLocalFile(ivyFile);
+            madr.setSize(ivyFile.length());
+            madr.setArtifactOrigin(toArtifactOrigin(depMD.getMetadataArtifact(), cdf));
+            return new ResolvedModuleRevision(resolver, artResolver, depMD, madr);
+        } catch (Exception e) {
+            // will try with the writable cache
+            Message.debug("\tproblem while parsing shared cached ivy file for: " + mrid + ": "
+                + e.getMessage());
+            return null;
+        }
+    }
+
     
     private class MyModuleDescriptorProvider implements ModuleDescriptorProvider {
         
         private final ModuleDescriptorParser mdParser;
         private final ParserSettings settings;
+        // false for the descriptors of the read-only shared cache, next to which nothing is written
+        private final boolean writeBinary;
 
         public MyModuleDescriptorProvider(ModuleDescriptorParser mdParser, ParserSettings settings) {
+            this(mdParser, settings, true);
+        }
+
+        public MyModuleDescriptorProvider(ModuleDescriptorParser mdParser, ParserSettings settings,
+                boolean writeBinary) {
             this.mdParser = mdParser;
             this.settings = settings;
+            this.writeBinary = writeBinary;
         }
         
         public ModuleDescriptor provideModule(ParserSettings ivySettings, 
                 File descriptorURL, boolean validate) throws ParseException, IOException {
-            return mdParser.parseDescriptor(settings, descriptorURL.toURI().toURL(), validate);
+            ModuleDescriptorBinaryCache binaryCache = binaryModuleDescrCache;
+            if (binaryCache == null || mdParser != XmlModuleDescriptorParser.getInstance()) {
+                return parse(settings, descriptorURL, validate);
+            }
+            ModuleDescriptor md = binaryCache.read(descriptorURL, settings, validate);
+            if (md == null && !writeBinary) {
+                md = parse(settings, descriptorURL, validate);
+            } else if (md == null) {
+                ParserSettingsMonitor monitor = new ParserSettingsMonitor(settings);
+                md = parse(monitor.getMonitoredSettings(), descriptorURL, validate);
+                binaryCache.write(descriptorURL, monitor, settings, validate, md);
+            }
+            return md;
+        }
+
+        private ModuleDescriptor parse(ParserSettings parserSettings, 
+                File descriptorURL, boolean validate) throws ParseException, IOException {
+            long start = System.currentTimeMillis();
+            ModuleDescriptor md = mdParser.parseDescriptor(
+                parserSettings, descriptorURL.toURI().toURL(), validate);
+            // events are only fired when an Ivy instance is associated with the current thread,
+            // since creating one would be much more costly than the parsing itself
+            Ivy ivy = IvyContext.getContext().peekIvy();
+            if (ivy != null) {
+                ivy.getEventManager().fireIvyEvent(new EndDescriptorParseEvent(
+                    mdParser, descriptorURL, md, System.currentTimeMillis() - start));
+            }
+            return md;
         }
     }
     
     private ModuleDescriptor getMdFromCache(XmlModuleDescriptorParser mdParser, 
             CacheMetadataOptions options, File ivyFile) 
             throws ParseException, IOException {
+        return getMdFromCache(mdParser, options, ivyFile, true);
+    }
+
+    private ModuleDescriptor getMdFromCache(XmlModuleDescriptorParser mdParser, 
+            CacheMetadataOptions options, File ivyFile, boolean writeBinary) 
+            throws ParseException, IOException {
         ModuleDescriptorMemoryCache cache = getMemoryCache();
-        ModuleDescriptorProvider mdProvider = new MyModuleDescriptorProvider(mdParser, settings); 
+        ModuleDescriptorProvider mdProvider = new MyModuleDescriptorProvider(
+            mdParser, settings, writeBinary); 
         return cache.get(ivyFile, settings, options.isValidate(), mdProvider);
     }
 
@@ -745,7 +1250,7 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
                 Message.verbose("refresh mode: no check for cached resolved revision for " + mrid);
                 return null;
             }
-            PropertiesFile cachedResolvedRevision = getCachedDataFile(mrid);
+            Properties cachedResolvedRevision = getCachedData(mrid);
             resolvedRevision = cachedResolvedRevision.getProperty("resolved.revision");
             if (resolvedRevision == null) {
                 Message.verbose(getName() + ": no cached resolved revision for " + mrid);
@@ -763,8 +1268,13 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
                 long expiration = Long.parseLong(resolvedTime) + getTTL(mrid);
                 if (expiration > 0 // negative expiration means that Long.MAX_VALUE has been exceeded
                         && System.currentTimeMillis() > expiration) {
-                    Message.verbose(getName() + ": cached resolved revision expired for " + mrid);
-                    return null;
+                    statistics.ttlExpired();
+                    if (!serveStale(mrid, expiration, resolvedRevision, false)) {
+                        Message.verbose(getName() + ": cached resolved revision expired for " 
+                            + mrid);
+                        return null;
+                    }
+                    staleResolvedRevision.set(Collections.singletonMap(mrid, resolvedRevision));
                 }
             }
             return resolvedRevision;
@@ -773,22 +1283,150 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
         }
     }
 
+    /**
+     * Tells if the given changing module revision has been checked against its repository
+     * recently enough to be used from the cache, which is possible only when a max stale is set.
+     * A background check is scheduled if the last one is older than the ttl.
+     */
+    private boolean isCheckedChangingModule(ModuleRevisionId mrid, CacheMetadataOptions options) {
+        if (maxStale <= 0 || options.isForce() || !options.isCheckTTL()) {
+            return false;
+        }
+        if (!lockMetadataArtifact(mrid)) {
+            Message.error("impossible to acquire lock for " + mrid);
+            return false;
+        }
+        try {
+            String checkedTime = getCachedData(mrid).getProperty("checked.time");
+            if (checkedTime == null) {
+                return false;
+            }
+            long expiration = Long.parseLong(checkedTime) + getTTL(mrid);
+            // negative expiration means that Long.MAX_VALUE has been exceeded
+            if (expiration < 0 || System.currentTimeMillis() <= expiration) {
+                return true;
+            }
+            statistics.ttlExpired();
+            return serveStale(mrid, expiration, mrid.getRevision(), true);
+        } catch (NumberFormatException e) {
+            return false;
+        } finally {
+            unlockMetadataArtifact(mrid);
+        }
+    }
+
+    private void saveCheckedTime(ModuleRevisionId mrid) {
+        if (maxStale <= 0) {
+            return;
+        }
+        Properties cdf = getCachedData(mrid);
+        cdf.setProperty("checked.time", String.valueOf(System.currentTimeMillis()));
+        saveCachedData(mrid, cdf);
+    }
+
     public void saveResolvedRevision(ModuleRevisionId mrid, String revision) {
+        Map stale = (Map) staleResolvedRevision.get();
+        if (stale != null && revision.equals(stale.get(mrid))) {
+            // the resolver saves the stale revision it has been given: this must not make it
+            // fresh, nor override the result of its revalidation
+            staleResolvedRevision.remove();
+            return;
+        }
         if (!lockMetadataArtifact(mrid)) {
             Message.error("impossible to acquire lock for " + mrid);
             return;
         }
         try {
-            PropertiesFile cachedResolvedRevision = getCachedDataFile(mrid);
+            Properties cachedResolvedRevision = getCachedData(mrid);
             cachedResolvedRevision.setProperty(
                 "resolved.time", String.valueOf(System.currentTimeMillis()));
             cachedResolvedRevision.setProperty("resolved.revision", revision);
-            cachedResolvedRevision.save();
+            saveCachedData(mrid, cachedResolvedRevision);
         } finally {
             unlockMetadataArtifact(mrid);
         }
     }
 
+    /**
+     * Tells if the given resource has been found missing by the given resolver less than the
+     * missing ttl of the given module revision ago.
+     * 
+     * @param resolverName
+     *            the name of the resolver which looked for the resource
+     * @param mrid
+     *            the module revision of the resource
+     * @param resource
+     *            the name of the resource in the repository of the resolver
+     * @return true if the resource is known to be missing, and thus must not be looked for
+     */
+    public boolean isKnownMissing(String resolverName, ModuleRevisionId mrid, String resource) {
+        if (!isMissingCached()) {
+            return false;
+        }
+        long ttl = getMissingTTL(mrid);
+        if (ttl <= 0) {
+            return false;
+        }
+        if (!lockMetadataArtifact(mrid)) {
+            Message.error("impossible to acquire lock for " + mrid);
+            return false;
+        }
+        try {
+            String missing = getCachedData(mrid).getProperty(
+                getMissingKey(resolverName, resource));
+            if (missing == null) {
+                return false;
+            }
+            long expiration = Long.parseLong(missing) + ttl;
+            // negative expiration means that Long.MAX_VALUE has been exceeded
+            return expiration < 0 || System.currentTimeMillis() < expiration;
+        } catch (NumberFormatException e) {
+            return false;
+        } finally {
+            unlockMetadataArtifact(mrid);
+        }
+    }
+
+    /**
+     * Records that the given resource has been found missing by the given resolver, if the
+     * missing ttl of the given module revision is not 0.
+     */
+    public void saveMissing(String resolverName, ModuleRevisionId mrid, String resource) {
+        if (!isMissingCached() || getMissingTTL(mrid) <= 0) {
+            return;
+        }
+        if (!lockMetadataArtifact(mrid)) {
+            Message.error("impossible to acquire lock for " + mrid);
+            return;
+        }
+        try {
+            Properties cdf = getCachedData(mrid);
+            cdf.setProperty(getMissingKey(resolverName, resource), 
+                String.valueOf(System.currentTimeMillis()));
+            saveCachedData(mrid, cdf);
+        } finally {
+            unlockMetadataArtifact(mrid);
+        }
+    }
+
+    private String getMissingKey(String resolverName, String resource) {
+        return "missing." + resolverName + "." + resource;
+    }
+
+    /**
+     * Tells if missing resources may be cached at all, i.e. if the default missing ttl is not 0
+     * or some missing ttl rules are defined. When they are not, there is no need to match the
+     * module revisions of the missing resources against the rules.
+     */
+    public boolean isMissingCached() {
+        return getDefaultMissingTTL() > 0 || !missingTtlRules.getAllRules().isEmpty();
+    }
+
+    public long getMissingTTL(ModuleRevisionId mrid) {
+        Long ttl = (Long) missingTtlRules.getRule(mrid);
+        return ttl == null ? getDefaultMissingTTL() : ttl.longValue();
+    }
+
     public long getTTL(ModuleRevisionId mrid) {
         Long ttl = (Long) ttlRules.getRule(mrid);
         return ttl == null ? getDefaultTTL() : ttl.longValue();
@@ -834,11 +1472,35 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
         // file to do so, or lock the metadata artifact only to update artifact origin, which would
         // mean acquiring nested locks, which can be a dangerous thing
         ModuleRevisionId mrid = artifact.getModuleRevisionId();
+        if (sharedBasedir != null && !options.isForce()) {
+            // the shared cache is read-only, so its files are used in place without lock
+            ArtifactOrigin sharedOrigin = toArtifactOrigin(artifact, getSharedCachedData(mrid));
+            File sharedFile = new File(
+                sharedBasedir, getArchivePathInCache(artifact, sharedOrigin));
+            if (sharedFile.exists()) {
+                DownloadListener listener = options.getListener();
+                if (listener != null) {
+                    listener.needArtifact(this, artifact);
+                }
+                statistics.artifactHit();
+                adr.setDownloadStatus(DownloadStatus.NO);
+                adr.setSize(sharedFile.length());
+                adr.setArtifactOrigin(sharedOrigin);
+                adr.setLocalFile(sharedFile);
+                if (listener != null) {
+                    listener.endArtifactDownload(this, artifact, adr, sharedFile);
+                }
+                return adr;
+            }
+        }
+        // metadata artifacts are always downloaded under lock, their caching relies on it
+        boolean atomic = isAtomicDownloads() && !artifact.isMetadata();
         if (!lockMetadataArtifact(mrid)) {
             adr.setDownloadStatus(DownloadStatus.FAILED);
             adr.setDownloadDetails("impossible to get lock for " + mrid);
             return adr;
         }
+        boolean locked = true;
         try {
             DownloadListener listener = options.getListener();
             if (listener != null) {
@@ -851,11 +1513,17 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
             File archiveFile = getArchiveFileInCache(artifact, origin, useOrigin);
 
             if (archiveFile.exists() && !options.isForce()) {
+                recordAccess(mrid);
+                statistics.artifactHit();
                 adr.setDownloadStatus(DownloadStatus.NO);
                 adr.setSize(archiveFile.length());
                 adr.setArtifactOrigin(origin);
                 adr.setLocalFile(archiveFile);
             } else {
+                if (atomic) {
+                    unlockMetadataArtifact(mrid);
+                    locked = false;
+                }
                 long start = System.currentTimeMillis();
                 try {
                     ResolvedResource artifactRef = resourceResolver.resolve(artifact);
@@ -865,6 +1533,12 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
                             artifactRef.getResource().isLocal(),
                             artifactRef.getResource().getName());
                         if (useOrigin && artifactRef.getResource().isLocal()) {
+                            if (!locked) {
+                                if (!lockMetadataArtifact(mrid)) {
+                                    throw new IOException("impossible to get lock for " + mrid);
+                                }
+                                locked = true;
+                            }
                             saveArtifactOrigin(artifact, origin);
                             archiveFile = getArchiveFileInCache(artifact, origin);
                             adr.setDownloadStatus(DownloadStatus.NO);
@@ -883,10 +1557,26 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
                                 listener.startArtifactDownload(this, artifactRef, artifact, origin);
                             }
 
-                            resourceDownloader.download(
-                                artifact, artifactRef.getResource(), archiveFile);
+                            if (atomic) {
+                                downloadAtomically(resourceDownloader, 
+                                    artifact, artifactRef.getResource(), archiveFile);
+                            } else {
+                                resourceDownloader.download(
+                                    artifact, artifactRef.getResource(), archiveFile);
+                            }
+                            if (isContentAddressed()) {
+                                new ArtifactContentStore(getRepositoryCacheRoot())
+                                        .store(archiveFile);
+                            }
                             adr.setSize(archiveFile.length());
+                            if (!locked) {
+                                if (!lockMetadataArtifact(mrid)) {
+                                    throw new IOException("impossible to get lock for " + mrid);
+                                }
+                                locked = true;
+                            }
                             saveArtifactOrigin(artifact, origin);
+                            statistics.artifactDownloaded(adr.getSize());
                             adr.setDownloadTimeMillis(System.currentTimeMillis() - start);
                             adr.setDownloadStatus(DownloadStatus.SUCCESSFUL);
                             adr.setArtifactOrigin(origin);
@@ -898,6 +1588,7 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
                         adr.setDownloadTimeMillis(System.currentTimeMillis() - start);
                     }
                 } catch (Exception ex) {
+                    statistics.artifactDownloadFailed();
                     adr.setDownloadStatus(DownloadStatus.FAILED);
                     adr.setDownloadDetails(ex.getMessage());
                     adr.setDownloadTimeMillis(System.currentTimeMillis() - start);
@@ -908,7 +1599,35 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
             }
             return adr;
         } finally {
-            unlockMetadataArtifact(mrid);
+            if (locked) {
+                unlockMetadataArtifact(mrid);
+            }
+        }
+    }
+
+    /**
+     * Downloads the given resource to a new temporary file next to the given archive file, and
+     * then moves it to the archive file in one step. If the move fails while the archive file
+     * exists, the archive file is considered as downloaded by a concurrent process.
+     */
+    private void downloadAtomically(ResourceDownloader resourceDownloader, Artifact artifact,
+            Resource resource, File archiveFile) throws IOException {
+        File dir = archiveFile.getAbsoluteFile().getParentFile();
+        dir.mkdirs();
+        File tmp = File.createTempFile(archiveFile.getName() + ".", ".tmp", dir);
+        try {
+            resourceDownloader.download(artifact, resource, tmp);
+            if (!FileUtil.atomicMove(tmp, archiveFile)) {
+                if (!archiveFile.exists()) {
+                    throw new IOException("impossible to move downloaded file to definitive one: "
+                        + tmp + " -> " + archiveFile);
+                }
+                Message.verbose(archiveFile + " has been downloaded concurrently: using it");
+            }
+        } finally {
+            if (tmp.exists()) {
+                tmp.delete();
+            }
         }
     }
 
@@ -937,6 +1656,7 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
                     && checkCacheUptodate(archiveFile, resource, savedOrigin, origin, options.getTtl())) {
                 if (archiveFile.exists()) {
                     saveArtifactOrigin(artifact, origin);
+                    statistics.artifactHit();
                     adr.setDownloadStatus(DownloadStatus.NO);
                     adr.setSize(archiveFile.length());
                     adr.setArtifactOrigin(savedOrigin);
@@ -965,19 +1685,38 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
                         }
 
                         // actual download
-                        if (archiveFile.exists()) {
-                            archiveFile.delete();
-                        }
-                        File part = new File(archiveFile.getAbsolutePath() + ".part");
-                        repository.get(resource.getName(), part);
-                        if (!part.renameTo(archiveFile)) {
-                            throw new IOException(
-                                    "impossible to move part file to definitive one: " + part
-                                            + " -> " + archiveFile);
+                        if (isAtomicDownloads()) {
+                            File dir = archiveFile.getAbsoluteFile().getParentFile();
+                            dir.mkdirs();
+                            File tmp = File.createTempFile(archiveFile.getName() + ".", ".tmp", 
+                                dir);
+                            try {
+                                repository.get(resource.getName(), tmp);
+                                if (!FileUtil.atomicMove(tmp, archiveFile)
+                                        && !archiveFile.exists()) {
+                                    throw new IOException(
+                                        "impossible to move downloaded file to definitive one: "
+                                            + tmp + " -> " + archiveFile);
+                                }
+                            } finally {
+                                tmp.delete();
+                            }
+                        } else {
+                            if (archiveFile.exists()) {
+                                archiveFile.delete();
+                            }
+                            File part = new File(archiveFile.getAbsolutePath() + ".part");
+                            repository.get(resource.getName(), part);
+                            if (!part.renameTo(archiveFile)) {
+                                throw new IOException(
+                                        "impossible to move part file to definitive one: " + part
+                                                + " -> " + archiveFile);
+                            }
                         }
 
                         adr.setSize(archiveFile.length());
                         saveArtifactOrigin(artifact, origin);
+                        statistics.artifactDownloaded(adr.getSize());
                         adr.setDownloadTimeMillis(System.currentTimeMillis() - start);
                         adr.setDownloadStatus(DownloadStatus.SUCCESSFUL);
                         adr.setArtifactOrigin(origin);
@@ -986,6 +1725,7 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
                 } catch (Exception ex) {
                     origin.setExist(false);
                     saveArtifactOrigin(artifact, origin);
+                    statistics.artifactDownloadFailed();
                     adr.setDownloadStatus(DownloadStatus.FAILED);
                     adr.setDownloadDetails(ex.getMessage());
                     adr.setDownloadTimeMillis(System.currentTimeMillis() - start);
@@ -1072,6 +1812,8 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
             writer.write(orginalMetadataRef, md, 
                 originalFileInCache, 
                 mdFileInCache);
+            // the timestamp of the new file may not be enough to tell it's not the same one
+            ModuleDescriptorBinaryCache.invalidate(mdFileInCache);
 
             getMemoryCache().putInCache(mdFileInCache, new ParserSettingsMonitor(settings), true, md);
             saveResolvers(md, resolver.getName(), resolver.getName());
@@ -1150,6 +1892,9 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
                     if (!rmr.getDescriptor().isDefault() && repLastModified <= cacheLastModified) {
                         Message.verbose("\t" + getName() + ": revision in cache (not updated): "
                             + mrid);
+                        if (isChanging(dd, mrid, options)) {
+                            saveCheckedTime(mrid);
+                        }
                         rmr.getReport().setSearched(true);
                         return rmr;
                     } else {
@@ -1276,6 +2021,9 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
                 Artifact transformedMetadataArtifact = NameSpaceHelper.transform(
                     md.getMetadataArtifact(), options.getNamespace().getToSystemTransformer());
                 saveArtifactOrigin(transformedMetadataArtifact, report.getArtifactOrigin());
+                if (isChanging(dd, mrid, options)) {
+                    saveCheckedTime(mrid);
+                }
                 
                 return new ResolvedModuleRevision(resolver, resolver, md, madr);
             } catch (IOException ex) {
@@ -1349,6 +2097,18 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
             && artifact.getType().endsWith(".original");
     }
 
+    /**
+     * Tells if the given requested module revision is never found in this cache without being
+     * checked against its repository first, because it is changing or because modified modules
+     * are checked, according to the given options.
+     */
+    public boolean isAlwaysChecked(
+            DependencyDescriptor dd, ModuleRevisionId requestedRevisionId, 
+            CacheMetadataOptions options) {
+        return isCheckmodified(dd, requestedRevisionId, options)
+            || !options.isUseCacheOnly() && isChanging(dd, requestedRevisionId, options);
+    }
+
     private boolean isChanging(
             DependencyDescriptor dd, ModuleRevisionId requestedRevisionId, 
             CacheMetadataOptions options) {
@@ -1403,9 +2163,256 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
     }
 
     public void clean() {
+        getModuleDataStore().close();
+        recordedAccesses.clear();
         FileUtil.forceDelete(getBasedir());
     }
 
+    /**
+     * Removes from this cache the module revisions which have not been used for longer than the
+     * max age, and then the least recently used ones until the cache is not bigger than the max
+     * size.
+     * 
+     * @return the number of module revisions removed
+     * @see #setMaxAge(String)
+     * @see #setMaxSize(String)
+     */
+    public int evict() {
+        return evict(getMaxSize(), getMaxAge());
+    }
+
+    /**
+     * Evicts module revisions with the given limits, expressed like the max size and max age
+     * settings.
+     * 
+     * @param maxSize
+     *            the maximum size of this cache, null to use the max size of this cache
+     * @param maxAge
+     *            the maximum age of the module revisions, null to use the max age of this cache
+     * @return the number of module revisions removed
+     * @see #evict(long, long)
+     */
+    public int evict(String maxSize, String maxAge) {
+        return evict(maxSize == null ? getMaxSize() : parseSize(maxSize), 
+            maxAge == null ? getMaxAge() : parseDuration(maxAge));
+    }
+
+    /**
+     * Removes from this cache the module revisions which have not been used for longer than the
+     * given age, and then the least recently used ones until the cache is not bigger than the
+     * given size.
+     * <p>
+     * A module revision is made of its ivy files, its data and its artifacts, and is last used
+     * when it was put in this cache, or last found in it if the max size or max age of this cache
+     * are set. The module revisions are
+     * removed one after the other, each one holding its lock, so that the cache can be used during
+     * the eviction.
+     * </p>
+     * 
+     * @param maxSize
+     *            the maximum total size of the module revisions kept, in bytes, 0 for no limit
+     * @param maxAge
+     *            the maximum time since a kept module revision was last used, in milliseconds, 0
+     *            for no limit
+     * @return the number of module revisions removed
+     */
+    public int evict(long maxSize, long maxAge) {
+        if (maxSize <= 0 && maxAge <= 0) {
+            return 0;
+        }
+        CachedModuleRevision[] cached = listCachedModuleRevisions();
+        Arrays.sort(cached);
+        long totalSize = 0;
+        for (int i = 0; i < cached.length; i++) {
+            totalSize += cached[i].size;
+        }
+        long now = System.currentTimeMillis();
+        int evicted = 0;
+        long evictedSize = 0;
+        for (int i = 0; i < cached.length; i++) {
+            CachedModuleRevision c = cached[i];
+            boolean tooOld = maxAge > 0 && now - c.lastAccess > maxAge;
+            if (!tooOld && (maxSize <= 0 || totalSize <= maxSize)) {
+                // the following ones are more recent
+                break;
+            }
+            if (remove(c)) {
+                evicted++;
+                evictedSize += c.size;
+                totalSize -= c.size;
+            }
+        }
+        if (isContentAddressed()) {
+            new ArtifactContentStore(getRepositoryCacheRoot()).purge();
+        }
+        Message.verbose(getName() + ": evicted " + evicted + " module revisions (" 
+            + evictedSize + " bytes), " + totalSize + " bytes left");
+        return evicted;
+    }
+
+    private boolean remove(CachedModuleRevision c) {
+        if (!lockMetadataArtifact(c.mrid)) {
+            Message.verbose("impossible to acquire lock for " + c.mrid + ": not evicted");
+            return false;
+        }
+        try {
+            if (getLastAccess(getCachedData(c.mrid)) > c.lastAccess) {
+                // used during the eviction
+                return false;
+            }
+            Message.debug("evicting " + c.mrid + " from " + getName());
+            for (int i = 0; i < c.files.length; i++) {
+                c.files[i].delete();
+            }
+            getModuleDataStore().remove(c.mrid);
+            recordedAccesses.remove(c.mrid);
+            return true;
+        } finally {
+            unlockMetadataArtifact(c.mrid);
+        }
+    }
+
+    /**
+     * Finds the module revisions of this cache, from their ivy files.
+     */
+    private CachedModuleRevision[] listCachedModuleRevisions() {
+        List/*<String>*/ tokens = new ArrayList();
+        Pattern ivyFilePattern = Pattern.compile(toRegexp(getIvyPattern(), tokens));
+        File root = getRepositoryCacheRoot();
+        String rootPath = root.getAbsolutePath() + File.separator;
+        List/*<CachedModuleRevision>*/ cached = new ArrayList();
+        for (Iterator it = FileUtil.listAll(root, Collections.EMPTY_LIST).iterator(); 
+                it.hasNext();) {
+            File file = ((File) it.next()).getAbsoluteFile();
+            String path = file.getPath();
+            if (!file.isFile() || !path.startsWith(rootPath)) {
+                continue;
+            }
+            path = path.substring(rootPath.length()).replace(File.separatorChar, '/');
+            java.util.regex.Matcher m = ivyFilePattern.matcher(path);
+            if (!m.matches()) {
+                continue;
+            }
+            Map/*<String,String>*/ values = new HashMap();
+            for (int i = 0; i < tokens.size(); i++) {
+                if (m.group(i + 1) != null) {
+                    values.put(tokens.get(i), m.group(i + 1));
+                }
+            }
+            ModuleRevisionId mrid = toModuleRevisionId(values);
+            if (mrid == null || !getIvyFileInCache(mrid).getAbsoluteFile().equals(file)) {
+                continue;
+            }
+            try {
+                cached.add(new CachedModuleRevision(mrid, file));
+            } catch (Exception e) {
+                Message.verbose("impossible to read cached module " + mrid + ": " + e);
+            }
+        }
+        return (CachedModuleRevision[]) cached.toArray(new CachedModuleRevision[cached.size()]);
+    }
+
+    /**
+     * Returns a regular expression matching the paths of the given pattern, with a group per
+     * token, the names of the tokens being added in order to the given list.
+     */
+    private static String toRegexp(String pattern, List/*<String>*/ tokens) {
+        StringBuffer regexp = new StringBuffer();
+        StringBuffer literal = new StringBuffer();
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            int end = pattern.indexOf(']', i);
+            if ((c == '[' && end != -1) || c == '(' || c == ')') {
+                if (literal.length() > 0) {
+                    regexp.append(Pattern.quote(literal.toString()));
+                    literal.setLength(0);
+                }
+                if (c == '[') {
+                    tokens.add(pattern.substring(i + 1, end));
+                    regexp.append("(.+?)");
+                    i = end;
+                } else {
+                    regexp.append(c == '(' ? "(?:" : ")?");
+                }
+            } else {
+                literal.append(c);
+            }
+        }
+        if (literal.length() > 0) {
+            regexp.append(Pattern.quote(literal.toString()));
+        }
+        return regexp.toString();
+    }
+
+    private static ModuleRevisionId toModuleRevisionId(Map/*<String,String>*/ values) {
+        String org = (String) values.remove(IvyPatternHelper.ORGANISATION_KEY);
+        String org2 = (String) values.remove(IvyPatternHelper.ORGANISATION_KEY2);
+        String orgPath = (String) values.remove(IvyPatternHelper.ORGANISATION_PATH_KEY);
+        if (org == null) {
+            org = org2 != null ? org2 : orgPath == null ? null : orgPath.replace('/', '.');
+        }
+        String module = (String) values.remove(IvyPatternHelper.MODULE_KEY);
+        String revision = (String) values.remove(IvyPatternHelper.REVISION_KEY);
+        if (org == null || module == null || revision == null) {
+            return null;
+        }
+        String branch = (String) values.remove(IvyPatternHelper.BRANCH_KEY);
+        values.remove(IvyPatternHelper.ARTIFACT_KEY);
+        values.remove(IvyPatternHelper.TYPE_KEY);
+        values.remove(IvyPatternHelper.EXT_KEY);
+        return ModuleRevisionId.newInstance(org, module, branch, revision, values);
+    }
+
+    /**
+     * A module revision of this cache, with the files it is made of.
+     */
+    private final class CachedModuleRevision implements Comparable {
+        private final ModuleRevisionId mrid;
+
+        private final File[] files;
+
+        private final long size;
+
+        private final long lastAccess;
+
+        private CachedModuleRevision(ModuleRevisionId mrid, File ivyFile) 
+                throws ParseException, IOException {
+            this.mrid = mrid;
+            ModuleDescriptor md = XmlModuleDescriptorParser.getInstance().parseDescriptor(
+                settings, ivyFile.toURI().toURL(), false);
+            Collection/*<File>*/ files = new LinkedHashSet();
+            files.add(ivyFile);
+            files.add(ModuleDescriptorBinaryCache.getBinaryFile(ivyFile));
+            Artifact metadataArtifact = md.getMetadataArtifact();
+            files.add(getArchiveFileInCache(getOriginalMetadataArtifact(metadataArtifact), 
+                getDefaultMetadataArtifactOrigin(mrid), false));
+            Artifact[] artifacts = md.getAllArtifacts();
+            for (int i = 0; i < artifacts.length; i++) {
+                files.add(getArchiveFileInCache(
+                    artifacts[i], getSavedArtifactOrigin(artifacts[i]), false));
+            }
+            long size = 0;
+            for (Iterator it = files.iterator(); it.hasNext();) {
+                File file = (File) it.next();
+                if (file.exists()) {
+                    size += file.length();
+                } else {
+                    it.remove();
+                }
+            }
+            this.files = (File[]) files.toArray(new File[files.size()]);
+            this.size = size;
+            long recorded = getLastAccess(getCachedData(mrid));
+            // the last modification date of the ivy file is the one of the original one
+            this.lastAccess = recorded != 0 ? recorded : ivyFile.lastModified();
+        }
+
+        public int compareTo(Object o) {
+            long other = ((CachedModuleRevision) o).lastAccess;
+            return lastAccess < other ? -1 : lastAccess == other ? 0 : 1;
+        }
+    }
+
     public void dumpSettings() {
         Message.verbose("\t" + getName());
         Message.debug("\t\tivyPattern: " + getIvyPattern());
@@ -53,11 +53,15 @@ public class DefaultResolutionCacheManager implements ResolutionCacheManager, Iv
     private static final String DEFAULT_CACHE_RESOLVED_IVY_PROPERTIES_PATTERN = 
         "resolved-[organisation]-[module]-[revision].properties";
 
+    private static final String DEFAULT_CACHE_RESOLVED_FINGERPRINT_PATTERN = 
+        "resolved-[organisation]-[module]-[revision].fingerprint";
 
     private String resolvedIvyPattern = DEFAULT_CACHE_RESOLVED_IVY_PATTERN;
 
     private String resolvedIvyPropertiesPattern = 
         DEFAULT_CACHE_RESOLVED_IVY_PROPERTIES_PATTERN;
+
+    private String resolvedFingerprintPattern = DEFAULT_CACHE_RESOLVED_FINGERPRINT_PATTERN;
     
     private File basedir;
 
@@ -104,6 +108,14 @@ public class DefaultResolutionCacheManager implements ResolutionCacheManager, Iv
         this.resolvedIvyPropertiesPattern = cacheResolvedIvyPropertiesPattern;
     }
 
+    public String getResolvedFingerprintPattern() {
+        return resolvedFingerprintPattern;
+    }
+
+    public void setResolvedFingerprintPattern(String cacheResolvedFingerprintPattern) {
+        this.resolvedFingerprintPattern = cacheResolvedFingerprintPattern;
+    }
+
     public String getName() {
         return name;
     }
@@ -125,10 +137,20 @@ public class DefaultResolutionCacheManager implements ResolutionCacheManager, Iv
         return new File(getResolutionCacheRoot(), file);
     }
 
+    public File getResolvedFingerprintInCache(ModuleRevisionId mrid) {
+        String file = IvyPatternHelper.substitute(getResolvedFingerprintPattern(),
+            mrid.getOrganisation(), mrid.getName(), mrid.getRevision(), "ivy", "ivy", "xml");
+        return new File(getResolutionCacheRoot(), file);
+    }
+
     public File getConfigurationResolveReportInCache(String resolveId, String conf) {
         return new File(getResolutionCacheRoot(), resolveId + "-" + conf + ".xml");
     }
 
+    public File getResolveTimingReportInCache(String resolveId) {
+        return new File(getResolutionCacheRoot(), resolveId + "-timings.txt");
+    }
+
     public File[] getConfigurationResolveReportsInCache(final String resolveId) {
         final String prefix = resolveId + "-";
         final String suffix = ".xml";
@@ -0,0 +1,447 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.core.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Properties;
+import java.util.zip.CRC32;
+
+import org.apache.ivy.core.IvyPatternHelper;
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.util.Message;
+
+/**
+ * Stores the data of all the module revisions of a cache in a single append-only log file at the
+ * root of the cache.
+ * <p>
+ * Each save appends a record holding the whole data of a module revision, the last record of a
+ * module revision being the current one. The log is memory mapped and indexed in memory, so
+ * loading data costs no file system access as long as no other process appended to the log.
+ * </p>
+ * <p>
+ * The log header holds the offset of its end, which is only moved once a record is entirely
+ * written, and each record has a checksum: a record left incomplete by a crash is ignored and
+ * overwritten by the next save. Appends are done holding a lock on the log file, so the log can
+ * be shared by several processes. When the log gets much bigger than its current records, it is
+ * compacted: the current records are written to a new file which replaces the log, and the old
+ * log is marked obsolete so that the processes using it open the new one. A log deleted with
+ * its cache is created again on next save.
+ * </p>
+ * <p>
+ * Module revisions which are not in the log yet are read from their properties file if there is
+ * one, so that a cache used with {@link PropertiesModuleDataStore} can be used with this store.
+ * </p>
+ */
+class LogModuleDataStore implements ModuleDataStore {
+    static final String LOG_FILE_NAME = "ivydata.log";
+
+    // Map (File -> Log), so that all the stores of a jvm using the same log share its index, and
+    // don't try to lock it concurrently, which is not supported by FileLock
+    private static final Map/*<File,Log>*/ LOGS = new HashMap();
+
+    private final String pattern;
+
+    private final Log log;
+
+    private final PropertiesModuleDataStore compatibilityStore;
+
+    LogModuleDataStore(File root, String pattern) {
+        this.pattern = pattern;
+        this.log = getLog(new File(root, LOG_FILE_NAME));
+        this.compatibilityStore = new PropertiesModuleDataStore(root, pattern);
+    }
+
+    private static Log getLog(File file) {
+        synchronized (LOGS) {
+            File key = file.getAbsoluteFile();
+            Log log = (Log) LOGS.get(key);
+            if (log == null) {
+                log = new Log(key);
+                LOGS.put(key, log);
+            }
+            return log;
+        }
+    }
+
+    public Properties load(ModuleRevisionId mrid) {
+        try {
+            Properties data = log.get(IvyPatternHelper.substitute(pattern, mrid));
+            if (data != null) {
+                return data;
+            }
+        } catch (IOException e) {
+            Message.warn("impossible to read cached data of " + mrid + " from " + log.file
+                + ": " + e.getMessage());
+        }
+        Properties data = new Properties();
+        if (compatibilityStore.getDataFile(mrid).exists()) {
+            data.putAll(compatibilityStore.load(mrid));
+        }
+        return data;
+    }
+
+    public void save(ModuleRevisionId mrid, Properties data) {
+        try {
+            log.put(IvyPatternHelper.substitute(pattern, mrid), data);
+        } catch (IOException e) {
+            Message.warn("impossible to write cached data of " + mrid + " to " + log.file
+                + ": " + e.getMessage());
+        }
+    }
+
+    public void remove(ModuleRevisionId mrid) {
+        // an empty record hides the data of the log and of the properties file
+        save(mrid, new Properties());
+        compatibilityStore.remove(mrid);
+    }
+
+    public void close() {
+        log.close();
+    }
+
+    /**
+     * Compacts the log now, whatever its size.
+     */
+    void compact() throws IOException {
+        log.compact();
+    }
+
+    File getLogFile() {
+        return log.file;
+    }
+
+    static final class Log {
+        private static final int MAGIC = 0x49767944; // "IvyD"
+
+        private static final int VERSION = 1;
+
+        private static final int STATE_OK = 0;
+
+        private static final int STATE_OBSOLETE = 1;
+
+        private static final int MAGIC_OFFSET = 0;
+
+        private static final int VERSION_OFFSET = 4;
+
+        private static final int STATE_OFFSET = 8;
+
+        private static final int GENERATION_OFFSET = 16;
+
+        private static final int END_OFFSET = 24;
+
+        private static final int HEADER_SIZE = 32;
+
+        // length and checksum
+        private static final int RECORD_HEADER_SIZE = 8;
+
+        private static final long MIN_COMPACTION_SIZE = 1024 * 1024;
+
+        private final File file;
+
+        private RandomAccessFile raf;
+
+        private FileChannel channel;
+
+        private MappedByteBuffer header;
+
+        private long generation;
+
+        // the offset up to which the log has been read into the index
+        private long scanned;
+
+        // the size of the current records
+        private long liveSize;
+
+        // Map (String key -> Record)
+        private final Map/*<String,Record>*/ index = new HashMap();
+
+        Log(File file) {
+            this.file = file;
+        }
+
+        synchronized Properties get(String key) throws IOException {
+            refresh();
+            Record record = (Record) index.get(key);
+            if (record == null) {
+                return null;
+            }
+            Properties data = new Properties();
+            data.putAll(record.data);
+            return data;
+        }
+
+        synchronized void put(String key, Properties data) throws IOException {
+            byte[] record = encode(key, data);
+            while (true) {
+                refresh();
+                FileLock lock = channel.lock();
+                try {
+                    if (header.getInt(STATE_OFFSET) == STATE_OBSOLETE) {
+                        // compacted by another process since refreshed
+                        continue;
+                    }
+                    refresh();
+                    // anything after what could be read is a record left incomplete by a crash
+                    channel.write(ByteBuffer.wrap(record), scanned);
+                    header.putLong(END_OFFSET, scanned + record.length);
+                    add(key, data, record.length);
+                    scanned += record.length;
+                    if (scanned > MIN_COMPACTION_SIZE && scanned > 2 * (HEADER_SIZE + liveSize)) {
+                        compactLocked();
+                    }
+                    return;
+                } finally {
+                    if (lock.isValid()) {
+                        lock.release();
+                    }
+                }
+            }
+        }
+
+        synchronized void compact() throws IOException {
+            refresh();
+            FileLock lock = channel.lock();
+            try {
+                refresh();
+                compactLocked();
+            } finally {
+                if (lock.isValid()) {
+                    lock.release();
+                }
+            }
+        }
+
+        synchronized void close() {
+            if (channel != null) {
+                try {
+                    raf.close();
+                } catch (IOException e) {
+                    // ignored
+                }
+            }
+            raf = null;
+            channel = null;
+            header = null;
+            index.clear();
+        }
+
+        /**
+         * Reads the records appended since the last refresh, opening the log again if it has been
+         * replaced or deleted.
+         */
+        private void refresh() throws IOException {
+            if (channel == null || header.getInt(STATE_OFFSET) == STATE_OBSOLETE
+                    || !file.exists()) {
+                close();
+                open();
+            }
+            long end = header.getLong(END_OFFSET);
+            if (end > scanned) {
+                scan(end);
+            }
+        }
+
+        private void open() throws IOException {
+            file.getParentFile().mkdirs();
+            raf = new RandomAccessFile(file, "rw");
+            channel = raf.getChannel();
+            if (channel.size() < HEADER_SIZE) {
+                FileLock lock = channel.lock();
+                try {
+                    if (channel.size() < HEADER_SIZE) {
+                        channel.write(newHeader(0, HEADER_SIZE), 0);
+                    }
+                } finally {
+                    lock.release();
+                }
+            }
+            header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+            if (header.getInt(MAGIC_OFFSET) != MAGIC || header.getInt(VERSION_OFFSET) != VERSION) {
+                close();
+                throw new IOException("not a supported ivy data log: " + file);
+            }
+            generation = header.getLong(GENERATION_OFFSET);
+            scanned = HEADER_SIZE;
+            liveSize = 0;
+            index.clear();
+            if (header.getInt(STATE_OFFSET) == STATE_OBSOLETE) {
+                recoverObsolete();
+            }
+        }
+
+        /**
+         * Called when the log found at the log file location is marked obsolete: either the
+         * process compacting it has not replaced it yet, or it died before.
+         */
+        private void recoverObsolete() throws IOException {
+            boolean replaced;
+            // the compacting process holds the lock until the log has been replaced
+            FileLock lock = channel.lock();
+            try {
+                RandomAccessFile current = new RandomAccessFile(file, "r");
+                try {
+                    current.seek(STATE_OFFSET);
+                    int state = current.readInt();
+                    current.seek(GENERATION_OFFSET);
+                    // a compacted log has a greater generation than the log it replaces
+                    replaced = state != STATE_OBSOLETE || current.readLong() != generation;
+                } finally {
+                    current.close();
+                }
+                if (!replaced) {
+                    Message.verbose("recovering interrupted compaction of " + file);
+                    header.putInt(STATE_OFFSET, STATE_OK);
+                }
+            } finally {
+                lock.release();
+            }
+            if (replaced) {
+                close();
+                open();
+            }
+        }
+
+        private void scan(long end) throws IOException {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, scanned, 
+                end - scanned);
+            CRC32 crc = new CRC32();
+            while (buffer.remaining() >= RECORD_HEADER_SIZE) {
+                int length = buffer.getInt();
+                int checksum = buffer.getInt();
+                if (length < 0 || length > buffer.remaining()) {
+                    break;
+                }
+                byte[] payload = new byte[length];
+                buffer.get(payload);
+                crc.reset();
+                crc.update(payload);
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+                DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+                String key = in.readUTF();
+                Properties data = new Properties();
+                for (int i = in.readInt(); i > 0; i--) {
+                    data.setProperty(in.readUTF(), in.readUTF());
+                }
+                add(key, data, RECORD_HEADER_SIZE + length);
+                scanned += RECORD_HEADER_SIZE + length;
+            }
+            if (scanned < end) {
+                Message.verbose("ignoring incomplete record at " + scanned + " in " + file);
+            }
+        }
+
+        private void add(String key, Properties data, int size) {
+            Record previous = (Record) index.put(key, new Record(data, size));
+            liveSize += size - (previous == null ? 0 : previous.size);
+        }
+
+        private void compactLocked() throws IOException {
+            File tmp = new File(file.getParentFile(), file.getName() + ".compact");
+            RandomAccessFile out = new RandomAccessFile(tmp, "rw");
+            try {
+                out.setLength(0);
+                FileChannel outChannel = out.getChannel();
+                long end = HEADER_SIZE;
+                for (Iterator it = index.entrySet().iterator(); it.hasNext();) {
+                    Map.Entry entry = (Map.Entry) it.next();
+                    if (((Record) entry.getValue()).data.isEmpty()) {
+                        // removed
+                        continue;
+                    }
+                    byte[] record = encode((String) entry.getKey(), 
+                        ((Record) entry.getValue()).data);
+                    outChannel.write(ByteBuffer.wrap(record), end);
+                    end += record.length;
+                }
+                outChannel.write(newHeader(generation + 1, end), 0);
+                outChannel.force(true);
+            } finally {
+                out.close();
+            }
+            header.putInt(STATE_OFFSET, STATE_OBSOLETE);
+            if (!tmp.renameTo(file) && !(file.delete() && tmp.renameTo(file))) {
+                Message.verbose("impossible to replace " + file + " by its compacted version");
+                header.putInt(STATE_OFFSET, STATE_OK);
+                tmp.delete();
+                return;
+            }
+            Message.verbose("compacted " + file + ": " + scanned + " -> " 
+                + (HEADER_SIZE + liveSize) + " bytes");
+            // releases the lock on the obsolete log
+            close();
+            open();
+        }
+
+        private static ByteBuffer newHeader(long generation, long end) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC_OFFSET, MAGIC);
+            header.putInt(VERSION_OFFSET, VERSION);
+            header.putInt(STATE_OFFSET, STATE_OK);
+            header.putLong(GENERATION_OFFSET, generation);
+            header.putLong(END_OFFSET, end);
+            return header;
+        }
+
+        private static byte[] encode(String key, Properties data) throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(0); // length
+            out.writeInt(0); // checksum
+            out.writeUTF(key);
+            out.writeInt(data.size());
+            for (Iterator it = data.entrySet().iterator(); it.hasNext();) {
+                Map.Entry entry = (Map.Entry) it.next();
+                out.writeUTF((String) entry.getKey());
+                out.writeUTF((String) entry.getValue());
+            }
+            out.close();
+            byte[] record = bytes.toByteArray();
+            CRC32 crc = new CRC32();
+            crc.update(record, RECORD_HEADER_SIZE, record.length - RECORD_HEADER_SIZE);
+            ByteBuffer.wrap(record).putInt(record.length - RECORD_HEADER_SIZE)
+                    .putInt((int) crc.getValue());
+            return record;
+        }
+    }
+
+    private static final class Record {
+        private final Properties data;
+
+        private final int size;
+
+        Record(Properties data, int size) {
+            this.data = data;
+            this.size = size;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.core.cache;
+
+import java.util.Properties;
+
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+
+/**
+ * Stores the data a {@link DefaultRepositoryCacheManager} keeps about the module revisions of
+ * its cache: resolved revisions, resolvers used and artifact origins.
+ * <p>
+ * The data of a module revision is loaded and saved as a whole: callers load it, change it and
+ * save it back, holding the lock of the module revision metadata artifact.
+ * </p>
+ */
+interface ModuleDataStore {
+    /**
+     * Returns the data stored for the given module revision, an empty Properties if there is
+     * none. The returned Properties can be changed by the caller without affecting the store.
+     */
+    Properties load(ModuleRevisionId mrid);
+
+    /**
+     * Stores the given data for the given module revision, replacing what was stored before.
+     * 
+     * @param data
+     *            the data to store, usually obtained by {@link #load(ModuleRevisionId)}
+     */
+    void save(ModuleRevisionId mrid, Properties data);
+
+    /**
+     * Removes all the data stored for the given module revision.
+     */
+    void remove(ModuleRevisionId mrid);
+
+    /**
+     * Releases the resources used by this store. It can still be used after, at the cost of
+     * acquiring them again.
+     */
+    void close();
+}
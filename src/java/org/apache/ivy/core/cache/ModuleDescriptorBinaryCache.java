@@ -0,0 +1,709 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.core.cache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ivy.core.IvyPatternHelper;
+import org.apache.ivy.core.module.descriptor.AbstractIncludeExcludeRule;
+import org.apache.ivy.core.module.descriptor.Artifact;
+import org.apache.ivy.core.module.descriptor.Configuration;
+import org.apache.ivy.core.module.descriptor.DefaultArtifact;
+import org.apache.ivy.core.module.descriptor.DefaultDependencyArtifactDescriptor;
+import org.apache.ivy.core.module.descriptor.DefaultDependencyDescriptor;
+import org.apache.ivy.core.module.descriptor.DefaultExcludeRule;
+import org.apache.ivy.core.module.descriptor.DefaultIncludeRule;
+import org.apache.ivy.core.module.descriptor.DefaultModuleDescriptor;
+import org.apache.ivy.core.module.descriptor.DependencyArtifactDescriptor;
+import org.apache.ivy.core.module.descriptor.DependencyDescriptor;
+import org.apache.ivy.core.module.descriptor.ExcludeRule;
+import org.apache.ivy.core.module.descriptor.IncludeRule;
+import org.apache.ivy.core.module.descriptor.License;
+import org.apache.ivy.core.module.descriptor.MDArtifact;
+import org.apache.ivy.core.module.descriptor.ModuleDescriptor;
+import org.apache.ivy.core.module.descriptor.OverrideDependencyDescriptorMediator;
+import org.apache.ivy.core.module.id.ArtifactId;
+import org.apache.ivy.core.module.id.ModuleId;
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.plugins.conflict.ConflictManager;
+import org.apache.ivy.plugins.conflict.FixedConflictManager;
+import org.apache.ivy.plugins.matcher.MapMatcher;
+import org.apache.ivy.plugins.matcher.PatternMatcher;
+import org.apache.ivy.plugins.parser.ParserSettings;
+import org.apache.ivy.plugins.parser.xml.XmlModuleDescriptorParser;
+import org.apache.ivy.plugins.repository.url.URLResource;
+import org.apache.ivy.util.Message;
+
+/**
+ * Stores a compact binary form of the module descriptors parsed from the ivy files of the cache,
+ * next to these files, so that they can be read back much faster than by parsing the xml.
+ * <p>
+ * A binary descriptor is only used if the ivy file has the same timestamp and length as when it
+ * was written, and if the settings variables used by the parsing still have the same values (as
+ * recorded by a {@link ParserSettingsMonitor}). A descriptor asked for with validation is not
+ * read from a binary descriptor written from a parsing without validation.
+ * </p>
+ * <p>
+ * Only the descriptors which can be entirely rebuilt from their ivy file are stored: descriptors
+ * which extend or include other files, use a namespace, or use module descriptor parts unknown
+ * to the xml parser are always parsed.
+ * </p>
+ */
+class ModuleDescriptorBinaryCache {
+    private static final String SUFFIX = ".bin";
+
+    private static final int MAGIC = 0x4976794D; // "IvyM"
+
+    private static final int VERSION = 1;
+
+    private static final int NULL = -1;
+
+    private static final byte NAMED_CONFLICT_MANAGER = 0;
+
+    private static final byte FIXED_CONFLICT_MANAGER = 1;
+
+    /**
+     * Returns the file in which the binary form of the descriptor parsed from the given ivy file
+     * is stored.
+     */
+    static File getBinaryFile(File ivyFile) {
+        return new File(ivyFile.getParentFile(), ivyFile.getName() + SUFFIX);
+    }
+
+    /**
+     * Deletes the module descriptor stored for the given ivy file, if any.
+     */
+    static void invalidate(File ivyFile) {
+        getBinaryFile(ivyFile).delete();
+    }
+
+    /**
+     * Reads the module descriptor stored for the given ivy file.
+     * 
+     * @return the module descriptor, or <code>null</code> if there is none, or if it is out of
+     *         date
+     */
+    ModuleDescriptor read(File ivyFile, ParserSettings settings, boolean validate) {
+        File binaryFile = getBinaryFile(ivyFile);
+        if (!binaryFile.exists()) {
+            return null;
+        }
+        try {
+            Reader reader = new Reader(new DataInputStream(new BufferedInputStream(
+                    new FileInputStream(binaryFile))), settings);
+            try {
+                if (!reader.readHeader(ivyFile, validate)) {
+                    Message.debug("binary descriptor out of date: " + binaryFile);
+                    return null;
+                }
+                ModuleDescriptor md = reader.readModuleDescriptor(ivyFile);
+                Message.debug("module descriptor read from binary descriptor: " + binaryFile);
+                return md;
+            } finally {
+                reader.close();
+            }
+        } catch (Exception e) {
+            Message.debug("impossible to read binary descriptor " + binaryFile + ": " + e);
+            return null;
+        }
+    }
+
+    /**
+     * Stores the given module descriptor parsed from the given ivy file, if it can be stored.
+     * 
+     * @param monitor
+     *            the monitor of the settings used to parse the descriptor
+     */
+    void write(File ivyFile, ParserSettingsMonitor monitor, ParserSettings settings, 
+            boolean validated, ModuleDescriptor md) {
+        if (!monitor.isSelfContained() || !isStorable(md, settings)) {
+            Message.debug("module descriptor can't be stored as binary: " + ivyFile);
+            return;
+        }
+        File binaryFile = getBinaryFile(ivyFile);
+        File tmp = new File(binaryFile.getParentFile(), binaryFile.getName() + "."
+                + System.identityHashCode(md) + ".part");
+        try {
+            Writer writer = new Writer(new DataOutputStream(new BufferedOutputStream(
+                    new FileOutputStream(tmp))));
+            try {
+                writer.writeHeader(ivyFile, validated, monitor.getSubstitutes());
+                writer.writeModuleDescriptor((DefaultModuleDescriptor) md);
+            } finally {
+                writer.close();
+            }
+            binaryFile.delete();
+            if (!tmp.renameTo(binaryFile)) {
+                Message.debug("impossible to move binary descriptor to " + binaryFile);
+            }
+        } catch (IOException e) {
+            Message.debug("impossible to write binary descriptor " + binaryFile + ": " + e);
+        } finally {
+            tmp.delete();
+        }
+    }
+
+    private static boolean isStorable(ModuleDescriptor md, ParserSettings settings) {
+        if (md.getClass() != DefaultModuleDescriptor.class
+                || md.getParser() != XmlModuleDescriptorParser.getInstance()
+                || md.getInheritedDescriptors().length > 0 
+                || ((DefaultModuleDescriptor) md).getNamespace() != null) {
+            return false;
+        }
+        Configuration[] confs = md.getConfigurations();
+        for (int i = 0; i < confs.length; i++) {
+            if (confs[i].getClass() != Configuration.class) {
+                return false;
+            }
+        }
+        Artifact[] artifacts = md.getAllArtifacts();
+        for (int i = 0; i < artifacts.length; i++) {
+            if (artifacts[i].getClass() != MDArtifact.class || artifacts[i].isMetadata()) {
+                return false;
+            }
+        }
+        if (!areStorable(md.getAllExcludeRules(), DefaultExcludeRule.class, settings)) {
+            return false;
+        }
+        DependencyDescriptor[] dds = md.getDependencies();
+        for (int i = 0; i < dds.length; i++) {
+            if (dds[i].getClass() != DefaultDependencyDescriptor.class
+                    || dds[i].getNamespace() != null
+                    || !areStorable(dds[i].getAllIncludeRules(), DefaultIncludeRule.class, 
+                        settings)
+                    || !areStorable(dds[i].getAllExcludeRules(), DefaultExcludeRule.class, 
+                        settings)) {
+                return false;
+            }
+            DependencyArtifactDescriptor[] dads = dds[i].getAllDependencyArtifacts();
+            for (int j = 0; j < dads.length; j++) {
+                if (dads[j].getClass() != DefaultDependencyArtifactDescriptor.class) {
+                    return false;
+                }
+            }
+        }
+        DefaultModuleDescriptor dmd = (DefaultModuleDescriptor) md;
+        for (Iterator it = dmd.getAllConflictManagers().getAllRules().entrySet().iterator(); 
+                it.hasNext();) {
+            Map.Entry rule = (Map.Entry) it.next();
+            ConflictManager cm = (ConflictManager) rule.getValue();
+            if (!isStorable((MapMatcher) rule.getKey(), settings)
+                    || !(cm instanceof FixedConflictManager 
+                            || settings.getConflictManager(cm.getName()) == cm)) {
+                return false;
+            }
+        }
+        for (Iterator it = dmd.getAllDependencyDescriptorMediators().getAllRules().entrySet()
+                .iterator(); it.hasNext();) {
+            Map.Entry rule = (Map.Entry) it.next();
+            if (!isStorable((MapMatcher) rule.getKey(), settings)
+                    || rule.getValue().getClass() != OverrideDependencyDescriptorMediator.class) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean areStorable(Object[] rules, Class ruleClass, ParserSettings settings) {
+        for (int i = 0; i < rules.length; i++) {
+            AbstractIncludeExcludeRule rule = (AbstractIncludeExcludeRule) rules[i];
+            if (rule.getClass() != ruleClass || !isStorable(rule.getMatcher(), settings)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isStorable(MapMatcher matcher, ParserSettings settings) {
+        Map attributes = matcher.getAttributes();
+        return attributes.size() == 2 
+                && attributes.containsKey(IvyPatternHelper.ORGANISATION_KEY)
+                && attributes.containsKey(IvyPatternHelper.MODULE_KEY)
+                && isStorable(matcher.getPatternMatcher(), settings);
+    }
+
+    private static boolean isStorable(PatternMatcher matcher, ParserSettings settings) {
+        return settings.getMatcher(matcher.getName()) == matcher;
+    }
+
+    /**
+     * Writes the strings only once, the next occurrences being replaced by their index.
+     */
+    private static final class Writer {
+        private final DataOutputStream out;
+
+        private final Map/*<String,Integer>*/ strings = new HashMap();
+
+        Writer(DataOutputStream out) {
+            this.out = out;
+        }
+
+        void close() throws IOException {
+            out.close();
+        }
+
+        void writeHeader(File ivyFile, boolean validated, Map substitutes) throws IOException {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(ivyFile.lastModified());
+            out.writeLong(ivyFile.length());
+            out.writeBoolean(validated);
+            writeMap(substitutes);
+        }
+
+        void writeModuleDescriptor(DefaultModuleDescriptor md) throws IOException {
+            writeModuleRevisionId(md.getModuleRevisionId());
+            writeModuleRevisionId(md.getResolvedModuleRevisionId());
+            writeString(md.getStatus());
+            writeDate(md.getPublicationDate());
+            writeDate(md.getResolvedPublicationDate());
+            out.writeBoolean(md.isDefault());
+            out.writeLong(md.getLastModified());
+            writeString(md.getHomePage());
+            writeString(md.getDescription());
+            writeString(md.getDefaultConf());
+            writeString(md.getDefaultConfMapping());
+            out.writeBoolean(md.isMappingOverride());
+            writeMap(md.getExtraAttributesNamespaces());
+            writeMap(md.getExtraInfo());
+
+            License[] licenses = md.getLicenses();
+            out.writeInt(licenses.length);
+            for (int i = 0; i < licenses.length; i++) {
+                writeString(licenses[i].getName());
+                writeString(licenses[i].getUrl());
+            }
+
+            Configuration[] confs = md.getConfigurations();
+            out.writeInt(confs.length);
+            for (int i = 0; i < confs.length; i++) {
+                writeString(confs[i].getName());
+                writeString(confs[i].getVisibility().toString());
+                writeString(confs[i].getDescription());
+                writeStrings(confs[i].getExtends());
+                out.writeBoolean(confs[i].isTransitive());
+                writeString(confs[i].getDeprecated());
+                writeMap(confs[i].getQualifiedExtraAttributes());
+            }
+
+            Artifact[] artifacts = md.getAllArtifacts();
+            Map/*<Artifact,Integer>*/ indexes = new IdentityHashMap();
+            out.writeInt(artifacts.length);
+            for (int i = 0; i < artifacts.length; i++) {
+                indexes.put(artifacts[i], new Integer(i));
+                writeString(artifacts[i].getName());
+                writeString(artifacts[i].getType());
+                writeString(artifacts[i].getExt());
+                writeString(artifacts[i].getUrl() == null ? null 
+                        : artifacts[i].getUrl().toExternalForm());
+                writeMap(artifacts[i].getQualifiedExtraAttributes());
+                writeStrings(artifacts[i].getConfigurations());
+            }
+            for (int i = 0; i < confs.length; i++) {
+                Artifact[] confArtifacts = md.getArtifacts(confs[i].getName());
+                out.writeInt(confArtifacts.length);
+                for (int j = 0; j < confArtifacts.length; j++) {
+                    out.writeInt(((Integer) indexes.get(confArtifacts[j])).intValue());
+                }
+            }
+
+            writeRules(md.getAllExcludeRules());
+
+            DependencyDescriptor[] dds = md.getDependencies();
+            out.writeInt(dds.length);
+            for (int i = 0; i < dds.length; i++) {
+                writeDependencyDescriptor((DefaultDependencyDescriptor) dds[i]);
+            }
+
+            Map rules = md.getAllConflictManagers().getAllRules();
+            out.writeInt(rules.size());
+            for (Iterator it = rules.entrySet().iterator(); it.hasNext();) {
+                Map.Entry rule = (Map.Entry) it.next();
+                writeMapMatcher((MapMatcher) rule.getKey());
+                if (rule.getValue() instanceof FixedConflictManager) {
+                    out.writeByte(FIXED_CONFLICT_MANAGER);
+                    List revs = new ArrayList(((FixedConflictManager) rule.getValue()).getRevs());
+                    writeStrings((String[]) revs.toArray(new String[revs.size()]));
+                } else {
+                    out.writeByte(NAMED_CONFLICT_MANAGER);
+                    writeString(((ConflictManager) rule.getValue()).getName());
+                }
+            }
+
+            rules = md.getAllDependencyDescriptorMediators().getAllRules();
+            out.writeInt(rules.size());
+            for (Iterator it = rules.entrySet().iterator(); it.hasNext();) {
+                Map.Entry rule = (Map.Entry) it.next();
+                OverrideDependencyDescriptorMediator mediator = 
+                    (OverrideDependencyDescriptorMediator) rule.getValue();
+                writeMapMatcher((MapMatcher) rule.getKey());
+                writeString(mediator.getBranch());
+                writeString(mediator.getVersion());
+            }
+        }
+
+        private void writeDependencyDescriptor(DefaultDependencyDescriptor dd) 
+                throws IOException {
+            writeModuleRevisionId(dd.getDependencyRevisionId());
+            writeModuleRevisionId(dd.getDynamicConstraintDependencyRevisionId());
+            out.writeBoolean(dd.isForce());
+            out.writeBoolean(dd.isChanging());
+            out.writeBoolean(dd.isTransitive());
+            String[] moduleConfs = dd.getModuleConfigurations();
+            out.writeInt(moduleConfs.length);
+            for (int i = 0; i < moduleConfs.length; i++) {
+                writeString(moduleConfs[i]);
+                writeStrings(dd.getDeclaredDependencyConfigurations(moduleConfs[i]));
+            }
+            DependencyArtifactDescriptor[] dads = dd.getAllDependencyArtifacts();
+            out.writeInt(dads.length);
+            for (int i = 0; i < dads.length; i++) {
+                writeString(dads[i].getName());
+                writeString(dads[i].getType());
+                writeString(dads[i].getExt());
+                writeString(dads[i].getUrl() == null ? null : dads[i].getUrl().toExternalForm());
+                writeMap(dads[i].getQualifiedExtraAttributes());
+                writeStrings(dads[i].getConfigurations());
+            }
+            writeRules(dd.getAllIncludeRules());
+            writeRules(dd.getAllExcludeRules());
+        }
+
+        private void writeRules(Object[] rules) throws IOException {
+            out.writeInt(rules.length);
+            for (int i = 0; i < rules.length; i++) {
+                AbstractIncludeExcludeRule rule = (AbstractIncludeExcludeRule) rules[i];
+                ArtifactId aid = rule.getId();
+                writeString(aid.getModuleId().getOrganisation());
+                writeString(aid.getModuleId().getName());
+                writeString(aid.getName());
+                writeString(aid.getType());
+                writeString(aid.getExt());
+                writeString(rule.getMatcher().getName());
+                writeMap(rule.getQualifiedExtraAttributes());
+                writeStrings(rule.getConfigurations());
+            }
+        }
+
+        private void writeMapMatcher(MapMatcher matcher) throws IOException {
+            writeString((String) matcher.getAttributes().get(IvyPatternHelper.ORGANISATION_KEY));
+            writeString((String) matcher.getAttributes().get(IvyPatternHelper.MODULE_KEY));
+            writeString(matcher.getPatternMatcher().getName());
+        }
+
+        private void writeModuleRevisionId(ModuleRevisionId mrid) throws IOException {
+            writeString(mrid.getOrganisation());
+            writeString(mrid.getName());
+            writeString(mrid.getBranch());
+            writeString(mrid.getRevision());
+            writeMap(mrid.getQualifiedExtraAttributes());
+        }
+
+        private void writeDate(Date date) throws IOException {
+            out.writeBoolean(date != null);
+            if (date != null) {
+                out.writeLong(date.getTime());
+            }
+        }
+
+        private void writeMap(Map map) throws IOException {
+            out.writeInt(map.size());
+            for (Iterator it = map.entrySet().iterator(); it.hasNext();) {
+                Map.Entry entry = (Map.Entry) it.next();
+                writeString((String) entry.getKey());
+                writeString((String) entry.getValue());
+            }
+        }
+
+        private void writeStrings(String[] values) throws IOException {
+            out.writeInt(values.length);
+            for (int i = 0; i < values.length; i++) {
+                writeString(values[i]);
+            }
+        }
+
+        private void writeString(String value) throws IOException {
+            if (value == null) {
+                out.writeInt(NULL);
+                return;
+            }
+            Integer index = (Integer) strings.get(value);
+            if (index != null) {
+                out.writeInt(index.intValue());
+            } else {
+                // a new string is written with the next index, so that the reader knows it
+                index = new Integer(strings.size());
+                strings.put(value, index);
+                out.writeInt(index.intValue());
+                out.writeUTF(value);
+            }
+        }
+    }
+
+    private static final class Reader {
+        private final DataInputStream in;
+
+        private final ParserSettings settings;
+
+        private final List/*<String>*/ strings = new ArrayList();
+
+        Reader(DataInputStream in, ParserSettings settings) {
+            this.in = in;
+            this.settings = settings;
+        }
+
+        void close() throws IOException {
+            in.close();
+        }
+
+        boolean readHeader(File ivyFile, boolean validate) throws IOException {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION
+                    || in.readLong() != ivyFile.lastModified() 
+                    || in.readLong() != ivyFile.length()) {
+                return false;
+            }
+            boolean validated = in.readBoolean();
+            if (validate && !validated) {
+                return false;
+            }
+            Map substitutes = readMap();
+            for (Iterator it = substitutes.entrySet().iterator(); it.hasNext();) {
+                Map.Entry entry = (Map.Entry) it.next();
+                if (!entry.getValue().equals(settings.substitute((String) entry.getKey()))) {
+                    Message.debug("settings variable has changed for : " + entry.getKey());
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        ModuleDescriptor readModuleDescriptor(File ivyFile) throws IOException {
+            URL url = ivyFile.toURI().toURL();
+            DefaultModuleDescriptor md = new DefaultModuleDescriptor(
+                XmlModuleDescriptorParser.getInstance(), new URLResource(url));
+            md.setModuleRevisionId(readModuleRevisionId());
+            md.setResolvedModuleRevisionId(readModuleRevisionId());
+            md.setStatus(readString());
+            md.setPublicationDate(readDate());
+            md.setResolvedPublicationDate(readDate());
+            md.setDefault(in.readBoolean());
+            md.setLastModified(in.readLong());
+            md.setHomePage(readString());
+            md.setDescription(readString());
+            md.setDefaultConf(readString());
+            md.setDefaultConfMapping(readString());
+            md.setMappingOverride(in.readBoolean());
+            for (Iterator it = readMap().entrySet().iterator(); it.hasNext();) {
+                Map.Entry entry = (Map.Entry) it.next();
+                md.addExtraAttributeNamespace((String) entry.getKey(), (String) entry.getValue());
+            }
+            for (Iterator it = readMap().entrySet().iterator(); it.hasNext();) {
+                Map.Entry entry = (Map.Entry) it.next();
+                md.addExtraInfo((String) entry.getKey(), (String) entry.getValue());
+            }
+
+            for (int i = in.readInt(); i > 0; i--) {
+                md.addLicense(new License(readString(), readString()));
+            }
+
+            String[] confs = new String[in.readInt()];
+            for (int i = 0; i < confs.length; i++) {
+                confs[i] = readString();
+                Configuration conf = new Configuration(confs[i], 
+                    Configuration.Visibility.getVisibility(readString()), readString(), 
+                    readStrings(), in.readBoolean(), readString());
+                for (Iterator it = readMap().entrySet().iterator(); it.hasNext();) {
+                    Map.Entry entry = (Map.Entry) it.next();
+                    conf.setExtraAttribute((String) entry.getKey(), (String) entry.getValue());
+                }
+                md.addConfiguration(conf);
+            }
+
+            MDArtifact[] artifacts = new MDArtifact[in.readInt()];
+            for (int i = 0; i < artifacts.length; i++) {
+                artifacts[i] = new MDArtifact(md, readString(), readString(), readString(), 
+                    readURL(), readMap());
+                String[] artifactConfs = readStrings();
+                for (int j = 0; j < artifactConfs.length; j++) {
+                    artifacts[i].addConfiguration(artifactConfs[j]);
+                }
+            }
+            for (int i = 0; i < confs.length; i++) {
+                for (int j = in.readInt(); j > 0; j--) {
+                    md.addArtifact(confs[i], artifacts[in.readInt()]);
+                }
+            }
+            md.setModuleArtifact(DefaultArtifact.newIvyArtifact(
+                md.getResolvedModuleRevisionId(), md.getPublicationDate()));
+
+            for (int i = in.readInt(); i > 0; i--) {
+                md.addExcludeRule((ExcludeRule) readRule(false));
+            }
+
+            for (int i = in.readInt(); i > 0; i--) {
+                md.addDependency(readDependencyDescriptor(md));
+            }
+
+            for (int i = in.readInt(); i > 0; i--) {
+                ModuleId mid = ModuleId.newInstance(readString(), readString());
+                PatternMatcher matcher = readMatcher();
+                ConflictManager cm;
+                if (in.readByte() == FIXED_CONFLICT_MANAGER) {
+                    cm = new FixedConflictManager(readStrings());
+                } else {
+                    String name = readString();
+                    cm = settings.getConflictManager(name);
+                    if (cm == null) {
+                        throw new IOException("unknown conflict manager: " + name);
+                    }
+                }
+                md.addConflictManager(mid, matcher, cm);
+            }
+
+            for (int i = in.readInt(); i > 0; i--) {
+                ModuleId mid = ModuleId.newInstance(readString(), readString());
+                PatternMatcher matcher = readMatcher();
+                String branch = readString();
+                md.addDependencyDescriptorMediator(mid, matcher, 
+                    new OverrideDependencyDescriptorMediator(branch, readString()));
+            }
+            return md;
+        }
+
+        private DependencyDescriptor readDependencyDescriptor(DefaultModuleDescriptor md) 
+                throws IOException {
+            DefaultDependencyDescriptor dd = new DefaultDependencyDescriptor(md, 
+                readModuleRevisionId(), readModuleRevisionId(), 
+                in.readBoolean(), in.readBoolean(), in.readBoolean());
+            for (int i = in.readInt(); i > 0; i--) {
+                String moduleConf = readString();
+                String[] depConfs = readStrings();
+                for (int j = 0; j < depConfs.length; j++) {
+                    dd.addDependencyConfiguration(moduleConf, depConfs[j]);
+                }
+            }
+            for (int i = in.readInt(); i > 0; i--) {
+                DefaultDependencyArtifactDescriptor dad = new DefaultDependencyArtifactDescriptor(
+                    dd, readString(), readString(), readString(), readURL(), readMap());
+                String[] dadConfs = readStrings();
+                for (int j = 0; j < dadConfs.length; j++) {
+                    dad.addConfiguration(dadConfs[j]);
+                    dd.addDependencyArtifact(dadConfs[j], dad);
+                }
+            }
+            for (int i = in.readInt(); i > 0; i--) {
+                IncludeRule rule = (IncludeRule) readRule(true);
+                String[] ruleConfs = rule.getConfigurations();
+                for (int j = 0; j < ruleConfs.length; j++) {
+                    dd.addIncludeRule(ruleConfs[j], rule);
+                }
+            }
+            for (int i = in.readInt(); i > 0; i--) {
+                ExcludeRule rule = (ExcludeRule) readRule(false);
+                String[] ruleConfs = rule.getConfigurations();
+                for (int j = 0; j < ruleConfs.length; j++) {
+                    dd.addExcludeRule(ruleConfs[j], rule);
+                }
+            }
+            return dd;
+        }
+
+        private AbstractIncludeExcludeRule readRule(boolean include) throws IOException {
+            ArtifactId aid = new ArtifactId(ModuleId.newInstance(readString(), readString()),
+                readString(), readString(), readString());
+            PatternMatcher matcher = readMatcher();
+            Map extraAttributes = readMap();
+            AbstractIncludeExcludeRule rule = include 
+                    ? (AbstractIncludeExcludeRule) new DefaultIncludeRule(
+                        aid, matcher, extraAttributes) 
+                    : new DefaultExcludeRule(aid, matcher, extraAttributes);
+            String[] ruleConfs = readStrings();
+            for (int i = 0; i < ruleConfs.length; i++) {
+                rule.addConfiguration(ruleConfs[i]);
+            }
+            return rule;
+        }
+
+        private PatternMatcher readMatcher() throws IOException {
+            String name = readString();
+            PatternMatcher matcher = settings.getMatcher(name);
+            if (matcher == null) {
+                throw new IOException("unknown matcher: " + name);
+            }
+            return matcher;
+        }
+
+        private ModuleRevisionId readModuleRevisionId() throws IOException {
+            return ModuleRevisionId.newInstance(readString(), readString(), readString(), 
+                readString(), readMap(), false);
+        }
+
+        private Date readDate() throws IOException {
+            return in.readBoolean() ? new Date(in.readLong()) : null;
+        }
+
+        private URL readURL() throws IOException {
+            String url = readString();
+            return url == null ? null : new URL(url);
+        }
+
+        private Map readMap() throws IOException {
+            int size = in.readInt();
+            Map map = new LinkedHashMap(size);
+            for (int i = 0; i < size; i++) {
+                map.put(readString(), readString());
+            }
+            return map;
+        }
+
+        private String[] readStrings() throws IOException {
+            String[] values = new String[in.readInt()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = readString();
+            }
+            return values;
+        }
+
+        private String readString() throws IOException {
+            int index = in.readInt();
+            if (index == NULL) {
+                return null;
+            }
+            if (index == strings.size()) {
+                strings.add(in.readUTF());
+            }
+            return (String) strings.get(index);
+        }
+    }
+}
@@ -21,8 +21,11 @@ import java.io.File;
 import java.io.IOException;
 import java.text.ParseException;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
+import org.apache.ivy.core.module.descriptor.DependencyDescriptor;
 import org.apache.ivy.core.module.descriptor.ModuleDescriptor;
 import org.apache.ivy.plugins.parser.ParserSettings;
 import org.apache.ivy.util.Message;
@@ -33,20 +36,51 @@ import org.apache.ivy.util.Message;
  * This cache is has a limited size, and keep the most recently used entries.
  * The entry in the cache are invalidated if there is a change to one variable
  * used in the module descriptor.
+ * <p>
+ * The cache can be limited both in number of entries and in total weight, the weight of a
+ * descriptor being an estimate of its size in memory (see {@link #weigh(ModuleDescriptor)}).
+ * Lookups don't lock: the entries are kept in a concurrent map and stamped with their last
+ * access, and the entry with the oldest stamp is evicted when a limit is exceeded. Concurrent
+ * accesses may thus make the eviction order approximate, which is fine for a cache.
+ * </p>
+ * <p>
+ * The cache counts its hits, misses and evictions.
+ * </p>
  */
 class ModuleDescriptorMemoryCache {
 
     private final int maxSize;
-    private final LinkedHashMap/*<File,CacheEntry>*/ valueMap;
+    private final long maxWeight;
+    private final ConcurrentHashMap/*<File,CacheEntry>*/ valueMap;
     
+    private final AtomicLong clock = new AtomicLong();
+    private final AtomicLong weight = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    
+    private final Object evictionLock = new Object();
     
     /**
      * Create a cache of the given size
      * @param size
      */
     public ModuleDescriptorMemoryCache(int size) {
+        this(size, 0);
+    }
+
+    /**
+     * Create a cache of the given size and weight.
+     * 
+     * @param size
+     *            the maximum number of entries, 0 or less disabling the cache
+     * @param maxWeight
+     *            the maximum total weight of the entries, 0 or less for no limit
+     */
+    public ModuleDescriptorMemoryCache(int size, long maxWeight) {
         this.maxSize = size;
-        this.valueMap = new LinkedHashMap(size);
+        this.maxWeight = maxWeight;
+        this.valueMap = new ConcurrentHashMap(Math.max(size, 16));
     }
 
     public ModuleDescriptor get(File ivyFile, ParserSettings ivySettings, boolean validated,
@@ -81,49 +115,137 @@ class ModuleDescriptorMemoryCache {
             if (entry.isStale(validated, ivySettings)) {
                 Message.debug("Entry is found in the ModuleDescriptorCache but entry should be " 
                     + "reevaluated : " + ivyFile);
-                valueMap.remove(ivyFile);
+                remove(ivyFile, entry);
+                misses.incrementAndGet();
                 return null;
             } else {
-                //Move the entry at the end of the list
-                valueMap.remove(ivyFile);
-                valueMap.put(ivyFile, entry);
+                entry.lastAccess = clock.incrementAndGet();
+                hits.incrementAndGet();
                 Message.debug("Entry is found in the ModuleDescriptorCache : " + ivyFile);
                 return entry.md;
             }
         } else {
+            misses.incrementAndGet();
             Message.debug("No entry is found in the ModuleDescriptorCache : " + ivyFile);
             return null;
         }        
     }
 
-    
- 
     void putInCache(File url, ParserSettingsMonitor ivySettingsMonitor, boolean validated, 
             ModuleDescriptor descriptor) {
         if (maxSize <= 0) {
             //cache is disabled
             return;
         }
-        if (valueMap.size() >= maxSize) {
-            Message.debug("ModuleDescriptorCache is full, remove one entry");
-            Iterator it = valueMap.values().iterator();
-            it.next();
-            it.remove();
+        CacheEntry entry = new CacheEntry(descriptor , validated, ivySettingsMonitor);
+        entry.lastAccess = clock.incrementAndGet();
+        if (maxWeight > 0 && entry.weight > maxWeight) {
+            Message.debug("Module descriptor too heavy for the ModuleDescriptorCache : " + url);
+            CacheEntry previous = (CacheEntry) valueMap.get(url);
+            if (previous != null) {
+                remove(url, previous);
+            }
+            return;
+        }
+        CacheEntry previous = (CacheEntry) valueMap.put(url, entry);
+        weight.addAndGet(entry.weight - (previous == null ? 0 : previous.weight));
+        evict();
+    }
+
+    private void evict() {
+        synchronized (evictionLock) {
+            while (valueMap.size() > maxSize || (maxWeight > 0 && weight.get() > maxWeight)) {
+                Map.Entry eldest = null;
+                for (Iterator it = valueMap.entrySet().iterator(); it.hasNext();) {
+                    Map.Entry candidate = (Map.Entry) it.next();
+                    if (eldest == null || ((CacheEntry) candidate.getValue()).lastAccess 
+                            < ((CacheEntry) eldest.getValue()).lastAccess) {
+                        eldest = candidate;
+                    }
+                }
+                if (eldest == null) {
+                    return;
+                }
+                Message.debug("ModuleDescriptorCache is full, remove " + eldest.getKey());
+                if (remove((File) eldest.getKey(), (CacheEntry) eldest.getValue())) {
+                    evictions.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    private boolean remove(File url, CacheEntry entry) {
+        if (valueMap.remove(url, entry)) {
+            weight.addAndGet(-entry.weight);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Estimates the memory used by the given module descriptor, counting one unit per element it
+     * is made of: its configurations, artifacts, dependencies and their own configurations and
+     * artifacts.
+     */
+    static long weigh(ModuleDescriptor md) {
+        long w = 1 + md.getConfigurations().length + md.getAllArtifacts().length
+                + md.getAllExcludeRules().length;
+        DependencyDescriptor[] dds = md.getDependencies();
+        for (int i = 0; i < dds.length; i++) {
+            w += 1 + dds[i].getModuleConfigurations().length 
+                    + dds[i].getAllDependencyArtifacts().length 
+                    + dds[i].getAllExcludeRules().length;
         }
-        valueMap.put(url, new CacheEntry(descriptor , validated, ivySettingsMonitor));
+        return w;
+    }
+
+    public int getSize() {
+        return valueMap.size();
+    }
+
+    public long getWeight() {
+        return weight.get();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
     }
 
+    public long getMaxWeight() {
+        return maxWeight;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public String toString() {
+        return "ModuleDescriptorMemoryCache[size=" + getSize() + "/" + maxSize + ", weight="
+                + getWeight() + (maxWeight > 0 ? "/" + maxWeight : "") + ", hits=" + getHits()
+                + ", misses=" + getMisses() + ", evictions=" + getEvictions() + "]";
+    }
     
     private static class CacheEntry {
         private final ModuleDescriptor md;
         private final boolean validated;
         private final ParserSettingsMonitor parserSettingsMonitor;
+        private final long weight;
+        private volatile long lastAccess;
 
         CacheEntry(ModuleDescriptor md , boolean validated, 
                         ParserSettingsMonitor parserSettingsMonitor) {
             this.md = md;
             this.validated = validated;
             this.parserSettingsMonitor = parserSettingsMonitor;
+            this.weight = weigh(md);
         }
         
         boolean isStale(boolean validated, ParserSettings newParserSettings) {
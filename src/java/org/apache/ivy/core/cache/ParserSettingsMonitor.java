@@ -50,6 +50,7 @@ class ParserSettingsMonitor {
 
     private ParserSettings delegatedSettings;
     private final Map/*<String,String>*/ substitutes;
+    private boolean selfContained = true;
     
     
     public ParserSettingsMonitor(ParserSettings settings) {
@@ -74,6 +75,22 @@ class ParserSettingsMonitor {
         delegatedSettings = null;
     }
     
+    /**
+     * @return the variables substituted through the monitored settings, with the value they had
+     */
+    Map/*<String,String>*/ getSubstitutes() {
+        return substitutes;
+    }
+    
+    /**
+     * @return <code>false</code> if the monitored settings have been asked for a way to load other
+     * resources (a relative url resolver or a dependency resolver), meaning that what has been
+     * parsed may also depend on the content of those resources
+     */
+    boolean isSelfContained() {
+        return selfContained;
+    }
+    
     /**
      * Check if the newSettings is compatible with the original settings that
      * has been monitored.  Only the info that was actually used is compared.
@@ -108,14 +125,17 @@ class ParserSettingsMonitor {
         }
 
         public RelativeUrlResolver getRelativeUrlResolver() {
+            selfContained = false;
             return delegatedSettings.getRelativeUrlResolver();
         }
 
         public ResolutionCacheManager getResolutionCacheManager() {
+            selfContained = false;
             return delegatedSettings.getResolutionCacheManager();
         }
 
         public DependencyResolver getResolver(ModuleRevisionId mRevId) {
+            selfContained = false;
             return delegatedSettings.getResolver(mRevId);
         }
 
@@ -0,0 +1,70 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.core.cache;
+
+import java.io.File;
+import java.util.Properties;
+
+import org.apache.ivy.core.IvyPatternHelper;
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.util.PropertiesFile;
+
+/**
+ * Stores the data of each module revision in its own properties file, located in the cache with
+ * the data file pattern.
+ */
+class PropertiesModuleDataStore implements ModuleDataStore {
+    private final File root;
+
+    private final String pattern;
+
+    PropertiesModuleDataStore(File root, String pattern) {
+        this.root = root;
+        this.pattern = pattern;
+    }
+
+    public Properties load(ModuleRevisionId mrid) {
+        return new PropertiesFile(getDataFile(mrid), "ivy cached data file for " + mrid);
+    }
+
+    public void save(ModuleRevisionId mrid, Properties data) {
+        PropertiesFile file;
+        if (data instanceof PropertiesFile) {
+            file = (PropertiesFile) data;
+        } else {
+            file = new PropertiesFile(getDataFile(mrid), "ivy cached data file for " + mrid);
+            file.clear();
+            file.putAll(data);
+        }
+        file.save();
+    }
+
+    public void remove(ModuleRevisionId mrid) {
+        getDataFile(mrid).delete();
+    }
+
+    public void close() {
+    }
+
+    /**
+     * Returns the properties file in which the data of the given module revision is stored.
+     */
+    File getDataFile(ModuleRevisionId mrid) {
+        return new File(root, IvyPatternHelper.substitute(pattern, mrid));
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.core.cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.ivy.plugins.lock.FileBasedLockStrategy;
+import org.apache.ivy.plugins.lock.LockStrategy;
+import org.apache.ivy.util.LatencyHistogram;
+
+/**
+ * Statistics of a {@link DefaultRepositoryCacheManager}: hits and misses of module and artifact
+ * lookups, downloaded bytes, ttl expirations and lookup latencies, along with the statistics of
+ * its memory cache and of its lock strategy when it is file based.
+ * <p>
+ * The counters are updated without locking, and can be exposed through JMX (see
+ * {@link org.apache.ivy.core.IvyMBeans}).
+ * </p>
+ */
+public class RepositoryCacheStatistics implements RepositoryCacheStatisticsMBean {
+
+    private final DefaultRepositoryCacheManager cacheManager;
+
+    private final AtomicLong moduleHits = new AtomicLong();
+
+    private final AtomicLong moduleMisses = new AtomicLong();
+
+    private final AtomicLong artifactHits = new AtomicLong();
+
+    private final AtomicLong artifactDownloads = new AtomicLong();
+
+    private final AtomicLong artifactDownloadFailures = new AtomicLong();
+
+    private final AtomicLong bytesDownloaded = new AtomicLong();
+
+    private final AtomicLong ttlExpirations = new AtomicLong();
+
+    private final AtomicLong staleServes = new AtomicLong();
+
+    private final LatencyHistogram lookupTimes = new LatencyHistogram();
+
+    RepositoryCacheStatistics(DefaultRepositoryCacheManager cacheManager) {
+        this.cacheManager = cacheManager;
+    }
+
+    void moduleLookup(boolean hit, long nanos) {
+        (hit ? moduleHits : moduleMisses).incrementAndGet();
+        lookupTimes.record(nanos);
+    }
+
+    void artifactHit() {
+        artifactHits.incrementAndGet();
+    }
+
+    void artifactDownloaded(long bytes) {
+        artifactDownloads.incrementAndGet();
+        bytesDownloaded.addAndGet(bytes);
+    }
+
+    void artifactDownloadFailed() {
+        artifactDownloadFailures.incrementAndGet();
+    }
+
+    void ttlExpired() {
+        ttlExpirations.incrementAndGet();
+    }
+
+    void staleServed() {
+        staleServes.incrementAndGet();
+    }
+
+    public String getName() {
+        return cacheManager.getName();
+    }
+
+    public long getModuleHits() {
+        return moduleHits.get();
+    }
+
+    public long getModuleMisses() {
+        return moduleMisses.get();
+    }
+
+    public long getArtifactHits() {
+        return artifactHits.get();
+    }
+
+    public long getArtifactDownloads() {
+        return artifactDownloads.get();
+    }
+
+    public long getArtifactDownloadFailures() {
+        return artifactDownloadFailures.get();
+    }
+
+    public long getBytesDownloaded() {
+        return bytesDownloaded.get();
+    }
+
+    public long getTtlExpirations() {
+        return ttlExpirations.get();
+    }
+
+    public long getStaleServes() {
+        return staleServes.get();
+    }
+
+    public long getLookupCount() {
+        return lookupTimes.getCount();
+    }
+
+    public long getLookupMeanTime() {
+        return lookupTimes.getMeanMicros();
+    }
+
+    public long getLookupMaxTime() {
+        return lookupTimes.getMaxMicros();
+    }
+
+    public long getLookupTime95thPercentile() {
+        return lookupTimes.getPercentileMicros(95);
+    }
+
+    public long[] getLookupTimeBucketBounds() {
+        return lookupTimes.getBucketBounds();
+    }
+
+    public long[] getLookupTimeBucketCounts() {
+        return lookupTimes.getBucketCounts();
+    }
+
+    public long getMemoryCacheHits() {
+        return cacheManager.getMemoryCache().getHits();
+    }
+
+    public long getMemoryCacheMisses() {
+        return cacheManager.getMemoryCache().getMisses();
+    }
+
+    public long getMemoryCacheEvictions() {
+        return cacheManager.getMemoryCache().getEvictions();
+    }
+
+    public int getMemoryCacheSize() {
+        return cacheManager.getMemoryCache().getSize();
+    }
+
+    public long getLockCount() {
+        FileBasedLockStrategy lockStrategy = getFileBasedLockStrategy();
+        return lockStrategy == null ? 0 : lockStrategy.getLockCount();
+    }
+
+    public long getContendedLockCount() {
+        FileBasedLockStrategy lockStrategy = getFileBasedLockStrategy();
+        return lockStrategy == null ? 0 : lockStrategy.getContendedLockCount();
+    }
+
+    public long getFailedLockCount() {
+        FileBasedLockStrategy lockStrategy = getFileBasedLockStrategy();
+        return lockStrategy == null ? 0 : lockStrategy.getFailedLockCount();
+    }
+
+    public long getLockTotalWaitTime() {
+        FileBasedLockStrategy lockStrategy = getFileBasedLockStrategy();
+        return lockStrategy == null ? 0 : lockStrategy.getTotalWaitTime();
+    }
+
+    public long getLockMaxWaitTime() {
+        FileBasedLockStrategy lockStrategy = getFileBasedLockStrategy();
+        return lockStrategy == null ? 0 : lockStrategy.getMaxWaitTime();
+    }
+
+    private FileBasedLockStrategy getFileBasedLockStrategy() {
+        LockStrategy lockStrategy = cacheManager.getLockStrategy();
+        return lockStrategy instanceof FileBasedLockStrategy 
+                ? (FileBasedLockStrategy) lockStrategy : null;
+    }
+
+    /**
+     * Resets the counters of the cache manager. The statistics of the memory cache and of the
+     * lock strategy are not reset, since they may be shared.
+     */
+    public void reset() {
+        moduleHits.set(0);
+        moduleMisses.set(0);
+        artifactHits.set(0);
+        artifactDownloads.set(0);
+        artifactDownloadFailures.set(0);
+        bytesDownloaded.set(0);
+        ttlExpirations.set(0);
+        staleServes.set(0);
+        lookupTimes.reset();
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.core.cache;
+
+/**
+ * Management interface of the {@link RepositoryCacheStatistics} of a repository cache manager.
+ * Durations are given in microseconds, except lock wait times which are in milliseconds.
+ */
+public interface RepositoryCacheStatisticsMBean {
+
+    String getName();
+
+    long getModuleHits();
+
+    long getModuleMisses();
+
+    long getArtifactHits();
+
+    long getArtifactDownloads();
+
+    long getArtifactDownloadFailures();
+
+    long getBytesDownloaded();
+
+    long getTtlExpirations();
+
+    long getStaleServes();
+
+    long getLookupCount();
+
+    long getLookupMeanTime();
+
+    long getLookupMaxTime();
+
+    long getLookupTime95thPercentile();
+
+    long[] getLookupTimeBucketBounds();
+
+    long[] getLookupTimeBucketCounts();
+
+    long getMemoryCacheHits();
+
+    long getMemoryCacheMisses();
+
+    long getMemoryCacheEvictions();
+
+    int getMemoryCacheSize();
+
+    long getLockCount();
+
+    long getContendedLockCount();
+
+    long getFailedLockCount();
+
+    long getLockTotalWaitTime();
+
+    long getLockMaxWaitTime();
+
+    void reset();
+}
@@ -32,9 +32,21 @@ public interface ResolutionCacheManager {
     
     File getResolvedIvyPropertiesInCache(ModuleRevisionId mrid);
 
+    /**
+     * Returns the file in which the fingerprint of the inputs of the last resolve of the given
+     * module is stored, next to its resolved ivy file.
+     */
+    File getResolvedFingerprintInCache(ModuleRevisionId mrid);
+
     File getConfigurationResolveReportInCache(String resolveId, String conf);
 
     File[] getConfigurationResolveReportsInCache(final String resolveId);
+
+    /**
+     * Returns the file in which the timings of the resolve with the given id are written, if
+     * requested.
+     */
+    File getResolveTimingReportInCache(String resolveId);
     
     ModuleDescriptor getResolvedModuleDescriptor(ModuleRevisionId mrid) throws ParseException, IOException;
     
@@ -0,0 +1,81 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.core.event.resolve;
+
+import org.apache.ivy.core.event.IvyEvent;
+import org.apache.ivy.core.module.id.ModuleId;
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.plugins.conflict.ConflictManager;
+
+/**
+ * Event fired when a conflict manager has been asked to select revisions among conflicting
+ * revisions of a module.
+ */
+public class EndConflictResolutionEvent extends IvyEvent {
+    public static final String NAME = "post-conflict-resolution";
+
+    private ConflictManager conflictManager;
+
+    private ModuleRevisionId parent;
+
+    private ModuleId moduleId;
+
+    private long duration;
+
+    public EndConflictResolutionEvent(ConflictManager conflictManager, ModuleRevisionId parent,
+            ModuleId moduleId, String rootModuleConf, int conflicts, long duration) {
+        super(NAME);
+        this.conflictManager = conflictManager;
+        this.parent = parent;
+        this.moduleId = moduleId;
+        this.duration = duration;
+        addModuleIdAttributes(moduleId);
+        addAttribute("conflict-manager", conflictManager.getName());
+        addAttribute("parent", parent.toString());
+        addAttribute("conf", rootModuleConf);
+        addAttribute("nb-conflicts", String.valueOf(conflicts));
+        addAttribute("duration", String.valueOf(duration));
+    }
+
+    public ConflictManager getConflictManager() {
+        return conflictManager;
+    }
+
+    /**
+     * Returns the id of the module revision in which the conflict has been resolved.
+     */
+    public ModuleRevisionId getParent() {
+        return parent;
+    }
+
+    /**
+     * Returns the id of the module for which conflicting revisions have been found.
+     */
+    public ModuleId getModuleId() {
+        return moduleId;
+    }
+
+    /**
+     * Returns the time elapsed in the conflict manager, in ms.
+     * 
+     * @return the time elapsed to resolve the conflict.
+     */
+    public long getDuration() {
+        return duration;
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.core.event.resolve;
+
+import org.apache.ivy.core.module.descriptor.DependencyDescriptor;
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.core.resolve.ResolvedModuleRevision;
+import org.apache.ivy.plugins.resolver.DependencyResolver;
+
+/**
+ * Event fired by a dependency resolver when it has finished looking for the module descriptor of
+ * a dependency, whether it has been found or not.
+ * <p>
+ * Contrary to {@link EndResolveDependencyEvent}, which is fired once per dependency with the
+ * resolver configured for the module, this event is fired by each resolver actually asked for the
+ * dependency, so that the resolvers of a chain can be told apart.
+ * </p>
+ */
+public class EndDescriptorLookupEvent extends ResolveDependencyEvent {
+    public static final String NAME = "post-descriptor-lookup";
+
+    private ResolvedModuleRevision module;
+
+    private long duration;
+
+    public EndDescriptorLookupEvent(DependencyResolver resolver, DependencyDescriptor dd,
+            ModuleRevisionId requestedRevisionId, ResolvedModuleRevision module, long duration) {
+        super(NAME, resolver, dd, requestedRevisionId);
+        this.module = module;
+        this.duration = duration;
+        addAttribute("duration", String.valueOf(duration));
+        addAttribute("found", String.valueOf(module != null));
+    }
+
+    /**
+     * Returns the module revision found by the resolver, or <code>null</code> if it hasn't found
+     * any.
+     */
+    public ResolvedModuleRevision getModule() {
+        return module;
+    }
+
+    /**
+     * Returns the time elapsed in the resolver to look for the module descriptor, in ms.
+     * <p>
+     * It includes the time required to look in the cache, to list the revisions matching a version
+     * constraint, and to download and parse the module descriptor if necessary.
+     * </p>
+     * 
+     * @return the time elapsed to look for the module descriptor.
+     */
+    public long getDuration() {
+        return duration;
+    }
+}
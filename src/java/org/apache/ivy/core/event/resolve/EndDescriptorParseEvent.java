@@ -0,0 +1,73 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.core.event.resolve;
+
+import java.io.File;
+
+import org.apache.ivy.core.event.IvyEvent;
+import org.apache.ivy.core.module.descriptor.ModuleDescriptor;
+import org.apache.ivy.plugins.parser.ModuleDescriptorParser;
+
+/**
+ * Event fired when a module descriptor stored in the repository cache has been parsed.
+ */
+public class EndDescriptorParseEvent extends IvyEvent {
+    public static final String NAME = "post-descriptor-parse";
+
+    private ModuleDescriptorParser parser;
+
+    private File descriptorFile;
+
+    private ModuleDescriptor md;
+
+    private long duration;
+
+    public EndDescriptorParseEvent(ModuleDescriptorParser parser, File descriptorFile,
+            ModuleDescriptor md, long duration) {
+        super(NAME);
+        this.parser = parser;
+        this.descriptorFile = descriptorFile;
+        this.md = md;
+        this.duration = duration;
+        addMDAttributes(md);
+        addAttribute("parser", parser.getType());
+        addAttribute("file", descriptorFile.getAbsolutePath());
+        addAttribute("duration", String.valueOf(duration));
+    }
+
+    public ModuleDescriptorParser getParser() {
+        return parser;
+    }
+
+    public File getDescriptorFile() {
+        return descriptorFile;
+    }
+
+    public ModuleDescriptor getModuleDescriptor() {
+        return md;
+    }
+
+    /**
+     * Returns the time elapsed to parse the module descriptor, in ms.
+     * 
+     * @return the time elapsed to parse the module descriptor.
+     */
+    public long getDuration() {
+        return duration;
+    }
+}
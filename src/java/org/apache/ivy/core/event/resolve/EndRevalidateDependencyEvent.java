@@ -0,0 +1,79 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.core.event.resolve;
+
+import org.apache.ivy.core.module.descriptor.DependencyDescriptor;
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.core.report.DownloadStatus;
+import org.apache.ivy.core.resolve.ResolvedModuleRevision;
+import org.apache.ivy.plugins.resolver.DependencyResolver;
+
+/**
+ * Event fired when the background check of a module revision served stale from the repository
+ * cache is finished. The cache has been updated with the result, which will be used by the next
+ * resolve.
+ */
+public class EndRevalidateDependencyEvent extends ResolveDependencyEvent {
+    public static final String NAME = "post-revalidate-dependency";
+
+    private ResolvedModuleRevision module;
+
+    private long duration;
+
+    public EndRevalidateDependencyEvent(DependencyResolver resolver, DependencyDescriptor dd, 
+            ModuleRevisionId requestedRevisionId, String cachedRevision, 
+            ResolvedModuleRevision module, long duration) {
+        super(NAME, resolver, dd, requestedRevisionId);
+        this.module = module;
+        this.duration = duration;
+        addAttribute("cached-revision", cachedRevision);
+        addAttribute("duration", String.valueOf(duration));
+        if (this.module != null) {
+            addAttribute("revision", this.module.getDescriptor().getResolvedModuleRevisionId()
+                    .getRevision());
+            addAttribute("resolved", "true");
+            addAttribute("updated", String.valueOf(!this.module.getDescriptor()
+                    .getResolvedModuleRevisionId().getRevision().equals(cachedRevision)
+                    || (this.module.getReport() != null && this.module.getReport()
+                            .getDownloadStatus() == DownloadStatus.SUCCESSFUL)));
+        } else {
+            addAttribute("resolved", "false");
+            addAttribute("updated", "false");
+        }
+    }
+
+    /**
+     * Returns the module revision found in the repository, or <code>null</code> if the
+     * repository could not be checked.
+     * 
+     * @return the module revision found in the repository
+     */
+    public ResolvedModuleRevision getModule() {
+        return module;
+    }
+
+    /**
+     * Returns the time elapsed to check the module revision against its repository.
+     * 
+     * @return the time elapsed to check the module revision.
+     */
+    public long getDuration() {
+        return duration;
+    }
+
+}
@@ -0,0 +1,45 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.core.event.resolve;
+
+import org.apache.ivy.core.module.descriptor.ModuleDescriptor;
+
+/**
+ * Event fired when the modules only required by evicted modules have been evicted, at the end of
+ * the computation of the dependency graph.
+ */
+public class EndTransitiveEvictionEvent extends ResolveEvent {
+    public static final String NAME = "post-transitive-eviction";
+
+    private long duration;
+
+    public EndTransitiveEvictionEvent(ModuleDescriptor md, String[] confs, long duration) {
+        super(NAME, md, confs);
+        this.duration = duration;
+        addAttribute("duration", String.valueOf(duration));
+    }
+
+    /**
+     * Returns the time elapsed to handle transitive eviction, in ms.
+     * 
+     * @return the time elapsed to handle transitive eviction.
+     */
+    public long getDuration() {
+        return duration;
+    }
+}
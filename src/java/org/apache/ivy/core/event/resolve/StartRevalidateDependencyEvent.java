@@ -0,0 +1,38 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.core.event.resolve;
+
+import org.apache.ivy.core.module.descriptor.DependencyDescriptor;
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.plugins.resolver.DependencyResolver;
+
+/**
+ * Event fired when a module revision served stale from the repository cache starts to be checked
+ * again against its repository in the background.
+ */
+public class StartRevalidateDependencyEvent extends ResolveDependencyEvent {
+    public static final String NAME = "pre-revalidate-dependency";
+
+    public StartRevalidateDependencyEvent(
+            DependencyResolver resolver, DependencyDescriptor dd, 
+            ModuleRevisionId requestedRevisionId, String cachedRevision) {
+        super(NAME, resolver, dd, requestedRevisionId);
+        addAttribute("cached-revision", cachedRevision);
+    }
+
+}
@@ -35,7 +35,6 @@ import java.util.regex.Pattern;
 import org.apache.ivy.core.module.id.ArtifactId;
 import org.apache.ivy.core.module.id.ModuleId;
 import org.apache.ivy.core.module.id.ModuleRevisionId;
-import org.apache.ivy.plugins.matcher.MatcherHelper;
 import org.apache.ivy.plugins.namespace.NameSpaceHelper;
 import org.apache.ivy.plugins.namespace.Namespace;
 import org.apache.ivy.plugins.namespace.NamespaceTransformer;
@@ -173,6 +172,11 @@ public class DefaultDependencyDescriptor implements DependencyDescriptor {
      * Used to cache the result of the doesExclude method.
      */
     private Map/*<String,Boolean>*/ doesExcludeCache = new HashMap();
+
+    /**
+     * The exclude rules compiled for doesExclude, built on demand.
+     */
+    private volatile ExcludeRulesMatcher excludeRulesMatcher;
     
     private DefaultDependencyDescriptor(DefaultDependencyDescriptor dd, ModuleRevisionId revision) {
         Checks.checkNotNull(dd, "dd");
@@ -553,6 +557,17 @@ public class DefaultDependencyDescriptor implements DependencyDescriptor {
         return ret;
     }
 
+    /**
+     * Returns the dependency configurations mapped to the given module configuration as they have
+     * been added, without interpreting the special configurations like <code>*</code> or
+     * <code>%</code>, nor the configuration groups and intersections.
+     */
+    public String[] getDeclaredDependencyConfigurations(String moduleConfiguration) {
+        List confsList = (List) confs.get(moduleConfiguration);
+        return confsList == null ? new String[0] 
+                : (String[]) confsList.toArray(new String[confsList.size()]);
+    }
+
     public void addDependencyConfiguration(String masterConf, String depConf) {
         if ((md != null) && !"*".equals(masterConf) && !"%".equals(masterConf)) {
             Configuration config;
@@ -596,6 +611,7 @@ public class DefaultDependencyDescriptor implements DependencyDescriptor {
 
     public void addExcludeRule(String masterConf, ExcludeRule rule) {
         doesExcludeCache.clear();
+        excludeRulesMatcher = null;
         addObjectToConfiguration(masterConf, rule, getExcludeRules());
     }
 
@@ -609,13 +625,40 @@ public class DefaultDependencyDescriptor implements DependencyDescriptor {
     }
 
     private boolean doDoesExclude(String[] moduleConfigurations, ArtifactId artifactId) {
-        ExcludeRule[] rules = getExcludeRules(moduleConfigurations);
-        for (int i = 0; i < rules.length; i++) {
-            if (MatcherHelper.matches(rules[i].getMatcher(), rules[i].getId(), artifactId)) {
-                return true;
+        return getExcludeRulesMatcher().doesExclude(moduleConfigurations, artifactId);
+    }
+
+    private ExcludeRulesMatcher getExcludeRulesMatcher() {
+        ExcludeRulesMatcher matcher = excludeRulesMatcher;
+        if (matcher == null) {
+            // the rules added for all the module configurations apply whatever the configuration
+            Map rules = new LinkedHashMap(); // Map (ExcludeRule -> Collection(String))
+            Collection all = excludeRules == null ? null : (Collection) excludeRules.get("*");
+            if (all != null) {
+                for (Iterator iter = all.iterator(); iter.hasNext();) {
+                    rules.put(iter.next(), null);
+                }
+            }
+            if (excludeRules != null) {
+                for (Iterator iter = excludeRules.entrySet().iterator(); iter.hasNext();) {
+                    Map.Entry entry = (Map.Entry) iter.next();
+                    String conf = (String) entry.getKey();
+                    for (Iterator it = ((Collection) entry.getValue()).iterator(); it.hasNext();) {
+                        Object rule = it.next();
+                        if (!rules.containsKey(rule)) {
+                            rules.put(rule, new HashSet());
+                        }
+                        Collection confs = (Collection) rules.get(rule);
+                        if (confs != null) {
+                            confs.add(conf);
+                        }
+                    }
+                }
             }
+            matcher = new ExcludeRulesMatcher(rules);
+            excludeRulesMatcher = matcher;
         }
-        return false;
+        return matcher;
     }
 
     /**
@@ -717,6 +760,7 @@ public class DefaultDependencyDescriptor implements DependencyDescriptor {
 
     private void setExcludeRules(Map excludeRules) {
         doesExcludeCache.clear();
+        excludeRulesMatcher = null;
         this.excludeRules = excludeRules;
     }
 
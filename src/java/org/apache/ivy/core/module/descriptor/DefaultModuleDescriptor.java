@@ -42,7 +42,6 @@ import org.apache.ivy.core.module.id.ModuleRules;
 import org.apache.ivy.core.module.status.StatusManager;
 import org.apache.ivy.plugins.conflict.ConflictManager;
 import org.apache.ivy.plugins.matcher.MapMatcher;
-import org.apache.ivy.plugins.matcher.MatcherHelper;
 import org.apache.ivy.plugins.matcher.PatternMatcher;
 import org.apache.ivy.plugins.namespace.NameSpaceHelper;
 import org.apache.ivy.plugins.namespace.Namespace;
@@ -248,6 +247,11 @@ public class DefaultModuleDescriptor implements ModuleDescriptor {
 
     private List excludeRules = new ArrayList(); // List(ExcludeRule)
 
+    /**
+     * The exclude rules compiled for doesExclude, built on demand.
+     */
+    private volatile ExcludeRulesMatcher excludeRulesMatcher;
+
     private Artifact metadataArtifact;
 
     private List inheritedDescriptors = new ArrayList(); // List(ExtendsDescriptor)
@@ -618,6 +622,10 @@ public class DefaultModuleDescriptor implements ModuleDescriptor {
         return (ConflictManager) conflictManagers.getRule(moduleId);
     }
 
+    public ModuleRules/* <ConflictManager> */getAllConflictManagers() {
+        return (ModuleRules) conflictManagers.clone();
+    }
+
     public void addDependencyDescriptorMediator(ModuleId moduleId, PatternMatcher matcher,
             DependencyDescriptorMediator ddm) {
         dependencyDescriptorMediators.defineRule(new MapMatcher(moduleId.getAttributes(), matcher),
@@ -781,6 +789,7 @@ public class DefaultModuleDescriptor implements ModuleDescriptor {
 
     public void addExcludeRule(ExcludeRule rule) {
         excludeRules.add(rule);
+        excludeRulesMatcher = null;
     }
 
     public boolean canExclude() {
@@ -796,13 +805,21 @@ public class DefaultModuleDescriptor implements ModuleDescriptor {
             artifactId = NameSpaceHelper
                     .transform(artifactId, namespace.getFromSystemTransformer());
         }
-        ExcludeRule[] rules = getExcludeRules(moduleConfigurations);
-        for (int i = 0; i < rules.length; i++) {
-            if (MatcherHelper.matches(rules[i].getMatcher(), rules[i].getId(), artifactId)) {
-                return true;
+        return getExcludeRulesMatcher().doesExclude(moduleConfigurations, artifactId);
+    }
+
+    private ExcludeRulesMatcher getExcludeRulesMatcher() {
+        ExcludeRulesMatcher matcher = excludeRulesMatcher;
+        if (matcher == null) {
+            Map rules = new LinkedHashMap(); // Map (ExcludeRule -> Collection(String))
+            for (Iterator iter = excludeRules.iterator(); iter.hasNext();) {
+                ExcludeRule rule = (ExcludeRule) iter.next();
+                rules.put(rule, Arrays.asList(rule.getConfigurations()));
             }
+            matcher = new ExcludeRulesMatcher(rules);
+            excludeRulesMatcher = matcher;
         }
-        return false;
+        return matcher;
     }
 
     public ExcludeRule[] getAllExcludeRules() {
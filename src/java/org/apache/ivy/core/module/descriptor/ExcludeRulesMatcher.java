@@ -0,0 +1,154 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.core.module.descriptor;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.ivy.core.module.id.ArtifactId;
+import org.apache.ivy.core.module.id.ModuleId;
+import org.apache.ivy.plugins.matcher.Matcher;
+import org.apache.ivy.plugins.matcher.PatternMatcher;
+
+/**
+ * The exclude rules of a descriptor, compiled once to tell quickly if an artifact is excluded.
+ * <p>
+ * The matchers of each rule are created only once. The rules whose organisation and module are
+ * exact are indexed by {@link ModuleId}, so that only the rules which may match the module of an
+ * artifact are evaluated, in addition to the rules using patterns for the organisation or the
+ * module.
+ * </p>
+ */
+final class ExcludeRulesMatcher {
+    private static final CompiledRule[] NO_RULES = new CompiledRule[0];
+
+    // Map (ModuleId -> CompiledRule[]) of the rules with exact organisation and module
+    private final Map exactRules = new HashMap();
+
+    private final CompiledRule[] patternRules;
+
+    /**
+     * Compiles the given exclude rules.
+     *
+     * @param rules
+     *            a Map (ExcludeRule -> Collection(String)) giving for each rule the
+     *            configurations in which it applies, <code>null</code> meaning all
+     *            configurations
+     */
+    ExcludeRulesMatcher(Map rules) {
+        Map exact = new HashMap(); // Map (ModuleId -> List(CompiledRule))
+        List patterns = new ArrayList();
+        for (Iterator iter = rules.entrySet().iterator(); iter.hasNext();) {
+            Map.Entry entry = (Map.Entry) iter.next();
+            CompiledRule rule = new CompiledRule((ExcludeRule) entry.getKey(),
+                    (Collection) entry.getValue());
+            if (rule.organisation.isExact() && rule.module.isExact()) {
+                ModuleId key = ((ExcludeRule) entry.getKey()).getId().getModuleId();
+                List list = (List) exact.get(key);
+                if (list == null) {
+                    list = new ArrayList();
+                    exact.put(key, list);
+                }
+                list.add(rule);
+            } else {
+                patterns.add(rule);
+            }
+        }
+        for (Iterator iter = exact.entrySet().iterator(); iter.hasNext();) {
+            Map.Entry entry = (Map.Entry) iter.next();
+            List list = (List) entry.getValue();
+            exactRules.put(entry.getKey(), list.toArray(new CompiledRule[list.size()]));
+        }
+        patternRules = (CompiledRule[]) patterns.toArray(new CompiledRule[patterns.size()]);
+    }
+
+    /**
+     * Returns <code>true</code> if one of the rules applying in one of the given configurations
+     * excludes the given artifact.
+     */
+    boolean doesExclude(String[] moduleConfigurations, ArtifactId artifactId) {
+        CompiledRule[] rules = (CompiledRule[]) exactRules.get(artifactId.getModuleId());
+        return doesExclude(rules == null ? NO_RULES : rules, moduleConfigurations, artifactId)
+            || doesExclude(patternRules, moduleConfigurations, artifactId);
+    }
+
+    private static boolean doesExclude(CompiledRule[] rules, String[] moduleConfigurations,
+            ArtifactId artifactId) {
+        for (int i = 0; i < rules.length; i++) {
+            if (rules[i].appliesTo(moduleConfigurations) && rules[i].matches(artifactId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static final class CompiledRule {
+        private final Set confs;
+
+        private final boolean allConfs;
+
+        private final Matcher organisation;
+
+        private final Matcher module;
+
+        private final Matcher name;
+
+        private final Matcher type;
+
+        private final Matcher ext;
+
+        CompiledRule(ExcludeRule rule, Collection confs) {
+            this.allConfs = confs == null;
+            this.confs = allConfs ? Collections.EMPTY_SET : new HashSet(confs);
+            PatternMatcher matcher = rule.getMatcher();
+            ArtifactId id = rule.getId();
+            organisation = matcher.getMatcher(id.getModuleId().getOrganisation());
+            module = matcher.getMatcher(id.getModuleId().getName());
+            name = matcher.getMatcher(id.getName());
+            type = matcher.getMatcher(id.getType());
+            ext = matcher.getMatcher(id.getExt());
+        }
+
+        boolean appliesTo(String[] moduleConfigurations) {
+            if (allConfs) {
+                return moduleConfigurations.length > 0;
+            }
+            for (int i = 0; i < moduleConfigurations.length; i++) {
+                if (confs.contains(moduleConfigurations[i])) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        boolean matches(ArtifactId artifactId) {
+            return organisation.matches(artifactId.getModuleId().getOrganisation())
+                && module.matches(artifactId.getModuleId().getName())
+                && name.matches(artifactId.getName())
+                && type.matches(artifactId.getType())
+                && ext.matches(artifactId.getExt());
+        }
+    }
+}
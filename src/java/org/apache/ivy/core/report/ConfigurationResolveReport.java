@@ -68,6 +68,11 @@ public class ConfigurationResolveReport {
 
     private Boolean hasChanged = null;
 
+    // reports of the dependencies taken from the report of a previous resolve, when its
+    // resolution is reused: there is no IvyNode for them
+    private Map/*<ModuleRevisionId, List<ArtifactDownloadReport>>*/ reusedReports = 
+        new LinkedHashMap();
+
     public ConfigurationResolveReport(ResolveEngine resolveEngine, ModuleDescriptor md,
             String conf, Date date, ResolveOptions options) {
         this.resolveEngine = resolveEngine;
@@ -131,6 +136,7 @@ public class ConfigurationResolveReport {
                 mrids.add(node.getResolvedId());
             }
         }
+        mrids.addAll(reusedReports.keySet());
         return mrids;
     }
 
@@ -140,6 +146,18 @@ public class ConfigurationResolveReport {
         dependencyReports.put(node, Collections.EMPTY_LIST);
     }
 
+    /**
+     * Adds a dependency resolved by a previous resolve, whose resolution is reused.
+     * 
+     * @param mrid
+     *            the resolved revision id of the dependency
+     * @param artifactReports
+     *            the reports of the artifacts of this dependency in this configuration
+     */
+    public void addReusedDependency(ModuleRevisionId mrid, List artifactReports) {
+        reusedReports.put(mrid, artifactReports);
+    }
+
     public void updateDependency(ModuleRevisionId mrid, IvyNode node) {
         dependencies.put(mrid, node);
     }
@@ -231,6 +249,9 @@ public class ConfigurationResolveReport {
 
     public ArtifactDownloadReport[] getDownloadReports(ModuleRevisionId mrid) {
         Collection col = (Collection) dependencyReports.get(getDependency(mrid));
+        if (col == null) {
+            col = (Collection) reusedReports.get(mrid);
+        }
         if (col == null) {
             return new ArtifactDownloadReport[0];
         }
@@ -262,6 +283,13 @@ public class ConfigurationResolveReport {
                 deps.add(dependency);
             }
             modulesIds = new ArrayList(modulesIdsMap.keySet());
+            // reused dependencies are already sorted in the previous report
+            for (Iterator iter = reusedReports.keySet().iterator(); iter.hasNext();) {
+                ModuleId mid = ((ModuleRevisionId) iter.next()).getModuleId();
+                if (!modulesIds.contains(mid)) {
+                    modulesIds.add(mid);
+                }
+            }
         }
         return Collections.unmodifiableList(modulesIds);
     }
@@ -279,7 +307,7 @@ public class ConfigurationResolveReport {
 
     public int getArtifactsNumber() {
         int total = 0;
-        for (Iterator iter = dependencyReports.values().iterator(); iter.hasNext();) {
+        for (Iterator iter = getAllDependencyReports().iterator(); iter.hasNext();) {
             Collection reports = (Collection) iter.next();
             total += reports == null ? 0 : reports.size();
         }
@@ -315,7 +343,7 @@ public class ConfigurationResolveReport {
         if (!withEvicted) {
             evictedMrids = getEvictedMrids();
         }
-        for (Iterator iter = dependencyReports.values().iterator(); iter.hasNext();) {
+        for (Iterator iter = getAllDependencyReports().iterator(); iter.hasNext();) {
             Collection reports = (Collection) iter.next();
             for (Iterator itReport  = reports.iterator(); itReport.hasNext();) {
                 ArtifactDownloadReport report = (ArtifactDownloadReport) itReport.next();
@@ -331,6 +359,12 @@ public class ConfigurationResolveReport {
         return (ArtifactDownloadReport[]) all.toArray(new ArtifactDownloadReport[all.size()]);
     }
 
+    private Collection/*<Collection<ArtifactDownloadReport>>*/ getAllDependencyReports() {
+        Collection all = new ArrayList(dependencyReports.values());
+        all.addAll(reusedReports.values());
+        return all;
+    }
+
     /**
      * Get the report on the sucessfull download requests with the evicted modules
      * 
@@ -356,7 +390,7 @@ public class ConfigurationResolveReport {
     }
 
     public int getNodesNumber() {
-        return getDependencies().size();
+        return getDependencies().size() + reusedReports.size();
     }
 
     public static ArtifactDownloadReport[] filterOutMergedArtifacts(
@@ -62,6 +62,20 @@ public class ResolveReport {
 
     private long downloadSize;
 
+    private int loadHits;
+
+    private int loadMisses;
+
+    private int loadUnused;
+
+    private int restarts;
+
+    private int avoidedRestarts;
+
+    private boolean reused;
+
+    private ResolveTimings timings;
+
     public ResolveReport(ModuleDescriptor md) {
         this(md, ResolveOptions.getDefaultResolveId(md));
     }
@@ -285,6 +299,17 @@ public class ResolveReport {
                 ret.add(mid);
             }
         }
+        if (reused) {
+            for (Iterator iter = confReports.values().iterator(); iter.hasNext();) {
+                ConfigurationResolveReport report = (ConfigurationResolveReport) iter.next();
+                for (Iterator it = report.getModuleIds().iterator(); it.hasNext();) {
+                    ModuleId mid = (ModuleId) it.next();
+                    if (!ret.contains(mid)) {
+                        ret.add(mid);
+                    }
+                }
+            }
+        }
         return ret;
     }
 
@@ -325,4 +350,114 @@ public class ResolveReport {
         return resolveId;
     }
 
+    /**
+     * Marks this report as the reused resolution of a previous resolve, whose configuration
+     * reports have been filled with
+     * {@link ConfigurationResolveReport#addReusedDependency(ModuleRevisionId, List)}.
+     */
+    public void setReused() {
+        reused = true;
+        Collection all = new LinkedHashSet();
+        ArtifactDownloadReport[] reports = getArtifactsReports(null, false);
+        for (int i = 0; i < reports.length; i++) {
+            if (reports[i].getDownloadStatus() != DownloadStatus.FAILED) {
+                all.add(reports[i].getArtifact());
+            }
+        }
+        artifacts = new ArrayList(all);
+    }
+
+    /**
+     * Indicates if this report is the resolution of a previous resolve, reused because the inputs
+     * of the resolve haven't changed since then.
+     * <p>
+     * The dependency graph is not visited when a resolution is reused, so a reused report only
+     * gives the resolved module revisions and their artifact reports: there is no {@link IvyNode}
+     * in it.
+     * </p>
+     * 
+     * @return true if the resolution of a previous resolve has been reused
+     * @see ResolveOptions#isReuseResolution()
+     */
+    public boolean isReused() {
+        return reused;
+    }
+
+    public void setLoadStatistics(int hits, int misses, int unused) {
+        this.loadHits = hits;
+        this.loadMisses = misses;
+        this.loadUnused = unused;
+    }
+
+    /**
+     * The number of module revisions which were already loaded in parallel or prefetched when
+     * they were needed by the resolve process.
+     * <p>
+     * This is always 0 unless the resolve was done in parallel or prefetch mode.
+     * </p>
+     * 
+     * @return the number of module revisions found already loaded
+     */
+    public int getLoadHits() {
+        return loadHits;
+    }
+
+    /**
+     * The number of module revisions which had to be loaded by the resolving thread itself in
+     * parallel or prefetch mode.
+     * 
+     * @return the number of module revisions which were not already loaded when needed
+     */
+    public int getLoadMisses() {
+        return loadMisses;
+    }
+
+    /**
+     * The number of module revisions loaded in parallel or prefetched which have not been used by
+     * the resolve process, usually because the corresponding dependency has been evicted.
+     * 
+     * @return the number of module revisions loaded for nothing
+     */
+    public int getLoadUnused() {
+        return loadUnused;
+    }
+
+    public void setRestartStatistics(int restarts, int avoidedRestarts) {
+        this.restarts = restarts;
+        this.avoidedRestarts = avoidedRestarts;
+    }
+
+    /**
+     * The number of times the whole resolve process has been restarted, usually by a conflict
+     * manager after blacklisting some revisions.
+     * 
+     * @return the number of restarts of the resolve process
+     */
+    public int getRestarts() {
+        return restarts;
+    }
+
+    /**
+     * The number of times the resolve process only had to visit again the dependencies of one
+     * module, where it would otherwise have been restarted as a whole.
+     * 
+     * @return the number of restarts of the resolve process avoided
+     */
+    public int getAvoidedRestarts() {
+        return avoidedRestarts;
+    }
+
+    public void setTimings(ResolveTimings timings) {
+        this.timings = timings;
+    }
+
+    /**
+     * The time spent in each phase of the resolve, per dependency resolver and per module.
+     * 
+     * @return the timings of the resolve, or <code>null</code> if they haven't been measured, for
+     *         instance when the resolution of a previous resolve has been reused
+     */
+    public ResolveTimings getTimings() {
+        return timings;
+    }
 }
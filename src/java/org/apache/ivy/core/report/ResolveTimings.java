@@ -0,0 +1,229 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.core.report;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.ivy.core.event.IvyEvent;
+import org.apache.ivy.core.event.IvyListener;
+import org.apache.ivy.core.event.download.EndArtifactDownloadEvent;
+import org.apache.ivy.core.event.resolve.EndConflictResolutionEvent;
+import org.apache.ivy.core.event.resolve.EndDescriptorLookupEvent;
+import org.apache.ivy.core.event.resolve.EndDescriptorParseEvent;
+import org.apache.ivy.core.event.resolve.EndTransitiveEvictionEvent;
+import org.apache.ivy.core.module.id.ModuleId;
+
+/**
+ * The time spent in each phase of a resolve, per dependency resolver and per module.
+ * <p>
+ * The timings are computed from the events fired during the resolve:
+ * {@link EndDescriptorLookupEvent}, {@link EndDescriptorParseEvent},
+ * {@link EndConflictResolutionEvent}, {@link EndTransitiveEvictionEvent} and
+ * {@link EndArtifactDownloadEvent}. The durations of the events of a phase are summed up, so they
+ * can exceed the time of the whole resolve when modules are resolved or downloaded in parallel.
+ * Note also that the lookup of a module descriptor includes its parsing.
+ * </p>
+ * 
+ * @see ResolveReport#getTimings()
+ */
+public class ResolveTimings implements IvyListener {
+    public static final String LOOKUP = "lookup";
+
+    public static final String PARSE = "parse";
+
+    public static final String CONFLICTS = "conflicts";
+
+    public static final String EVICTION = "eviction";
+
+    public static final String DOWNLOAD = "download";
+
+    public static final String[] PHASES = new String[] {
+        LOOKUP, PARSE, CONFLICTS, EVICTION, DOWNLOAD
+    };
+
+    // Map (String phase -> Timing)
+    private final Map phases = new HashMap();
+
+    // Map (String resolver name -> Map (String phase -> Timing))
+    private final Map resolvers = new TreeMap();
+
+    // Map (ModuleId -> Map (String phase -> Timing))
+    private final Map modules = new LinkedHashMap();
+
+    public void progress(IvyEvent event) {
+        if (event instanceof EndDescriptorLookupEvent) {
+            EndDescriptorLookupEvent e = (EndDescriptorLookupEvent) event;
+            add(LOOKUP, e.getResolver().getName(), e.getDependencyDescriptor().getDependencyId(),
+                e.getDuration());
+        } else if (event instanceof EndDescriptorParseEvent) {
+            EndDescriptorParseEvent e = (EndDescriptorParseEvent) event;
+            add(PARSE, null, e.getModuleDescriptor().getModuleRevisionId().getModuleId(),
+                e.getDuration());
+        } else if (event instanceof EndConflictResolutionEvent) {
+            EndConflictResolutionEvent e = (EndConflictResolutionEvent) event;
+            add(CONFLICTS, null, e.getModuleId(), e.getDuration());
+        } else if (event instanceof EndTransitiveEvictionEvent) {
+            add(EVICTION, null, null, ((EndTransitiveEvictionEvent) event).getDuration());
+        } else if (event instanceof EndArtifactDownloadEvent) {
+            EndArtifactDownloadEvent e = (EndArtifactDownloadEvent) event;
+            ArtifactDownloadReport adr = e.getReport();
+            if (adr.getDownloadStatus() != DownloadStatus.NO) {
+                add(DOWNLOAD, e.getResolver().getName(), 
+                    adr.getArtifact().getModuleRevisionId().getModuleId(),
+                    adr.getDownloadTimeMillis());
+            }
+        }
+    }
+
+    /**
+     * Adds the duration of an operation done during the resolve.
+     * 
+     * @param phase
+     *            the phase of the resolve in which the operation has been done
+     * @param resolver
+     *            the name of the dependency resolver which has done the operation, or
+     *            <code>null</code> if it hasn't been done by a resolver
+     * @param mid
+     *            the id of the module concerned by the operation, or <code>null</code> if it is
+     *            not specific to a module
+     * @param duration
+     *            the duration of the operation, in ms
+     */
+    public synchronized void add(String phase, String resolver, ModuleId mid, long duration) {
+        getTiming(phases, phase).add(duration);
+        if (resolver != null) {
+            getTiming(getTimings(resolvers, resolver), phase).add(duration);
+        }
+        if (mid != null) {
+            getTiming(getTimings(modules, mid), phase).add(duration);
+        }
+    }
+
+    /**
+     * Returns the timing of the given phase of the resolve.
+     */
+    public synchronized Timing getTiming(String phase) {
+        Timing timing = (Timing) phases.get(phase);
+        return timing == null ? new Timing() : new Timing(timing);
+    }
+
+    /**
+     * Returns the timings of each dependency resolver, sorted by name.
+     * 
+     * @return a Map (String resolver name -> Map (String phase -> Timing))
+     */
+    public synchronized Map getResolverTimings() {
+        return copy(resolvers);
+    }
+
+    /**
+     * Returns the timings of each module, in the order in which they have been first seen.
+     * 
+     * @return a Map (ModuleId -> Map (String phase -> Timing))
+     */
+    public synchronized Map getModuleTimings() {
+        return copy(modules);
+    }
+
+    private static Map getTimings(Map timings, Object key) {
+        Map map = (Map) timings.get(key);
+        if (map == null) {
+            map = new HashMap();
+            timings.put(key, map);
+        }
+        return map;
+    }
+
+    private static Timing getTiming(Map timings, String phase) {
+        Timing timing = (Timing) timings.get(phase);
+        if (timing == null) {
+            timing = new Timing();
+            timings.put(phase, timing);
+        }
+        return timing;
+    }
+
+    private static Map copy(Map timings) {
+        Map copy = timings instanceof TreeMap ? (Map) new TreeMap() : new LinkedHashMap();
+        for (Iterator iter = timings.entrySet().iterator(); iter.hasNext();) {
+            Map.Entry entry = (Map.Entry) iter.next();
+            Map phaseTimings = new HashMap();
+            for (Iterator it = ((Map) entry.getValue()).entrySet().iterator(); it.hasNext();) {
+                Map.Entry phaseEntry = (Map.Entry) it.next();
+                phaseTimings.put(phaseEntry.getKey(), new Timing((Timing) phaseEntry.getValue()));
+            }
+            copy.put(entry.getKey(), phaseTimings);
+        }
+        return copy;
+    }
+
+    /**
+     * The number of operations done in a phase of the resolve, and the time they took.
+     */
+    public static final class Timing {
+        private int count;
+
+        private long duration;
+
+        private long maxDuration;
+
+        Timing() {
+        }
+
+        Timing(Timing timing) {
+            count = timing.count;
+            duration = timing.duration;
+            maxDuration = timing.maxDuration;
+        }
+
+        void add(long d) {
+            count++;
+            duration += d;
+            maxDuration = Math.max(maxDuration, d);
+        }
+
+        /**
+         * Returns the number of operations.
+         */
+        public int getCount() {
+            return count;
+        }
+
+        /**
+         * Returns the total duration of the operations, in ms.
+         */
+        public long getDuration() {
+            return duration;
+        }
+
+        /**
+         * Returns the duration of the longest operation, in ms.
+         */
+        public long getMaxDuration() {
+            return maxDuration;
+        }
+
+        public String toString() {
+            return duration + "ms (" + count + ")";
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.core.resolve;
+
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import org.apache.ivy.core.IvyContext;
+
+/**
+ * Runs artifact downloads concurrently, with a limit on the total number of downloads running at
+ * the same time and on the number of downloads running at the same time on one host.
+ * <p>
+ * Downloads waiting for their host to be available do not hold a thread, so downloads from other
+ * hosts can still use the remaining threads.
+ * </p>
+ *
+ * @see DownloadOptions#getThreads()
+ * @see DownloadOptions#getThreadsPerHost()
+ */
+class ArtifactDownloadScheduler {
+    private final ExecutorService executor;
+
+    private final int threadsPerHost;
+
+    private final IvyContext context;
+
+    // Map (String host -> LinkedList(Runnable))
+    private final Map waiting = new HashMap();
+
+    // Map (String host -> Integer)
+    private final Map running = new HashMap();
+
+    private int pending = 0;
+
+    ArtifactDownloadScheduler(int threads, int threadsPerHost) {
+        this.threadsPerHost = Math.max(1, threadsPerHost);
+        this.context = IvyContext.getContext();
+        this.executor = Executors.newFixedThreadPool(Math.max(1, threads), new ThreadFactory() {
+            private int count = 0;
+
+            public synchronized Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "ivy-download-" + (++count));
+                t.setDaemon(true);
+                return t;
+            }
+        });
+    }
+
+    /**
+     * Schedules a download task on the given host. The task is run as soon as a thread is
+     * available and the maximum number of downloads on this host is not reached.
+     */
+    synchronized void schedule(String host, Runnable download) {
+        LinkedList queue = (LinkedList) waiting.get(host);
+        if (queue == null) {
+            queue = new LinkedList();
+            waiting.put(host, queue);
+        }
+        queue.add(download);
+        pending++;
+        dispatch(host);
+    }
+
+    /**
+     * Waits until all the scheduled downloads are done.
+     */
+    synchronized void await() throws InterruptedException {
+        while (pending > 0) {
+            wait();
+        }
+    }
+
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void dispatch(final String host) {
+        LinkedList queue = (LinkedList) waiting.get(host);
+        while (!queue.isEmpty() && getRunning(host) < threadsPerHost) {
+            final Runnable download = (Runnable) queue.removeFirst();
+            running.put(host, new Integer(getRunning(host) + 1));
+            executor.execute(new Runnable() {
+                public void run() {
+                    IvyContext.pushContext(new IvyContext(context));
+                    try {
+                        download.run();
+                    } finally {
+                        IvyContext.popContext();
+                        done(host);
+                    }
+                }
+            });
+        }
+    }
+
+    private synchronized void done(String host) {
+        running.put(host, new Integer(getRunning(host) - 1));
+        pending--;
+        dispatch(host);
+        notifyAll();
+    }
+
+    private int getRunning(String host) {
+        Integer count = (Integer) running.get(host);
+        return count == null ? 0 : count.intValue();
+    }
+}
@@ -21,7 +21,40 @@ import org.apache.ivy.core.LogOptions;
 
 
 public class DownloadOptions extends LogOptions {
+    /**
+     * Default maximum number of artifacts downloaded at the same time from one host.
+     */
+    public static final int DEFAULT_THREADS_PER_HOST = 4;
+
+    /**
+     * The maximum number of artifacts downloaded at the same time. Artifacts are downloaded one
+     * after the other when lower than 2.
+     */
+    private int threads = 1;
+
+    /**
+     * The maximum number of artifacts downloaded at the same time from one host.
+     */
+    private int threadsPerHost = DEFAULT_THREADS_PER_HOST;
 
     public DownloadOptions() {
     }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public DownloadOptions setThreads(int threads) {
+        this.threads = threads;
+        return this;
+    }
+
+    public int getThreadsPerHost() {
+        return threadsPerHost;
+    }
+
+    public DownloadOptions setThreadsPerHost(int threadsPerHost) {
+        this.threadsPerHost = threadsPerHost;
+        return this;
+    }
 }
@@ -0,0 +1,263 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.core.resolve;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.ivy.core.module.descriptor.DependencyArtifactDescriptor;
+import org.apache.ivy.core.module.descriptor.DependencyDescriptor;
+import org.apache.ivy.core.module.descriptor.ExcludeRule;
+import org.apache.ivy.core.module.descriptor.IncludeRule;
+import org.apache.ivy.core.module.descriptor.ModuleDescriptor;
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.core.report.DownloadStatus;
+import org.apache.ivy.core.report.MetadataArtifactDownloadReport;
+import org.apache.ivy.plugins.resolver.AbstractResolver;
+import org.apache.ivy.plugins.resolver.DependencyResolver;
+import org.apache.ivy.util.Message;
+
+/**
+ * Keeps the module revisions loaded while resolving a module, so that they can be reused by the
+ * next resolve of the same module, after its module descriptor has been edited.
+ * <p>
+ * The next resolve compares its module descriptor with the one previously resolved: the module
+ * revisions reachable from the dependencies which have been removed or changed are asked again
+ * to the dependency resolvers, as well as the ones reachable from added dependencies which were
+ * not loaded before. All the others are reused without asking the dependency resolvers.
+ * </p>
+ * <p>
+ * The dependency graph itself is still traversed, since conflict resolution and eviction depend
+ * on the whole graph, but this is done in memory. Dynamic and changing revisions, as well as
+ * the ones whose modification is checked, are never reused, so that the repository cache
+ * manager can check if they are still up to date.
+ * </p>
+ *
+ * @see ResolveOptions#isIncremental()
+ */
+final class IncrementalResolution {
+    // Map (ModuleRevisionId requested -> LoadedRevision) which can be reused in this resolve
+    private final Map reusable;
+
+    // Map (ModuleRevisionId requested -> LoadedRevision) loaded or reused during this resolve
+    private final Map loaded = new HashMap();
+
+    private long resolvedIvyLastModified = -1;
+
+    private int reused = 0;
+
+    /**
+     * Creates the incremental resolution of a module descriptor.
+     *
+     * @param previous
+     *            the incremental resolution of the previous resolve of the module, or
+     *            <code>null</code> if there is none
+     * @param previousMd
+     *            the module descriptor resolved by the previous resolve, or <code>null</code> if
+     *            it is unknown
+     * @param md
+     *            the module descriptor to resolve
+     * @param settings
+     *            the settings used to resolve
+     */
+    IncrementalResolution(IncrementalResolution previous, ModuleDescriptor previousMd,
+            ModuleDescriptor md, ResolveEngineSettings settings) {
+        reusable = new HashMap();
+        if (previous == null || previousMd == null) {
+            return;
+        }
+        Set/*<String>*/ dependencies = new HashSet();
+        DependencyDescriptor[] dds = md.getDependencies();
+        for (int i = 0; i < dds.length; i++) {
+            dependencies.add(describe(dds[i]));
+        }
+        // the module revisions reachable from removed or changed dependencies
+        List/*<ModuleRevisionId>*/ changed = new LinkedList();
+        DependencyDescriptor[] previousDds = previousMd.getDependencies();
+        for (int i = 0; i < previousDds.length; i++) {
+            if (!dependencies.contains(describe(previousDds[i]))) {
+                Message.verbose("\tdependency changed since last resolve: " + previousDds[i]);
+                changed.add(previousDds[i].getDependencyRevisionId());
+            }
+        }
+        Set/*<ModuleRevisionId>*/ tainted = new HashSet();
+        while (!changed.isEmpty()) {
+            ModuleRevisionId mrid = (ModuleRevisionId) changed.remove(0);
+            if (!tainted.add(mrid)) {
+                continue;
+            }
+            LoadedRevision revision = (LoadedRevision) previous.loaded.get(mrid);
+            if (revision != null && revision.rmr != null) {
+                DependencyDescriptor[] deps = revision.rmr.getDescriptor().getDependencies();
+                for (int i = 0; i < deps.length; i++) {
+                    changed.add(deps[i].getDependencyRevisionId());
+                }
+            }
+        }
+
+        for (Iterator iter = previous.loaded.entrySet().iterator(); iter.hasNext();) {
+            Map.Entry entry = (Map.Entry) iter.next();
+            ModuleRevisionId mrid = (ModuleRevisionId) entry.getKey();
+            if (!tainted.contains(mrid) && !settings.getVersionMatcher().isDynamic(mrid)) {
+                reusable.put(mrid, entry.getValue());
+            }
+        }
+        Message.verbose("\tincremental resolve: " + reusable.size() + " module revisions reusable, "
+            + tainted.size() + " to resolve again");
+    }
+
+    /**
+     * Returns <code>true</code> if the module revision requested with the given id has been
+     * loaded by the previous resolve and can be reused.
+     */
+    boolean isReusable(ModuleRevisionId mrid) {
+        return reusable.containsKey(mrid);
+    }
+
+    /**
+     * Returns the module revision loaded by the previous resolve for the given dependency
+     * descriptor, or <code>null</code> if it can't be reused.
+     */
+    ResolvedModuleRevision getReusable(DependencyResolver resolver, DependencyDescriptor dd,
+            ResolveData data) {
+        ModuleRevisionId mrid = dd.getDependencyRevisionId();
+        LoadedRevision revision = (LoadedRevision) reusable.get(mrid);
+        if (revision == null || revision.resolver != resolver || revision.rmr == null
+                || isAlwaysChecked(resolver, dd, data)
+                || revision.rmr.getResolver() != resolver
+                    && isAlwaysChecked(revision.rmr.getResolver(), dd, data)) {
+            return null;
+        }
+        ResolvedModuleRevision rmr = revision.rmr;
+        if (data.getReport() != null
+                && data.isBlacklisted(data.getReport().getConfiguration(), rmr.getId())) {
+            return null;
+        }
+        reused++;
+        loaded.put(mrid, revision);
+        return reuse(rmr);
+    }
+
+    /**
+     * Tells if the module revision requested by the given dependency descriptor is always checked
+     * against its repository by the given resolver, in which case it must not be reused.
+     */
+    static boolean isAlwaysChecked(DependencyResolver resolver, DependencyDescriptor dd,
+            ResolveData data) {
+        if (resolver instanceof AbstractResolver) {
+            return ((AbstractResolver) resolver).isAlwaysChecked(dd, data);
+        }
+        return dd.isChanging();
+    }
+
+    /**
+     * Returns a copy of the given module revision for another resolve, in which nothing has been
+     * downloaded nor searched for it.
+     */
+    static ResolvedModuleRevision reuse(ResolvedModuleRevision rmr) {
+        MetadataArtifactDownloadReport previousReport = rmr.getReport();
+        MetadataArtifactDownloadReport report =
+            new MetadataArtifactDownloadReport(previousReport.getArtifact());
+        report.setDownloadStatus(DownloadStatus.NO);
+        report.setSearched(false);
+        report.setLocalFile(previousReport.getLocalFile());
+        report.setOriginalLocalFile(previousReport.getOriginalLocalFile());
+        report.setArtifactOrigin(previousReport.getArtifactOrigin());
+        report.setSize(previousReport.getSize());
+        return new ResolvedModuleRevision(rmr.getResolver(), rmr.getArtifactResolver(),
+            rmr.getDescriptor(), report, rmr.isForce());
+    }
+
+    /**
+     * Records the module revision loaded by the given resolver for the given dependency
+     * descriptor, so that the next resolve can reuse it.
+     */
+    void loaded(DependencyResolver resolver, DependencyDescriptor dd, ResolvedModuleRevision rmr) {
+        loaded.put(dd.getDependencyRevisionId(), new LoadedRevision(resolver, rmr));
+    }
+
+    /**
+     * Returns the number of module revisions reused from the previous resolve.
+     */
+    int getReused() {
+        return reused;
+    }
+
+    /**
+     * Returns the number of module revisions known by this resolution, which can be reused by the
+     * next resolve.
+     */
+    int getLoaded() {
+        return loaded.size();
+    }
+
+    long getResolvedIvyLastModified() {
+        return resolvedIvyLastModified;
+    }
+
+    void setResolvedIvyLastModified(long resolvedIvyLastModified) {
+        this.resolvedIvyLastModified = resolvedIvyLastModified;
+    }
+
+    private static String describe(DependencyDescriptor dd) {
+        StringBuffer sb = new StringBuffer();
+        sb.append(dd.getDependencyRevisionId()).append('|')
+            .append(dd.getDynamicConstraintDependencyRevisionId()).append('|')
+            .append(dd.isForce()).append('|')
+            .append(dd.isChanging()).append('|')
+            .append(dd.isTransitive());
+        String[] confs = dd.getModuleConfigurations();
+        Arrays.sort(confs);
+        for (int i = 0; i < confs.length; i++) {
+            sb.append('|').append(confs[i]).append("->")
+                .append(Arrays.asList(dd.getDependencyConfigurations(confs[i])));
+            DependencyArtifactDescriptor[] dads = dd.getDependencyArtifacts(confs[i]);
+            for (int j = 0; j < dads.length; j++) {
+                sb.append(" A:").append(dads[j].getName()).append('.').append(dads[j].getType())
+                    .append('.').append(dads[j].getExt()).append(dads[j].getUrl())
+                    .append(dads[j].getExtraAttributes());
+            }
+            IncludeRule[] includes = dd.getIncludeRules(confs[i]);
+            for (int j = 0; j < includes.length; j++) {
+                sb.append(' ').append(includes[j]).append(includes[j].getMatcher().getName());
+            }
+            ExcludeRule[] excludes = dd.getExcludeRules(confs[i]);
+            for (int j = 0; j < excludes.length; j++) {
+                sb.append(' ').append(excludes[j]).append(excludes[j].getMatcher().getName());
+            }
+        }
+        return sb.toString();
+    }
+
+    private static class LoadedRevision {
+        private final DependencyResolver resolver;
+
+        private final ResolvedModuleRevision rmr;
+
+        LoadedRevision(DependencyResolver resolver, ResolvedModuleRevision rmr) {
+            this.resolver = resolver;
+            this.rmr = rmr;
+        }
+    }
+}
@@ -166,7 +166,7 @@ public class IvyNode implements Comparable {
                     data.getEventManager().fireIvyEvent(
                         new StartResolveDependencyEvent(
                             resolver, dependencyDescriptor, requestedRevisionId));
-                    module = resolver.getDependency(dependencyDescriptor, data);
+                    module = data.getDependency(resolver, dependencyDescriptor);
                     data.getEventManager().fireIvyEvent(
                         new EndResolveDependencyEvent(
                             resolver, dependencyDescriptor, requestedRevisionId, 
@@ -1110,6 +1110,11 @@ public class IvyNode implements Comparable {
         return eviction.getResolvedRevisions(moduleId, rootModuleConf);
     }
 
+    public boolean isResolvedRevision(ModuleId moduleId, String rootModuleConf,
+            ModuleRevisionId mrid) {
+        return eviction.isResolvedRevision(moduleId, rootModuleConf, mrid);
+    }
+
     public void markEvicted(EvictionData evictionData) {
         eviction.markEvicted(evictionData);
         String rootModuleConf = evictionData.getRootModuleConf();
@@ -1151,6 +1156,10 @@ public class IvyNode implements Comparable {
         return eviction.getEvictedRevisions(mid, rootModuleConf);
     }
 
+    public boolean isEvictedRevision(ModuleId mid, String rootModuleConf, ModuleRevisionId mrid) {
+        return eviction.isEvictedRevision(mid, rootModuleConf, mrid);
+    }
+
     public EvictionData getEvictionDataInRoot(String rootModuleConf, IvyNode ancestor) {
         return eviction.getEvictionDataInRoot(rootModuleConf, ancestor);
     }
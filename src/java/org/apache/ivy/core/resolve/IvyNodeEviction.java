@@ -243,6 +243,33 @@ public class IvyNodeEviction {
         }
     }
 
+    /**
+     * Returns <code>true</code> if the given revision is in the
+     * {@link #getResolvedRevisions(ModuleId, String) resolved revisions}, without copying them.
+     */
+    public boolean isResolvedRevision(ModuleId mid, String rootModuleConf,
+            ModuleRevisionId mrid) {
+        Collection resolved = (Collection) selectedDeps.get(new ModuleIdConf(mid, rootModuleConf));
+        if (resolved == null) {
+            return false;
+        }
+        for (Iterator iter = resolved.iterator(); iter.hasNext();) {
+            IvyNode node = (IvyNode) iter.next();
+            ModuleRevisionId resolvedId = node.getResolvedId();
+            if (mrid.equals(node.getId()) || mrid.equals(resolvedId)) {
+                return true;
+            }
+            // cfr. IVY-1236
+            if (!resolvedId.getExtraAttributes().isEmpty() && mrid.getExtraAttributes().isEmpty()
+                    && mrid.equals(ModuleRevisionId.newInstance(resolvedId.getOrganisation(), 
+                        resolvedId.getName(), resolvedId.getBranch(), 
+                        resolvedId.getRevision()))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     public void setResolvedNodes(ModuleId moduleId, String rootModuleConf, Collection resolved) {
         ModuleIdConf moduleIdConf = new ModuleIdConf(moduleId, rootModuleConf);
         selectedDeps.put(moduleIdConf, new HashSet(resolved));
@@ -269,6 +296,15 @@ public class IvyNodeEviction {
         }
     }
 
+    /**
+     * Returns <code>true</code> if the given revision is in the
+     * {@link #getEvictedRevisions(ModuleId, String) evicted revisions}, without copying them.
+     */
+    public boolean isEvictedRevision(ModuleId mid, String rootModuleConf, ModuleRevisionId mrid) {
+        Collection evicted = (Collection) evictedRevs.get(new ModuleIdConf(mid, rootModuleConf));
+        return evicted != null && evicted.contains(mrid);
+    }
+
     public void setEvictedNodes(ModuleId moduleId, String rootModuleConf, Collection evicted) {
         ModuleIdConf moduleIdConf = new ModuleIdConf(moduleId, rootModuleConf);
         evictedDeps.put(moduleIdConf, new HashSet(evicted));
@@ -292,8 +328,7 @@ public class IvyNodeEviction {
         }
         IvyNode root = node.getRoot();
         ModuleId moduleId = node.getId().getModuleId();
-        Collection resolvedRevisions = root.getResolvedRevisions(moduleId, rootModuleConf);
-        return !resolvedRevisions.contains(node.getResolvedId())
+        return !root.isResolvedRevision(moduleId, rootModuleConf, node.getResolvedId())
                        || evictedData.isTransitivelyEvicted();
     }
 
@@ -0,0 +1,380 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.core.resolve;
+
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.apache.ivy.core.IvyContext;
+import org.apache.ivy.core.module.descriptor.DependencyDescriptor;
+import org.apache.ivy.core.module.descriptor.ModuleDescriptor;
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.plugins.resolver.DependencyResolver;
+import org.apache.ivy.util.Message;
+
+/**
+ * Loads the {@link ResolvedModuleRevision} of several dependencies at the same time, using a
+ * bounded pool of threads.
+ * <p>
+ * This loader only fetches module metadata from dependency resolvers: the loaded revisions are
+ * consumed by {@link IvyNode} in the resolving thread, in the same order as in a serial resolve,
+ * so that conflict resolution and eviction give the same result in both modes.
+ * </p>
+ * <p>
+ * The same resolver can be called by several loading threads and the resolving thread at once:
+ * resolvers keep track of the locations they tried per thread, and dependencies which have not
+ * been found are looked up again by the resolving thread, which reports the failure.
+ * </p>
+ * <p>
+ * Dependencies can either be loaded while the resolving thread waits for them (see
+ * {@link #load(ResolveData, VisitNode, Collection)}), or prefetched in the background as soon as
+ * the module descriptor declaring them is known (see {@link #prefetch(ResolveData, IvyNode)}).
+ * </p>
+ *
+ * @see ResolveOptions#isParallel()
+ * @see ResolveOptions#isPrefetch()
+ */
+class ParallelDependencyLoader {
+    private final ExecutorService executor;
+
+    // Map (DependencyDescriptor -> DependencyLoad), dependency descriptors are compared by identity
+    private final Map loads = new IdentityHashMap();
+
+    // Map (ModuleRevisionId -> DependencyLoad), all the loads started, by requested revision id.
+    // A revision id is never loaded twice, to avoid concurrent updates of its data in cache.
+    private final Map loadsById = new HashMap();
+
+    private int hits = 0;
+
+    private int misses = 0;
+
+    private int unused = 0;
+
+    ParallelDependencyLoader(int threads) {
+        executor = Executors.newFixedThreadPool(Math.max(1, threads), new ThreadFactory() {
+            private int count = 0;
+
+            public synchronized Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "ivy-resolve-" + (++count));
+                t.setDaemon(true);
+                return t;
+            }
+        });
+    }
+
+    /**
+     * Loads the module revisions of the given dependencies of a node, and waits until they are
+     * all loaded. Dependencies which are already loaded or for which no resolver is found are
+     * ignored, they will be handled in the resolving thread.
+     *
+     * @param data
+     *            the resolve data of the resolve process
+     * @param parent
+     *            the node whose dependencies should be loaded
+     * @param dependencies
+     *            the {@link VisitNode}s of the dependencies to load
+     */
+    void load(ResolveData data, VisitNode parent, Collection/*<VisitNode>*/ dependencies) {
+        List/*<DependencyLoad>*/ toLoad = new ArrayList();
+        for (Iterator iter = dependencies.iterator(); iter.hasNext();) {
+            VisitNode dep = (VisitNode) iter.next();
+            IvyNode node = dep.getNode();
+            if (node.isLoaded() || node.hasProblem()) {
+                continue;
+            }
+            DependencyDescriptor dd = node.getDependencyDescriptor(parent.getNode());
+            if (dd == null || loadsById.containsKey(dd.getDependencyRevisionId())
+                    || isReusable(data, dd.getDependencyRevisionId())) {
+                continue;
+            }
+            DependencyResolver resolver = data.getSettings().getResolver(node.getId());
+            if (resolver == null) {
+                continue;
+            }
+            ResolveData loadData = new ResolveData(data, data.isValidate());
+            loadData.setCurrentVisitNode(dep);
+            toLoad.add(new DependencyLoad(resolver, dd, loadData));
+        }
+        if (toLoad.size() < 2) {
+            // nothing to gain from another thread
+            return;
+        }
+
+        Message.debug("loading " + toLoad.size() + " dependencies of " + parent + " in parallel");
+        for (Iterator iter = toLoad.iterator(); iter.hasNext();) {
+            start((DependencyLoad) iter.next());
+        }
+        for (Iterator iter = toLoad.iterator(); iter.hasNext();) {
+            DependencyLoad load = (DependencyLoad) iter.next();
+            if (!load.await()) {
+                clear();
+                throw new RuntimeException("interrupted while loading dependencies of " + parent);
+            }
+        }
+    }
+
+    /**
+     * Starts loading in the background the module revisions of all the dependencies declared by
+     * the given node, which must have been loaded. This method doesn't wait for the dependencies
+     * to be loaded.
+     * <p>
+     * Prefetched dependencies are loaded in isolation from the dependency graph being resolved,
+     * which can thus keep being updated by the resolving thread. The resolving thread may use the
+     * same resolvers meanwhile, and looks up again the prefetched dependencies which have not been
+     * found, to report the locations tried. Dependencies are mediated the same way as when the
+     * resolving thread later asks for them, so this method must be called while the given node
+     * is the current visit node of the resolve data.
+     * </p>
+     *
+     * @param data
+     *            the resolve data of the resolve process
+     * @param node
+     *            the node whose dependencies should be prefetched
+     */
+    void prefetch(ResolveData data, IvyNode node) {
+        ModuleDescriptor md = node.getDescriptor();
+        if (md == null) {
+            return;
+        }
+        DependencyDescriptor[] dds = md.getDependencies();
+        for (int i = 0; i < dds.length; i++) {
+            // the resolving thread asks for the mediated dependency, which is the one to load
+            DependencyDescriptor dd = data.mediate(dds[i]);
+            ModuleRevisionId mrid = dd.getDependencyRevisionId();
+            if (loadsById.containsKey(mrid) || isReusable(data, mrid)) {
+                continue;
+            }
+            IvyNode dep = data.getNode(mrid);
+            if (dep != null && (dep.isLoaded() || dep.hasProblem())) {
+                continue;
+            }
+            DependencyResolver resolver = data.getSettings().getResolver(mrid);
+            if (resolver == null) {
+                continue;
+            }
+            // prefetched dependencies don't see the graph being resolved nor its report
+            ResolveData prefetchData = new ResolveData(data.getEngine(), data.getOptions(), null);
+            DependencyLoad load = new DependencyLoad(resolver, dd, prefetchData);
+            load.prefetched = true;
+            start(load);
+        }
+    }
+
+    private boolean isReusable(ResolveData data, ModuleRevisionId mrid) {
+        // no need to load what the previous incremental resolve or another root already loaded
+        return data.getIncrementalResolution() != null
+            && data.getIncrementalResolution().isReusable(mrid)
+            || data.getSharedResolution() != null
+            && data.getSharedResolution().isShared(mrid);
+    }
+
+    private void start(DependencyLoad load) {
+        load.future = executor.submit(load);
+        loads.put(load.dd, load);
+        loadsById.put(load.dd.getDependencyRevisionId(), load);
+    }
+
+    /**
+     * Returns the module revision for the given dependency descriptor, using the one previously
+     * loaded or prefetched if any and still valid, or asking the resolver otherwise.
+     */
+    ResolvedModuleRevision getDependency(DependencyResolver resolver, DependencyDescriptor dd,
+            ResolveData data) throws ParseException {
+        DependencyLoad load = (DependencyLoad) loads.remove(dd);
+        if (load == null) {
+            load = removePrefetched(dd);
+        }
+        if (load != null && load.resolver == resolver) {
+            ResolvedModuleRevision rmr = load.getResult();
+            if (rmr == null) {
+                // the tried locations are only known by the loading thread: the dependency is
+                // looked up again so that the resolver can report them in the resolving thread
+                Message.debug("\tparallel loaded dependency " + dd
+                    + " not found: resolving it again");
+            } else if (data.getReport() == null
+                    || !data.isBlacklisted(data.getReport().getConfiguration(), rmr.getId())) {
+                hits++;
+                return rmr;
+            } else {
+                // the revision has been blacklisted since it was loaded
+                Message.debug("\tparallel loaded revision " + rmr.getId()
+                    + " has been blacklisted: resolving " + dd + " again");
+            }
+        } else {
+            // the same revision may be loading for another dependency descriptor:
+            // we wait for it so that the module is not updated in cache concurrently
+            DependencyLoad sameId = (DependencyLoad) loadsById.get(dd.getDependencyRevisionId());
+            if (sameId != null && !sameId.await()) {
+                throw new RuntimeException("interrupted while loading " + dd);
+            }
+        }
+        misses++;
+        return resolver.getDependency(dd, data);
+    }
+
+    /**
+     * Removes and returns the unused prefetched load of the given dependency descriptor, if any.
+     * Mediated dependency descriptors are built again each time they are asked for, so prefetched
+     * loads are matched by their mediated revision id rather than by identity.
+     */
+    private DependencyLoad removePrefetched(DependencyDescriptor dd) {
+        DependencyLoad load = (DependencyLoad) loadsById.get(dd.getDependencyRevisionId());
+        if (load == null || !load.prefetched || !loads.containsKey(load.dd)
+                || load.dd.isChanging() != dd.isChanging() || load.dd.isForce() != dd.isForce()) {
+            return null;
+        }
+        loads.remove(load.dd);
+        return load;
+    }
+
+    /**
+     * Returns the number of module revisions which have been loaded in parallel or prefetched
+     * before being asked by the resolving thread.
+     */
+    int getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of module revisions which have been loaded by the resolving thread,
+     * because they were not loaded before or not valid anymore.
+     */
+    int getMisses() {
+        return misses;
+    }
+
+    /**
+     * Returns the number of loaded module revisions which have been discarded without being used,
+     * usually because the corresponding dependency has been evicted.
+     */
+    int getUnused() {
+        return unused;
+    }
+
+    /**
+     * Discards all the loaded module revisions which haven't been used yet. Loads which haven't
+     * started yet are cancelled, and the ones already running are waited for, so that no load
+     * updates the cache once this method returns.
+     */
+    void clear() {
+        for (Iterator iter = loads.values().iterator(); iter.hasNext();) {
+            DependencyLoad load = (DependencyLoad) iter.next();
+            // loads already started are not interrupted, to avoid leaving a partially
+            // written file in cache
+            if (!load.future.cancel(false)) {
+                load.await();
+            }
+            unused++;
+        }
+        loads.clear();
+        loadsById.clear();
+    }
+
+    /**
+     * Discards all the loaded module revisions which haven't been used yet, and stops the loading
+     * threads.
+     */
+    void shutdown() {
+        clear();
+        executor.shutdown();
+    }
+
+    private static class DependencyLoad implements Callable {
+        private final DependencyResolver resolver;
+
+        private final DependencyDescriptor dd;
+
+        private final ResolveData data;
+
+        private final IvyContext context;
+
+        private Future future;
+
+        private boolean prefetched = false;
+
+        DependencyLoad(DependencyResolver resolver, DependencyDescriptor dd, ResolveData data) {
+            this.resolver = resolver;
+            this.dd = dd;
+            this.data = data;
+            // the loading thread uses the same context as the resolving one, except for the
+            // resolve data which is specific to this load
+            context = new IvyContext(IvyContext.getContext());
+            context.setResolveData(data);
+        }
+
+        public Object call() throws Exception {
+            IvyContext.pushContext(context);
+            try {
+                return resolver.getDependency(dd, data);
+            } finally {
+                IvyContext.popContext();
+            }
+        }
+
+        /**
+         * Waits for this load to be done, whatever its result.
+         * 
+         * @return false if the current thread has been interrupted while waiting
+         */
+        boolean await() {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                // the failure is reported when the load result is used
+            } catch (CancellationException e) {
+                // nothing to wait for
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            return true;
+        }
+
+        ResolvedModuleRevision getResult() throws ParseException {
+            try {
+                return (ResolvedModuleRevision) future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("interrupted while loading " + dd);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof ParseException) {
+                    throw (ParseException) cause;
+                } else if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                } else if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new RuntimeException(cause.toString(), cause);
+            }
+        }
+    }
+}
@@ -17,10 +17,12 @@
  */
 package org.apache.ivy.core.resolve;
 
+import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -32,12 +34,17 @@ import org.apache.ivy.core.module.descriptor.DependencyDescriptor;
 import org.apache.ivy.core.module.descriptor.ModuleDescriptor;
 import org.apache.ivy.core.module.id.ModuleRevisionId;
 import org.apache.ivy.core.report.ConfigurationResolveReport;
+import org.apache.ivy.plugins.resolver.DependencyResolver;
 import org.apache.ivy.util.Message;
 
 public class ResolveData {
     private ResolveEngine engine;
 
     private Map visitData; // shared map of all visit data: Map (ModuleRevisionId -> VisitData)
+
+    // shared index of the keys of visitData by module revision id without extra attributes:
+    // Map (ModuleRevisionId -> List (ModuleRevisionId)), in the iteration order of visitData
+    private Map visitDataIds;
     
     private ConfigurationResolveReport report;
 
@@ -47,9 +54,15 @@ public class ResolveData {
 
     private ResolvedModuleRevision currentResolvedModuleRevision;
 
+    private ParallelDependencyLoader parallelLoader;
+
+    private IncrementalResolution incrementalResolution;
+
+    private SharedResolution sharedResolution;
+
     public ResolveData(ResolveData data, boolean validate) {
         this(data.engine, new ResolveOptions(data.options).setValidate(validate), 
-            data.report, data.visitData);
+            data.report, data.visitData, data.visitDataIds);
         setCurrentVisitNode(data.currentVisitNode);
         setCurrentResolvedModuleRevision(data.currentResolvedModuleRevision);
     }
@@ -65,9 +78,18 @@ public class ResolveData {
 
     public ResolveData(ResolveEngine engine, ResolveOptions options,
             ConfigurationResolveReport report, Map visitData) {
+        this(engine, options, report, visitData, new HashMap());
+        for (Iterator iter = visitData.keySet().iterator(); iter.hasNext();) {
+            indexVisitDataId((ModuleRevisionId) iter.next());
+        }
+    }
+
+    private ResolveData(ResolveEngine engine, ResolveOptions options,
+            ConfigurationResolveReport report, Map visitData, Map visitDataIds) {
         this.engine = engine;
         this.report = report;
         this.visitData = visitData;
+        this.visitDataIds = visitDataIds;
         this.options = options;
     }
 
@@ -97,20 +119,58 @@ public class ResolveData {
         VisitData result = (VisitData) visitData.get(mrid);
 
         if (result == null) {
-            // search again, now ignore the missing extra attributes
-            for (Iterator it = visitData.entrySet().iterator(); it.hasNext();) {
-                Map.Entry entry = (Entry) it.next();
-                ModuleRevisionId current = (ModuleRevisionId) entry.getKey();
-                
-                if (isSubMap(mrid.getAttributes(), current.getAttributes())) {
-                    result = (VisitData) entry.getValue();
-                    break;
+            // search again, now ignore the missing extra attributes: only ids with the same
+            // standard attributes can match
+            List ids = (List) visitDataIds.get(getIdWithoutExtraAttributes(mrid));
+            if (ids != null) {
+                for (Iterator it = ids.iterator(); it.hasNext();) {
+                    ModuleRevisionId current = (ModuleRevisionId) it.next();
+                    
+                    if (isSubMap(mrid.getAttributes(), current.getAttributes())) {
+                        result = (VisitData) visitData.get(current);
+                        break;
+                    }
                 }
             }
         }
 
         return result;
     }
+
+    private void putVisitData(ModuleRevisionId mrid, VisitData data) {
+        if (visitData.put(mrid, data) == null) {
+            indexVisitDataId(mrid);
+        }
+    }
+
+    private void indexVisitDataId(ModuleRevisionId mrid) {
+        ModuleRevisionId key = getIdWithoutExtraAttributes(mrid);
+        List ids = (List) visitDataIds.get(key);
+        if (ids == null) {
+            ids = new ArrayList();
+            visitDataIds.put(key, ids);
+        }
+        ids.add(mrid);
+    }
+
+    private void unindexVisitDataId(ModuleRevisionId mrid) {
+        ModuleRevisionId key = getIdWithoutExtraAttributes(mrid);
+        List ids = (List) visitDataIds.get(key);
+        if (ids != null) {
+            ids.remove(mrid);
+            if (ids.isEmpty()) {
+                visitDataIds.remove(key);
+            }
+        }
+    }
+
+    private static ModuleRevisionId getIdWithoutExtraAttributes(ModuleRevisionId mrid) {
+        if (mrid.getExtraAttributes().isEmpty()) {
+            return mrid;
+        }
+        return ModuleRevisionId.newInstance(mrid.getOrganisation(), mrid.getName(),
+            mrid.getBranch(), mrid.getRevision());
+    }
     
     /**
      * Checks whether one map is a sub-map of the other.
@@ -188,7 +248,7 @@ public class ResolveData {
         if (visitData == null) {
             visitData = new VisitData(node.getNode());
             visitData.addVisitNode(node);
-            this.visitData.put(mrid, visitData);
+            putVisitData(mrid, visitData);
         } else {
             visitData.setNode(node.getNode());
             visitData.addVisitNode(node);
@@ -218,13 +278,90 @@ public class ResolveData {
                     + ". No registered node found for " + node.getId() + ".");
         }
         // replace visit data in Map (discards old one)
-        this.visitData.put(mrid, keptVisitData);
+        putVisitData(mrid, keptVisitData);
         // update visit data with discarde visit nodes
         keptVisitData.addVisitNodes(rootModuleConf, visitData.getVisitNodes(rootModuleConf));
         
         report.updateDependency(mrid, node);
     }
 
+    /**
+     * Sets the loader to use to load dependencies in parallel, or <code>null</code> to load them
+     * one after the other.
+     * WARNING: This should only be called by Ivy core ResolveEngine!
+     */
+    void setParallelLoader(ParallelDependencyLoader parallelLoader) {
+        this.parallelLoader = parallelLoader;
+    }
+
+    ParallelDependencyLoader getParallelLoader() {
+        return parallelLoader;
+    }
+
+    /**
+     * Sets the incremental resolution in which module revisions loaded by the previous resolve
+     * can be found, and loaded module revisions should be recorded, or <code>null</code> if the
+     * resolve is not incremental.
+     * WARNING: This should only be called by Ivy core ResolveEngine!
+     */
+    void setIncrementalResolution(IncrementalResolution incrementalResolution) {
+        this.incrementalResolution = incrementalResolution;
+    }
+
+    IncrementalResolution getIncrementalResolution() {
+        return incrementalResolution;
+    }
+
+    /**
+     * Sets the shared resolution of the batch of root modules this resolve is part of, or
+     * <code>null</code> if it resolves a single root module.
+     * WARNING: This should only be called by Ivy core ResolveEngine!
+     */
+    void setSharedResolution(SharedResolution sharedResolution) {
+        this.sharedResolution = sharedResolution;
+    }
+
+    SharedResolution getSharedResolution() {
+        return sharedResolution;
+    }
+
+    /**
+     * Asks the given resolver for the module revision of the given dependency, or returns it
+     * directly if it has already been loaded in parallel, by the previous resolve or by the
+     * resolve of another root of the same batch.
+     */
+    ResolvedModuleRevision getDependency(DependencyResolver resolver, DependencyDescriptor dd)
+            throws ParseException {
+        ResolvedModuleRevision rmr;
+        if (incrementalResolution != null) {
+            rmr = incrementalResolution.getReusable(resolver, dd, this);
+            if (rmr != null) {
+                return rmr;
+            }
+        }
+        if (sharedResolution != null) {
+            rmr = sharedResolution.getShared(resolver, dd, this);
+            if (rmr != null) {
+                if (incrementalResolution != null) {
+                    incrementalResolution.loaded(resolver, dd, rmr);
+                }
+                return rmr;
+            }
+        }
+        if (parallelLoader != null) {
+            rmr = parallelLoader.getDependency(resolver, dd, this);
+        } else {
+            rmr = resolver.getDependency(dd, this);
+        }
+        if (incrementalResolution != null) {
+            incrementalResolution.loaded(resolver, dd, rmr);
+        }
+        if (sharedResolution != null) {
+            sharedResolution.loaded(resolver, dd, rmr);
+        }
+        return rmr;
+    }
+
     public void setReport(ConfigurationResolveReport report) {
         this.report = report;
     }
@@ -265,6 +402,7 @@ public class ResolveData {
                 // this visit data was associated with the blacklisted node, 
                 // we discard this association
                 iter.remove();
+                unindexVisitDataId((ModuleRevisionId) entry.getKey());
             }
         }
     }
@@ -20,6 +20,7 @@ package org.apache.ivy.core.resolve;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.net.MalformedURLException;
 import java.net.URL;
 import java.text.ParseException;
 import java.util.ArrayList;
@@ -30,6 +31,7 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.ListIterator;
@@ -44,7 +46,9 @@ import org.apache.ivy.core.cache.ArtifactOrigin;
 import org.apache.ivy.core.cache.ResolutionCacheManager;
 import org.apache.ivy.core.event.EventManager;
 import org.apache.ivy.core.event.download.PrepareDownloadEvent;
+import org.apache.ivy.core.event.resolve.EndConflictResolutionEvent;
 import org.apache.ivy.core.event.resolve.EndResolveEvent;
+import org.apache.ivy.core.event.resolve.EndTransitiveEvictionEvent;
 import org.apache.ivy.core.event.resolve.StartResolveEvent;
 import org.apache.ivy.core.module.descriptor.Artifact;
 import org.apache.ivy.core.module.descriptor.Configuration;
@@ -59,12 +63,14 @@ import org.apache.ivy.core.report.ConfigurationResolveReport;
 import org.apache.ivy.core.report.DownloadReport;
 import org.apache.ivy.core.report.DownloadStatus;
 import org.apache.ivy.core.report.ResolveReport;
+import org.apache.ivy.core.report.ResolveTimings;
 import org.apache.ivy.core.resolve.IvyNodeEviction.EvictionData;
 import org.apache.ivy.core.sort.SortEngine;
 import org.apache.ivy.core.sort.SortOptions;
 import org.apache.ivy.plugins.conflict.ConflictManager;
 import org.apache.ivy.plugins.parser.ModuleDescriptorParser;
 import org.apache.ivy.plugins.parser.ModuleDescriptorParserRegistry;
+import org.apache.ivy.plugins.report.XmlReportParser;
 import org.apache.ivy.plugins.repository.url.URLResource;
 import org.apache.ivy.plugins.resolver.DependencyResolver;
 import org.apache.ivy.plugins.version.VersionMatcher;
@@ -81,6 +87,16 @@ import org.apache.ivy.util.filter.Filter;
  * @see ResolveOptions
  */
 public class ResolveEngine {
+    /**
+     * The maximum number of modules whose last incremental resolution is kept.
+     */
+    private static final int MAX_INCREMENTAL_RESOLUTIONS = 8;
+
+    // key under which the timings of the current resolve are stored in the IvyContext
+    private static final String TIMINGS_KEY = ResolveTimings.class.getName();
+
+    private static final String SHARED_RESOLUTION_KEY = SharedResolution.class.getName();
+
     private ResolveEngineSettings settings;
 
     private EventManager eventManager;
@@ -89,8 +105,23 @@ public class ResolveEngine {
 
     private Set fetchedSet = new HashSet();
 
+    // number of restarts of the whole resolve process, and of restarts avoided by visiting again
+    // only the dependencies of a node, since the beginning of the current getDependencies
+    private int restarts;
+
+    private int avoidedRestarts;
+
     private DependencyResolver dictatorResolver;
 
+    // Map (ModuleRevisionId -> IncrementalResolution), last incremental resolution of the most
+    // recently resolved modules, bounded since each one keeps all the module descriptors it loaded
+    private Map incrementalResolutions = Collections.synchronizedMap(
+        new LinkedHashMap(16, 0.75f, true) {
+            protected boolean removeEldestEntry(Map.Entry eldest) {
+                return size() > MAX_INCREMENTAL_RESOLUTIONS;
+            }
+        });
+
     /**
      * Constructs a ResolveEngine.
      * 
@@ -195,6 +226,44 @@ public class ResolveEngine {
         return resolve(md, options);
     }
 
+    /**
+     * Resolves dependencies of several root modules in one batch.
+     * <p>
+     * The module revisions loaded while resolving a root are used by the resolves of the next
+     * roots, so that the dependencies common to several roots are asked only once to the
+     * dependency resolvers. Each root is otherwise resolved as if it was resolved alone: it has
+     * its own dependency graph and conflict resolution, and its own report, using the default
+     * resolve id of the root module.
+     * </p>
+     * 
+     * @param mds
+     *            the module descriptors of the root modules to resolve
+     * @param options
+     *            the options used to resolve each root, except the resolve id
+     * @return a List of the ResolveReport of each root, in the same order
+     */
+    public List/*<ResolveReport>*/ resolve(Collection/*<ModuleDescriptor>*/ mds,
+            ResolveOptions options) throws ParseException, IOException {
+        IvyContext context = IvyContext.getContext();
+        Object previous = context.get(SHARED_RESOLUTION_KEY);
+        SharedResolution shared = new SharedResolution();
+        context.set(SHARED_RESOLUTION_KEY, shared);
+        try {
+            List reports = new ArrayList(mds.size());
+            for (Iterator iter = mds.iterator(); iter.hasNext();) {
+                ModuleDescriptor md = (ModuleDescriptor) iter.next();
+                ResolveOptions rootOptions = new ResolveOptions(options);
+                rootOptions.setResolveId(ResolveOptions.getDefaultResolveId(md));
+                reports.add(resolve(md, rootOptions));
+            }
+            Message.verbose("batch resolve of " + mds.size() + " modules: "
+                + shared.getShared() + " module revisions shared between them");
+            return reports;
+        } finally {
+            context.set(SHARED_RESOLUTION_KEY, previous);
+        }
+    }
+
     /**
      * Resolve dependencies of a module described by a module descriptor.
      */
@@ -202,6 +271,9 @@ public class ResolveEngine {
             throws ParseException, IOException {
         DependencyResolver oldDictator = getDictatorResolver();
         IvyContext context = IvyContext.getContext();
+        final ResolveTimings timings = new ResolveTimings();
+        Object previousTimings = context.get(TIMINGS_KEY);
+        boolean timed = false;
         try {
             String[] confs = options.getConfs(md);
             options.setConfs(confs);
@@ -224,11 +296,48 @@ public class ResolveEngine {
             }
             Message.verbose("\tvalidate = " + options.isValidate());
             Message.verbose("\trefresh = " + options.isRefresh());
+
+            ResolutionCacheManager cacheManager = settings.getResolutionCacheManager();
+            File fingerprintFile = cacheManager.getResolvedFingerprintInCache(
+                md.getResolvedModuleRevisionId());
+            String fingerprint = null;
+            if (options.isReuseResolution()) {
+                fingerprint = ResolveFingerprint.compute(md, settings, options);
+                if (!options.isRefresh()) {
+                    ResolveReport report = getReusedReport(md, options, fingerprint);
+                    if (report != null) {
+                        report.setResolveTime(System.currentTimeMillis() - start);
+                        Message.verbose("\tresolve done (" + report.getResolveTime() 
+                            + "ms reusing previous resolution)");
+                        eventManager.fireIvyEvent(new EndResolveEvent(md, confs, report));
+                        return report;
+                    }
+                }
+            }
+            // the previous resolution won't match the files produced by this resolve anymore
+            if (fingerprintFile.exists()) {
+                fingerprintFile.delete();
+            }
             
             ResolveReport report = new ResolveReport(md, options.getResolveId());
+            report.setTimings(timings);
+            // only the events fired in the context of this resolve are taken into account
+            context.set(TIMINGS_KEY, timings);
+            eventManager.addIvyListener(timings, new Filter() {
+                public boolean accept(Object o) {
+                    return IvyContext.getContext().get(TIMINGS_KEY) == timings;
+                }
+            });
+            timed = true;
 
             ResolveData data = new ResolveData(this, options);
             context.setResolveData(data);
+            data.setSharedResolution((SharedResolution) context.get(SHARED_RESOLUTION_KEY));
+            IncrementalResolution incremental = null;
+            if (options.isIncremental()) {
+                incremental = newIncrementalResolution(md, options);
+                data.setIncrementalResolution(incremental);
+            }
             
             // resolve dependencies
             IvyNode[] dependencies = getDependencies(md, options, report);
@@ -239,9 +348,21 @@ public class ResolveEngine {
             }
 
             // produce resolved ivy file and ivy properties in cache
-            ResolutionCacheManager cacheManager = settings.getResolutionCacheManager();
             cacheManager.saveResolvedModuleDescriptor(md);
 
+            if (incremental != null) {
+                ModuleRevisionId mrid = md.getResolvedModuleRevisionId();
+                if (report.hasError()) {
+                    incrementalResolutions.remove(mrid);
+                } else {
+                    Message.verbose("\tincremental resolve: " + incremental.getReused() 
+                        + " module revisions reused");
+                    incremental.setResolvedIvyLastModified(
+                        cacheManager.getResolvedIvyFileInCache(mrid).lastModified());
+                    incrementalResolutions.put(mrid, incremental);
+                }
+            }
+
             // we store the resolved dependencies revisions and statuses per asked dependency
             // revision id, for direct dependencies only.
             // this is used by the deliver task to resolve dynamic revisions to static ones
@@ -328,12 +449,22 @@ public class ResolveEngine {
             if (options.isDownload()) {
                 Message.verbose(":: downloading artifacts ::");
 
+                DownloadOptions downloadOptions = new DownloadOptions()
+                        .setThreads(options.getDownloadThreads())
+                        .setThreadsPerHost(options.getDownloadThreadsPerHost());
                 downloadArtifacts(report, options.getArtifactFilter(), 
-                    (DownloadOptions) new DownloadOptions().setLog(options.getLog()));
+                    (DownloadOptions) downloadOptions.setLog(options.getLog()));
             }
 
             if (options.isOutputReport()) {
                 outputReport(report, cacheManager, options);
+
+                if (fingerprint != null && !report.hasError()) {
+                    long expiration = ResolveFingerprint.computeExpiration(dependencies, data);
+                    if (expiration > System.currentTimeMillis()) {
+                        ResolveFingerprint.save(fingerprintFile, fingerprint, expiration);
+                    }
+                }
             }
 
             Message.verbose("\tresolve done (" + report.getResolveTime() + "ms resolve - "
@@ -347,11 +478,132 @@ public class ResolveEngine {
             Message.sumupProblems();
             throw ex;
         } finally {
+            if (timed) {
+                eventManager.removeIvyListener(timings);
+                context.set(TIMINGS_KEY, previousTimings);
+            }
             context.setResolveData(null);
             setDictatorResolver(oldDictator);
         }
     }
 
+    /**
+     * Creates the incremental resolution of the given module descriptor, based on the previous
+     * incremental resolution of the same module if it is still the last resolution of this module
+     * in the resolution cache.
+     */
+    private IncrementalResolution newIncrementalResolution(
+            ModuleDescriptor md, ResolveOptions options) {
+        ModuleRevisionId mrid = md.getResolvedModuleRevisionId();
+        IncrementalResolution previous = 
+            (IncrementalResolution) incrementalResolutions.get(mrid);
+        ModuleDescriptor previousMd = null;
+        if (previous != null && !options.isRefresh()) {
+            ResolutionCacheManager cacheManager = settings.getResolutionCacheManager();
+            File ivyFile = cacheManager.getResolvedIvyFileInCache(mrid);
+            if (ivyFile.lastModified() == previous.getResolvedIvyLastModified()) {
+                try {
+                    previousMd = cacheManager.getResolvedModuleDescriptor(mrid);
+                } catch (ParseException e) {
+                    Message.verbose("impossible to read last resolved module descriptor of " 
+                        + mrid + ": " + e);
+                } catch (IOException e) {
+                    Message.verbose("impossible to read last resolved module descriptor of " 
+                        + mrid + ": " + e);
+                }
+            }
+        }
+        return new IncrementalResolution(previous, previousMd, md, settings);
+    }
+
+    /**
+     * Returns the incremental resolution of the last incremental resolve of the given module, or
+     * <code>null</code> if there is none.
+     */
+    IncrementalResolution getIncrementalResolution(ModuleRevisionId mrid) {
+        return (IncrementalResolution) incrementalResolutions.get(mrid);
+    }
+
+    /**
+     * Rebuilds the report of the previous resolve of the given module from the configuration
+     * reports found in the resolution cache, if the given fingerprint is the one of the previous
+     * resolve and the previous resolution is still valid.
+     * 
+     * @return the reused report, or <code>null</code> if the previous resolution can't be reused
+     */
+    private ResolveReport getReusedReport(
+            ModuleDescriptor md, ResolveOptions options, String fingerprint) {
+        ResolutionCacheManager cacheManager = settings.getResolutionCacheManager();
+        ModuleRevisionId mrid = md.getResolvedModuleRevisionId();
+        if (!ResolveFingerprint.isUpToDate(
+                    cacheManager.getResolvedFingerprintInCache(mrid), fingerprint)
+                || !cacheManager.getResolvedIvyFileInCache(mrid).exists()
+                || !cacheManager.getResolvedIvyPropertiesInCache(mrid).exists()) {
+            return null;
+        }
+
+        ResolveReport report = new ResolveReport(md, options.getResolveId());
+        String[] confs = options.getConfs();
+        Date reportDate = new Date();
+        for (int i = 0; i < confs.length; i++) {
+            File reportFile = cacheManager.getConfigurationResolveReportInCache(
+                options.getResolveId(), confs[i]);
+            if (!reportFile.exists()) {
+                return null;
+            }
+            XmlReportParser parser = new XmlReportParser();
+            try {
+                parser.parse(reportFile);
+            } catch (ParseException e) {
+                Message.verbose("impossible to reuse previous resolution of " + mrid + ": " + e);
+                return null;
+            }
+            if (parser.hasError()) {
+                return null;
+            }
+
+            // Map (ModuleRevisionId -> List(ArtifactDownloadReport))
+            Map dependencyReports = new LinkedHashMap();
+            ModuleRevisionId[] mrids = parser.getDependencyRevisionIds();
+            for (int j = 0; j < mrids.length; j++) {
+                dependencyReports.put(mrids[j], new ArrayList());
+            }
+            ArtifactDownloadReport[] adrs = parser.getArtifactReports();
+            for (int j = 0; j < adrs.length; j++) {
+                File localFile = adrs[j].getLocalFile();
+                if (options.isDownload() && localFile != null && !localFile.exists()) {
+                    Message.verbose("impossible to reuse previous resolution of " + mrid
+                        + ": " + localFile + " not found");
+                    return null;
+                }
+                if (adrs[j].getDownloadStatus() == DownloadStatus.SUCCESSFUL) {
+                    // nothing is downloaded this time
+                    adrs[j].setDownloadStatus(DownloadStatus.NO);
+                }
+                List reports = (List) dependencyReports.get(
+                    adrs[j].getArtifact().getModuleRevisionId());
+                if (reports != null) {
+                    reports.add(adrs[j]);
+                }
+            }
+
+            ConfigurationResolveReport confReport = new ConfigurationResolveReport(
+                this, md, confs[i], reportDate, options);
+            for (Iterator iter = dependencyReports.entrySet().iterator(); iter.hasNext();) {
+                Map.Entry entry = (Map.Entry) iter.next();
+                confReport.addReusedDependency(
+                    (ModuleRevisionId) entry.getKey(), (List) entry.getValue());
+            }
+            report.addReport(confs[i], confReport);
+        }
+        report.setReused();
+        if (options.getCheckIfChanged()) {
+            report.checkIfChanged();
+        }
+        Message.verbose("\treusing previous resolution of " + mrid);
+        return report;
+    }
+
     public void outputReport(
             ResolveReport report, ResolutionCacheManager cacheMgr, ResolveOptions options) 
             throws IOException {
@@ -376,28 +628,46 @@ public class ResolveEngine {
         eventManager.fireIvyEvent(new PrepareDownloadEvent((Artifact[]) report.getArtifacts()
                 .toArray(new Artifact[report.getArtifacts().size()])));
 
+        // Map (IvyNode -> DownloadReport or Throwable), null when downloading serially
+        Map downloads = null;
+        if (options.getThreads() > 1) {
+            downloads = downloadConcurrently(dependencies, artifactFilter, options);
+        }
+
         long totalSize = 0;
         for (int i = 0; i < dependencies.length; i++) {
             checkInterrupted();
             // download artifacts required in all asked configurations
-            if (!dependencies[i].isCompletelyEvicted() && !dependencies[i].hasProblem()
-                    && dependencies[i].getModuleRevision() != null) {
+            if (isArtifactsDownloadRequired(dependencies[i])) {
                 DependencyResolver resolver = dependencies[i].getModuleRevision()
                         .getArtifactResolver();
-                Artifact[] selectedArtifacts = dependencies[i].getSelectedArtifacts(artifactFilter);
-                DownloadReport dReport = resolver.download(selectedArtifacts, options);
+                DownloadReport dReport;
+                if (downloads == null) {
+                    Artifact[] selectedArtifacts = dependencies[i]
+                            .getSelectedArtifacts(artifactFilter);
+                    dReport = resolver.download(selectedArtifacts, options);
+                    reportDownloadFailures(resolver, dReport);
+                } else {
+                    Object download = downloads.get(dependencies[i]);
+                    if (download instanceof RuntimeException) {
+                        throw (RuntimeException) download;
+                    } else if (download instanceof Error) {
+                        throw (Error) download;
+                    } else if (download instanceof Throwable) {
+                        throw new RuntimeException("problem while downloading artifacts of " 
+                            + dependencies[i].getId(), (Throwable) download);
+                    } else if (download == null) {
+                        dReport = newFailedDownloadReport(
+                            dependencies[i].getSelectedArtifacts(artifactFilter));
+                        reportDownloadFailures(resolver, dReport);
+                    } else {
+                        // failures have already been reported by the downloading thread
+                        dReport = (DownloadReport) download;
+                    }
+                }
                 ArtifactDownloadReport[] adrs = dReport.getArtifactsReports();
                 for (int j = 0; j < adrs.length; j++) {
-                    if (adrs[j].getDownloadStatus() == DownloadStatus.FAILED) {
-                        if (adrs[j].getArtifact().getExtraAttribute("ivy:merged") != null) {
-                            Message.warn("\tmerged artifact not found: " + adrs[j].getArtifact()
-                                + ". It was required in " 
-                                + adrs[j].getArtifact().getExtraAttribute("ivy:merged"));
-                        } else {
-                            Message.warn("\t" + adrs[j]);
-                            resolver.reportFailure(adrs[j].getArtifact());
-                        }
-                    } else if (adrs[j].getDownloadStatus() == DownloadStatus.SUCCESSFUL) {
+                    if (adrs[j].getDownloadStatus() == DownloadStatus.SUCCESSFUL) {
                         totalSize += adrs[j].getSize();
                     }
                 }
@@ -421,6 +691,118 @@ public class ResolveEngine {
         report.setDownloadSize(totalSize);
     }
 
+    /**
+     * Reports the failed downloads of the given report. This must be called by the thread which
+     * has downloaded the artifacts, since resolvers only know the locations tried in the current
+     * thread.
+     */
+    private void reportDownloadFailures(DependencyResolver resolver, DownloadReport dReport) {
+        ArtifactDownloadReport[] adrs = dReport.getArtifactsReports();
+        for (int j = 0; j < adrs.length; j++) {
+            if (adrs[j].getDownloadStatus() == DownloadStatus.FAILED) {
+                if (adrs[j].getArtifact().getExtraAttribute("ivy:merged") != null) {
+                    Message.warn("\tmerged artifact not found: " + adrs[j].getArtifact()
+                        + ". It was required in "
+                        + adrs[j].getArtifact().getExtraAttribute("ivy:merged"));
+                } else {
+                    Message.warn("\t" + adrs[j]);
+                    resolver.reportFailure(adrs[j].getArtifact());
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns a report of the failed download of the given artifacts, used when no download
+     * result has been recorded for them.
+     */
+    private DownloadReport newFailedDownloadReport(Artifact[] artifacts) {
+        DownloadReport dReport = new DownloadReport();
+        for (int i = 0; i < artifacts.length; i++) {
+            ArtifactDownloadReport adr = new ArtifactDownloadReport(artifacts[i]);
+            adr.setDownloadStatus(DownloadStatus.FAILED);
+            adr.setDownloadDetails("no download result");
+            dReport.addArtifactReport(adr);
+        }
+        return dReport;
+    }
+
+    private boolean isArtifactsDownloadRequired(IvyNode node) {
+        return !node.isCompletelyEvicted() && !node.hasProblem()
+                && node.getModuleRevision() != null;
+    }
+
+    /**
+     * Downloads the artifacts of the given nodes concurrently, and waits until all downloads are
+     * done. Failed downloads are reported by the downloading threads, one node at a time. Reports
+     * are then updated in the calling thread, in the same order as in a serial download.
+     * 
+     * @return a Map (IvyNode -> DownloadReport or Throwable) of the download result of each
+     *         node
+     */
+    private Map downloadConcurrently(IvyNode[] dependencies, final Filter artifactFilter,
+            final DownloadOptions options) {
+        final Map downloads = Collections.synchronizedMap(new HashMap());
+        ArtifactDownloadScheduler scheduler = new ArtifactDownloadScheduler(
+            options.getThreads(), options.getThreadsPerHost());
+        try {
+            for (int i = 0; i < dependencies.length; i++) {
+                final IvyNode node = dependencies[i];
+                if (!isArtifactsDownloadRequired(node)) {
+                    continue;
+                }
+                scheduler.schedule(getDownloadHost(node), new Runnable() {
+                    public void run() {
+                        try {
+                            DependencyResolver resolver = node.getModuleRevision()
+                                    .getArtifactResolver();
+                            Artifact[] selectedArtifacts = node
+                                    .getSelectedArtifacts(artifactFilter);
+                            DownloadReport dReport = resolver.download(selectedArtifacts, options);
+                            synchronized (downloads) {
+                                // keeps the failures of a node together in the logs
+                                reportDownloadFailures(resolver, dReport);
+                            }
+                            downloads.put(node, dReport);
+                        } catch (Throwable t) {
+                            // rethrown in the resolve thread, errors included
+                            downloads.put(node, t);
+                        }
+                    }
+                });
+            }
+            scheduler.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("interrupted while downloading artifacts", e);
+        } finally {
+            scheduler.shutdown();
+        }
+        return downloads;
+    }
+
+    /**
+     * Returns the host from which the artifacts of the given node are expected to be downloaded,
+     * based on the location of its module descriptor. The name of the artifact resolver is used
+     * when this location is not a remote url.
+     */
+    private String getDownloadHost(IvyNode node) {
+        ResolvedModuleRevision rmr = node.getModuleRevision();
+        ArtifactOrigin origin = rmr.getReport() == null ? null : rmr.getReport()
+                .getArtifactOrigin();
+        if (origin != null && !origin.isLocal() && !ArtifactOrigin.isUnknown(origin)) {
+            try {
+                String host = new URL(origin.getLocation()).getHost();
+                if (host != null && host.length() > 0) {
+                    return host;
+                }
+            } catch (MalformedURLException e) {
+                // not an url, use resolver name
+            }
+        }
+        return rmr.getArtifactResolver().getName();
+    }
+
     /**
      * Download an artifact to the cache. Not used internally, useful especially for IDE plugins
      * needing to download artifact one by one (for source or javadoc artifact, for instance).
@@ -554,6 +936,7 @@ public class ResolveEngine {
         }
 
         IvyContext context = IvyContext.pushNewCopyContext();
+        ParallelDependencyLoader parallelLoader = null;
         try {
             options.setConfs(confs);
     
@@ -564,6 +947,15 @@ public class ResolveEngine {
                 context.setResolveData(data);
             }
             IvyNode rootNode = new IvyNode(data, md);
+            restarts = 0;
+            avoidedRestarts = 0;
+            if ((options.isParallel() || options.isPrefetch())
+                    && data.getParallelLoader() == null) {
+                Message.verbose("\t" + (options.isParallel() ? "parallel" : "prefetch")
+                    + " resolve using " + options.getParallelThreads() + " threads");
+                parallelLoader = new ParallelDependencyLoader(options.getParallelThreads());
+                data.setParallelLoader(parallelLoader);
+            }
             
             for (int i = 0; i < confs.length; i++) {
                 Message.verbose("resolving dependencies for configuration '" + confs[i] + "'");
@@ -598,7 +990,9 @@ public class ResolveEngine {
                         Message.verbose("=           RESTARTING RESOLVE PROCESS");
                         Message.verbose("= " + restart.getMessage());
                         Message.verbose("====================================================");
+                        restarts++;
                         fetchedSet.clear();
+                        clearParallelLoader(data);
                     }
                 }
 
@@ -622,14 +1016,45 @@ public class ResolveEngine {
             List sortedDependencies = sortEngine.sortNodes(dependencies, SortOptions.SILENT);
             Collections.reverse(sortedDependencies);
     
-            handleTransiviteEviction(md, confs, data, sortedDependencies);    
+            long start = System.currentTimeMillis();
+            handleTransiviteEviction(md, confs, data, sortedDependencies);
+            eventManager.fireIvyEvent(new EndTransitiveEvictionEvent(md, confs, 
+                System.currentTimeMillis() - start));
             
+            if (restarts > 0 || avoidedRestarts > 0) {
+                Message.verbose("\tresolve process restarted " + restarts + " times, "
+                    + avoidedRestarts + " restarts avoided");
+            }
+            if (report != null) {
+                report.setRestartStatistics(restarts, avoidedRestarts);
+            }
+            if (parallelLoader != null) {
+                parallelLoader.shutdown();
+                Message.verbose("\tloaded module revisions: " + parallelLoader.getHits()
+                    + " hits, " + parallelLoader.getMisses() + " misses, "
+                    + parallelLoader.getUnused() + " unused");
+                if (report != null) {
+                    report.setLoadStatistics(parallelLoader.getHits(), 
+                        parallelLoader.getMisses(), parallelLoader.getUnused());
+                }
+            }
+
             return (IvyNode[]) dependencies.toArray(new IvyNode[dependencies.size()]);
         } finally {
+            if (parallelLoader != null) {
+                parallelLoader.shutdown();
+                context.getResolveData().setParallelLoader(null);
+            }
             IvyContext.popContext();
         }
     }
 
+    private void clearParallelLoader(ResolveData data) {
+        if (data.getParallelLoader() != null) {
+            data.getParallelLoader().clear();
+        }
+    }
+
     private void handleTransiviteEviction(
             ModuleDescriptor md, String[] confs, ResolveData data, List sortedDependencies) {
         // handle transitive eviction now:
@@ -712,6 +1137,9 @@ public class ResolveEngine {
         }
 
         if (node.loadData(conf, shouldBePublic)) {
+            if (data.getOptions().isPrefetch() && data.getParallelLoader() != null) {
+                data.getParallelLoader().prefetch(data, node.getNode());
+            }
             // we resolve conflict again now that we have all information loaded
             // indeed in some cases conflict manager need more information than just asked
             // dependency to take the decision
@@ -788,31 +1216,23 @@ public class ResolveEngine {
         }
 
         // now we can actually resolve this configuration dependencies
-        if (!isDependenciesFetched(node.getNode(), conf) && node.isTransitive()) {
-            Collection/*<VisitNode>*/ dependencies = node.getDependencies(conf);
-            for (Iterator iter = dependencies.iterator(); iter.hasNext();) {
-                VisitNode dep = (VisitNode) iter.next();
-                dep.useRealNode(); // the node may have been resolved to another real one while
-                // resolving other deps
-                String[] confs = dep.getRequiredConfigurations(node, conf);
-                for (int i = 0; i < confs.length; i++) {
-                    fetchDependencies(dep, confs[i], true);
-                }
-                if (!dep.isEvicted() && !dep.hasProblem()) {
-                    // if there are still confs to fetch (usually because they have
-                    // been updated when evicting another module), we fetch them now
-                    confs = dep.getConfsToFetch();
-                    for (int i = 0; i < confs.length; i++) {
-                        //shouldBeFixed=false to because some of those dependencies might
-                        //be private when they were actually extending public conf.
-                        //Should we keep two list of confs to fetch (private&public)?
-                        //I don't think, visibility is already checked, and a change in the 
-                        //configuration between version might anyway have worse problems.
-                        fetchDependencies(dep, confs[i], false);
-                    }
+        while (!isDependenciesFetched(node.getNode(), conf) && node.isTransitive()) {
+            try {
+                doFetchDirectDependencies(node, conf);
+            } catch (RestartResolveProcess restart) {
+                if (node.getParent() == null || restart.getRestartNode() != node.getNode()) {
+                    throw restart;
                 }
+                // only the dependencies of this node are affected, we visit them again
+                Message.verbose("====================================================");
+                Message.verbose("=           RESTARTING RESOLVE PROCESS FROM " + node.getId());
+                Message.verbose("= " + restart.getMessage());
+                Message.verbose("====================================================");
+                avoidedRestarts++;
+                fetchedSet.clear();
+                clearParallelLoader(node.getNode().getData());
+                node.getNode().getData().setCurrentVisitNode(node);
             }
-            markDependenciesFetched(node.getNode(), conf);
         }
         // we have finiched with this configuration, if it was the original requested conf
         // we can clean it now
@@ -822,6 +1242,37 @@ public class ResolveEngine {
 
     }
 
+    private void doFetchDirectDependencies(VisitNode node, String conf) {
+        Collection/*<VisitNode>*/ dependencies = node.getDependencies(conf);
+        ParallelDependencyLoader parallelLoader = node.getNode().getData().getParallelLoader();
+        if (parallelLoader != null) {
+            parallelLoader.load(node.getNode().getData(), node, dependencies);
+        }
+        for (Iterator iter = dependencies.iterator(); iter.hasNext();) {
+            VisitNode dep = (VisitNode) iter.next();
+            dep.useRealNode(); // the node may have been resolved to another real one while
+            // resolving other deps
+            String[] confs = dep.getRequiredConfigurations(node, conf);
+            for (int i = 0; i < confs.length; i++) {
+                fetchDependencies(dep, confs[i], true);
+            }
+            if (!dep.isEvicted() && !dep.hasProblem()) {
+                // if there are still confs to fetch (usually because they have
+                // been updated when evicting another module), we fetch them now
+                confs = dep.getConfsToFetch();
+                for (int i = 0; i < confs.length; i++) {
+                    //shouldBeFixed=false to because some of those dependencies might
+                    //be private when they were actually extending public conf.
+                    //Should we keep two list of confs to fetch (private&public)?
+                    //I don't think, visibility is already checked, and a change in the 
+                    //configuration between version might anyway have worse problems.
+                    fetchDependencies(dep, confs[i], false);
+                }
+            }
+        }
+        markDependenciesFetched(node.getNode(), conf);
+    }
+
     /**
      * Returns true if we've already fetched the dependencies for this node and configuration
      * 
@@ -1034,7 +1485,14 @@ public class ResolveEngine {
                         + conflicts);
             }
 
-            return conflictManager.resolveConflicts(ancestor.getNode(), conflicts);
+            long start = System.currentTimeMillis();
+            try {
+                return conflictManager.resolveConflicts(ancestor.getNode(), conflicts);
+            } finally {
+                eventManager.fireIvyEvent(new EndConflictResolutionEvent(conflictManager, 
+                    ancestor.getNode().getId(), node.getModuleId(), node.getRootModuleConf(),
+                    conflicts.size(), System.currentTimeMillis() - start));
+            }
         }
     }
 
@@ -1112,7 +1570,7 @@ public class ResolveEngine {
     }
 
     private boolean checkConflictSolvedSelected(VisitNode node, VisitNode ancestor) {
-        if (ancestor.getResolvedRevisions(node.getModuleId()).contains(node.getResolvedId())) {
+        if (ancestor.isResolvedRevision(node.getModuleId(), node.getResolvedId())) {
             // resolve conflict has already be done with node with the same id
             if (settings.debugConflictResolution()) {
                 Message.debug("conflict resolution already done for " + node + " in " + ancestor);
@@ -1123,7 +1581,7 @@ public class ResolveEngine {
     }
 
     private boolean checkConflictSolvedEvicted(VisitNode node, VisitNode ancestor) {
-        if (ancestor.getEvictedRevisions(node.getModuleId()).contains(node.getResolvedId())) {
+        if (ancestor.isEvictedRevision(node.getModuleId(), node.getResolvedId())) {
             // resolve conflict has already be done with node with the same id
             if (settings.debugConflictResolution()) {
                 Message.debug("conflict resolution already done for " + node + " in " + ancestor);
@@ -0,0 +1,278 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.core.resolve;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Properties;
+import java.util.TreeSet;
+
+import org.apache.ivy.core.cache.DefaultRepositoryCacheManager;
+import org.apache.ivy.core.cache.RepositoryCacheManager;
+import org.apache.ivy.core.module.descriptor.DependencyDescriptor;
+import org.apache.ivy.core.module.descriptor.ModuleDescriptor;
+import org.apache.ivy.core.settings.IvySettings;
+import org.apache.ivy.plugins.parser.xml.XmlModuleDescriptorWriter;
+import org.apache.ivy.plugins.resolver.AbstractPatternsBasedResolver;
+import org.apache.ivy.plugins.resolver.ChainResolver;
+import org.apache.ivy.plugins.resolver.DependencyResolver;
+import org.apache.ivy.plugins.resolver.DualResolver;
+import org.apache.ivy.util.ChecksumHelper;
+import org.apache.ivy.util.Message;
+import org.apache.ivy.util.filter.ArtifactTypeFilter;
+import org.apache.ivy.util.filter.FilterHelper;
+
+/**
+ * Fingerprint of the inputs of a resolve: the module descriptor to resolve, the dependency
+ * resolvers defined in the settings and the resolve options.
+ * <p>
+ * When a module is resolved again with the same fingerprint, and no dynamic revision found by
+ * the previous resolve has expired its time to live in cache, the previous resolution can be
+ * reused as is. Resolutions including changing modules, or modules whose modification is
+ * always checked, are never reused.
+ * </p>
+ *
+ * @see ResolveOptions#isReuseResolution()
+ */
+final class ResolveFingerprint {
+    private static final String FINGERPRINT = "fingerprint";
+
+    private static final String EXPIRATION = "expiration";
+
+    private ResolveFingerprint() {
+    }
+
+    /**
+     * Computes the fingerprint of a resolve.
+     *
+     * @return the fingerprint, or <code>null</code> if the inputs of this resolve can't be
+     *         fingerprinted, in which case its result can't be reused
+     */
+    static String compute(ModuleDescriptor md, ResolveEngineSettings settings,
+            ResolveOptions options) throws IOException {
+        if (!(settings instanceof IvySettings)) {
+            return null;
+        }
+        String filter;
+        if (options.getArtifactFilter() == null
+                || options.getArtifactFilter() == FilterHelper.NO_FILTER) {
+            filter = "*";
+        } else if (options.getArtifactFilter() instanceof ArtifactTypeFilter) {
+            filter = options.getArtifactFilter().toString();
+        } else {
+            // we don't know what the filter accepts
+            return null;
+        }
+
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            return null;
+        }
+        update(digest, "options");
+        update(digest, options.getResolveId());
+        update(digest, Arrays.asList(options.getConfs()).toString());
+        update(digest, options.getRevision());
+        update(digest, options.getDate() == null ? null : String.valueOf(options.getDate()
+                .getTime()));
+        update(digest, options.getResolveMode());
+        update(digest, String.valueOf(options.isTransitive()));
+        update(digest, String.valueOf(options.isValidate()));
+        update(digest, String.valueOf(options.isUseCacheOnly()));
+        update(digest, String.valueOf(options.isDownload()));
+        update(digest, filter);
+
+        update(digest, "settings");
+        IvySettings ivySettings = (IvySettings) settings;
+        DependencyResolver defaultResolver = ivySettings.getDefaultResolver();
+        update(digest, defaultResolver == null ? null : defaultResolver.getName());
+        update(digest, String.valueOf(ivySettings.getDefaultConflictManager()));
+        for (Iterator iter = new TreeSet(ivySettings.getResolverNames()).iterator();
+                iter.hasNext();) {
+            String name = (String) iter.next();
+            updateResolver(digest, ivySettings.getResolver(name));
+        }
+
+        update(digest, "module");
+        updateModuleDescriptor(digest, md);
+
+        return ChecksumHelper.byteArrayToHexString(digest.digest());
+    }
+
+    /**
+     * Returns the time until which a resolution giving the given dependencies can be reused,
+     * which is the earliest time at which one of its dynamic revisions expires in cache. A
+     * resolution with a module revision which is always checked against its repository, because
+     * it is changing or because modified modules are checked, expires immediately.
+     *
+     * @return the expiration time, or {@link Long#MAX_VALUE} if the resolution never expires
+     */
+    static long computeExpiration(IvyNode[] dependencies, ResolveData data) {
+        long now = System.currentTimeMillis();
+        long expiration = Long.MAX_VALUE;
+        for (int i = 0; i < dependencies.length; i++) {
+            IvyNode node = dependencies[i];
+            if (node.hasProblem() || node.getModuleRevision() == null) {
+                continue;
+            }
+            DependencyResolver resolver = node.getModuleRevision().getResolver();
+            if (isAlwaysChecked(node, resolver, data)) {
+                return now;
+            }
+            if (data.getSettings().getVersionMatcher().isDynamic(node.getId())) {
+                long ttl = 0;
+                RepositoryCacheManager cacheManager = resolver.getRepositoryCacheManager();
+                if (cacheManager instanceof DefaultRepositoryCacheManager) {
+                    ttl = ((DefaultRepositoryCacheManager) cacheManager).getTTL(node.getId());
+                }
+                expiration = Math.min(expiration, now + ttl);
+            }
+        }
+        return expiration;
+    }
+
+    /**
+     * Returns <code>true</code> if the given fingerprint file contains the given fingerprint,
+     * and has not expired.
+     */
+    static boolean isUpToDate(File fingerprintFile, String fingerprint) {
+        if (fingerprint == null || !fingerprintFile.exists()) {
+            return false;
+        }
+        Properties props = new Properties();
+        try {
+            InputStream in = new FileInputStream(fingerprintFile);
+            try {
+                props.load(in);
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            Message.verbose("impossible to read resolve fingerprint " + fingerprintFile + ": " + e);
+            return false;
+        }
+        if (!fingerprint.equals(props.getProperty(FINGERPRINT))) {
+            return false;
+        }
+        String expiration = props.getProperty(EXPIRATION);
+        try {
+            return expiration == null
+                || System.currentTimeMillis() < Long.parseLong(expiration);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    static void save(File fingerprintFile, String fingerprint, long expiration)
+            throws IOException {
+        Properties props = new Properties();
+        props.setProperty(FINGERPRINT, fingerprint);
+        if (expiration != Long.MAX_VALUE) {
+            props.setProperty(EXPIRATION, String.valueOf(expiration));
+        }
+        OutputStream out = new FileOutputStream(fingerprintFile);
+        try {
+            props.store(out, "resolve fingerprint");
+        } finally {
+            out.close();
+        }
+    }
+
+    private static boolean isAlwaysChecked(IvyNode node, DependencyResolver resolver,
+            ResolveData data) {
+        IvyNodeCallers.Caller[] callers = node.getAllCallers();
+        for (int i = 0; i < callers.length; i++) {
+            DependencyDescriptor dd = callers[i].getDependencyDescriptor();
+            if (dd != null && IncrementalResolution.isAlwaysChecked(resolver, dd, data)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void updateModuleDescriptor(MessageDigest digest, ModuleDescriptor md)
+            throws IOException {
+        File tmp = File.createTempFile("ivy", ".xml");
+        try {
+            XmlModuleDescriptorWriter.write(md, tmp);
+            BufferedReader reader = new BufferedReader(new FileReader(tmp));
+            try {
+                String line = reader.readLine();
+                while (line != null) {
+                    // the publication date of a module being resolved usually changes between
+                    // two resolves without changing its dependencies
+                    if (!line.trim().startsWith("publication=")) {
+                        update(digest, line);
+                    }
+                    line = reader.readLine();
+                }
+            } finally {
+                reader.close();
+            }
+        } finally {
+            tmp.delete();
+        }
+    }
+
+    private static void updateResolver(MessageDigest digest, DependencyResolver resolver) {
+        if (resolver == null) {
+            update(digest, null);
+            return;
+        }
+        update(digest, resolver.getClass().getName());
+        update(digest, resolver.getName());
+        if (resolver instanceof AbstractPatternsBasedResolver) {
+            AbstractPatternsBasedResolver patternsResolver =
+                (AbstractPatternsBasedResolver) resolver;
+            update(digest, String.valueOf(patternsResolver.isM2compatible()));
+            update(digest, String.valueOf(patternsResolver.getIvyPatterns()));
+            update(digest, String.valueOf(patternsResolver.getArtifactPatterns()));
+        } else if (resolver instanceof ChainResolver) {
+            List resolvers = ((ChainResolver) resolver).getResolvers();
+            for (Iterator iter = resolvers.iterator(); iter.hasNext();) {
+                update(digest, ((DependencyResolver) iter.next()).getName());
+            }
+        } else if (resolver instanceof DualResolver) {
+            DualResolver dual = (DualResolver) resolver;
+            updateResolver(digest, dual.getIvyResolver());
+            updateResolver(digest, dual.getArtifactResolver());
+        }
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        try {
+            digest.update(String.valueOf(value).getBytes("UTF-8"));
+        } catch (IOException e) {
+            // UTF-8 is always supported
+            throw new RuntimeException(e);
+        }
+        digest.update((byte) 0);
+    }
+}
@@ -47,6 +47,11 @@ public class ResolveOptions extends LogOptions {
     public static final String[] RESOLVEMODES = 
         new String[] {RESOLVEMODE_DEFAULT, RESOLVEMODE_DYNAMIC};
 
+    /**
+     * Default number of threads used to load module descriptors in parallel resolve mode.
+     */
+    public static final int DEFAULT_PARALLEL_THREADS = 4;
+
     /**
      * an array of configuration names to resolve - must not be null nor empty
      */
@@ -118,6 +123,46 @@ public class ResolveOptions extends LogOptions {
      **/  
     private boolean checkIfChanged = false;
 
+    /**
+     * True if the module descriptors of sibling dependencies should be loaded concurrently during
+     * the dependency graph traversal, false if they should be loaded one after the other.
+     */
+    private boolean parallel = false;
+
+    /**
+     * True if the module descriptors of the dependencies of a module should be prefetched in the
+     * background as soon as the module descriptor is loaded, false otherwise.
+     */
+    private boolean prefetch = false;
+
+    /**
+     * The maximum number of module descriptors loaded at the same time when {@link #parallel} or
+     * {@link #prefetch} is true.
+     */
+    private int parallelThreads = DEFAULT_PARALLEL_THREADS;
+
+    /**
+     * The maximum number of artifacts downloaded at the same time.
+     */
+    private int downloadThreads = 1;
+
+    /**
+     * The maximum number of artifacts downloaded at the same time from one host.
+     */
+    private int downloadThreadsPerHost = DownloadOptions.DEFAULT_THREADS_PER_HOST;
+
+    /**
+     * True if the previous resolution of the module should be reused when the inputs of the
+     * resolve haven't changed since then.
+     */
+    private boolean reuseResolution = false;
+
+    /**
+     * True if the module revisions loaded by the previous resolve of the module should be reused
+     * for the dependencies which haven't changed since then.
+     */
+    private boolean incremental = false;
+
     public ResolveOptions() {
     }
 
@@ -136,6 +181,13 @@ public class ResolveOptions extends LogOptions {
         artifactFilter = options.artifactFilter;
         resolveId = options.resolveId;
         checkIfChanged = options.checkIfChanged;
+        parallel = options.parallel;
+        prefetch = options.prefetch;
+        parallelThreads = options.parallelThreads;
+        downloadThreads = options.downloadThreads;
+        downloadThreadsPerHost = options.downloadThreadsPerHost;
+        reuseResolution = options.reuseResolution;
+        incremental = options.incremental;
     }
 
     public Filter getArtifactFilter() {
@@ -296,6 +348,111 @@ public class ResolveOptions extends LogOptions {
         return checkIfChanged;
     }
 
+    /**
+     * Indicates if the module descriptors of the dependencies of a node should be loaded
+     * concurrently. Conflict resolution and eviction are still done in the resolving thread, so
+     * the produced report is the same as in serial mode.
+     * 
+     * @return true if the dependency graph should be resolved in parallel mode
+     */
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    public ResolveOptions setParallel(boolean parallel) {
+        this.parallel = parallel;
+        return this;
+    }
+
+    /**
+     * Indicates if the module descriptors of the dependencies of a module should be looked up in
+     * the background as soon as this module has been loaded, so that they are usually already
+     * available when the dependency graph traversal reaches them.
+     * 
+     * @return true if the dependencies should be prefetched
+     */
+    public boolean isPrefetch() {
+        return prefetch;
+    }
+
+    public ResolveOptions setPrefetch(boolean prefetch) {
+        this.prefetch = prefetch;
+        return this;
+    }
+
+    /**
+     * Indicates if the previous resolution of the module should be reused without visiting the
+     * dependency graph again, when the module descriptor, the dependency resolvers of the settings
+     * and the resolve options are the same as for the previous resolve, and no dynamic or changing
+     * revision it found has expired its time to live in cache.
+     * <p>
+     * A reused resolution is rebuilt from the configuration reports of the previous resolve, so it
+     * can only be reused when these reports have been output in the resolution cache.
+     * </p>
+     * 
+     * @return true if the previous resolution should be reused when possible
+     * @see org.apache.ivy.core.report.ResolveReport#isReused()
+     */
+    public boolean isReuseResolution() {
+        return reuseResolution;
+    }
+
+    public ResolveOptions setReuseResolution(boolean reuseResolution) {
+        this.reuseResolution = reuseResolution;
+        return this;
+    }
+
+    /**
+     * Indicates if the resolve should be incremental: the module descriptor is compared with the
+     * one resolved by the previous incremental resolve of the same module with the same engine,
+     * and only the module revisions reachable from its added, removed or changed dependencies are
+     * asked to the dependency resolvers. The other module revisions loaded by the previous resolve
+     * are reused, and the dependency graph is traversed again in memory, so the produced report is
+     * the same as with a full resolve.
+     * 
+     * @return true if the resolve should be incremental
+     */
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    public ResolveOptions setIncremental(boolean incremental) {
+        this.incremental = incremental;
+        return this;
+    }
+
+    public int getParallelThreads() {
+        return parallelThreads;
+    }
+
+    public ResolveOptions setParallelThreads(int parallelThreads) {
+        this.parallelThreads = parallelThreads;
+        return this;
+    }
+
+    /**
+     * Returns the maximum number of artifacts downloaded at the same time when
+     * {@link #isDownload()} is true. Artifacts are downloaded one after the other when lower than
+     * 2.
+     */
+    public int getDownloadThreads() {
+        return downloadThreads;
+    }
+
+    public ResolveOptions setDownloadThreads(int downloadThreads) {
+        this.downloadThreads = downloadThreads;
+        return this;
+    }
+
+    public int getDownloadThreadsPerHost() {
+        return downloadThreadsPerHost;
+    }
+
+    public ResolveOptions setDownloadThreadsPerHost(int downloadThreadsPerHost) {
+        this.downloadThreadsPerHost = downloadThreadsPerHost;
+        return this;
+    }
+
 
     public static String getDefaultResolveId(ModuleDescriptor md) {
         ModuleId module = md.getModuleRevisionId().getModuleId();
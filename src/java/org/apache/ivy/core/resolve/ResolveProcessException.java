@@ -25,7 +25,8 @@ package org.apache.ivy.core.resolve;
  * continuing the resolve process as part of the best effort strategy during resolve process.
  * </p>
  * Some subclasses have even a stronger power over the resolve process, like
- * {@link RestartResolveProcess} which orders to restart the resolve process at the start.
+ * {@link RestartResolveProcess} which orders to restart the resolve process at the start, or from
+ * a given node.
  */
 public class ResolveProcessException extends RuntimeException {
 
@@ -21,14 +21,43 @@ package org.apache.ivy.core.resolve;
  * This RuntimeException is used during the resolve process to ask the engine to restart the resolve
  * process.
  * <p>
+ * When a restart node is given, the engine only visits again the dependencies of the closest
+ * visited occurrence of this node, instead of restarting the whole resolve process. This is
+ * enough when the restart is caused by something which can only change the dependency graph
+ * below this node, like the blacklisting of some of its descendants.
+ * </p>
+ * <p>
  * Users of this feature should be very careful to make sure they handle a termination condition,
  * since the resolve engine itself won't check the same exception is not thrown ad libitum
  * </p>
  */
 public class RestartResolveProcess extends ResolveProcessException {
+    private final IvyNode restartNode;
 
     public RestartResolveProcess(String message) {
+        this(message, null);
+    }
+
+    /**
+     * @param message
+     *            the reason of the restart
+     * @param restartNode
+     *            the node whose dependencies should be visited again, or <code>null</code> to
+     *            restart the whole resolve process
+     */
+    public RestartResolveProcess(String message, IvyNode restartNode) {
         super(message);
+        this.restartNode = restartNode;
+    }
+
+    /**
+     * Returns the node whose dependencies should be visited again, or <code>null</code> if the
+     * whole resolve process should be restarted.
+     * 
+     * @return the node from which the resolve process should be restarted
+     */
+    public IvyNode getRestartNode() {
+        return restartNode;
     }
 
 }
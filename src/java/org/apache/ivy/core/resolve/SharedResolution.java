@@ -0,0 +1,90 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.core.resolve;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.ivy.core.module.descriptor.DependencyDescriptor;
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.plugins.resolver.DependencyResolver;
+
+/**
+ * Keeps the module revisions loaded while resolving a batch of root modules, so that the
+ * resolves of the other roots of the batch can use them without asking the dependency resolvers
+ * again.
+ * <p>
+ * Only the module revisions are shared: each root still builds its own dependency graph, with its
+ * own conflict resolution and eviction, and gets its own report.
+ * </p>
+ *
+ * @see ResolveEngine#resolve(java.util.Collection, ResolveOptions)
+ */
+final class SharedResolution {
+    // Map (ModuleRevisionId requested -> Object[] {DependencyResolver, ResolvedModuleRevision})
+    private final Map loaded = Collections.synchronizedMap(new HashMap());
+
+    private int shared = 0;
+
+    /**
+     * Returns <code>true</code> if the module revision requested with the given id has already
+     * been loaded in this batch.
+     */
+    boolean isShared(ModuleRevisionId mrid) {
+        return loaded.containsKey(mrid);
+    }
+
+    /**
+     * Returns the module revision loaded in this batch by the given resolver for the given
+     * dependency descriptor, or <code>null</code> if there is none.
+     */
+    ResolvedModuleRevision getShared(DependencyResolver resolver, DependencyDescriptor dd,
+            ResolveData data) {
+        Object[] revision = (Object[]) loaded.get(dd.getDependencyRevisionId());
+        if (revision == null || revision[0] != resolver) {
+            return null;
+        }
+        ResolvedModuleRevision rmr = (ResolvedModuleRevision) revision[1];
+        if (data.getReport() != null
+                && data.isBlacklisted(data.getReport().getConfiguration(), rmr.getId())) {
+            return null;
+        }
+        synchronized (this) {
+            shared++;
+        }
+        return IncrementalResolution.reuse(rmr);
+    }
+
+    /**
+     * Records the module revision loaded by the given resolver for the given dependency
+     * descriptor, so that the resolves of the other roots can use it.
+     */
+    void loaded(DependencyResolver resolver, DependencyDescriptor dd, ResolvedModuleRevision rmr) {
+        if (rmr != null) {
+            loaded.put(dd.getDependencyRevisionId(), new Object[] {resolver, rmr});
+        }
+    }
+
+    /**
+     * Returns the number of times a module revision has been shared between roots.
+     */
+    synchronized int getShared() {
+        return shared;
+    }
+}
@@ -463,6 +463,10 @@ public class VisitNode {
         return node.getResolvedRevisions(mid, rootModuleConf);
     }
 
+    boolean isResolvedRevision(ModuleId mid, ModuleRevisionId mrid) {
+        return node.isResolvedRevision(mid, rootModuleConf, mrid);
+    }
+
     public void markEvicted(EvictionData evictionData) {
         node.markEvicted(evictionData);
     }
@@ -498,6 +502,10 @@ public class VisitNode {
         return node.getEvictedRevisions(moduleId, rootModuleConf);
     }
 
+    boolean isEvictedRevision(ModuleId moduleId, ModuleRevisionId mrid) {
+        return node.isEvictedRevision(moduleId, rootModuleConf, mrid);
+    }
+
     // public void setRootModuleConf(String rootModuleConf) {
     // if (rootModuleConf != null && !rootModuleConf.equals(rootModuleConf)) {
     // _confsToFetch.clear(); // we change of root module conf => we discard all confs to fetch
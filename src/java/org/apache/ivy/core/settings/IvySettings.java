@@ -75,6 +75,7 @@ import org.apache.ivy.plugins.latest.LatestRevisionStrategy;
 import org.apache.ivy.plugins.latest.LatestStrategy;
 import org.apache.ivy.plugins.latest.LatestTimeStrategy;
 import org.apache.ivy.plugins.lock.ArtifactLockStrategy;
+import org.apache.ivy.plugins.lock.FileBasedLockStrategy;
 import org.apache.ivy.plugins.lock.LockStrategy;
 import org.apache.ivy.plugins.lock.NoLockStrategy;
 import org.apache.ivy.plugins.matcher.ExactOrRegexpPatternMatcher;
@@ -257,6 +258,10 @@ public class IvySettings implements SortEngineSettings, PublishEngineSettings, P
 
         addLockStrategy("no-lock", new NoLockStrategy());
         addLockStrategy("artifact-lock", new ArtifactLockStrategy(debugLocking()));
+        ArtifactLockStrategy nioLockStrategy = new ArtifactLockStrategy(
+            new FileBasedLockStrategy.NIOFileLocker(debugLocking()), debugLocking());
+        nioLockStrategy.setName("artifact-lock-nio");
+        addLockStrategy("artifact-lock-nio", nioLockStrategy);
 
         addConflictManager("latest-revision", new LatestConflictManager("latest-revision",
             latestRevisionStrategy));
@@ -134,7 +134,7 @@ public class LatestCompatibleConflictManager extends LatestConflictManager {
      *      else
      *         recurse for all callers
      *   if a version constraint has been found
-     *     restart resolve
+     *     restart resolve from parent
      *   else
      *     throw strict conflict exception
      * </pre>
@@ -190,9 +190,17 @@ public class LatestCompatibleConflictManager extends LatestConflictManager {
         final Collection toBlacklist = blackListIncompatibleCaller(
             settings.getVersionMatcher(), parent, selected, evicted, callerStack); 
         if (toBlacklist != null) {
+            String rootModuleConf = 
+                parent.getData().getReport().getConfiguration();
+            // if all the paths to the blacklisted nodes go through the parent, visiting the
+            // dependencies of the parent again is enough to find other revisions
+            boolean local = parent.getRoot() != parent;
             final StringBuffer blacklisted = new StringBuffer();
             for (Iterator iterator = toBlacklist.iterator(); iterator.hasNext();) {
                 IvyNodeBlacklist blacklist = (IvyNodeBlacklist) iterator.next();
+                local = local && blacklist.getBlacklistedNode() != parent
+                    && isDominatedBy(blacklist.getBlacklistedNode(), parent, rootModuleConf,
+                        new HashSet());
                 blacklist.getBlacklistedNode().blacklist(blacklist);
                 blacklisted.append(blacklist.getBlacklistedNode());
                 if (iterator.hasNext()) {
@@ -200,8 +208,6 @@ public class LatestCompatibleConflictManager extends LatestConflictManager {
                 }
             }
 
-            String rootModuleConf = 
-                parent.getData().getReport().getConfiguration();
             evicted.markEvicted(
                 new EvictionData(rootModuleConf, parent, this, Collections.singleton(selected), 
                     "with blacklisting of " + blacklisted));
@@ -211,8 +217,35 @@ public class LatestCompatibleConflictManager extends LatestConflictManager {
                     + evicted.getEvictedData(rootModuleConf));
             }
             throw new RestartResolveProcess("trying to handle incompatibilities between "
-                + selected + " and " + evicted);
+                + selected + " and " + evicted, local ? parent : null);
+        }
+    }
+
+    /**
+     * Returns <code>true</code> if all the paths from the root to the given node in the given
+     * root module configuration go through the given dominator.
+     */
+    private boolean isDominatedBy(IvyNode node, IvyNode dominator, String rootModuleConf,
+            Collection/*<IvyNode>*/ visited) {
+        if (node == dominator) {
+            return true;
+        }
+        if (node.getRoot() == node) {
+            return false;
+        }
+        if (!visited.add(node)) {
+            // circular dependency, this path doesn't come from the root
+            return true;
+        }
+        Caller[] callers = node.getCallers(rootModuleConf);
+        for (int i = 0; i < callers.length; i++) {
+            IvyNode callerNode = node.findNode(callers[i].getModuleRevisionId());
+            if (callerNode == null
+                    || !isDominatedBy(callerNode, dominator, rootModuleConf, visited)) {
+                return false;
+            }
         }
+        return callers.length > 0;
     }
 
     private boolean handleIncompatibleCaller(Stack callerStack, IvyNode node, IvyNode callerNode,
@@ -31,6 +31,11 @@ public class ArtifactLockStrategy extends FileBasedLockStrategy {
         init();
     }
 
+    public ArtifactLockStrategy(FileLocker locker, boolean debugLocking) {
+        super(locker, debugLocking);
+        init();
+    }
+
     private void init() {
         setName("artifact-lock");
     }
@@ -20,18 +20,23 @@ package org.apache.ivy.plugins.lock;
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
-import java.nio.channels.FileChannel;
 import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.ivy.util.Message;
 
 public abstract class FileBasedLockStrategy extends AbstractLockStrategy {
-    private static final int SLEEP_TIME = 100;
+    private static final int MIN_SLEEP_TIME = 10;
+
+    private static final int MAX_SLEEP_TIME = 200;
 
     private static final long DEFAULT_TIMEOUT = 2 * 60 * 1000;
 
+    private static final int STRIPES = 16;
+
     /**
      * The locker to use to make file lock attempts.
      * <p>
@@ -43,7 +48,22 @@ public abstract class FileBasedLockStrategy extends AbstractLockStrategy {
     
     private long timeout = DEFAULT_TIMEOUT;
     
-    private Map/*<File, Integer>*/ currentLockCounters = new HashMap();
+    /**
+     * The locks held in this vm, spread over several stripes to reduce contention. Each stripe
+     * is a Map (File -> LockHolder), used as monitor to access it, and notified when one of its
+     * locks is released.
+     */
+    private final Map/*<File, LockHolder>*/[] stripes = new Map[STRIPES];
+
+    private final AtomicLong lockCount = new AtomicLong();
+
+    private final AtomicLong contendedLockCount = new AtomicLong();
+
+    private final AtomicLong failedLockCount = new AtomicLong();
+
+    private final AtomicLong totalWaitTime = new AtomicLong();
+
+    private final AtomicLong maxWaitTime = new AtomicLong();
     
     protected FileBasedLockStrategy() {
         this(new CreateFileLocker(false), false);
@@ -56,78 +76,188 @@ public abstract class FileBasedLockStrategy extends AbstractLockStrategy {
     protected FileBasedLockStrategy(FileLocker locker, boolean debugLocking) {
         super(debugLocking);
         this.locker = locker;
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new HashMap();
+        }
     }
 
-        
+    /**
+     * Acquires the lock on the given file for the current thread. The lock is reentrant: a thread
+     * holding it can acquire it again, and must release it as many times.
+     * <p>
+     * While the lock is held by another thread of this vm, the current thread waits for its
+     * release. While it is held by another process, the lock is tried again after a delay
+     * growing from 10 to 200ms. In both cases the current thread gives up after the timeout of
+     * this strategy.
+     * </p>
+     * 
+     * @return true if the lock has been acquired, false if the timeout has been reached
+     */
     protected boolean acquireLock(File file) throws InterruptedException {
         if (isDebugLocking()) {
             debugLocking("acquiring lock on " + file);
         }
+        Thread currentThread = Thread.currentThread();
+        Map stripe = getStripe(file);
         long start = System.currentTimeMillis();
+        long sleep = MIN_SLEEP_TIME;
+        boolean contended = false;
+        long remaining;
         do {
-            synchronized (this) {
-                if (hasLock(file)) {
-                    int holdLocks = incrementLock(file);
+            synchronized (stripe) {
+                LockHolder holder = (LockHolder) stripe.get(file);
+                if (holder == null) {
+                    if (locker.tryLock(file)) {
+                        stripe.put(file, new LockHolder(currentThread));
+                        long waitTime = recordLock(start, contended);
+                        if (isDebugLocking()) {
+                            debugLocking("lock acquired on " + file + " in " + waitTime + "ms");
+                        }
+                        return true;
+                    }
+                } else if (holder.owner == currentThread) {
+                    holder.holdCount++;
                     if (isDebugLocking()) {
                         debugLocking("reentrant lock acquired on " + file 
-                            + " in " + (System.currentTimeMillis() - start) + "ms"
-                            + " - hold locks = " + holdLocks);
+                            + " - hold locks = " + holder.holdCount);
                     }
                     return true;
-                }
-                if (locker.tryLock(file)) {
-                    if (isDebugLocking()) {
-                        debugLocking("lock acquired on " + file 
-                            + " in " + (System.currentTimeMillis() - start) + "ms");
+                } else {
+                    // held by another thread of this vm: wait for its release
+                    contended = true;
+                    remaining = timeout - (System.currentTimeMillis() - start);
+                    if (remaining > 0) {
+                        stripe.wait(remaining);
                     }
-                    incrementLock(file);
-                    return true;
+                    continue;
                 }
             }
-            Thread.sleep(SLEEP_TIME);
+            // held by another process: try again later
+            contended = true;
+            remaining = timeout - (System.currentTimeMillis() - start);
+            if (remaining > 0) {
+                Thread.sleep(Math.min(sleep, remaining));
+                sleep = Math.min(sleep * 2, MAX_SLEEP_TIME);
+            }
         } while (System.currentTimeMillis() - start < timeout);
+        failedLockCount.incrementAndGet();
+        if (isDebugLocking()) {
+            debugLocking("failed to acquire lock on " + file + " in " 
+                + (System.currentTimeMillis() - start) + "ms");
+        }
         return false;
     }
 
+    /**
+     * Releases the lock on the given file held by the current thread.
+     * 
+     * @throws IllegalStateException
+     *             if the current thread doesn't hold the lock
+     */
     protected void releaseLock(File file) {
-        synchronized (this) {
-            int holdLocks = decrementLock(file);
-            if (holdLocks == 0) {
+        Map stripe = getStripe(file);
+        synchronized (stripe) {
+            LockHolder holder = (LockHolder) stripe.get(file);
+            if (holder == null || holder.owner != Thread.currentThread()) {
+                throw new IllegalStateException(
+                    "lock on " + file + " is not held by " + Thread.currentThread());
+            }
+            holder.holdCount--;
+            if (holder.holdCount == 0) {
+                stripe.remove(file);
                 locker.unlock(file);
+                stripe.notifyAll();
                 if (isDebugLocking()) {
                     debugLocking("lock released on " + file);
                 }
             } else {
                 if (isDebugLocking()) {
                     debugLocking("reentrant lock released on " + file 
-                        + " - hold locks = " + holdLocks);
+                        + " - hold locks = " + holder.holdCount);
                 }                
             }
         }
     }
 
-    
-    private static void debugLocking(String msg) {
-        Message.info(Thread.currentThread() + " " + System.currentTimeMillis() + " " + msg);
+    private Map getStripe(File file) {
+        int h = file.hashCode();
+        h ^= (h >>> 16);
+        return stripes[(h & 0x7fffffff) % stripes.length];
     }
 
-    private boolean hasLock(File file) {
-        Integer c = (Integer) currentLockCounters.get(file);
-        return c != null && c.intValue() > 0;
+    private long recordLock(long start, boolean contended) {
+        long waitTime = System.currentTimeMillis() - start;
+        lockCount.incrementAndGet();
+        if (contended) {
+            contendedLockCount.incrementAndGet();
+            totalWaitTime.addAndGet(waitTime);
+            long max = maxWaitTime.get();
+            while (waitTime > max && !maxWaitTime.compareAndSet(max, waitTime)) {
+                max = maxWaitTime.get();
+            }
+        }
+        return waitTime;
     }
-    
-    private int incrementLock(File file) {
-        Integer c = (Integer) currentLockCounters.get(file);
-        int holdLocks = c == null ? 1 : c.intValue() + 1;
-        currentLockCounters.put(file, new Integer(holdLocks));
-        return holdLocks;
+
+    public long getTimeout() {
+        return timeout;
     }
 
-    private int decrementLock(File file) {
-        Integer c = (Integer) currentLockCounters.get(file);
-        int dc = c == null ? 0 : c.intValue() - 1;
-        currentLockCounters.put(file, new Integer(dc));
-        return dc;
+    /**
+     * Sets the maximum time in milliseconds to wait for a lock, 2 minutes by default.
+     */
+    public void setTimeout(long timeout) {
+        this.timeout = timeout;
+    }
+
+    /**
+     * Returns the number of locks acquired by this strategy, not counting reentrant acquisitions.
+     */
+    public long getLockCount() {
+        return lockCount.get();
+    }
+
+    /**
+     * Returns the number of locks which were held by another thread or process when requested,
+     * and thus have been waited for.
+     */
+    public long getContendedLockCount() {
+        return contendedLockCount.get();
+    }
+
+    /**
+     * Returns the number of locks which could not be acquired before the timeout.
+     */
+    public long getFailedLockCount() {
+        return failedLockCount.get();
+    }
+
+    /**
+     * Returns the total time in milliseconds spent waiting for contended locks.
+     */
+    public long getTotalWaitTime() {
+        return totalWaitTime.get();
+    }
+
+    /**
+     * Returns the longest time in milliseconds spent waiting for a lock.
+     */
+    public long getMaxWaitTime() {
+        return maxWaitTime.get();
+    }
+
+    private static void debugLocking(String msg) {
+        Message.info(Thread.currentThread() + " " + System.currentTimeMillis() + " " + msg);
+    }
+
+    private static final class LockHolder {
+        private final Thread owner;
+
+        private int holdCount = 1;
+
+        private LockHolder(Thread owner) {
+            this.owner = owner;
+        }
     }
 
     public static interface FileLocker {
@@ -176,6 +306,8 @@ public abstract class FileBasedLockStrategy extends AbstractLockStrategy {
      */
     public static class NIOFileLocker implements FileLocker {
         
+        // Map (File -> LockData): the locks held, with the file they are held on, which must be
+        // kept open as closing it releases the lock
         private Map locks = new HashMap();
         private boolean debugLocking;
         
@@ -183,17 +315,28 @@ public abstract class FileBasedLockStrategy extends AbstractLockStrategy {
             this.debugLocking = debugLocking;
         }
 
+        private static final class LockData {
+            private final RandomAccessFile raf;
+
+            private final FileLock lock;
+
+            private LockData(RandomAccessFile raf, FileLock lock) {
+                this.raf = raf;
+                this.lock = lock;
+            }
+        }
+
         public boolean tryLock(File file) {
             try {
                 if (file.getParentFile().exists() || file.getParentFile().mkdirs()) {
                     RandomAccessFile raf =
                         new RandomAccessFile(file, "rw");            
-                    FileChannel channel = raf.getChannel();
+                    FileLock l = null;
                     try {
-                        FileLock l = channel.tryLock();
+                        l = raf.getChannel().tryLock();
                         if (l != null) {
                             synchronized (this) {
-                                locks.put(file, l);
+                                locks.put(file, new LockData(raf, l));
                             }
                             return true;
                         } else {
@@ -202,9 +345,16 @@ public abstract class FileBasedLockStrategy extends AbstractLockStrategy {
                             }
                         }
                     } finally {
-                        raf.close();
+                        if (l == null) {
+                            raf.close();
+                        }
                     }
                 }
+            } catch (OverlappingFileLockException e) {
+                // held by another locker of this vm
+                if (debugLocking) {
+                    debugLocking("failed to acquire lock on " + file);
+                }
             } catch (IOException e) {
                 // ignored
                 Message.verbose("file lock failed due to an exception: " 
@@ -214,17 +364,19 @@ public abstract class FileBasedLockStrategy extends AbstractLockStrategy {
         }
 
         public void unlock(File file) {
+            LockData data;
             synchronized (this) {
-                FileLock l = (FileLock) locks.get(file);
-                if (l == null) {
-                    throw new IllegalArgumentException("file not previously locked: " + file);
-                }
-                try {
-                    l.release();
-                } catch (IOException e) {
-                    Message.error(
-                        "problem while releasing lock on " + file + ": " + e.getMessage());
-                }
+                data = (LockData) locks.remove(file);
+            }
+            if (data == null) {
+                throw new IllegalArgumentException("file not previously locked: " + file);
+            }
+            try {
+                data.lock.release();
+                data.raf.close();
+            } catch (IOException e) {
+                Message.error(
+                    "problem while releasing lock on " + file + ": " + e.getMessage());
             }
         }
         
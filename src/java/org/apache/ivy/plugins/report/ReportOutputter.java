@@ -31,6 +31,8 @@ public interface ReportOutputter {
 
     public static final String XML = "xml";
 
+    public static final String TIMING = "timing";
+
     public abstract void output(
             ResolveReport report, ResolutionCacheManager cacheMgr, ResolveOptions options) 
             throws IOException;
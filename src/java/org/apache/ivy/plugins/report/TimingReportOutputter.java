@@ -0,0 +1,158 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.plugins.report;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ivy.core.cache.ResolutionCacheManager;
+import org.apache.ivy.core.report.ResolveReport;
+import org.apache.ivy.core.report.ResolveTimings;
+import org.apache.ivy.core.report.ResolveTimings.Timing;
+import org.apache.ivy.core.resolve.ResolveOptions;
+import org.apache.ivy.util.Message;
+
+/**
+ * A Report outputter writing the time spent in each phase of the resolve, per dependency resolver
+ * and per module, to a text file in the resolution cache.
+ * <p>
+ * The modules are sorted by decreasing time spent, so that the modules and repositories which
+ * make a resolve slow are listed first. This outputter is not used by default: it has to be
+ * declared in the settings to be used.
+ * </p>
+ * 
+ * @see ResolveTimings
+ */
+public class TimingReportOutputter implements ReportOutputter {
+    private static final String[] RESOLVER_PHASES = new String[] {
+        ResolveTimings.LOOKUP, ResolveTimings.DOWNLOAD
+    };
+
+    private static final String[] MODULE_PHASES = new String[] {
+        ResolveTimings.LOOKUP, ResolveTimings.PARSE, ResolveTimings.CONFLICTS,
+        ResolveTimings.DOWNLOAD
+    };
+
+    public String getName() {
+        return TIMING;
+    }
+
+    public void output(
+            ResolveReport report, ResolutionCacheManager cacheMgr, ResolveOptions options) 
+            throws IOException {
+        ResolveTimings timings = report.getTimings();
+        if (timings == null) {
+            return;
+        }
+        File reportFile = cacheMgr.getResolveTimingReportInCache(report.getResolveId());
+        reportFile.getParentFile().mkdirs();
+        PrintWriter out = new PrintWriter(new OutputStreamWriter(
+            new FileOutputStream(reportFile), "UTF-8"));
+        try {
+            output(report, timings, out);
+        } finally {
+            out.close();
+        }
+        Message.verbose("\ttiming report for " 
+            + report.getModuleDescriptor().getModuleRevisionId() + " produced in " + reportFile);
+    }
+
+    /**
+     * Writes the timings of the given report.
+     */
+    public void output(ResolveReport report, ResolveTimings timings, PrintWriter out) {
+        out.println("resolve timings of " + report.getModuleDescriptor().getModuleRevisionId()
+            + ": " + report.getResolveTime() + "ms resolve - " + report.getDownloadTime() 
+            + "ms download");
+        out.println("(lookup includes parse, durations are summed up over parallel operations)");
+        out.println();
+
+        out.println(format("phase", new String[] {"count", "total", "max"}));
+        for (int i = 0; i < ResolveTimings.PHASES.length; i++) {
+            Timing timing = timings.getTiming(ResolveTimings.PHASES[i]);
+            out.println(format(ResolveTimings.PHASES[i], new String[] {
+                    String.valueOf(timing.getCount()),
+                    timing.getDuration() + "ms",
+                    timing.getMaxDuration() + "ms"}));
+        }
+        out.println();
+
+        out.println(format("resolver", RESOLVER_PHASES));
+        Map resolvers = timings.getResolverTimings();
+        for (Iterator iter = resolvers.entrySet().iterator(); iter.hasNext();) {
+            Map.Entry entry = (Map.Entry) iter.next();
+            out.println(format(String.valueOf(entry.getKey()), 
+                toStrings((Map) entry.getValue(), RESOLVER_PHASES)));
+        }
+        out.println();
+
+        out.println(format("module", MODULE_PHASES));
+        final Map modules = timings.getModuleTimings();
+        List sorted = new ArrayList(modules.keySet());
+        Collections.sort(sorted, new Comparator() {
+            public int compare(Object o1, Object o2) {
+                long d1 = getDuration((Map) modules.get(o1));
+                long d2 = getDuration((Map) modules.get(o2));
+                return d1 > d2 ? -1 : (d1 == d2 ? 0 : 1);
+            }
+        });
+        for (Iterator iter = sorted.iterator(); iter.hasNext();) {
+            Object mid = iter.next();
+            out.println(format(String.valueOf(mid), 
+                toStrings((Map) modules.get(mid), MODULE_PHASES)));
+        }
+    }
+
+    private static long getDuration(Map timings) {
+        // parsing is included in lookup
+        long duration = 0;
+        for (int i = 0; i < MODULE_PHASES.length; i++) {
+            Timing timing = (Timing) timings.get(MODULE_PHASES[i]);
+            if (timing != null && !ResolveTimings.PARSE.equals(MODULE_PHASES[i])) {
+                duration += timing.getDuration();
+            }
+        }
+        return duration;
+    }
+
+    private static String[] toStrings(Map timings, String[] phases) {
+        String[] strings = new String[phases.length];
+        for (int i = 0; i < phases.length; i++) {
+            Timing timing = (Timing) timings.get(phases[i]);
+            strings[i] = timing == null ? "-" : timing.toString();
+        }
+        return strings;
+    }
+
+    private static String format(String name, String[] columns) {
+        StringBuffer sb = new StringBuffer(name);
+        for (int i = 0; i < columns.length; i++) {
+            sb.append('\t').append(columns[i]);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,576 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.plugins.report;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.apache.ivy.core.cache.ArtifactOrigin;
+import org.apache.ivy.core.module.descriptor.Artifact;
+import org.apache.ivy.core.module.descriptor.DefaultArtifact;
+import org.apache.ivy.core.module.descriptor.ModuleDescriptor;
+import org.apache.ivy.core.module.id.ModuleId;
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.core.report.ArtifactDownloadReport;
+import org.apache.ivy.core.report.ConfigurationResolveReport;
+import org.apache.ivy.core.report.DownloadStatus;
+import org.apache.ivy.core.report.MetadataArtifactDownloadReport;
+import org.apache.ivy.core.resolve.IvyNode;
+import org.apache.ivy.util.FileUtil;
+import org.apache.ivy.util.Message;
+
+/**
+ * A compact binary companion of an xml resolve report, giving the same information as
+ * {@link XmlReportParser} without parsing the xml.
+ * <p>
+ * The index is stored next to the report (with an .idx suffix), and is made of independent
+ * sections for the module revisions, the artifacts and the metadata artifacts, located by a table
+ * in its header: each section is read only when first needed. It is used only if the report has
+ * not changed since it has been written.
+ * </p>
+ */
+final class XmlReportIndex {
+    private static final String SUFFIX = ".idx";
+
+    private static final int MAGIC = 0x49767952; // "IvyR"
+
+    private static final int VERSION = 1;
+
+    private static final int MODULES = 0;
+
+    private static final int ARTIFACTS = 1;
+
+    private static final int METADATA = 2;
+
+    private static final int SECTIONS = 3;
+
+    private static final byte NO_ORIGIN = 0;
+
+    private static final byte UNKNOWN_ORIGIN = 1;
+
+    private static final byte KNOWN_ORIGIN = 2;
+
+    private final File indexFile;
+
+    private final boolean hasError;
+
+    private final ModuleRevisionId resolvedModule;
+
+    // the offsets of the sections, followed by the length of the index
+    private final long[] offsets = new long[SECTIONS + 1];
+
+    private List/*<ModuleRevisionId>*/ mrids;
+
+    private List/*<ModuleRevisionId>*/ realMrids;
+
+    private List/*<ArtifactDownloadReport>*/ artifactReports;
+
+    private List/*<Artifact>*/ artifacts;
+
+    private Map/*<ModuleRevisionId,MetadataArtifactDownloadReport>*/ metadataReports;
+
+    private XmlReportIndex(File indexFile, boolean hasError, ModuleRevisionId resolvedModule) {
+        this.indexFile = indexFile;
+        this.hasError = hasError;
+        this.resolvedModule = resolvedModule;
+    }
+
+    static File getIndexFile(File report) {
+        return new File(report.getPath() + SUFFIX);
+    }
+
+    /**
+     * Opens the index of the given report.
+     * 
+     * @return the index, or null if there is no up to date index for this report
+     */
+    static XmlReportIndex open(File report) {
+        File indexFile = getIndexFile(report);
+        if (!indexFile.exists()) {
+            return null;
+        }
+        try {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(indexFile)));
+            try {
+                if (in.readInt() != MAGIC || in.readInt() != VERSION
+                        || in.readLong() != report.lastModified()
+                        || in.readLong() != report.length()) {
+                    Message.debug("report index not up to date: " + indexFile);
+                    return null;
+                }
+                long[] offsets = new long[SECTIONS + 1];
+                for (int i = 0; i < offsets.length; i++) {
+                    offsets[i] = in.readLong();
+                }
+                if (offsets[SECTIONS] != indexFile.length()) {
+                    Message.debug("truncated report index: " + indexFile);
+                    return null;
+                }
+                boolean hasError = in.readBoolean();
+                ModuleRevisionId resolvedModule = in.readBoolean() 
+                        ? readModuleRevisionId(in) : null;
+                XmlReportIndex index = new XmlReportIndex(indexFile, hasError, resolvedModule);
+                System.arraycopy(offsets, 0, index.offsets, 0, offsets.length);
+                return index;
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            Message.debug("impossible to read report index " + indexFile + ": " + e);
+            return null;
+        }
+    }
+
+    /**
+     * Writes the index of the given report, replacing any previous one.
+     * <p>
+     * The index is built from the configuration report the xml report has just been written
+     * from, and gives the same information as the one {@link XmlReportParser} would parse from
+     * this xml.
+     * </p>
+     */
+    static void write(File report, ConfigurationResolveReport confReport) throws IOException {
+        String conf = confReport.getConfiguration();
+        Map/*<ModuleRevisionId,Integer>*/ positions = new HashMap();
+        int position = 0;
+        for (Iterator it = confReport.getModuleRevisionIds().iterator(); it.hasNext();) {
+            positions.put(it.next(), new Integer(position++));
+        }
+
+        boolean hasError = false;
+        List/*<ModuleRevisionId>*/ mrids = new ArrayList();
+        Set/*<ModuleRevisionId>*/ realMrids = new HashSet();
+        List/*<MetadataArtifactDownloadReport>*/ madrs = new ArrayList();
+        // artifact reports are ordered by the position of their module revision
+        SortedMap/*<Integer,List<ArtifactDownloadReport>>*/ revisionReports = new TreeMap();
+        // as parsed from the xml, metadata artifacts get the publication date of the previous
+        // revision, and revisions without publication date the last one read
+        Date pubdate = null;
+        for (Iterator it = confReport.getModuleIds().iterator(); it.hasNext();) {
+            ModuleId mid = (ModuleId) it.next();
+            for (Iterator it2 = confReport.getNodes(mid).iterator(); it2.hasNext();) {
+                IvyNode dep = (IvyNode) it2.next();
+                if (dep.hasProblem()) {
+                    hasError = true;
+                    continue;
+                }
+                if (dep.isEvicted(conf)) {
+                    continue;
+                }
+                ModuleRevisionId resolvedId = dep.getResolvedId();
+                ModuleDescriptor md = dep.getModuleRevision() == null 
+                        ? null : dep.getModuleRevision().getDescriptor();
+                ModuleRevisionId mrid = ModuleRevisionId.newInstance(mid.getOrganisation(),
+                    mid.getName(), resolvedId.getBranch(), resolvedId.getRevision(),
+                    md != null ? md.getExtraAttributes() : resolvedId.getExtraAttributes());
+                mrids.add(mrid);
+                if (dep.getDescriptor() == null || !dep.getDescriptor().isDefault()) {
+                    MetadataArtifactDownloadReport madr = new MetadataArtifactDownloadReport(
+                        DefaultArtifact.newIvyArtifact(mrid, pubdate));
+                    if (dep.getModuleRevision() != null) {
+                        MetadataArtifactDownloadReport written = 
+                            dep.getModuleRevision().getReport();
+                        copyReport(written, madr);
+                        madr.setSearched(written.isSearched());
+                        madr.setOriginalLocalFile(written.getOriginalLocalFile() == null 
+                            ? null : written.getOriginalLocalFile().getAbsoluteFile());
+                    }
+                    madrs.add(madr);
+                    realMrids.add(mrid);
+                }
+                if (dep.isLoaded()) {
+                    // the xml only keeps the publication date to the second
+                    long time = dep.getPublication();
+                    pubdate = new Date(time - time % 1000);
+                }
+
+                List reports = new ArrayList();
+                ArtifactDownloadReport[] adrs = confReport.getDownloadReports(resolvedId);
+                for (int i = 0; i < adrs.length; i++) {
+                    Artifact written = adrs[i].getArtifact();
+                    ArtifactDownloadReport adr = new ArtifactDownloadReport(new DefaultArtifact(
+                        mrid, pubdate, written.getName(), written.getType(), written.getExt(),
+                        written.getExtraAttributes()));
+                    copyReport(adrs[i], adr);
+                    reports.add(adr);
+                }
+                Integer pos = (Integer) positions.get(resolvedId);
+                revisionReports.put(pos == null ? new Integer(-1) : pos, reports);
+            }
+        }
+        List/*<ArtifactDownloadReport>*/ artifactReports = new ArrayList();
+        for (Iterator it = revisionReports.values().iterator(); it.hasNext();) {
+            artifactReports.addAll((List) it.next());
+        }
+
+        ModuleRevisionId resolvedModule = 
+            confReport.getModuleDescriptor().getModuleRevisionId();
+        write(report, hasError, resolvedModule, mrids, realMrids, artifactReports, madrs);
+    }
+
+    /**
+     * Copies the information the xml report keeps about the given artifact report.
+     */
+    private static void copyReport(ArtifactDownloadReport from, ArtifactDownloadReport to) {
+        to.setDownloadStatus(from.getDownloadStatus());
+        to.setDownloadDetails(String.valueOf(from.getDownloadDetails()));
+        to.setSize(from.getSize());
+        to.setDownloadTimeMillis(from.getDownloadTimeMillis());
+        to.setLocalFile(from.getLocalFile() == null 
+            ? null : from.getLocalFile().getAbsoluteFile());
+        to.setArtifactOrigin(from.getArtifactOrigin());
+    }
+
+    private static void write(File report, boolean hasError, ModuleRevisionId resolvedModule,
+            List mrids, Set realMrids, List artifactReports, List madrs) throws IOException {
+        File indexFile = getIndexFile(report);
+        indexFile.delete();
+
+        Map/*<ModuleRevisionId,Integer>*/ indexes = new HashMap();
+        ByteArrayOutputStream[] sections = new ByteArrayOutputStream[SECTIONS];
+        for (int i = 0; i < sections.length; i++) {
+            sections[i] = new ByteArrayOutputStream();
+        }
+
+        DataOutputStream out = new DataOutputStream(sections[MODULES]);
+        out.writeInt(mrids.size());
+        for (int i = 0; i < mrids.size(); i++) {
+            ModuleRevisionId mrid = (ModuleRevisionId) mrids.get(i);
+            indexes.put(mrid, new Integer(i));
+            writeModuleRevisionId(out, mrid);
+            out.writeBoolean(realMrids.contains(mrid));
+        }
+
+        out = new DataOutputStream(sections[ARTIFACTS]);
+        out.writeInt(artifactReports.size());
+        for (Iterator it = artifactReports.iterator(); it.hasNext();) {
+            ArtifactDownloadReport adr = (ArtifactDownloadReport) it.next();
+            Artifact artifact = adr.getArtifact();
+            out.writeInt(((Integer) indexes.get(artifact.getModuleRevisionId())).intValue());
+            writeDate(out, artifact.getPublicationDate());
+            writeString(out, artifact.getName());
+            writeString(out, artifact.getType());
+            writeString(out, artifact.getExt());
+            writeMap(out, artifact.getQualifiedExtraAttributes());
+            writeReport(out, adr);
+        }
+
+        out = new DataOutputStream(sections[METADATA]);
+        out.writeInt(madrs.size());
+        for (Iterator it = madrs.iterator(); it.hasNext();) {
+            MetadataArtifactDownloadReport madr = (MetadataArtifactDownloadReport) it.next();
+            out.writeInt(((Integer) indexes.get(
+                madr.getArtifact().getModuleRevisionId())).intValue());
+            writeDate(out, madr.getArtifact().getPublicationDate());
+            writeReport(out, madr);
+            out.writeBoolean(madr.isSearched());
+            writeFile(out, madr.getOriginalLocalFile());
+        }
+
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        out = new DataOutputStream(header);
+        out.writeBoolean(hasError);
+        out.writeBoolean(resolvedModule != null);
+        if (resolvedModule != null) {
+            writeModuleRevisionId(out, resolvedModule);
+        }
+        // magic, version, report date and length, offsets
+        long offset = 4 + 4 + 8 + 8 + 8 * (SECTIONS + 1) + header.size();
+
+        File tmp = File.createTempFile(indexFile.getName() + ".", ".tmp", 
+            indexFile.getAbsoluteFile().getParentFile());
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(tmp)));
+            try {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(report.lastModified());
+                out.writeLong(report.length());
+                for (int i = 0; i < sections.length; i++) {
+                    out.writeLong(offset);
+                    offset += sections[i].size();
+                }
+                out.writeLong(offset);
+                header.writeTo(out);
+                for (int i = 0; i < sections.length; i++) {
+                    sections[i].writeTo(out);
+                }
+            } finally {
+                out.close();
+            }
+            if (!FileUtil.atomicMove(tmp, indexFile)) {
+                throw new IOException("impossible to move " + tmp + " to " + indexFile);
+            }
+        } finally {
+            tmp.delete();
+        }
+    }
+
+    boolean hasError() {
+        return hasError;
+    }
+
+    ModuleRevisionId getResolvedModule() {
+        return resolvedModule;
+    }
+
+    synchronized List getModuleRevisionIds() {
+        loadModuleRevisionIds();
+        return mrids;
+    }
+
+    synchronized List getRealModuleRevisionIds() {
+        loadModuleRevisionIds();
+        return realMrids;
+    }
+
+    synchronized List getArtifactReports() {
+        loadArtifactReports();
+        return artifactReports;
+    }
+
+    synchronized List getArtifacts() {
+        loadArtifactReports();
+        return artifacts;
+    }
+
+    synchronized MetadataArtifactDownloadReport getMetadataArtifactReport(ModuleRevisionId id) {
+        if (metadataReports == null) {
+            List modules = getModuleRevisionIds();
+            Map reports = new HashMap();
+            DataInputStream in = readSection(METADATA);
+            try {
+                int n = in.readInt();
+                for (int i = 0; i < n; i++) {
+                    ModuleRevisionId mrid = (ModuleRevisionId) modules.get(in.readInt());
+                    MetadataArtifactDownloadReport madr = new MetadataArtifactDownloadReport(
+                        DefaultArtifact.newIvyArtifact(mrid, readDate(in)));
+                    readReport(in, madr);
+                    madr.setSearched(in.readBoolean());
+                    madr.setOriginalLocalFile(readFile(in));
+                    reports.put(mrid, madr);
+                }
+            } catch (IOException e) {
+                throw corrupted(e);
+            }
+            metadataReports = reports;
+        }
+        return (MetadataArtifactDownloadReport) metadataReports.get(id);
+    }
+
+    private void loadModuleRevisionIds() {
+        if (mrids != null) {
+            return;
+        }
+        List all = new ArrayList();
+        List real = new ArrayList();
+        DataInputStream in = readSection(MODULES);
+        try {
+            int n = in.readInt();
+            for (int i = 0; i < n; i++) {
+                ModuleRevisionId mrid = readModuleRevisionId(in);
+                all.add(mrid);
+                if (in.readBoolean()) {
+                    real.add(mrid);
+                }
+            }
+        } catch (IOException e) {
+            throw corrupted(e);
+        }
+        mrids = all;
+        realMrids = real;
+    }
+
+    private void loadArtifactReports() {
+        if (artifactReports != null) {
+            return;
+        }
+        List modules = getModuleRevisionIds();
+        List reports = new ArrayList();
+        List downloaded = new ArrayList();
+        DataInputStream in = readSection(ARTIFACTS);
+        try {
+            int n = in.readInt();
+            for (int i = 0; i < n; i++) {
+                ModuleRevisionId mrid = (ModuleRevisionId) modules.get(in.readInt());
+                Artifact artifact = new DefaultArtifact(mrid, readDate(in), readString(in), 
+                    readString(in), readString(in), readMap(in));
+                ArtifactDownloadReport report = new ArtifactDownloadReport(artifact);
+                readReport(in, report);
+                reports.add(report);
+                if (report.getDownloadStatus() != DownloadStatus.FAILED) {
+                    downloaded.add(artifact);
+                }
+            }
+        } catch (IOException e) {
+            throw corrupted(e);
+        }
+        artifactReports = reports;
+        artifacts = downloaded;
+    }
+
+    private DataInputStream readSection(int section) {
+        try {
+            RandomAccessFile raf = new RandomAccessFile(indexFile, "r");
+            try {
+                byte[] data = new byte[(int) (offsets[section + 1] - offsets[section])];
+                raf.seek(offsets[section]);
+                raf.readFully(data);
+                return new DataInputStream(new ByteArrayInputStream(data));
+            } finally {
+                raf.close();
+            }
+        } catch (IOException e) {
+            throw corrupted(e);
+        }
+    }
+
+    private IllegalStateException corrupted(IOException e) {
+        IllegalStateException ex = new IllegalStateException(
+            "problem while reading report index " + indexFile + ": " + e.getMessage());
+        ex.initCause(e);
+        return ex;
+    }
+
+    private static void writeReport(DataOutputStream out, ArtifactDownloadReport report) 
+            throws IOException {
+        writeString(out, report.getDownloadStatus() == null 
+                ? null : report.getDownloadStatus().toString());
+        writeString(out, report.getDownloadDetails());
+        out.writeLong(report.getSize());
+        out.writeLong(report.getDownloadTimeMillis());
+        writeFile(out, report.getLocalFile());
+        ArtifactOrigin origin = report.getArtifactOrigin();
+        if (origin == null) {
+            out.writeByte(NO_ORIGIN);
+        } else if (ArtifactOrigin.isUnknown(origin)) {
+            out.writeByte(UNKNOWN_ORIGIN);
+        } else {
+            out.writeByte(KNOWN_ORIGIN);
+            out.writeBoolean(origin.isLocal());
+            out.writeUTF(origin.getLocation());
+        }
+    }
+
+    private static void readReport(DataInputStream in, ArtifactDownloadReport report) 
+            throws IOException {
+        String status = readString(in);
+        if (status != null) {
+            report.setDownloadStatus(DownloadStatus.fromString(status));
+        }
+        report.setDownloadDetails(readString(in));
+        report.setSize(in.readLong());
+        report.setDownloadTimeMillis(in.readLong());
+        report.setLocalFile(readFile(in));
+        switch (in.readByte()) {
+            case UNKNOWN_ORIGIN:
+                report.setArtifactOrigin(ArtifactOrigin.unkwnown(report.getArtifact()));
+                break;
+            case KNOWN_ORIGIN:
+                report.setArtifactOrigin(new ArtifactOrigin(
+                    report.getArtifact(), in.readBoolean(), in.readUTF()));
+                break;
+            default:
+                break;
+        }
+    }
+
+    private static void writeModuleRevisionId(DataOutputStream out, ModuleRevisionId mrid) 
+            throws IOException {
+        writeString(out, mrid.getOrganisation());
+        writeString(out, mrid.getName());
+        writeString(out, mrid.getBranch());
+        writeString(out, mrid.getRevision());
+        writeMap(out, mrid.getQualifiedExtraAttributes());
+    }
+
+    private static ModuleRevisionId readModuleRevisionId(DataInputStream in) throws IOException {
+        return ModuleRevisionId.newInstance(
+            readString(in), readString(in), readString(in), readString(in), readMap(in));
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        out.writeBoolean(s != null);
+        if (s != null) {
+            out.writeUTF(s);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeFile(DataOutputStream out, File f) throws IOException {
+        writeString(out, f == null ? null : f.getPath());
+    }
+
+    private static File readFile(DataInputStream in) throws IOException {
+        String path = readString(in);
+        return path == null ? null : new File(path);
+    }
+
+    private static void writeDate(DataOutputStream out, Date date) throws IOException {
+        out.writeBoolean(date != null);
+        if (date != null) {
+            out.writeLong(date.getTime());
+        }
+    }
+
+    private static Date readDate(DataInputStream in) throws IOException {
+        return in.readBoolean() ? new Date(in.readLong()) : null;
+    }
+
+    private static void writeMap(DataOutputStream out, Map map) throws IOException {
+        out.writeInt(map.size());
+        for (Iterator it = map.entrySet().iterator(); it.hasNext();) {
+            Map.Entry entry = (Map.Entry) it.next();
+            out.writeUTF((String) entry.getKey());
+            writeString(out, (String) entry.getValue());
+        }
+    }
+
+    private static Map readMap(DataInputStream in) throws IOException {
+        int n = in.readInt();
+        Map map = new HashMap();
+        for (int i = 0; i < n; i++) {
+            map.put(in.readUTF(), readString(in));
+        }
+        return map;
+    }
+}
@@ -59,6 +59,11 @@ public class XmlReportOutputter implements ReportOutputter {
         OutputStream stream = new FileOutputStream(reportFile);
         writer.output(report, confs, stream);
         stream.close();
+        try {
+            XmlReportIndex.write(reportFile, report);
+        } catch (IOException e) {
+            Message.verbose("\timpossible to index report " + reportFile + ": " + e.getMessage());
+        }
 
         Message.verbose("\treport for " + report.getModuleDescriptor().getModuleRevisionId()
             + " " + report.getConfiguration() + " produced in " + reportFile);
@@ -293,12 +293,23 @@ public class XmlReportParser {
 
     private SaxXmlReportParser parser = null;
 
+    private XmlReportIndex index = null;
+
+    /**
+     * Parses the given report. When an up to date index of the report has been written along
+     * with it, the index is used instead, and the information is only read when asked.
+     */
     public void parse(File report) throws ParseException {
         if (!report.exists()) {
             throw new IllegalStateException("Report file '" + report.getAbsolutePath()
                     + "' does not exist.");
         }
 
+        parser = null;
+        index = XmlReportIndex.open(report);
+        if (index != null) {
+            return;
+        }
         parser = new SaxXmlReportParser(report);
         try {
             parser.parse();
@@ -311,37 +322,41 @@ public class XmlReportParser {
     }
 
     public Artifact[] getArtifacts() {
-        return (Artifact[]) parser.getArtifacts().toArray(
-            new Artifact[parser.getArtifacts().size()]);
+        List artifacts = index != null ? index.getArtifacts() : parser.getArtifacts();
+        return (Artifact[]) artifacts.toArray(new Artifact[artifacts.size()]);
     }
 
     public ArtifactDownloadReport[] getArtifactReports() {
-        return (ArtifactDownloadReport[]) parser.getArtifactReports().toArray(
-            new ArtifactDownloadReport[parser.getArtifactReports().size()]);
+        List reports = index != null ? index.getArtifactReports() : parser.getArtifactReports();
+        return (ArtifactDownloadReport[]) reports.toArray(
+            new ArtifactDownloadReport[reports.size()]);
     }
 
     public ModuleRevisionId[] getDependencyRevisionIds() {
-        return (ModuleRevisionId[]) parser.getModuleRevisionIds().toArray(
-            new ModuleRevisionId[parser.getModuleRevisionIds().size()]);
+        List mrids = index != null 
+                ? index.getModuleRevisionIds() : parser.getModuleRevisionIds();
+        return (ModuleRevisionId[]) mrids.toArray(new ModuleRevisionId[mrids.size()]);
     }
 
     public ModuleRevisionId[] getRealDependencyRevisionIds() {
-        return (ModuleRevisionId[]) parser.getRealModuleRevisionIds().toArray(
-            new ModuleRevisionId[parser.getRealModuleRevisionIds().size()]);
+        List mrids = index != null 
+                ? index.getRealModuleRevisionIds() : parser.getRealModuleRevisionIds();
+        return (ModuleRevisionId[]) mrids.toArray(new ModuleRevisionId[mrids.size()]);
     }
 
     public MetadataArtifactDownloadReport getMetadataArtifactReport(ModuleRevisionId id) {
-        return parser.getMetadataArtifactReport(id);
+        return index != null 
+                ? index.getMetadataArtifactReport(id) : parser.getMetadataArtifactReport(id);
     }
 
     /**
      * Returns the <tt>ModuleRevisionId</tt> of the resolved module.
      */
     public ModuleRevisionId getResolvedModule() {
-        return parser.getResolvedModule();
+        return index != null ? index.getResolvedModule() : parser.getResolvedModule();
     }
 
     public boolean hasError() {
-        return parser.hasError;
+        return index != null ? index.hasError() : parser.hasError;
     }
 }
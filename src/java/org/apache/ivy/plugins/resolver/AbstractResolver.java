@@ -29,6 +29,7 @@ import org.apache.ivy.core.RelativeUrlResolver;
 import org.apache.ivy.core.cache.ArtifactOrigin;
 import org.apache.ivy.core.cache.CacheDownloadOptions;
 import org.apache.ivy.core.cache.CacheMetadataOptions;
+import org.apache.ivy.core.cache.DefaultRepositoryCacheManager;
 import org.apache.ivy.core.cache.DownloadListener;
 import org.apache.ivy.core.cache.RepositoryCacheManager;
 import org.apache.ivy.core.cache.ResolutionCacheManager;
@@ -342,6 +343,20 @@ public abstract class AbstractResolver
         return data.getNode(toSystem(resolvedMrid));
     }
 
+    /**
+     * Tells if the module revision requested by the given dependency descriptor is always checked
+     * against the repository by this resolver instead of being taken from its cache, because it
+     * is changing or because modified modules are checked.
+     */
+    public boolean isAlwaysChecked(DependencyDescriptor dd, ResolveData data) {
+        RepositoryCacheManager cacheManager = getRepositoryCacheManager();
+        if (cacheManager instanceof DefaultRepositoryCacheManager) {
+            return ((DefaultRepositoryCacheManager) cacheManager).isAlwaysChecked(
+                dd, dd.getDependencyRevisionId(), getCacheOptions(data));
+        }
+        return dd.isChanging();
+    }
+
     protected ResolvedModuleRevision findModuleInCache(
             DependencyDescriptor dd, ResolveData data) {
         return findModuleInCache(dd, data, false);
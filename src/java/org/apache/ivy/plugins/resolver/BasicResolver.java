@@ -41,6 +41,8 @@ import org.apache.ivy.core.LogOptions;
 import org.apache.ivy.core.cache.ArtifactOrigin;
 import org.apache.ivy.core.cache.ModuleDescriptorWriter;
 import org.apache.ivy.core.cache.RepositoryCacheManager;
+import org.apache.ivy.core.event.EventManager;
+import org.apache.ivy.core.event.resolve.EndDescriptorLookupEvent;
 import org.apache.ivy.core.module.descriptor.Artifact;
 import org.apache.ivy.core.module.descriptor.DefaultModuleDescriptor;
 import org.apache.ivy.core.module.descriptor.DependencyDescriptor;
@@ -136,9 +138,19 @@ public abstract class BasicResolver extends AbstractResolver {
      */
     private boolean envDependent = true;
 
-    private List ivyattempts = new ArrayList();
+    // tried locations are kept per thread, since a resolver can be used by several threads at once
+    // when resolving or downloading in parallel
+    private final ThreadLocal/*<List>*/ ivyattempts = new ThreadLocal() {
+        protected Object initialValue() {
+            return new ArrayList();
+        }
+    };
 
-    private Map artattempts = new HashMap();
+    private final ThreadLocal/*<Map>*/ artattempts = new ThreadLocal() {
+        protected Object initialValue() {
+            return new HashMap();
+        }
+    };
 
     private boolean checkconsistency = true;
 
@@ -152,6 +164,8 @@ public abstract class BasicResolver extends AbstractResolver {
 
     // external artifacts
 
+    private final ResolverStatistics statistics = new ResolverStatistics(this);
+
     public BasicResolver() {
         workspaceName = HostUtil.getLocalHostName();
     }
@@ -160,6 +174,14 @@ public abstract class BasicResolver extends AbstractResolver {
         return workspaceName;
     }
 
+    /**
+     * Returns the statistics of this resolver, which are updated on each module lookup and
+     * artifact download.
+     */
+    public ResolverStatistics getStatistics() {
+        return statistics;
+    }
+
     public void setWorkspaceName(String workspaceName) {
         this.workspaceName = workspaceName;
     }
@@ -174,15 +196,40 @@ public abstract class BasicResolver extends AbstractResolver {
 
     public ResolvedModuleRevision getDependency(DependencyDescriptor dd, ResolveData data)
             throws ParseException {
-        IvyContext context = IvyContext.pushNewCopyContext();
+        ResolvedModuleRevision mr = data.getCurrentResolvedModuleRevision();
+        if (mr != null) {
+            if (shouldReturnResolvedModule(dd, mr)) {
+                return mr;
+            }
+        }
+
+        long start = System.currentTimeMillis();
+        long nanoStart = System.nanoTime();
+        ResolvedModuleRevision rmr = null;
+        boolean completed = false;
         try {
-            ResolvedModuleRevision mr = data.getCurrentResolvedModuleRevision();
-            if (mr != null) {
-                if (shouldReturnResolvedModule(dd, mr)) {
-                    return mr;
-                }
+            rmr = lookupDependency(dd, data);
+            completed = true;
+            return rmr;
+        } finally {
+            if (completed) {
+                statistics.lookup(rmr != null, System.nanoTime() - nanoStart);
+            } else {
+                statistics.lookupFailed(System.nanoTime() - nanoStart);
+            }
+            EventManager eventManager = getEventManager();
+            if (eventManager != null) {
+                eventManager.fireIvyEvent(new EndDescriptorLookupEvent(this, dd, 
+                    dd.getDependencyRevisionId(), rmr == mr ? null : rmr, 
+                    System.currentTimeMillis() - start));
             }
+        }
+    }
 
+    private ResolvedModuleRevision lookupDependency(DependencyDescriptor dd, ResolveData data)
+            throws ParseException {
+        IvyContext context = IvyContext.pushNewCopyContext();
+        try {
             if (isForce()) {
                 dd = dd.clone(ModuleRevisionId.newInstance(dd.getDependencyRevisionId(),
                     "latest.integration"));
@@ -764,20 +811,20 @@ public abstract class BasicResolver extends AbstractResolver {
     }
 
     protected void clearIvyAttempts() {
-        ivyattempts.clear();
+        getIvyAttempts().clear();
         clearArtifactAttempts();
     }
 
     protected void logIvyAttempt(String attempt) {
-        ivyattempts.add(attempt);
+        getIvyAttempts().add(attempt);
         Message.verbose("\t\ttried " + attempt);
     }
 
     protected void logArtifactAttempt(Artifact art, String attempt) {
-        List attempts = (List) artattempts.get(art);
+        List attempts = (List) getArtifactAttempts().get(art);
         if (attempts == null) {
             attempts = new ArrayList();
-            artattempts.put(art, attempts);
+            getArtifactAttempts().put(art, attempts);
         }
         attempts.add(attempt);
         Message.verbose("\t\ttried " + attempt);
@@ -794,7 +841,8 @@ public abstract class BasicResolver extends AbstractResolver {
 
     public void reportFailure() {
         Message.warn("==== " + getName() + ": tried");
-        for (ListIterator iter = ivyattempts.listIterator(); iter.hasNext();) {
+        Map artattempts = getArtifactAttempts();
+        for (ListIterator iter = getIvyAttempts().listIterator(); iter.hasNext();) {
             String m = (String) iter.next();
             Message.warn("  " + m);
         }
@@ -813,7 +861,7 @@ public abstract class BasicResolver extends AbstractResolver {
 
     public void reportFailure(Artifact art) {
         Message.warn("==== " + getName() + ": tried");
-        List attempts = (List) artattempts.get(art);
+        List attempts = (List) getArtifactAttempts().get(art);
         if (attempts != null) {
             for (ListIterator iter = attempts.listIterator(); iter.hasNext();) {
                 String m = (String) iter.next();
@@ -834,6 +882,7 @@ public abstract class BasicResolver extends AbstractResolver {
         for (int i = 0; i < artifacts.length; i++) {
             ArtifactDownloadReport adr = cacheManager.download(artifacts[i],
                 artifactResourceResolver, downloader, getCacheDownloadOptions(options));
+            statistics.download(adr);
             if (DownloadStatus.FAILED == adr.getDownloadStatus()) {
                 if (!ArtifactDownloadReport.MISSING_ARTIFACT.equals(adr.getDownloadDetails())) {
                     Message.warn("\t" + adr);
@@ -852,12 +901,20 @@ public abstract class BasicResolver extends AbstractResolver {
     }
 
     protected void clearArtifactAttempts() {
-        artattempts.clear();
+        getArtifactAttempts().clear();
+    }
+
+    private List getIvyAttempts() {
+        return (List) ivyattempts.get();
+    }
+
+    private Map getArtifactAttempts() {
+        return (Map) artattempts.get();
     }
 
     public ArtifactDownloadReport download(final ArtifactOrigin origin, DownloadOptions options) {
         Checks.checkNotNull(origin, "origin");
-        return getRepositoryCacheManager().download(origin.getArtifact(),
+        ArtifactDownloadReport adr = getRepositoryCacheManager().download(origin.getArtifact(),
             new ArtifactResourceResolver() {
                 public ResolvedResource resolve(Artifact artifact) {
                     try {
@@ -872,6 +929,8 @@ public abstract class BasicResolver extends AbstractResolver {
                     }
                 }
             }, downloader, getCacheDownloadOptions(options));
+        statistics.download(adr);
+        return adr;
     }
 
     protected abstract Resource getResource(String source) throws IOException;
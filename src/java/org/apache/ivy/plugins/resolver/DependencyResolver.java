@@ -139,12 +139,12 @@ public interface DependencyResolver {
     void commitPublishTransaction() throws IOException;
 
     /**
-     * Reports last resolve failure as Messages
+     * Reports last resolve failure of the current thread as Messages
      */
     void reportFailure();
 
     /**
-     * Reports last artifact download failure as Messages
+     * Reports last artifact download failure of the current thread as Messages
      * 
      * @param art
      */
@@ -29,7 +29,9 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
+import org.apache.ivy.core.IvyContext;
 import org.apache.ivy.core.IvyPatternHelper;
+import org.apache.ivy.core.cache.DefaultRepositoryCacheManager;
 import org.apache.ivy.core.event.EventManager;
 import org.apache.ivy.core.module.descriptor.Artifact;
 import org.apache.ivy.core.module.descriptor.DefaultArtifact;
@@ -37,6 +39,7 @@ import org.apache.ivy.core.module.descriptor.ModuleDescriptor;
 import org.apache.ivy.core.module.id.ModuleRevisionId;
 import org.apache.ivy.core.report.DownloadReport;
 import org.apache.ivy.core.resolve.DownloadOptions;
+import org.apache.ivy.core.resolve.ResolveData;
 import org.apache.ivy.plugins.parser.ModuleDescriptorParser;
 import org.apache.ivy.plugins.parser.ModuleDescriptorParserRegistry;
 import org.apache.ivy.plugins.repository.AbstractRepository;
@@ -93,6 +96,13 @@ public class RepositoryResolver extends AbstractPatternsBasedResolver {
                 String resourceName = IvyPatternHelper.substitute(pattern, mrid, artifact);
                 Message.debug("\t trying " + resourceName);
                 logAttempt(resourceName);
+                if (isKnownMissing(mrid, resourceName)) {
+                    Message.debug("\t" + name + ": resource known to be missing for " + mrid 
+                        + ": res=" + resourceName);
+                    return versionMatcher.isDynamic(mrid) 
+                        ? findDynamicResourceUsingPattern(rmdparser, mrid, pattern, artifact, date)
+                        : null;
+                }
                 Resource res = repository.getResource(resourceName);
                 boolean reachable = res.exists();
                 if (reachable) {
@@ -120,12 +130,14 @@ public class RepositoryResolver extends AbstractPatternsBasedResolver {
                         revision = mrid.getRevision();
                     }
                     return new ResolvedResource(res, revision);
-                } else if (versionMatcher.isDynamic(mrid)) {
-                    return findDynamicResourceUsingPattern(
-                        rmdparser, mrid, pattern, artifact, date);
                 } else {
-                    Message.debug("\t" + name + ": resource not reachable for " + mrid + ": res="
-                            + res);
+                    saveMissing(mrid, resourceName);
+                    if (versionMatcher.isDynamic(mrid)) {
+                        return findDynamicResourceUsingPattern(
+                            rmdparser, mrid, pattern, artifact, date);
+                    }
+                    Message.debug("\t" + name + ": resource not reachable for " + mrid 
+                        + ": res=" + res);
                     return null;
                 }
             } else {
@@ -140,6 +152,33 @@ public class RepositoryResolver extends AbstractPatternsBasedResolver {
         }
     }
 
+    private boolean isKnownMissing(ModuleRevisionId mrid, String resourceName) {
+        if (!(getRepositoryCacheManager() instanceof DefaultRepositoryCacheManager)
+                || !((DefaultRepositoryCacheManager) getRepositoryCacheManager())
+                        .isMissingCached()) {
+            return false;
+        }
+        ResolveData data = IvyContext.getContext().getResolveData();
+        if (data != null && data.getOptions().isRefresh()) {
+            return false;
+        }
+        return ((DefaultRepositoryCacheManager) getRepositoryCacheManager()).isKnownMissing(
+            getName(), toCacheModuleRevisionId(mrid), resourceName);
+    }
+
+    private void saveMissing(ModuleRevisionId mrid, String resourceName) {
+        if (getRepositoryCacheManager() instanceof DefaultRepositoryCacheManager
+                && ((DefaultRepositoryCacheManager) getRepositoryCacheManager())
+                        .isMissingCached()) {
+            ((DefaultRepositoryCacheManager) getRepositoryCacheManager()).saveMissing(
+                getName(), toCacheModuleRevisionId(mrid), resourceName);
+        }
+    }
+
+    private ModuleRevisionId toCacheModuleRevisionId(ModuleRevisionId mrid) {
+        return isM2compatible() ? convertM2ResourceSearchIdToNormal(mrid) : mrid;
+    }
+
     private ResolvedResource findDynamicResourceUsingPattern(
             ResourceMDParser rmdparser, ModuleRevisionId mrid, String pattern, Artifact artifact,
             Date date) {
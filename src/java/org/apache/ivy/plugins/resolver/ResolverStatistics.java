@@ -0,0 +1,146 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.plugins.resolver;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.ivy.core.report.ArtifactDownloadReport;
+import org.apache.ivy.core.report.DownloadStatus;
+import org.apache.ivy.util.LatencyHistogram;
+
+/**
+ * Statistics of a {@link BasicResolver}: module descriptor lookups with their latencies, and
+ * artifact downloads.
+ * <p>
+ * The counters are updated without locking, and can be exposed through JMX (see
+ * {@link org.apache.ivy.core.IvyMBeans}).
+ * </p>
+ */
+public class ResolverStatistics implements ResolverStatisticsMBean {
+
+    private final DependencyResolver resolver;
+
+    private final AtomicLong modulesFound = new AtomicLong();
+
+    private final AtomicLong modulesNotFound = new AtomicLong();
+
+    private final AtomicLong lookupFailures = new AtomicLong();
+
+    private final AtomicLong artifactsFromCache = new AtomicLong();
+
+    private final AtomicLong artifactsDownloaded = new AtomicLong();
+
+    private final AtomicLong artifactDownloadFailures = new AtomicLong();
+
+    private final AtomicLong bytesDownloaded = new AtomicLong();
+
+    private final LatencyHistogram lookupTimes = new LatencyHistogram();
+
+    ResolverStatistics(DependencyResolver resolver) {
+        this.resolver = resolver;
+    }
+
+    void lookup(boolean found, long nanos) {
+        (found ? modulesFound : modulesNotFound).incrementAndGet();
+        lookupTimes.record(nanos);
+    }
+
+    void lookupFailed(long nanos) {
+        lookupFailures.incrementAndGet();
+        lookupTimes.record(nanos);
+    }
+
+    void download(ArtifactDownloadReport adr) {
+        DownloadStatus status = adr.getDownloadStatus();
+        if (status == DownloadStatus.SUCCESSFUL) {
+            artifactsDownloaded.incrementAndGet();
+            bytesDownloaded.addAndGet(adr.getSize());
+        } else if (status == DownloadStatus.NO) {
+            artifactsFromCache.incrementAndGet();
+        } else {
+            artifactDownloadFailures.incrementAndGet();
+        }
+    }
+
+    public String getName() {
+        return resolver.getName();
+    }
+
+    public long getLookupCount() {
+        return lookupTimes.getCount();
+    }
+
+    public long getModulesFound() {
+        return modulesFound.get();
+    }
+
+    public long getModulesNotFound() {
+        return modulesNotFound.get();
+    }
+
+    public long getLookupFailures() {
+        return lookupFailures.get();
+    }
+
+    public long getLookupMeanTime() {
+        return lookupTimes.getMeanMicros();
+    }
+
+    public long getLookupMaxTime() {
+        return lookupTimes.getMaxMicros();
+    }
+
+    public long getLookupTime95thPercentile() {
+        return lookupTimes.getPercentileMicros(95);
+    }
+
+    public long[] getLookupTimeBucketBounds() {
+        return lookupTimes.getBucketBounds();
+    }
+
+    public long[] getLookupTimeBucketCounts() {
+        return lookupTimes.getBucketCounts();
+    }
+
+    public long getArtifactsFromCache() {
+        return artifactsFromCache.get();
+    }
+
+    public long getArtifactsDownloaded() {
+        return artifactsDownloaded.get();
+    }
+
+    public long getArtifactDownloadFailures() {
+        return artifactDownloadFailures.get();
+    }
+
+    public long getBytesDownloaded() {
+        return bytesDownloaded.get();
+    }
+
+    public void reset() {
+        modulesFound.set(0);
+        modulesNotFound.set(0);
+        lookupFailures.set(0);
+        artifactsFromCache.set(0);
+        artifactsDownloaded.set(0);
+        artifactDownloadFailures.set(0);
+        bytesDownloaded.set(0);
+        lookupTimes.reset();
+    }
+}
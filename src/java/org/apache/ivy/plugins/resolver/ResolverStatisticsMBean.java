@@ -0,0 +1,55 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.plugins.resolver;
+
+/**
+ * Management interface of the {@link ResolverStatistics} of a resolver. Durations are given in
+ * microseconds.
+ */
+public interface ResolverStatisticsMBean {
+
+    String getName();
+
+    long getLookupCount();
+
+    long getModulesFound();
+
+    long getModulesNotFound();
+
+    long getLookupFailures();
+
+    long getLookupMeanTime();
+
+    long getLookupMaxTime();
+
+    long getLookupTime95thPercentile();
+
+    long[] getLookupTimeBucketBounds();
+
+    long[] getLookupTimeBucketCounts();
+
+    long getArtifactsFromCache();
+
+    long getArtifactsDownloaded();
+
+    long getArtifactDownloadFailures();
+
+    long getBytesDownloaded();
+
+    void reset();
+}
@@ -18,17 +18,18 @@
 package org.apache.ivy.util;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
  * An abstract base class to ease {@link MessageLogger} implementation.
  */
 public abstract class AbstractMessageLogger implements MessageLogger {
-    private List problems = new ArrayList();
+    private List problems = Collections.synchronizedList(new ArrayList());
 
-    private List warns = new ArrayList();
+    private List warns = Collections.synchronizedList(new ArrayList());
 
-    private List errors = new ArrayList();
+    private List errors = Collections.synchronizedList(new ArrayList());
 
     private boolean showProgress = true;
     
@@ -27,6 +27,9 @@ import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -110,6 +113,91 @@ public final class FileUtil {
         }
     }
 
+    /**
+     * Creates a hard link to an existing file. Nothing is done if the link cannot be created, for
+     * instance because the file system does not support hard links or because the two files are
+     * on different file systems.
+     * 
+     * @param existing
+     *            the file to link to
+     * @param link
+     *            the link to create, which must not exist
+     * @return true if the link has been created
+     */
+    public static boolean hardlink(File existing, File link) {
+        if (link.getParentFile() != null) {
+            link.getParentFile().mkdirs();
+        }
+        try {
+            // java.nio.file.Files.createLink(link.toPath(), existing.toPath()), on java 7+
+            Method toPath = File.class.getMethod("toPath", new Class[0]);
+            Class pathClass = toPath.getReturnType();
+            Method createLink = Class.forName("java.nio.file.Files").getMethod(
+                "createLink", new Class[] {pathClass, pathClass});
+            createLink.invoke(null, new Object[] {
+                    toPath.invoke(link, new Object[0]), toPath.invoke(existing, new Object[0])});
+            return true;
+        } catch (InvocationTargetException e) {
+            Message.debug("impossible to link " + link + " to " + existing + ": " 
+                + e.getTargetException());
+            return false;
+        } catch (Exception e) {
+            // older jvm
+        }
+        if (File.separatorChar == '\\') {
+            return false;
+        }
+        try {
+            Process process = Runtime.getRuntime().exec(new String[] {
+                    "ln", existing.getAbsolutePath(), link.getAbsolutePath()});
+            return process.waitFor() == 0 && link.exists();
+        } catch (IOException e) {
+            Message.debug("impossible to link " + link + " to " + existing + ": " + e);
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Moves a file to a destination in the same directory, replacing the destination if it
+     * exists, in a single step: readers of the destination either see the previous file or the
+     * moved one, never a partially written file.
+     *
+     * @param src
+     *            the file to move
+     * @param dest
+     *            the destination of the move
+     * @return true if the file has been moved. When false is returned, the source file is left
+     *         unchanged.
+     */
+    public static boolean atomicMove(File src, File dest) {
+        try {
+            // java.nio.file.Files.move(src.toPath(), dest.toPath(), ATOMIC_MOVE), on java 7+
+            Method toPath = File.class.getMethod("toPath", new Class[0]);
+            Class pathClass = toPath.getReturnType();
+            Class copyOptionClass = Class.forName("java.nio.file.CopyOption");
+            Object options = Array.newInstance(copyOptionClass, 1);
+            Class standardCopyOptionClass = Class.forName("java.nio.file.StandardCopyOption");
+            Array.set(options, 0, standardCopyOptionClass.getField("ATOMIC_MOVE").get(null));
+            Method move = Class.forName("java.nio.file.Files").getMethod(
+                "move", new Class[] {pathClass, pathClass, options.getClass()});
+            move.invoke(null, new Object[] {
+                    toPath.invoke(src, new Object[0]), toPath.invoke(dest, new Object[0]),
+                    options});
+            return true;
+        } catch (InvocationTargetException e) {
+            Message.debug("impossible to move " + src + " to " + dest + ": "
+                + e.getTargetException());
+            return false;
+        } catch (Exception e) {
+            // older jvm: rename replaces the destination atomically on unix, and fails if it
+            // exists on windows
+            return src.renameTo(dest);
+        }
+    }
+
     public static boolean copy(File src, File dest, CopyProgressListener l) throws IOException {
         return copy(src, dest, l, false);
     }
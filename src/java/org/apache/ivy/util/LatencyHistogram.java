@@ -0,0 +1,155 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of latencies, counting the recorded durations in buckets whose upper bounds are
+ * the powers of two of microseconds, from 1 microsecond up to about 17 seconds, the last bucket
+ * counting all the longer durations.
+ * <p>
+ * Recording a duration doesn't lock, so that it can be done on hot paths.
+ * </p>
+ */
+public final class LatencyHistogram {
+
+    private static final int BUCKET_COUNT = 26;
+
+    private static final long NANOS_PER_MICRO = 1000L;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+
+    private final AtomicLong count = new AtomicLong();
+
+    private final AtomicLong total = new AtomicLong();
+
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records a duration given in nanoseconds, as measured with {@link System#nanoTime()}.
+     */
+    public void record(long nanos) {
+        long micros = Math.max(0, nanos / NANOS_PER_MICRO);
+        buckets.incrementAndGet(bucketOf(micros));
+        count.incrementAndGet();
+        total.addAndGet(micros);
+        long current = max.get();
+        while (micros > current && !max.compareAndSet(current, micros)) {
+            current = max.get();
+        }
+    }
+
+    private static int bucketOf(long micros) {
+        if (micros <= 1) {
+            return 0;
+        }
+        // index of the smallest power of two greater than or equal to micros
+        int bucket = 64 - Long.numberOfLeadingZeros(micros - 1);
+        return Math.min(bucket, BUCKET_COUNT - 1);
+    }
+
+    /**
+     * Returns the number of recorded durations.
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Returns the sum of the recorded durations, in microseconds.
+     */
+    public long getTotalMicros() {
+        return total.get();
+    }
+
+    /**
+     * Returns the longest recorded duration, in microseconds.
+     */
+    public long getMaxMicros() {
+        return max.get();
+    }
+
+    /**
+     * Returns the mean of the recorded durations in microseconds, 0 if none has been recorded.
+     */
+    public long getMeanMicros() {
+        long c = count.get();
+        return c == 0 ? 0 : total.get() / c;
+    }
+
+    /**
+     * Returns the upper bounds of the buckets, in microseconds, the last one being
+     * {@link Long#MAX_VALUE}.
+     */
+    public long[] getBucketBounds() {
+        long[] bounds = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT - 1; i++) {
+            bounds[i] = 1L << i;
+        }
+        bounds[BUCKET_COUNT - 1] = Long.MAX_VALUE;
+        return bounds;
+    }
+
+    /**
+     * Returns the number of recorded durations in each bucket.
+     */
+    public long[] getBucketCounts() {
+        long[] counts = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = buckets.get(i);
+        }
+        return counts;
+    }
+
+    /**
+     * Returns an estimate in microseconds of the given percentile of the recorded durations,
+     * i.e. the upper bound of the bucket in which it falls, 0 if none has been recorded.
+     * 
+     * @param percentile
+     *            the percentile, between 0 and 100
+     */
+    public long getPercentileMicros(double percentile) {
+        long c = count.get();
+        if (c == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(c * percentile / 100);
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT - 1; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) {
+                return Math.min(1L << i, max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * Forgets all the recorded durations.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets.set(i, 0);
+        }
+        count.set(0);
+        total.set(0);
+        max.set(0);
+    }
+}
@@ -36,4 +36,8 @@ public class ArtifactTypeFilter implements Filter {
         Artifact art = (Artifact) o;
         return acceptedTypes.contains(art.getType());
     }
+
+    public String toString() {
+        return "types=" + acceptedTypes;
+    }
 }
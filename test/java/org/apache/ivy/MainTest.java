@@ -17,9 +17,11 @@
  */
 package org.apache.ivy;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 
 import org.apache.ivy.util.CacheCleaner;
+import org.apache.ivy.util.FileUtil;
 import org.apache.ivy.util.cli.CommandLine;
 import org.apache.ivy.util.cli.ParseException;
 
@@ -29,13 +31,17 @@ public class MainTest extends TestCase {
 
     private File cache;
 
+    private File tokenDir;
+
     protected void setUp() throws Exception {
         cache = new File("build/cache");
         System.setProperty("ivy.cache.dir", cache.getAbsolutePath());
+        tokenDir = new File("build/test/daemon");
     }
 
     protected void tearDown() throws Exception {
         CacheCleaner.deleteDir(cache);
+        CacheCleaner.deleteDir(tokenDir);
     }
 
     public void testHelp() throws Exception {
@@ -86,6 +92,33 @@ public class MainTest extends TestCase {
         assertTrue(new File("build/cache/org1/mod1.2/ivy-2.0.xml").exists());
     }
     
+    public void testEvict() throws Exception {
+        run(new String[] {
+                "-settings", "test/repositories/ivysettings.xml",
+                "-ivy", "test/repositories/1/org1/mod1.1/ivys/ivy-1.0.xml"
+        });
+        File ivyFile = new File("build/cache/org1/mod1.2/ivy-2.0.xml");
+        assertTrue(ivyFile.exists());
+
+        run(new String[] {
+                "-settings", "test/repositories/ivysettings.xml",
+                "-evict", "-maxsize", "100g"
+        });
+        assertTrue(ivyFile.exists());
+
+        run(new String[] {
+                "-settings", "test/repositories/ivysettings.xml",
+                "-evict", "-maxsize", "0"
+        });
+        assertTrue(ivyFile.exists());
+
+        run(new String[] {
+                "-settings", "test/repositories/ivysettings.xml",
+                "-evict", "-maxsize", "1"
+        });
+        assertFalse(ivyFile.exists());
+    }
+    
     public void testExtraParams1() throws Exception {
         String[] params = new String[] {
                 "-settings", "test/repositories/ivysettings.xml",
@@ -128,6 +161,68 @@ public class MainTest extends TestCase {
         assertEquals(0, leftOver.length);
     }
 
+    public void testDaemon() throws Exception {
+        final MainDaemon daemon = new MainDaemon(Main.getParser(), 0, tokenDir);
+        Thread server = new Thread() {
+            public void run() {
+                try {
+                    daemon.serve();
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            }
+        };
+        server.start();
+        try {
+            File settings = new File("test/repositories/ivysettings.xml");
+            String[] args = new String[] {
+                    "-settings", settings.getAbsolutePath(),
+                    "-ivy", "test/repositories/1/org1/mod1.1/ivys/ivy-1.0.xml"};
+            assertEquals(0, MainDaemon.forward(daemon.getPort(), tokenDir, args));
+            assertTrue(new File("build/cache/org1/mod1.2/ivy-2.0.xml").exists());
+            assertEquals(1, daemon.getLoads());
+
+            // the configured instance is reused
+            assertEquals(0, MainDaemon.forward(daemon.getPort(), tokenDir, args));
+            assertEquals(1, daemon.getLoads());
+
+            // ... until its settings are modified
+            long lastModified = settings.lastModified();
+            settings.setLastModified(lastModified - 10000);
+            try {
+                assertEquals(0, MainDaemon.forward(daemon.getPort(), tokenDir, args));
+                assertEquals(2, daemon.getLoads());
+            } finally {
+                settings.setLastModified(lastModified);
+            }
+
+            assertEquals(1, MainDaemon.forward(daemon.getPort(), tokenDir, new String[] {"-bad"}));
+
+            // only the owner of the daemon can read its token
+            File tokenFile = new File(tokenDir, "daemon-" + daemon.getPort() + ".token");
+            assertTrue(tokenFile.canRead());
+            assertEquals(64, FileUtil.readEntirely(tokenFile).length());
+
+            // a client without the token is rejected
+            File otherTokenDir = new File(tokenDir, "other");
+            otherTokenDir.mkdirs();
+            FileUtil.copy(new ByteArrayInputStream("bad".getBytes()),
+                new File(otherTokenDir, tokenFile.getName()), null);
+            assertEquals(1, MainDaemon.forward(daemon.getPort(), otherTokenDir, args));
+            assertEquals(2, daemon.getLoads());
+        } finally {
+            daemon.close();
+            server.join();
+        }
+    }
+
+    public void testNoDaemon() throws Exception {
+        MainDaemon daemon = new MainDaemon(Main.getParser(), 0, tokenDir);
+        int port = daemon.getPort();
+        daemon.close();
+        assertEquals(MainDaemon.NO_DAEMON, MainDaemon.forward(port, tokenDir, new String[] {"-?"}));
+    }
+
     private void run(String[] args) throws Exception {
         Main.run(Main.getParser(), args);
     }
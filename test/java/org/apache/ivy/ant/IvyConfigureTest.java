@@ -22,6 +22,7 @@ import java.io.File;
 import junit.framework.TestCase;
 
 import org.apache.ivy.Ivy;
+import org.apache.ivy.core.IvyMBeans;
 import org.apache.ivy.core.settings.IvySettings;
 import org.apache.ivy.plugins.resolver.DependencyResolver;
 import org.apache.ivy.plugins.resolver.IBiblioResolver;
@@ -136,6 +137,23 @@ public class IvyConfigureTest extends TestCase {
         assertEquals("myvalue", settings.getVariables().getVariable("myproperty"));
     }
 
+    public void testDisposeOnBuildFinished() throws Exception {
+        project.setProperty(IvyMBeans.JMX_ENABLED_VAR, "true");
+        configure.setFile(new File("test/repositories/ivysettings.xml"));
+
+        configure.execute();
+
+        Ivy ivy = getIvyInstance();
+        assertNotNull(ivy.getMBeansInstance());
+
+        project.fireBuildFinished(null);
+        assertNull(ivy.getMBeansInstance());
+        // a new instance is configured if the settings are used again
+        Ivy other = getIvyInstance();
+        assertNotSame(ivy, other);
+        other.dispose();
+    }
+
     public void testURL() throws Exception {
         String confUrl = new File("test/repositories/ivysettings-url.xml").toURL().toExternalForm();
         String confDirUrl = new File("test/repositories").toURL().toExternalForm();
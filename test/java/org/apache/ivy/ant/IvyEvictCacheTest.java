@@ -0,0 +1,152 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.ant;
+
+import java.io.File;
+
+import junit.framework.TestCase;
+
+import org.apache.ivy.core.cache.DefaultRepositoryCacheManager;
+import org.apache.ivy.util.PropertiesFile;
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.taskdefs.Delete;
+
+public class IvyEvictCacheTest extends TestCase {
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+
+    private File cache;
+
+    private Project project;
+
+    private IvyEvictCache evictCache;
+
+    private File ivy11;
+
+    private File jar11;
+
+    private File ivy12;
+
+    private File jar12;
+
+    protected void setUp() throws Exception {
+        cache = new File("build/cache");
+        cache.mkdirs();
+        project = new Project();
+        project.setProperty("ivy.settings.file", "test/repositories/ivysettings.xml");
+        project.setProperty("ivy.cache.dir", cache.getAbsolutePath());
+
+        evictCache = new IvyEvictCache();
+        evictCache.setProject(project);
+
+        ivy11 = new File(cache, "org1/mod1.1/ivy-1.0.xml");
+        jar11 = new File(cache, "org1/mod1.1/jars/mod1.1-1.0.jar");
+        ivy12 = new File(cache, "org1/mod1.2/ivy-2.0.xml");
+        jar12 = new File(cache, "org1/mod1.2/jars/mod1.2-2.0.jar");
+    }
+
+    protected void tearDown() throws Exception {
+        Delete del = new Delete();
+        del.setProject(new Project());
+        del.setDir(cache);
+        del.execute();
+    }
+
+    public void testMaxAge() throws Exception {
+        resolve();
+        setLastAccess("mod1.1", "1.0", 10 * DAY);
+
+        evictCache.setMaxAge("5d");
+        evictCache.perform();
+
+        assertFalse(ivy11.exists());
+        assertFalse(jar11.exists());
+        assertTrue(ivy12.exists());
+        assertTrue(jar12.exists());
+    }
+
+    public void testMaxSize() throws Exception {
+        resolve();
+        setLastAccess("mod1.1", "1.0", 2 * DAY);
+        setLastAccess("mod1.2", "2.0", DAY);
+
+        evictCache.setMaxSize(String.valueOf(ivy12.length() + jar12.length()));
+        evictCache.perform();
+
+        assertFalse(ivy11.exists());
+        assertFalse(jar11.exists());
+        assertTrue(ivy12.exists());
+        assertTrue(jar12.exists());
+
+        // least recently used first
+        resolve();
+        setLastAccess("mod1.2", "2.0", 2 * DAY);
+        File original11 = new File(cache, "org1/mod1.1/ivy-1.0.xml.original");
+        evictCache.setMaxSize(
+            String.valueOf(ivy11.length() + original11.length() + jar11.length()));
+        evictCache.perform();
+
+        assertTrue(ivy11.exists());
+        assertFalse(ivy12.exists());
+    }
+
+    public void testRecordedAccess() throws Exception {
+        resolve();
+        DefaultRepositoryCacheManager cacheManager = (DefaultRepositoryCacheManager) 
+            IvyAntSettings.getDefaultInstance(evictCache).getConfiguredIvyInstance(evictCache)
+                .getSettings().getDefaultRepositoryCacheManager();
+        cacheManager.setMaxAge("5d");
+        setLastAccess("mod1.1", "1.0", 10 * DAY);
+        setLastAccess("mod1.2", "2.0", 10 * DAY);
+
+        // found in cache
+        resolve();
+        evictCache.perform();
+
+        assertTrue(ivy11.exists());
+        assertTrue(ivy12.exists());
+    }
+
+    public void testUnknownCache() throws Exception {
+        evictCache.setCache("yourcache");
+        evictCache.setMaxAge("5d");
+        try {
+            evictCache.perform();
+            fail("evict cache should have raised an exception with unkown cache");
+        } catch (BuildException e) {
+            assertTrue(e.getMessage().indexOf("yourcache") != -1);
+        }
+    }
+
+    private void setLastAccess(String module, String revision, long age) {
+        PropertiesFile data = new PropertiesFile(
+            new File(cache, "org1/" + module + "/ivydata-" + revision + ".properties"), null);
+        data.setProperty("last.access", String.valueOf(System.currentTimeMillis() - age));
+        data.save();
+    }
+
+    private void resolve() {
+        IvyResolve resolve = new IvyResolve();
+        resolve.setProject(project);
+        resolve.setOrganisation("org1");
+        resolve.setModule("mod1.1");
+        resolve.setRevision("1.0");
+        resolve.setInline(true);
+        resolve.execute();
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.core.cache;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+import org.apache.ivy.Ivy;
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.core.report.ResolveReport;
+import org.apache.ivy.core.resolve.ResolveOptions;
+import org.apache.ivy.util.FileUtil;
+
+public class ArtifactContentStoreTest extends TestCase {
+    private File cache;
+
+    protected void setUp() throws Exception {
+        cache = File.createTempFile("ivycontent", ".dir");
+        cache.delete();
+        cache.mkdirs();
+    }
+
+    protected void tearDown() throws Exception {
+        FileUtil.forceDelete(cache);
+    }
+
+    public void testStore() throws Exception {
+        File a = createFile("org/a/jars/a.jar", "content");
+        File b = createFile("org/b/jars/b.jar", "content");
+        File c = createFile("org/c/jars/c.jar", "other content");
+
+        ArtifactContentStore store = new ArtifactContentStore(cache);
+        assertTrue(store.store(a));
+        assertTrue(store.store(b));
+        assertTrue(store.store(c));
+        assertTrue(store.store(b));
+
+        assertEquals(2, new File(cache, ArtifactContentStore.DIR_NAME).list().length);
+        assertEquals("content", FileUtil.readEntirely(a));
+        assertEquals("other content", FileUtil.readEntirely(c));
+        assertLinked(a, b);
+    }
+
+    public void testResolve() throws Exception {
+        Ivy ivy = Ivy.newInstance();
+        ivy.configure(new File("test/repositories/ivysettings.xml"));
+        DefaultRepositoryCacheManager cacheManager = (DefaultRepositoryCacheManager) 
+            ivy.getSettings().getDefaultRepositoryCacheManager();
+        cacheManager.setBasedir(cache);
+        cacheManager.setContentAddressed(true);
+
+        ResolveReport report = ivy.resolve(ModuleRevisionId.newInstance("org1", "mod1.1", "1.0"),
+            new ResolveOptions(), false);
+        assertFalse(report.hasError());
+        report = ivy.resolve(ModuleRevisionId.newInstance("org1", "mod1.1", "2.0"),
+            new ResolveOptions(), false);
+        assertFalse(report.hasError());
+
+        // both jars have the same content
+        assertLinked(new File(cache, "org1/mod1.1/jars/mod1.1-1.0.jar"), 
+            new File(cache, "org1/mod1.1/jars/mod1.1-2.0.jar"));
+    }
+
+    private File createFile(String path, String content) throws IOException {
+        File file = new File(cache, path);
+        file.getParentFile().mkdirs();
+        FileWriter writer = new FileWriter(file);
+        try {
+            writer.write(content);
+        } finally {
+            writer.close();
+        }
+        return file;
+    }
+
+    private void assertLinked(File file1, File file2) throws IOException {
+        assertTrue(file1.exists());
+        // writing to a file changes the other if they are links to the same file
+        FileWriter writer = new FileWriter(file1, true);
+        try {
+            writer.write("-changed");
+        } finally {
+            writer.close();
+        }
+        assertEquals(file1.length(), file2.length());
+    }
+}
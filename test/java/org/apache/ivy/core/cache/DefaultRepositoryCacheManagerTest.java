@@ -17,7 +17,10 @@
  */
 package org.apache.ivy.core.cache;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.Date;
 
 import junit.framework.TestCase;
@@ -27,7 +30,15 @@ import org.apache.ivy.core.module.descriptor.Artifact;
 import org.apache.ivy.core.module.descriptor.DefaultArtifact;
 import org.apache.ivy.core.module.id.ModuleId;
 import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.core.report.ArtifactDownloadReport;
+import org.apache.ivy.core.report.DownloadStatus;
 import org.apache.ivy.core.settings.IvySettings;
+import org.apache.ivy.plugins.repository.ArtifactResourceResolver;
+import org.apache.ivy.plugins.repository.BasicResource;
+import org.apache.ivy.plugins.repository.Resource;
+import org.apache.ivy.plugins.repository.ResourceDownloader;
+import org.apache.ivy.plugins.resolver.util.ResolvedResource;
+import org.apache.ivy.util.FileUtil;
 import org.apache.tools.ant.Project;
 import org.apache.tools.ant.taskdefs.Delete;
 
@@ -100,6 +111,54 @@ public class DefaultRepositoryCacheManagerTest extends TestCase {
         assertTrue(ArtifactOrigin.isUnknown(found));
     }
 
+    public void testLogDataStore() {
+        cacheManager.setDataStore(DefaultRepositoryCacheManager.DATA_STORE_LOG);
+        // data saved in the properties files is still found
+        assertEquals(origin, cacheManager.getSavedArtifactOrigin(artifact));
+
+        Artifact artifact2 = createArtifact("org", "module", "rev", "name", "type2", "ext");
+        ArtifactOrigin origin2 = new ArtifactOrigin(artifact2, false, "http://some/where");
+        cacheManager.saveArtifactOrigin(artifact2, origin2);
+        assertEquals(origin2, cacheManager.getSavedArtifactOrigin(artifact2));
+        assertTrue(new File(cacheManager.getRepositoryCacheRoot(), 
+            LogModuleDataStore.LOG_FILE_NAME).exists());
+
+        cacheManager.setDataStore(DefaultRepositoryCacheManager.DATA_STORE_PROPERTIES);
+        assertTrue(ArtifactOrigin.isUnknown(cacheManager.getSavedArtifactOrigin(artifact2)));
+        cacheManager.setDataStore(DefaultRepositoryCacheManager.DATA_STORE_LOG);
+        assertEquals(origin, cacheManager.getSavedArtifactOrigin(artifact));
+        assertEquals(origin2, cacheManager.getSavedArtifactOrigin(artifact2));
+        cacheManager.clean();
+    }
+
+    public void testAtomicDownloads() throws Exception {
+        cacheManager.setAtomicDownloads(true);
+        final File archiveFile = cacheManager.getArchiveFileInCache(artifact);
+        final Resource resource = new BasicResource("/some/where", true, 4, 0, false);
+        ArtifactDownloadReport report = cacheManager.download(artifact, 
+            new ArtifactResourceResolver() {
+                public ResolvedResource resolve(Artifact artifact) {
+                    return new ResolvedResource(resource, "rev");
+                }
+            }, new ResourceDownloader() {
+                public void download(Artifact artifact, Resource resource, File dest) 
+                        throws IOException {
+                    assertFalse(archiveFile.equals(dest));
+                    assertEquals(archiveFile.getAbsoluteFile().getParentFile(), 
+                        dest.getAbsoluteFile().getParentFile());
+                    // simulates another process downloading the same artifact
+                    FileUtil.copy(new ByteArrayInputStream("other".getBytes()), archiveFile, null);
+                    FileUtil.copy(new ByteArrayInputStream("mine".getBytes()), dest, null);
+                }
+            }, new CacheDownloadOptions());
+
+        assertEquals(DownloadStatus.SUCCESSFUL, report.getDownloadStatus());
+        assertEquals(archiveFile, report.getLocalFile());
+        assertEquals("mine", FileUtil.readEntirely(archiveFile));
+        assertEquals(Arrays.asList(new String[] {archiveFile.getName()}), 
+            Arrays.asList(archiveFile.getParentFile().list()));
+    }
+
     protected Artifact createArtifact(String org, String module, String rev, String name,
             String type, String ext) {
         ModuleId mid = new ModuleId(org, module);
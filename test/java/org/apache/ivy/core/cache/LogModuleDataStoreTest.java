@@ -0,0 +1,154 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.core.cache;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.Properties;
+
+import junit.framework.TestCase;
+
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.util.FileUtil;
+
+public class LogModuleDataStoreTest extends TestCase {
+    private static final String PATTERN = 
+        "[organisation]/[module](/[branch])/ivydata-[revision].properties";
+
+    private File root;
+
+    private LogModuleDataStore store;
+
+    private ModuleRevisionId mrid = ModuleRevisionId.newInstance("org", "mod", "1.0");
+
+    protected void setUp() throws Exception {
+        root = File.createTempFile("ivydatalog", ".dir");
+        root.delete();
+        store = new LogModuleDataStore(root, PATTERN);
+    }
+
+    protected void tearDown() throws Exception {
+        store.close();
+        FileUtil.forceDelete(root);
+    }
+
+    public void testSaveAndLoad() throws Exception {
+        assertTrue(store.load(mrid).isEmpty());
+
+        store.save(mrid, data("resolver", "r1"));
+        assertEquals(data("resolver", "r1"), store.load(mrid));
+        assertTrue(store.load(ModuleRevisionId.newInstance("org", "mod", "2.0")).isEmpty());
+
+        Properties loaded = store.load(mrid);
+        loaded.setProperty("resolver", "r2");
+        assertEquals(data("resolver", "r1"), store.load(mrid));
+
+        store.save(mrid, loaded);
+        assertEquals(data("resolver", "r2"), store.load(mrid));
+    }
+
+    public void testReopen() throws Exception {
+        store.save(mrid, data("resolver", "r1"));
+        store.close();
+
+        store = new LogModuleDataStore(root, PATTERN);
+        assertEquals(data("resolver", "r1"), store.load(mrid));
+    }
+
+    public void testSharedLog() throws Exception {
+        // a log opened by another process
+        LogModuleDataStore.Log other = new LogModuleDataStore.Log(store.getLogFile());
+        try {
+            store.save(mrid, data("resolver", "r1"));
+            assertEquals(data("resolver", "r1"), other.get("org/mod/ivydata-1.0.properties"));
+
+            other.put("org/mod/ivydata-1.0.properties", data("resolver", "r2"));
+            assertEquals(data("resolver", "r2"), store.load(mrid));
+        } finally {
+            other.close();
+        }
+    }
+
+    public void testCompaction() throws Exception {
+        LogModuleDataStore.Log other = new LogModuleDataStore.Log(store.getLogFile());
+        try {
+            ModuleRevisionId mrid2 = ModuleRevisionId.newInstance("org", "mod", "2.0");
+            for (int i = 0; i < 100; i++) {
+                store.save(mrid, data("resolver", "r" + i));
+            }
+            store.save(mrid2, data("resolver", "other"));
+            assertEquals(data("resolver", "r99"), other.get("org/mod/ivydata-1.0.properties"));
+            long size = store.getLogFile().length();
+
+            store.compact();
+            assertTrue(store.getLogFile().length() < size / 10);
+            assertEquals(data("resolver", "r99"), store.load(mrid));
+            assertEquals(data("resolver", "other"), store.load(mrid2));
+
+            // the other process sees the old log is obsolete and opens the compacted one
+            other.put("org/mod/ivydata-1.0.properties", data("resolver", "r100"));
+            assertEquals(data("resolver", "r100"), store.load(mrid));
+            assertEquals(data("resolver", "other"), other.get("org/mod/ivydata-2.0.properties"));
+        } finally {
+            other.close();
+        }
+    }
+
+    public void testIncompleteRecord() throws Exception {
+        store.save(mrid, data("resolver", "r1"));
+        long end = store.getLogFile().length();
+        store.save(mrid, data("resolver", "r2"));
+        store.close();
+
+        // corrupt the last record, as if the process writing it died
+        RandomAccessFile raf = new RandomAccessFile(store.getLogFile(), "rw");
+        try {
+            raf.seek(raf.length() - 1);
+            int last = raf.read();
+            raf.seek(raf.length() - 1);
+            raf.write(last + 1);
+        } finally {
+            raf.close();
+        }
+
+        store = new LogModuleDataStore(root, PATTERN);
+        assertEquals(data("resolver", "r1"), store.load(mrid));
+
+        store.save(mrid, data("resolver", "r3"));
+        assertEquals(end + (end - 32), store.getLogFile().length());
+        store.close();
+        store = new LogModuleDataStore(root, PATTERN);
+        assertEquals(data("resolver", "r3"), store.load(mrid));
+    }
+
+    public void testPropertiesFileCompatibility() throws Exception {
+        PropertiesModuleDataStore properties = new PropertiesModuleDataStore(root, PATTERN);
+        properties.save(mrid, data("resolver", "r1"));
+
+        assertEquals(data("resolver", "r1"), store.load(mrid));
+
+        store.save(mrid, data("resolver", "r2"));
+        assertEquals(data("resolver", "r2"), store.load(mrid));
+    }
+
+    private static Properties data(String key, String value) {
+        Properties data = new Properties();
+        data.setProperty(key, value);
+        return data;
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.core.cache;
+
+import java.io.File;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+import org.apache.ivy.Ivy;
+import org.apache.ivy.core.event.IvyEvent;
+import org.apache.ivy.core.event.IvyListener;
+import org.apache.ivy.core.event.resolve.EndDescriptorParseEvent;
+import org.apache.ivy.core.module.descriptor.DependencyDescriptor;
+import org.apache.ivy.core.module.descriptor.ModuleDescriptor;
+import org.apache.ivy.core.module.id.ArtifactId;
+import org.apache.ivy.core.module.id.ModuleId;
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.core.report.ResolveReport;
+import org.apache.ivy.core.resolve.ResolveOptions;
+import org.apache.ivy.core.settings.IvySettings;
+import org.apache.ivy.plugins.conflict.FixedConflictManager;
+import org.apache.ivy.plugins.parser.xml.XmlModuleDescriptorParser;
+import org.apache.ivy.plugins.parser.xml.XmlModuleDescriptorWriter;
+import org.apache.ivy.util.CacheCleaner;
+import org.apache.ivy.util.FileUtil;
+
+public class ModuleDescriptorBinaryCacheTest extends TestCase {
+    private File dir = new File("build/test/binarycache");
+
+    private File ivyFile = new File(dir, "ivy-1.0.xml");
+
+    private IvySettings settings;
+
+    private ModuleDescriptorBinaryCache cache = new ModuleDescriptorBinaryCache();
+
+    protected void setUp() throws Exception {
+        settings = new IvySettings();
+        settings.setVariable("binary.revision", "1.0");
+        FileUtil.copy(new File("test/java/org/apache/ivy/core/cache/ivy-binary.xml"), ivyFile,
+            null);
+    }
+
+    protected void tearDown() throws Exception {
+        CacheCleaner.deleteDir(dir);
+        CacheCleaner.deleteDir(new File("build/cache"));
+    }
+
+    public void testRoundTrip() throws Exception {
+        ModuleDescriptor md = parseAndWrite(true);
+        assertTrue(ModuleDescriptorBinaryCache.getBinaryFile(ivyFile).exists());
+
+        ModuleDescriptor read = cache.read(ivyFile, settings, true);
+        assertNotNull(read);
+        assertEquals(md.getModuleRevisionId(), read.getModuleRevisionId());
+        assertEquals(md.getResolvedPublicationDate(), read.getResolvedPublicationDate());
+        assertEquals(md.getLastModified(), read.getLastModified());
+        assertEquals(md.getMetadataArtifact(), read.getMetadataArtifact());
+        assertEquals(md.getResource().getName(), read.getResource().getName());
+        assertSame(md.getParser(), read.getParser());
+        assertEquals(md.getExtraInfo(), read.getExtraInfo());
+        assertEquals(md.getQualifiedExtraAttributes(), read.getQualifiedExtraAttributes());
+        assertEquals(toXml(md), toXml(read));
+
+        DependencyDescriptor[] dds = md.getDependencies();
+        DependencyDescriptor[] readDds = read.getDependencies();
+        assertEquals(dds.length, readDds.length);
+        String[] confs = md.getConfigurationsNames();
+        for (int i = 0; i < dds.length; i++) {
+            assertEquals(dds[i].getDynamicConstraintDependencyRevisionId(), 
+                readDds[i].getDynamicConstraintDependencyRevisionId());
+            for (int j = 0; j < confs.length; j++) {
+                assertEquals(Arrays.asList(dds[i].getDependencyConfigurations(confs[j])), 
+                    Arrays.asList(readDds[i].getDependencyConfigurations(confs[j])));
+                assertEquals(Arrays.asList(dds[i].getIncludeRules(confs[j])), 
+                    Arrays.asList(readDds[i].getIncludeRules(confs[j])));
+                assertEquals(Arrays.asList(dds[i].getExcludeRules(confs[j])), 
+                    Arrays.asList(readDds[i].getExcludeRules(confs[j])));
+            }
+            assertEquals(md.mediate(dds[i]).getDependencyRevisionId(), 
+                read.mediate(readDds[i]).getDependencyRevisionId());
+        }
+        for (int j = 0; j < confs.length; j++) {
+            assertEquals(Arrays.asList(md.getArtifacts(confs[j])), 
+                Arrays.asList(read.getArtifacts(confs[j])));
+        }
+
+        ArtifactId servlet = new ArtifactId(new ModuleId("any", "servlet-api"), "a", "jar", "jar");
+        assertTrue(read.doesExclude(new String[] {"myconf1"}, servlet));
+        assertFalse(read.doesExclude(new String[] {"myconf2"}, servlet));
+        assertEquals("all", read.getConflictManager(new ModuleId("yourorg", "any")).getName());
+        assertTrue(read.getConflictManager(new ModuleId("theirorg", "theirmodule1")) 
+            instanceof FixedConflictManager);
+    }
+
+    public void testModifiedFileInvalidates() throws Exception {
+        parseAndWrite(true);
+        ivyFile.setLastModified(ivyFile.lastModified() + 2000);
+        assertNull(cache.read(ivyFile, settings, true));
+    }
+
+    public void testChangedVariableInvalidates() throws Exception {
+        parseAndWrite(true);
+        settings.setVariable("binary.revision", "2.0");
+        assertNull(cache.read(ivyFile, settings, true));
+        settings.setVariable("binary.revision", "1.0");
+        assertNotNull(cache.read(ivyFile, settings, true));
+    }
+
+    public void testValidationRequired() throws Exception {
+        parseAndWrite(false);
+        assertNull(cache.read(ivyFile, settings, true));
+        assertNotNull(cache.read(ivyFile, settings, false));
+    }
+
+    public void testNotSelfContained() throws Exception {
+        ParserSettingsMonitor monitor = new ParserSettingsMonitor(settings);
+        ModuleDescriptor md = XmlModuleDescriptorParser.getInstance().parseDescriptor(
+            monitor.getMonitoredSettings(), ivyFile.toURI().toURL(), true);
+        monitor.getMonitoredSettings().getRelativeUrlResolver();
+        cache.write(ivyFile, monitor, settings, true, md);
+        assertFalse(ModuleDescriptorBinaryCache.getBinaryFile(ivyFile).exists());
+    }
+
+    public void testResolve() throws Exception {
+        Ivy ivy = Ivy.newInstance();
+        ivy.configure(new File("test/repositories/ivysettings.xml"));
+        ivy.getSettings().setDefaultCache(new File("build/cache"));
+        DefaultRepositoryCacheManager cacheManager = (DefaultRepositoryCacheManager) ivy
+                .getSettings().getDefaultRepositoryCacheManager();
+        cacheManager.setBinaryDescriptors(true);
+        cacheManager.setMemorySize(0);
+        final int[] parsed = new int[1];
+        ivy.getEventManager().addIvyListener(new IvyListener() {
+            public void progress(IvyEvent event) {
+                if (event instanceof EndDescriptorParseEvent) {
+                    parsed[0]++;
+                }
+            }
+        });
+        File root = new File("test/repositories/1/org1/mod1.1/ivys/ivy-1.0.xml");
+
+        ResolveReport report = ivy.resolve(root.toURI().toURL(), new ResolveOptions());
+        assertFalse(report.hasError());
+        File cached = cacheManager.getIvyFileInCache(
+            ModuleRevisionId.newInstance("org1", "mod1.2", "2.0"));
+        assertTrue(ModuleDescriptorBinaryCache.getBinaryFile(cached).exists());
+
+        parsed[0] = 0;
+        report = ivy.resolve(root.toURI().toURL(), new ResolveOptions());
+        assertFalse(report.hasError());
+        assertEquals(0, parsed[0]);
+        assertEquals(1, report.getDependencies().size());
+    }
+
+    private ModuleDescriptor parseAndWrite(boolean validate) throws Exception {
+        ParserSettingsMonitor monitor = new ParserSettingsMonitor(settings);
+        ModuleDescriptor md = XmlModuleDescriptorParser.getInstance().parseDescriptor(
+            monitor.getMonitoredSettings(), ivyFile.toURI().toURL(), validate);
+        cache.write(ivyFile, monitor, settings, validate, md);
+        return md;
+    }
+
+    private String toXml(ModuleDescriptor md) throws Exception {
+        File xml = new File(dir, "written.xml");
+        XmlModuleDescriptorWriter.write(md, xml);
+        return FileUtil.readEntirely(xml);
+    }
+}
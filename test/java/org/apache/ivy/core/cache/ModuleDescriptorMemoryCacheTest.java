@@ -24,6 +24,7 @@ import java.text.ParseException;
 import junit.framework.Assert;
 import junit.framework.TestCase;
 
+import org.apache.ivy.core.module.descriptor.DefaultDependencyDescriptor;
 import org.apache.ivy.core.module.descriptor.DefaultModuleDescriptor;
 import org.apache.ivy.core.module.descriptor.ModuleDescriptor;
 import org.apache.ivy.core.module.id.ModuleRevisionId;
@@ -143,6 +144,82 @@ public class ModuleDescriptorMemoryCacheTest extends TestCase {
         providerMock2.assertCalled();
     }
     
+    public void testWeightIsLimited() throws ParseException, IOException {
+        long weight = ModuleDescriptorMemoryCache.weigh(md1);
+        cache = new ModuleDescriptorMemoryCache(10, 2 * weight);
+        ModuleDescriptorProviderMock providerMock1b = new ModuleDescriptorProviderMock(md1);
+        cache.get(url1, ivySettings, false, new ModuleDescriptorProviderMock(md1));
+        cache.get(url2, ivySettings, false, new ModuleDescriptorProviderMock(md2));
+        assertEquals(2 * weight, cache.getWeight());
+        cache.get(url3, ivySettings, false, new ModuleDescriptorProviderMock(md3));
+        assertEquals(2, cache.getSize());
+        assertEquals(2 * weight, cache.getWeight());
+        cache.get(url1, ivySettings, false, providerMock1b);
+        providerMock1b.assertCalled();
+    }
+
+    public void testTooHeavyDescriptorIsNotCached() throws ParseException, IOException {
+        DefaultModuleDescriptor heavy = DefaultModuleDescriptor.newDefaultInstance(mrid3);
+        heavy.addDependency(new DefaultDependencyDescriptor(mrid1, false));
+        heavy.addDependency(new DefaultDependencyDescriptor(mrid2, false));
+        assertTrue(ModuleDescriptorMemoryCache.weigh(heavy) 
+                > ModuleDescriptorMemoryCache.weigh(md1));
+        cache = new ModuleDescriptorMemoryCache(10, ModuleDescriptorMemoryCache.weigh(md1));
+        cache.get(url1, ivySettings, false, new ModuleDescriptorProviderMock(md1));
+        cache.get(url3, ivySettings, false, new ModuleDescriptorProviderMock(heavy));
+        assertEquals(1, cache.getSize());
+        assertEquals(md1, cache.get(url1, ivySettings, false, null));
+    }
+
+    public void testStatistics() throws ParseException, IOException {
+        cache.get(url1, ivySettings, false, new ModuleDescriptorProviderMock(md1));
+        cache.get(url1, ivySettings, false, null);
+        cache.get(url2, ivySettings, false, new ModuleDescriptorProviderMock(md2));
+        cache.get(url3, ivySettings, false, new ModuleDescriptorProviderMock(md3));
+        cache.get(url3, ivySettings, false, null);
+        assertEquals(2, cache.getHits());
+        assertEquals(3, cache.getMisses());
+        assertEquals(1, cache.getEvictions());
+        assertEquals(2, cache.getSize());
+    }
+
+    public void testConcurrentAccess() throws Exception {
+        final int files = 50;
+        cache = new ModuleDescriptorMemoryCache(files / 2);
+        final Throwable[] failure = new Throwable[1];
+        Thread[] threads = new Thread[8];
+        for (int i = 0; i < threads.length; i++) {
+            final int offset = i;
+            threads[i] = new Thread() {
+                public void run() {
+                    try {
+                        for (int j = 0; j < 1000; j++) {
+                            int n = (j * 7 + offset) % files;
+                            ModuleDescriptor md = DefaultModuleDescriptor.newDefaultInstance(
+                                ModuleRevisionId.newInstance("org", "name", "rev" + n));
+                            ModuleDescriptor cached = cache.get(
+                                new File("file://cached/file" + n + ".txt"), ivySettings, false,
+                                new ModuleDescriptorProviderMock(md));
+                            assertEquals("rev" + n, cached.getRevision());
+                        }
+                    } catch (Throwable t) {
+                        failure[0] = t;
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (int i = 0; i < threads.length; i++) {
+            threads[i].join();
+        }
+        if (failure[0] != null) {
+            fail(failure[0].toString());
+        }
+        assertTrue(cache.getSize() <= files / 2);
+        assertEquals(cache.getSize() * ModuleDescriptorMemoryCache.weigh(md1), cache.getWeight());
+        assertEquals(threads.length * 1000, cache.getHits() + cache.getMisses());
+    }
+
     private static class ModuleDescriptorProviderMock implements ModuleDescriptorProvider {
         
         private boolean called = false;
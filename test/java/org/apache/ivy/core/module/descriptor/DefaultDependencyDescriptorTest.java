@@ -20,6 +20,13 @@ package org.apache.ivy.core.module.descriptor;
 
 import junit.framework.TestCase;
 
+import org.apache.ivy.core.module.id.ArtifactId;
+import org.apache.ivy.core.module.id.ModuleId;
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.plugins.matcher.ExactPatternMatcher;
+import org.apache.ivy.plugins.matcher.PatternMatcher;
+import org.apache.ivy.plugins.matcher.RegexpPatternMatcher;
+
 public class DefaultDependencyDescriptorTest extends TestCase {
 
     public static void main(String[] args) {
@@ -60,4 +67,39 @@ public class DefaultDependencyDescriptorTest extends TestCase {
 
     }
 
+    public void testDoesExclude() {
+        DefaultDependencyDescriptor dd = new DefaultDependencyDescriptor(
+                ModuleRevisionId.newInstance("org", "mod", "1.0"), false);
+        dd.addDependencyConfiguration("compile", "default");
+        dd.addDependencyConfiguration("test", "default");
+        dd.addExcludeRule("*", newExcludeRule(ExactPatternMatcher.INSTANCE, "org1", "mod1"));
+        dd.addExcludeRule("test", newExcludeRule(ExactPatternMatcher.INSTANCE, "org2", "mod2"));
+        dd.addExcludeRule("test", newExcludeRule(RegexpPatternMatcher.INSTANCE, "org3", "mod.*"));
+
+        String[] compile = new String[] {"compile"};
+        String[] test = new String[] {"test"};
+        assertTrue(dd.doesExclude(compile, newArtifactId("org1", "mod1")));
+        assertTrue(dd.doesExclude(test, newArtifactId("org1", "mod1")));
+        assertFalse(dd.doesExclude(compile, newArtifactId("org1", "mod2")));
+        assertFalse(dd.doesExclude(compile, newArtifactId("org2", "mod2")));
+        assertTrue(dd.doesExclude(test, newArtifactId("org2", "mod2")));
+        assertTrue(dd.doesExclude(new String[] {"compile", "test"}, newArtifactId("org2", "mod2")));
+        assertTrue(dd.doesExclude(test, newArtifactId("org3", "mod3")));
+        assertFalse(dd.doesExclude(test, newArtifactId("org3", "other")));
+        assertFalse(dd.doesExclude(compile, newArtifactId("org3", "mod3")));
+
+        // the compiled rules take the added rules into account
+        dd.addExcludeRule("compile", newExcludeRule(ExactPatternMatcher.INSTANCE, "org2", "*"));
+        assertTrue(dd.doesExclude(compile, newArtifactId("org2", "mod2")));
+    }
+
+    private ArtifactId newArtifactId(String org, String module) {
+        return new ArtifactId(ModuleId.newInstance(org, module), module, "jar", "jar");
+    }
+
+    private ExcludeRule newExcludeRule(PatternMatcher matcher, String org, String module) {
+        return new DefaultExcludeRule(new ArtifactId(ModuleId.newInstance(org, module),
+                PatternMatcher.ANY_EXPRESSION, PatternMatcher.ANY_EXPRESSION,
+                PatternMatcher.ANY_EXPRESSION), matcher, null);
+    }
 }
@@ -0,0 +1,104 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.core.resolve;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+public class ArtifactDownloadSchedulerTest extends TestCase {
+
+    private int running;
+
+    private int maxRunning;
+
+    private Map/*<String, Integer>*/ runningPerHost = new HashMap();
+
+    private Map/*<String, Integer>*/ maxRunningPerHost = new HashMap();
+
+    private int done;
+
+    public void testLimits() throws Exception {
+        ArtifactDownloadScheduler scheduler = new ArtifactDownloadScheduler(4, 2);
+        try {
+            for (int i = 0; i < 30; i++) {
+                scheduler.schedule("host" + (i % 3), new FakeDownload("host" + (i % 3)));
+            }
+            scheduler.await();
+        } finally {
+            scheduler.shutdown();
+        }
+
+        assertEquals(30, done);
+        assertTrue("too many downloads at the same time: " + maxRunning, maxRunning <= 4);
+        assertTrue("downloads should run concurrently", maxRunning > 1);
+        for (int i = 0; i < 3; i++) {
+            int max = ((Integer) maxRunningPerHost.get("host" + i)).intValue();
+            assertTrue("too many downloads at the same time on host" + i + ": " + max, max <= 2);
+        }
+    }
+
+    public void testAwaitWithoutDownload() throws Exception {
+        ArtifactDownloadScheduler scheduler = new ArtifactDownloadScheduler(4, 2);
+        try {
+            scheduler.await();
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    private synchronized void start(String host) {
+        running++;
+        maxRunning = Math.max(maxRunning, running);
+        int hostRunning = get(runningPerHost, host) + 1;
+        runningPerHost.put(host, new Integer(hostRunning));
+        maxRunningPerHost.put(host, new Integer(Math.max(get(maxRunningPerHost, host),
+            hostRunning)));
+    }
+
+    private synchronized void stop(String host) {
+        running--;
+        runningPerHost.put(host, new Integer(get(runningPerHost, host) - 1));
+        done++;
+    }
+
+    private static int get(Map map, String host) {
+        Integer value = (Integer) map.get(host);
+        return value == null ? 0 : value.intValue();
+    }
+
+    private class FakeDownload implements Runnable {
+        private final String host;
+
+        FakeDownload(String host) {
+            this.host = host;
+        }
+
+        public void run() {
+            start(host);
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                stop(host);
+            }
+        }
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.core.resolve;
+
+import java.io.File;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+
+import junit.framework.TestCase;
+
+import org.apache.ivy.Ivy;
+import org.apache.ivy.core.cache.DefaultRepositoryCacheManager;
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.core.report.ArtifactDownloadReport;
+import org.apache.ivy.core.report.ConfigurationResolveReport;
+import org.apache.ivy.core.report.ResolveReport;
+import org.apache.ivy.util.CacheCleaner;
+
+/**
+ * Checks that an incremental resolve after an edition of the module descriptor gives the same
+ * result as a full resolve.
+ */
+public class IncrementalResolveTest extends TestCase {
+    private static final ModuleRevisionId MRID =
+        ModuleRevisionId.newInstance("apache", "incremental", "1.0");
+
+    private Ivy ivy;
+
+    private File cache;
+
+    protected void setUp() throws Exception {
+        cache = new File("build/cache");
+        System.setProperty("ivy.cache.dir", cache.getAbsolutePath());
+        cache.mkdirs();
+
+        ivy = newIvy();
+    }
+
+    protected void tearDown() throws Exception {
+        CacheCleaner.deleteDir(cache);
+    }
+
+    public void testUnchanged() throws Exception {
+        resolveIncremental("ivy-incremental.xml");
+        assertEquals(0, getIncrementalResolution().getReused());
+
+        ResolveReport report = resolveIncremental("ivy-incremental.xml");
+        assertEquals(getIncrementalResolution().getLoaded(),
+            getIncrementalResolution().getReused());
+        assertSameAsFullResolve("ivy-incremental.xml", report);
+    }
+
+    public void testChangingModulesNotReused() throws Exception {
+        ((DefaultRepositoryCacheManager) ivy.getSettings().getDefaultRepositoryCacheManager())
+                .setChangingPattern(".*");
+        resolveIncremental("ivy-incremental.xml");
+        ResolveReport report = resolveIncremental("ivy-incremental.xml");
+        assertEquals(0, getIncrementalResolution().getReused());
+        assertSameAsFullResolve("ivy-incremental.xml", report);
+    }
+
+    public void testAddedDependency() throws Exception {
+        // the added dependency evicts a module in an unchanged part of the graph
+        assertSameAsFullResolve("ivy-incremental.xml", "ivy-incremental-added.xml");
+    }
+
+    public void testRemovedDependency() throws Exception {
+        // the removed dependency evicted a module in an unchanged part of the graph
+        assertSameAsFullResolve("ivy-incremental.xml", "ivy-incremental-removed.xml");
+    }
+
+    public void testChangedRevision() throws Exception {
+        assertSameAsFullResolve("ivy-incremental.xml", "ivy-incremental-changed.xml");
+    }
+
+    public void testChangedConfigurations() throws Exception {
+        assertSameAsFullResolve("ivy-incremental.xml", "ivy-incremental-confs.xml");
+    }
+
+    public void testSeveralEditions() throws Exception {
+        String[] editions = new String[] {
+            "ivy-incremental-added.xml",
+            "ivy-incremental-changed.xml",
+            "ivy-incremental-removed.xml",
+            "ivy-incremental.xml",
+            "ivy-incremental-confs.xml",
+            "ivy-incremental-added.xml"
+        };
+        resolveIncremental("ivy-incremental.xml");
+        for (int i = 0; i < editions.length; i++) {
+            assertSameAsFullResolve(editions[i], resolveIncremental(editions[i]));
+        }
+    }
+
+    public void testNotIncrementalAfterAnotherResolve() throws Exception {
+        resolveIncremental("ivy-incremental.xml");
+        // the resolved module descriptor in cache is not the one of the incremental resolution
+        ivy.resolve(getIvyFile("ivy-incremental-added.xml"),
+            new ResolveOptions().setConfs(new String[] {"*"}));
+        // which is ensured even if the file system doesn't see the change of modification time
+        File resolvedIvyFile = ivy.getSettings().getResolutionCacheManager()
+                .getResolvedIvyFileInCache(MRID);
+        resolvedIvyFile.setLastModified(
+            getIncrementalResolution().getResolvedIvyLastModified() - 10000);
+
+        ResolveReport report = resolveIncremental("ivy-incremental-removed.xml");
+        assertEquals(0, getIncrementalResolution().getReused());
+        assertSameAsFullResolve("ivy-incremental-removed.xml", report);
+    }
+
+    private void assertSameAsFullResolve(String previous, String edited) throws Exception {
+        resolveIncremental(previous);
+        ResolveReport report = resolveIncremental(edited);
+        assertTrue("nothing reused from " + previous + " in " + edited,
+            getIncrementalResolution().getReused() > 0);
+        assertSameAsFullResolve(edited, report);
+    }
+
+    private void assertSameAsFullResolve(String ivyFile, ResolveReport incremental)
+            throws Exception {
+        ResolveReport full = newIvy().resolve(getIvyFile(ivyFile),
+            new ResolveOptions().setConfs(new String[] {"*"}));
+        assertFalse(ivyFile, full.hasError());
+        assertFalse(ivyFile, incremental.hasError());
+
+        assertEquals(ivyFile, Arrays.asList(full.getConfigurations()),
+            Arrays.asList(incremental.getConfigurations()));
+        String[] confs = full.getConfigurations();
+        for (int i = 0; i < confs.length; i++) {
+            ConfigurationResolveReport fullConf = full.getConfigurationReport(confs[i]);
+            ConfigurationResolveReport incrementalConf =
+                incremental.getConfigurationReport(confs[i]);
+            String msg = ivyFile + " [" + confs[i] + "]";
+            assertEquals(msg, fullConf.getModuleRevisionIds(),
+                incrementalConf.getModuleRevisionIds());
+            assertEquals(msg, Arrays.asList(fullConf.getEvictedNodes()),
+                Arrays.asList(incrementalConf.getEvictedNodes()));
+            assertEquals(msg, getArtifacts(fullConf), getArtifacts(incrementalConf));
+        }
+    }
+
+    private ResolveReport resolveIncremental(String ivyFile) throws Exception {
+        return ivy.resolve(getIvyFile(ivyFile),
+            new ResolveOptions().setConfs(new String[] {"*"}).setIncremental(true));
+    }
+
+    private IncrementalResolution getIncrementalResolution() {
+        return ivy.getResolveEngine().getIncrementalResolution(MRID);
+    }
+
+    private URL getIvyFile(String name) throws Exception {
+        return new File("test/java/org/apache/ivy/core/resolve/" + name).toURI().toURL();
+    }
+
+    private Collection getArtifacts(ConfigurationResolveReport report) {
+        // the order of the artifacts of a module is not significant
+        Collection artifacts = new HashSet();
+        ArtifactDownloadReport[] adrs = report.getAllArtifactsReports();
+        for (int i = 0; i < adrs.length; i++) {
+            artifacts.add(String.valueOf(adrs[i].getArtifact()));
+        }
+        return artifacts;
+    }
+
+    private Ivy newIvy() throws Exception {
+        Ivy ivy = Ivy.newInstance();
+        ivy.configure(new File("test/repositories/ivysettings.xml"));
+        return ivy;
+    }
+}
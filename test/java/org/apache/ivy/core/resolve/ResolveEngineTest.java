@@ -18,19 +18,44 @@
 package org.apache.ivy.core.resolve;
 
 import java.io.File;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import junit.framework.TestCase;
 
 import org.apache.ivy.Ivy;
 import org.apache.ivy.core.cache.ArtifactOrigin;
+import org.apache.ivy.core.cache.DefaultRepositoryCacheManager;
 import org.apache.ivy.core.module.descriptor.Artifact;
 import org.apache.ivy.core.module.descriptor.DefaultArtifact;
+import org.apache.ivy.core.module.descriptor.DefaultDependencyDescriptor;
+import org.apache.ivy.core.module.descriptor.DefaultModuleDescriptor;
+import org.apache.ivy.core.module.descriptor.ModuleDescriptor;
+import org.apache.ivy.core.module.id.ModuleId;
 import org.apache.ivy.core.module.id.ModuleRevisionId;
 import org.apache.ivy.core.report.ArtifactDownloadReport;
+import org.apache.ivy.core.report.ConfigurationResolveReport;
+import org.apache.ivy.core.report.DownloadReport;
 import org.apache.ivy.core.report.DownloadStatus;
 import org.apache.ivy.core.report.ResolveReport;
+import org.apache.ivy.core.report.ResolveTimings;
+import org.apache.ivy.core.report.ResolveTimings.Timing;
+import org.apache.ivy.plugins.parser.xml.XmlModuleDescriptorParser;
+import org.apache.ivy.plugins.parser.xml.XmlModuleDescriptorWriter;
+import org.apache.ivy.plugins.report.TimingReportOutputter;
+import org.apache.ivy.plugins.resolver.FileSystemResolver;
 import org.apache.ivy.util.CacheCleaner;
+import org.apache.ivy.util.FileUtil;
+import org.apache.ivy.util.Message;
+import org.apache.ivy.util.MockMessageLogger;
 
 public class ResolveEngineTest extends TestCase {
 
@@ -94,6 +119,394 @@ public class ResolveEngineTest extends TestCase {
         assertTrue(r.getLocalFile().exists());
     }
 
+    public void testTimings() throws Exception {
+        ivy.getSettings().addReportOutputter(new TimingReportOutputter());
+        ResolveReport report = ivy.resolve(
+            new File("test/repositories/2/mod7.3/ivy-1.0.xml").toURI().toURL(),
+            new ResolveOptions().setConfs(new String[] {"*"}));
+        assertFalse(report.hasError());
+
+        ResolveTimings timings = report.getTimings();
+        assertNotNull(timings);
+        assertTrue(timings.getTiming(ResolveTimings.LOOKUP).getCount() > 0);
+        assertTrue(timings.getTiming(ResolveTimings.PARSE).getCount() > 0);
+        assertTrue(timings.getTiming(ResolveTimings.CONFLICTS).getCount() > 0);
+        assertEquals(1, timings.getTiming(ResolveTimings.EVICTION).getCount());
+        assertTrue(timings.getTiming(ResolveTimings.DOWNLOAD).getCount() > 0);
+
+        // the resolvers of the chain are told apart
+        Map resolvers = timings.getResolverTimings();
+        assertTrue(resolvers.keySet().toString(), resolvers.containsKey("1"));
+        assertTrue(resolvers.keySet().toString(), resolvers.containsKey("2-ivy"));
+        assertTrue(resolvers.keySet().toString(), resolvers.containsKey("2-artifact"));
+        Map modules = timings.getModuleTimings();
+        Map mod71 = (Map) modules.get(ModuleId.newInstance("org7", "mod7.1"));
+        assertNotNull(modules.keySet().toString(), mod71);
+        // looked up in resolver 1 of the chain, then in resolver 2-ivy
+        assertEquals(2, ((Timing) mod71.get(ResolveTimings.LOOKUP)).getCount());
+        assertNotNull(mod71.get(ResolveTimings.CONFLICTS));
+
+        File timingReport = ivy.getSettings().getResolutionCacheManager()
+                .getResolveTimingReportInCache(report.getResolveId());
+        assertTrue(timingReport.exists());
+        String content = FileUtil.readEntirely(timingReport);
+        assertTrue(content, content.indexOf("org7#mod7.1") != -1);
+        assertTrue(content, content.indexOf("2-ivy") != -1);
+    }
+
+    private static final String[] SAME_REPORT_IVY_FILES = new String[] {
+        // transitive eviction
+        "test/repositories/2/mod7.3/ivy-1.0.xml",
+        // IVY-199
+        "test/repositories/2/mod4.1/ivy-4.13.xml",
+        // forced revision
+        "test/repositories/2/mod4.1/ivy-4.2.xml",
+        // multiple eviction, IVY-644
+        "test/repositories/1/IVY-644/M1/ivys/ivy-1.0.xml",
+        // dynamic revisions
+        "test/repositories/1/org9/mod9.2/ivys/ivy-1.0.xml",
+    };
+
+    public void testParallelResolveGivesSameReportAsSerial() throws Exception {
+        for (int i = 0; i < SAME_REPORT_IVY_FILES.length; i++) {
+            assertSameReportAsSerial(SAME_REPORT_IVY_FILES[i], 
+                new ResolveOptions().setConfs(new String[] {"*"}).setParallel(true));
+        }
+    }
+
+    public void testParallelResolveReportsTriedLocations() throws Exception {
+        assertTriedLocationsReported(new ResolveOptions().setConfs(new String[] {"*"})
+            .setParallel(true));
+    }
+
+    public void testPrefetchResolveGivesSameReportAsSerial() throws Exception {
+        int hits = 0;
+        for (int i = 0; i < SAME_REPORT_IVY_FILES.length; i++) {
+            ResolveReport report = assertSameReportAsSerial(SAME_REPORT_IVY_FILES[i], 
+                new ResolveOptions().setConfs(new String[] {"*"}).setPrefetch(true));
+            hits += report.getLoadHits();
+        }
+        assertTrue("no prefetched module revision has been used", hits > 0);
+    }
+
+    public void testPrefetchReportsTriedLocations() throws Exception {
+        assertTriedLocationsReported(new ResolveOptions().setConfs(new String[] {"*"})
+            .setPrefetch(true));
+    }
+
+    public void testPrefetchMediatedDependency() throws Exception {
+        // mod2.1 overrides the revision of mod1.2 asked by its dependency mod1.1
+        ResolveReport report = assertSameReportAsSerial(
+            "test/repositories/1/org2/mod2.1/ivys/ivy-0.6.xml",
+            new ResolveOptions().setConfs(new String[] {"*"}).setPrefetch(true));
+        assertTrue(report.getConfigurationReport("default").getModuleRevisionIds()
+            .contains(ModuleRevisionId.newInstance("org1", "mod1.2", "1.0")));
+        assertTrue("no prefetched module revision has been used", report.getLoadHits() > 0);
+        assertEquals("mediated dependency has not been prefetched", 0, report.getLoadUnused());
+    }
+
+    private void assertTriedLocationsReported(ResolveOptions options) throws Exception {
+        DefaultModuleDescriptor md = DefaultModuleDescriptor.newDefaultInstance(
+            ModuleRevisionId.newInstance("test", "missing-deps", "1.0"));
+        String[] missing = new String[] {"missing1", "missing2", "missing3"};
+        for (int i = 0; i < missing.length; i++) {
+            DefaultDependencyDescriptor dd = new DefaultDependencyDescriptor(md,
+                ModuleRevisionId.newInstance("org1", missing[i], "1.0"), false, false, true);
+            dd.addDependencyConfiguration("default", "default");
+            md.addDependency(dd);
+        }
+        MockMessageLogger logger = new MockMessageLogger();
+        ivy.getLoggerEngine().pushLogger(logger);
+        try {
+            assertTrue(ivy.resolve(md, options).hasError());
+        } finally {
+            ivy.getLoggerEngine().popLogger();
+        }
+
+        // each failure is reported with the locations tried for the missing module only
+        List warns = getWarns(logger);
+        for (int i = 0; i < missing.length; i++) {
+            int index = indexOf(warns, "module not found: org1#" + missing[i] + ";1.0", 0);
+            assertTrue(missing[i] + " in " + warns, index != -1);
+            int tried = indexOf(warns, "==== 1: tried", index);
+            assertTrue(warns.toString(), tried != -1);
+            String location = (String) warns.get(tried + 1);
+            assertTrue(location, location.indexOf("/" + missing[i] + "/") != -1);
+        }
+    }
+
+    private List getWarns(MockMessageLogger logger) {
+        List warns = new ArrayList();
+        for (Iterator iter = logger.getLogs().iterator(); iter.hasNext();) {
+            String log = (String) iter.next();
+            if (log.startsWith(Message.MSG_VERBOSE + " WARN: ")) {
+                warns.add(log);
+            }
+        }
+        return warns;
+    }
+
+    private int indexOf(List logs, String message, int from) {
+        for (int i = from; i < logs.size(); i++) {
+            if (((String) logs.get(i)).indexOf(message) != -1) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private ResolveReport assertSameReportAsSerial(String ivyPath, ResolveOptions options) 
+            throws Exception {
+        File ivyFile = new File(ivyPath);
+        ResolveReport serial = ivy.resolve(ivyFile.toURI().toURL(), 
+            new ResolveOptions().setConfs(new String[] {"*"}));
+        CacheCleaner.deleteDir(cache);
+        createCache();
+        ResolveReport report = ivy.resolve(ivyFile.toURI().toURL(), options);
+        assertSameReport(ivyPath, serial, report);
+        return report;
+    }
+
+    public void testConcurrentDownloadGivesSameReportAsSerial() throws Exception {
+        File ivyFile = new File("test/repositories/2/mod4.1/ivy-4.13.xml");
+        ResolveReport serial = ivy.resolve(ivyFile.toURI().toURL(), 
+            new ResolveOptions().setConfs(new String[] {"*"}));
+        CacheCleaner.deleteDir(cache);
+        createCache();
+        ResolveReport concurrent = ivy.resolve(ivyFile.toURI().toURL(), 
+            new ResolveOptions().setConfs(new String[] {"*"})
+                .setDownloadThreads(4).setDownloadThreadsPerHost(2));
+        assertSameReport(ivyFile.getPath(), serial, concurrent);
+        assertTrue(serial.getDownloadSize() > 0);
+        assertEquals(serial.getDownloadSize(), concurrent.getDownloadSize());
+        assertEquals(serial.getArtifacts().toString(), concurrent.getArtifacts().toString());
+    }
+
+    public void testConcurrentDownloadError() throws Exception {
+        // mod1.1 depends on mod1.2
+        FileSystemResolver resolver = new FileSystemResolver() {
+            public DownloadReport download(Artifact[] artifacts, DownloadOptions options) {
+                throw new NoClassDefFoundError("some/Missing");
+            }
+        };
+        resolver.setName("failing");
+        String repository = new File("test/repositories/1").getAbsolutePath();
+        resolver.addIvyPattern(repository + "/[organisation]/[module]/ivys/ivy-[revision].xml");
+        resolver.addArtifactPattern(
+            repository + "/[organisation]/[module]/[type]s/[artifact]-[revision].[ext]");
+        ivy.getSettings().addResolver(resolver);
+        ivy.getSettings().setDefaultResolver("failing");
+        try {
+            ivy.resolve(new File("test/repositories/1/org1/mod1.1/ivys/ivy-1.0.xml").toURI()
+                .toURL(), new ResolveOptions().setConfs(new String[] {"*"}).setDownloadThreads(4));
+            fail("the error of the download thread should have been rethrown");
+        } catch (NoClassDefFoundError e) {
+            assertEquals("some/Missing", e.getMessage());
+        }
+    }
+
+    public void testConcurrentDownloadReportsTriedLocations() throws Exception {
+        // modules whose artifacts are all missing
+        File repository = new File("build/test/missing-artifacts").getAbsoluteFile();
+        String[] modules = new String[] {"mod1", "mod2", "mod3", "mod4"};
+        ModuleRevisionId[] mrids = new ModuleRevisionId[modules.length];
+        try {
+            for (int i = 0; i < modules.length; i++) {
+                mrids[i] = ModuleRevisionId.newInstance("missing", modules[i], "1.0");
+                XmlModuleDescriptorWriter.write(DefaultModuleDescriptor.newDefaultInstance(
+                    mrids[i]), new File(repository, modules[i] + "/ivy-1.0.xml"));
+            }
+            FileSystemResolver resolver = new FileSystemResolver();
+            resolver.setName("missing-artifacts");
+            resolver.addIvyPattern(repository + "/[module]/ivy-[revision].xml");
+            resolver.addArtifactPattern(repository + "/[module]/[artifact]-[revision].[ext]");
+            ivy.getSettings().addResolver(resolver);
+            ivy.getSettings().setDefaultResolver("missing-artifacts");
+
+            MockMessageLogger logger = new MockMessageLogger();
+            ivy.getLoggerEngine().pushLogger(logger);
+            try {
+                assertTrue(ivy.resolve(DefaultModuleDescriptor.newCallerInstance(mrids, true,
+                    false), new ResolveOptions().setConfs(new String[] {"*"})
+                        .setDownloadThreads(4)).hasError());
+            } finally {
+                ivy.getLoggerEngine().popLogger();
+            }
+
+            // each failure is reported with the locations tried for the missing artifact only
+            List warns = getWarns(logger);
+            for (int i = 0; i < modules.length; i++) {
+                int index = indexOf(warns, "!" + modules[i] + ".jar", 0);
+                assertTrue(modules[i] + " in " + warns, index != -1);
+                int tried = indexOf(warns, "==== missing-artifacts: tried", index);
+                assertEquals(warns.toString(), index + 1, tried);
+                String location = (String) warns.get(tried + 1);
+                assertTrue(location, location.indexOf(modules[i] + "-1.0.jar") != -1);
+            }
+        } finally {
+            CacheCleaner.deleteDir(repository);
+        }
+    }
+
+    public void testReuseResolution() throws Exception {
+        URL ivyUrl = new File("test/repositories/2/mod4.1/ivy-4.13.xml").toURI().toURL();
+        ResolveOptions options = new ResolveOptions().setConfs(new String[] {"*"})
+                .setReuseResolution(true);
+        ResolveReport first = ivy.resolve(ivyUrl, new ResolveOptions(options));
+        assertFalse(first.isReused());
+        ResolveReport reused = ivy.resolve(ivyUrl, new ResolveOptions(options));
+        assertTrue(reused.isReused());
+
+        // a resolve not reusing the resolution has to resolve again
+        ResolveReport expected = ivy.resolve(ivyUrl, 
+            new ResolveOptions().setConfs(new String[] {"*"}));
+        assertFalse(expected.isReused());
+        assertEquals(Arrays.asList(expected.getConfigurations()), 
+            Arrays.asList(reused.getConfigurations()));
+        String[] confs = expected.getConfigurations();
+        for (int i = 0; i < confs.length; i++) {
+            // evicted nodes are not available in a reused report
+            ConfigurationResolveReport expectedConf = expected.getConfigurationReport(confs[i]);
+            ConfigurationResolveReport reusedConf = reused.getConfigurationReport(confs[i]);
+            assertEquals(expectedConf.getModuleRevisionIds(), reusedConf.getModuleRevisionIds());
+            // reused artifacts are in the order of the previous report
+            assertEquals(new HashSet(getArtifacts(expectedConf)), 
+                new HashSet(getArtifacts(reusedConf)));
+        }
+        // artifacts publication dates may differ
+        assertEquals(toStrings(expected.getArtifacts()), toStrings(reused.getArtifacts()));
+        assertEquals(new HashSet(expected.getModuleIds()), new HashSet(reused.getModuleIds()));
+        
+        // ... and the next one can't reuse anything
+        assertFalse(ivy.resolve(ivyUrl, new ResolveOptions(options)).isReused());
+        assertTrue(ivy.resolve(ivyUrl, new ResolveOptions(options)).isReused());
+    }
+
+    public void testReuseResolutionWithChangedInputs() throws Exception {
+        URL ivyUrl = new File("test/repositories/2/mod4.1/ivy-4.13.xml").toURI().toURL();
+        ResolveOptions options = new ResolveOptions().setConfs(new String[] {"*"})
+                .setReuseResolution(true);
+        ivy.resolve(ivyUrl, new ResolveOptions(options));
+
+        assertFalse(ivy.resolve(ivyUrl, new ResolveOptions(options).setTransitive(false))
+            .isReused());
+        ivy.resolve(ivyUrl, new ResolveOptions(options));
+        assertFalse(ivy.resolve(ivyUrl, new ResolveOptions(options).setRefresh(true))
+            .isReused());
+        ivy.getSettings().getResolver("1").setName("renamed");
+        assertFalse(ivy.resolve(ivyUrl, new ResolveOptions(options)).isReused());
+        assertTrue(ivy.resolve(ivyUrl, new ResolveOptions(options)).isReused());
+
+        // the artifacts must still be in cache
+        CacheCleaner.deleteDir(new File(cache, "org1"));
+        assertFalse(ivy.resolve(ivyUrl, new ResolveOptions(options)).isReused());
+    }
+
+    public void testReuseResolutionWithExpiredDynamicRevision() throws Exception {
+        URL ivyUrl = new File("test/repositories/1/org9/mod9.2/ivys/ivy-1.0.xml").toURI().toURL();
+        ResolveOptions options = new ResolveOptions().setConfs(new String[] {"*"})
+                .setReuseResolution(true);
+        DefaultRepositoryCacheManager cacheManager = (DefaultRepositoryCacheManager) 
+            ivy.getSettings().getDefaultRepositoryCacheManager();
+        cacheManager.setDefaultTTL(60 * 60 * 1000);
+        ivy.resolve(ivyUrl, new ResolveOptions(options));
+        assertTrue(ivy.resolve(ivyUrl, new ResolveOptions(options)).isReused());
+
+        cacheManager.setDefaultTTL(0);
+        ivy.resolve(ivyUrl, new ResolveOptions(options).setRefresh(true));
+        assertFalse(ivy.resolve(ivyUrl, new ResolveOptions(options)).isReused());
+    }
+
+    public void testReuseResolutionWithChangingModule() throws Exception {
+        URL ivyUrl = new File("test/repositories/2/mod4.1/ivy-4.13.xml").toURI().toURL();
+        ResolveOptions options = new ResolveOptions().setConfs(new String[] {"*"})
+                .setReuseResolution(true);
+        DefaultRepositoryCacheManager cacheManager = (DefaultRepositoryCacheManager) 
+            ivy.getSettings().getDefaultRepositoryCacheManager();
+        cacheManager.setChangingPattern(".*");
+        ivy.resolve(ivyUrl, new ResolveOptions(options));
+        assertFalse(ivy.resolve(ivyUrl, new ResolveOptions(options)).isReused());
+
+        cacheManager.setChangingPattern(null);
+        cacheManager.setCheckmodified(true);
+        ivy.resolve(ivyUrl, new ResolveOptions(options));
+        assertFalse(ivy.resolve(ivyUrl, new ResolveOptions(options)).isReused());
+
+        cacheManager.setCheckmodified(false);
+        ivy.resolve(ivyUrl, new ResolveOptions(options));
+        assertTrue(ivy.resolve(ivyUrl, new ResolveOptions(options)).isReused());
+    }
+
+    public void testBatchResolve() throws Exception {
+        // without memory cache, module descriptors found in the repository cache are parsed again
+        ((DefaultRepositoryCacheManager) ivy.getSettings().getDefaultRepositoryCacheManager())
+                .setMemorySize(0);
+        ResolveOptions options = new ResolveOptions().setConfs(new String[] {"*"});
+        ModuleDescriptor md1 = XmlModuleDescriptorParser.getInstance().parseDescriptor(
+            ivy.getSettings(), new File("test/repositories/2/mod7.3/ivy-1.0.xml").toURI().toURL(),
+            true);
+        // shares a dependency with the first root, and depends on another revision of the other
+        ModuleDescriptor md2 = DefaultModuleDescriptor.newCallerInstance(new ModuleRevisionId[] {
+                ModuleRevisionId.newInstance("org7", "mod7.2", "1.0"),
+                ModuleRevisionId.newInstance("org7", "mod7.1", "1.0")}, true, false);
+        ResolveReport expected1 = ivy.resolve(md1, new ResolveOptions(options));
+        ResolveReport expected2 = ivy.resolve(md2, new ResolveOptions(options));
+        CacheCleaner.deleteDir(cache);
+        createCache();
+
+        List reports = ivy.resolve(Arrays.asList(new ModuleDescriptor[] {md1, md2}),
+            new ResolveOptions(options));
+        assertEquals(2, reports.size());
+        ResolveReport report1 = (ResolveReport) reports.get(0);
+        ResolveReport report2 = (ResolveReport) reports.get(1);
+        assertSameReport("root 1", expected1, report1);
+        assertSameReport("root 2", expected2, report2);
+        assertEquals(ResolveOptions.getDefaultResolveId(md1), report1.getResolveId());
+        assertEquals(ResolveOptions.getDefaultResolveId(md2), report2.getResolveId());
+
+        // the second root uses the module revision loaded by the first one
+        ModuleId mod72 = ModuleId.newInstance("org7", "mod7.2");
+        Map expected = (Map) expected2.getTimings().getModuleTimings().get(mod72);
+        assertNotNull(expected.get(ResolveTimings.PARSE));
+        Map actual = (Map) report2.getTimings().getModuleTimings().get(mod72);
+        assertNull(actual.get(ResolveTimings.PARSE));
+        assertNull(actual.get(ResolveTimings.LOOKUP));
+    }
+
+    private void assertSameReport(String name, ResolveReport expected, ResolveReport actual) {
+        assertEquals(name, expected.hasError(), actual.hasError());
+        assertEquals(name, Arrays.asList(expected.getConfigurations()), 
+            Arrays.asList(actual.getConfigurations()));
+        String[] confs = expected.getConfigurations();
+        for (int i = 0; i < confs.length; i++) {
+            ConfigurationResolveReport expectedConf = expected.getConfigurationReport(confs[i]);
+            ConfigurationResolveReport actualConf = actual.getConfigurationReport(confs[i]);
+            String msg = name + " [" + confs[i] + "]";
+            assertEquals(msg, expectedConf.getModuleRevisionIds(), 
+                actualConf.getModuleRevisionIds());
+            assertEquals(msg, Arrays.asList(expectedConf.getEvictedNodes()), 
+                Arrays.asList(actualConf.getEvictedNodes()));
+            assertEquals(msg, getArtifacts(expectedConf), getArtifacts(actualConf));
+        }
+    }
+
+    private List getArtifacts(ConfigurationResolveReport report) {
+        List artifacts = new ArrayList();
+        ArtifactDownloadReport[] adrs = report.getAllArtifactsReports();
+        for (int i = 0; i < adrs.length; i++) {
+            artifacts.add(adrs[i].getArtifact() + " " + adrs[i].getDownloadStatus());
+        }
+        return artifacts;
+    }
+
+    private Set toStrings(Collection objects) {
+        Set strings = new HashSet();
+        for (Iterator iter = objects.iterator(); iter.hasNext();) {
+            strings.add(String.valueOf(iter.next()));
+        }
+        return strings;
+    }
+
     private void createCache() {
         cache.mkdirs();
     }
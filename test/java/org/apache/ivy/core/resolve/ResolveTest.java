@@ -19,6 +19,7 @@ package org.apache.ivy.core.resolve;
 
 import java.io.File;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -31,6 +32,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
 
@@ -38,9 +41,13 @@ import junit.framework.TestCase;
 
 import org.apache.ivy.Ivy;
 import org.apache.ivy.TestHelper;
+import org.apache.ivy.core.IvyMBeans;
 import org.apache.ivy.core.cache.ArtifactOrigin;
 import org.apache.ivy.core.cache.DefaultRepositoryCacheManager;
 import org.apache.ivy.core.deliver.DeliverOptions;
+import org.apache.ivy.core.event.IvyEvent;
+import org.apache.ivy.core.event.IvyListener;
+import org.apache.ivy.core.event.resolve.EndRevalidateDependencyEvent;
 import org.apache.ivy.core.module.descriptor.Artifact;
 import org.apache.ivy.core.module.descriptor.DefaultArtifact;
 import org.apache.ivy.core.module.descriptor.DependencyDescriptor;
@@ -275,6 +282,122 @@ public class ResolveTest extends TestCase {
         assertTrue(getArchiveFileInCache("org1", "mod1.2", "2.0", "mod1.2", "jar", "jar").exists());
     }
 
+    public void testResolveFromSharedCache() throws Exception {
+        // mod1.1 depends on mod1.2
+        File sharedCache = new File("build/sharedcache");
+        FileUtil.forceDelete(sharedCache);
+        try {
+            // populate the shared cache with a first resolve
+            Ivy ivy = Ivy.newInstance();
+            ivy.configure(new File("test/repositories/ivysettings.xml"));
+            ((DefaultRepositoryCacheManager) ivy.getSettings().getDefaultRepositoryCacheManager())
+                .setBasedir(sharedCache);
+            ResolveReport report = ivy.resolve(new File(
+                    "test/repositories/1/org1/mod1.1/ivys/ivy-1.0.xml").toURL(),
+                getResolveOptions(new String[] {"*"}));
+            assertFalse(report.hasError());
+
+            DefaultRepositoryCacheManager cacheManager = (DefaultRepositoryCacheManager) 
+                    this.ivy.getSettings().getDefaultRepositoryCacheManager();
+            cacheManager.setSharedBasedir(sharedCache);
+            cacheManager.setBinaryDescriptors(true);
+            report = this.ivy.resolve(new File(
+                    "test/repositories/1/org1/mod1.1/ivys/ivy-1.0.xml").toURL(),
+                getResolveOptions(new String[] {"*"}));
+            assertFalse(report.hasError());
+
+            // the module and its artifact are used from the shared cache in place
+            ModuleRevisionId mrid = ModuleRevisionId.newInstance("org1", "mod1.2", "2.0");
+            ArtifactDownloadReport[] adrs = report.getArtifactsReports(mrid);
+            assertEquals(1, adrs.length);
+            assertEquals(DownloadStatus.NO, adrs[0].getDownloadStatus());
+            assertEquals(getArchiveFileInCache(ivy, "org1", "mod1.2", "2.0", "mod1.2", "jar", "jar")
+                    .getAbsoluteFile(), adrs[0].getLocalFile().getAbsoluteFile());
+            assertFalse(getIvyFileInCache(mrid).exists());
+            assertFalse(getArchiveFileInCache("org1", "mod1.2", "2.0", "mod1.2", "jar", "jar")
+                    .exists());
+            // nothing is written to the shared cache, not even binary descriptors
+            File sharedIvyFile = getIvyFileInCache(ivy, mrid);
+            assertFalse(new File(sharedIvyFile.getPath() + ".bin").exists());
+
+            // what isn't in the shared cache is resolved in the writable one
+            report = this.ivy.resolve(new File(
+                    "test/repositories/1/org1/mod1.1/ivys/ivy-1.1.xml").toURL(),
+                getResolveOptions(new String[] {"*"}));
+            assertFalse(report.hasError());
+            assertTrue(getIvyFileInCache(
+                ModuleRevisionId.newInstance("org1", "mod1.2", "2.1")).exists());
+            assertTrue(getArchiveFileInCache("org1", "mod1.2", "2.1", "mod1.2", "jar", "jar")
+                    .exists());
+        } finally {
+            FileUtil.forceDelete(sharedCache);
+        }
+    }
+
+    public void testStatisticsMBeans() throws Exception {
+        // mod1.1 depends on mod1.2
+        Ivy ivy = Ivy.newInstance();
+        ivy.getSettings().setVariable(IvyMBeans.JMX_ENABLED_VAR, "true");
+        ivy.configure(new File("test/repositories/ivysettings.xml"));
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            String cacheName = ivy.getSettings().getDefaultRepositoryCacheManager().getName();
+            String instance = ivy.getMBeansInstance();
+            assertNotNull(instance);
+            ObjectName cacheMBean = IvyMBeans.getCacheObjectName(instance, cacheName);
+            ObjectName resolverMBean = IvyMBeans.getResolverObjectName(instance, "1");
+            assertTrue(server.isRegistered(cacheMBean));
+            assertTrue(server.isRegistered(resolverMBean));
+
+            ResolveReport report = ivy.resolve(new File(
+                    "test/repositories/1/org1/mod1.1/ivys/ivy-1.0.xml").toURL(),
+                getResolveOptions(new String[] {"*"}));
+            assertFalse(report.hasError());
+            assertEquals(new Long(0), server.getAttribute(cacheMBean, "ModuleHits"));
+            assertEquals(new Long(1), server.getAttribute(cacheMBean, "ArtifactDownloads"));
+            long size = getArchiveFileInCache(ivy, "org1", "mod1.2", "2.0", "mod1.2", "jar", "jar")
+                    .length();
+            assertEquals(new Long(size), server.getAttribute(cacheMBean, "BytesDownloaded"));
+            assertEquals(new Long(1), server.getAttribute(resolverMBean, "ModulesFound"));
+            assertEquals(new Long(1), server.getAttribute(resolverMBean, "ArtifactsDownloaded"));
+
+            // the second resolve is served by the cache
+            report = ivy.resolve(new File(
+                    "test/repositories/1/org1/mod1.1/ivys/ivy-1.0.xml").toURL(),
+                getResolveOptions(new String[] {"*"}));
+            assertFalse(report.hasError());
+            assertEquals(new Long(1), server.getAttribute(cacheMBean, "ModuleHits"));
+            assertEquals(new Long(1), server.getAttribute(cacheMBean, "ArtifactHits"));
+            assertEquals(new Long(1), server.getAttribute(cacheMBean, "ArtifactDownloads"));
+            assertEquals(new Long(1), server.getAttribute(resolverMBean, "ArtifactsFromCache"));
+            Long lookups = (Long) server.getAttribute(cacheMBean, "LookupCount");
+            long[] buckets = (long[]) server.getAttribute(cacheMBean, "LookupTimeBucketCounts");
+            long total = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                total += buckets[i];
+            }
+            assertEquals(lookups.longValue(), total);
+
+            server.invoke(cacheMBean, "reset", new Object[0], new String[0]);
+            assertEquals(new Long(0), server.getAttribute(cacheMBean, "ModuleHits"));
+
+            // another instance doesn't replace the MBeans of the first one
+            Ivy other = Ivy.newInstance();
+            other.getSettings().setVariable(IvyMBeans.JMX_ENABLED_VAR, "true");
+            other.configure(new File("test/repositories/ivysettings.xml"));
+            String otherInstance = other.getMBeansInstance();
+            assertFalse(instance.equals(otherInstance));
+            assertTrue(server.isRegistered(IvyMBeans.getResolverObjectName(otherInstance, "1")));
+            other.dispose();
+            assertTrue(server.isRegistered(resolverMBean));
+            assertFalse(server.isRegistered(IvyMBeans.getResolverObjectName(otherInstance, "1")));
+        } finally {
+            ivy.dispose();
+        }
+        assertNull(ivy.getMBeansInstance());
+        assertEquals(0, server.queryNames(new ObjectName(IvyMBeans.DOMAIN + ":*"), null).size());
+    }
+
     public void testResolveBadStatus() throws Exception {
         // mod1.4 depends on modfailure, modfailure has a bad status
         ResolveReport report = ivy.resolve(new File(
@@ -673,6 +796,108 @@ public class ResolveTest extends TestCase {
             report.getConfigurationReport("default").getModuleRevisionIds());
     }
 
+    public void testDynamicFromCacheWithMaxStale() throws Exception {
+        // mod1.4;1.0.2 depends on mod1.2;[1.0,2.0[
+
+        // a single resolver is used, so that the background check cannot complete between the
+        // cache lookups of several resolvers
+        Ivy ivy = Ivy.newInstance();
+        FileSystemResolver resolver = new FileSystemResolver();
+        resolver.setName("1");
+        resolver.addArtifactPattern(ivy.getSettings().getBaseDir().getPath() 
+            + "/build/testCache2/[artifact]-[revision].[ext]");
+        ivy.getSettings().addResolver(resolver);
+        ivy.getSettings().setDefaultResolver("1");
+        ivy.getSettings().setVariable("ivy.cache.ttl.default", "500ms", true);
+        ((DefaultRepositoryCacheManager) ivy.getSettings().getDefaultRepositoryCacheManager())
+            .setMaxStale("1h");
+        final List revalidations = Collections.synchronizedList(new ArrayList());
+        ivy.getEventManager().addIvyListener(new IvyListener() {
+            public void progress(IvyEvent event) {
+                revalidations.add(event);
+            }
+        }, EndRevalidateDependencyEvent.NAME);
+
+        // set up repository
+        FileUtil.forceDelete(new File("build/testCache2"));
+        FileUtil.copy(
+            new File("test/repositories/1/org1/mod1.2/jars/mod1.2-2.0.jar"), 
+            new File("build/testCache2/mod1.2-1.5.jar"), null);
+
+        // we first do a simple resolve so that module is in cache
+        ResolveReport report = ivy.resolve(new File(
+                "test/repositories/1/org1/mod1.4/ivys/ivy-1.0.2.xml").toURL(),
+            getResolveOptions(new String[] {"*"}));
+        assertFalse(report.hasError());
+
+        // now we update the repository and wait for ttl expiration
+        FileUtil.copy(
+            new File("test/repositories/1/org1/mod1.2/jars/mod1.2-2.0.jar"), 
+            new File("build/testCache2/mod1.2-1.6.jar"), null);
+        Thread.sleep(700);
+
+        // the expired cached data is used, and checked in background
+        report = ivy.resolve(new File("test/repositories/1/org1/mod1.4/ivys/ivy-1.0.2.xml").toURL(),
+            getResolveOptions(new String[] {"*"}));
+        assertFalse(report.hasError());
+        assertEquals(
+            new HashSet(Arrays.asList(new ModuleRevisionId[] {
+                    ModuleRevisionId.newInstance("org1", "mod1.2", "1.5")})), 
+            report.getConfigurationReport("default").getModuleRevisionIds());
+
+        for (int i = 0; i < 100 && revalidations.isEmpty(); i++) {
+            Thread.sleep(50);
+        }
+        assertEquals(1, revalidations.size());
+        EndRevalidateDependencyEvent event = (EndRevalidateDependencyEvent) revalidations.get(0);
+        assertEquals("1.5", event.getAttributes().get("cached-revision"));
+        assertEquals("1.6", event.getAttributes().get("revision"));
+
+        // the next resolve uses the revalidated data
+        report = ivy.resolve(new File("test/repositories/1/org1/mod1.4/ivys/ivy-1.0.2.xml").toURL(),
+            getResolveOptions(new String[] {"*"}));
+        assertFalse(report.hasError());
+        assertEquals(
+            new HashSet(Arrays.asList(new ModuleRevisionId[] {
+                    ModuleRevisionId.newInstance("org1", "mod1.2", "1.6")})), 
+            report.getConfigurationReport("default").getModuleRevisionIds());
+
+        // cached data older than the max stale is checked before being used
+        ((DefaultRepositoryCacheManager) ivy.getSettings().getDefaultRepositoryCacheManager())
+            .setMaxStale("100ms");
+        FileUtil.copy(
+            new File("test/repositories/1/org1/mod1.2/jars/mod1.2-2.0.jar"), 
+            new File("build/testCache2/mod1.2-1.7.jar"), null);
+        Thread.sleep(700);
+        report = ivy.resolve(new File("test/repositories/1/org1/mod1.4/ivys/ivy-1.0.2.xml").toURL(),
+            getResolveOptions(new String[] {"*"}));
+        assertFalse(report.hasError());
+        assertEquals(
+            new HashSet(Arrays.asList(new ModuleRevisionId[] {
+                    ModuleRevisionId.newInstance("org1", "mod1.2", "1.7")})), 
+            report.getConfigurationReport("default").getModuleRevisionIds());
+        assertEquals(1, revalidations.size());
+
+        // a disposed instance doesn't revalidate anymore, so it can't serve stale data
+        DefaultRepositoryCacheManager cache = (DefaultRepositoryCacheManager) ivy.getSettings()
+            .getDefaultRepositoryCacheManager();
+        ivy.dispose();
+        assertTrue(cache.awaitRevalidations(1000));
+        cache.setMaxStale("1h");
+        FileUtil.copy(
+            new File("test/repositories/1/org1/mod1.2/jars/mod1.2-2.0.jar"), 
+            new File("build/testCache2/mod1.2-1.8.jar"), null);
+        Thread.sleep(700);
+        report = ivy.resolve(new File("test/repositories/1/org1/mod1.4/ivys/ivy-1.0.2.xml").toURL(),
+            getResolveOptions(new String[] {"*"}));
+        assertFalse(report.hasError());
+        assertEquals(
+            new HashSet(Arrays.asList(new ModuleRevisionId[] {
+                    ModuleRevisionId.newInstance("org1", "mod1.2", "1.8")})), 
+            report.getConfigurationReport("default").getModuleRevisionIds());
+        assertEquals(1, revalidations.size());
+    }
+
     public void testDynamicFromCacheWithTTL() throws Exception {
         // mod1.4;1.0.2 depends on mod1.2;[1.0,2.0[
         Ivy ivy = ivyTestCache();
@@ -213,6 +213,10 @@ public class XmlSettingsParserTest extends TestCase {
             c.getTTL(ModuleRevisionId.newInstance("org2", "A", "A")));
         assertEquals(60 * 3600 * 1000, // 2d 12h = 60h 
             c.getTTL(ModuleRevisionId.newInstance("org3", "A", "A")));
+        assertEquals(3600 * 1000, c.getDefaultMissingTTL());
+        assertEquals(3600 * 1000, c.getMissingTTL(ModuleRevisionId.newInstance("org2", "A", "A")));
+        assertEquals(Long.MAX_VALUE, 
+            c.getMissingTTL(ModuleRevisionId.newInstance("org1", "A", "A")));
         assertEquals(new File("mycache").getCanonicalFile(), c.getBasedir().getCanonicalFile());
         assertEquals(false, c.isUseOrigin());
         assertEquals("no-lock", c.getLockStrategy().getName());
@@ -120,6 +120,39 @@ public class LatestCompatibleConflictManagerTest extends TestCase {
         resolveAndAssert("#A;1", "#B;1.4, #C;2.5, #D;1.5");
     }
 
+    public void testCompatibilityResolveBelowRoot() throws Exception {
+        // the conflict occurs below the root, only the dependencies of #X;7 are visited again
+        fixture
+            .addMD("#A;7->{ #X;7 #E;1.0 }")
+            .addMD("#X;7-> { #B;[1.0,1.5] #C;[2.0,2.5] }")
+            .addMD("#B;1.4->#D;1.5")
+            .addMD("#B;1.5->#D;2.0")
+            .addMD("#C;2.5->#D;[1.0,1.6]")
+            .addMD("#D;1.5").addMD("#D;1.6").addMD("#D;2.0")
+            .addMD("#E;1.0")
+            .init();
+        ResolveReport report = resolveAndAssert("#A;7", "#B;1.4, #C;2.5, #D;1.5, #E;1.0, #X;7");
+        assertEquals(0, report.getRestarts());
+        assertEquals(1, report.getAvoidedRestarts());
+    }
+
+    public void testCompatibilityResolveBelowRootSharedCaller() throws Exception {
+        // #B;1.5 is also asked by #Y;8, visited before #X;8: the whole resolve process must be
+        // restarted
+        fixture
+            .addMD("#A;8->{ #Y;8 #X;8 }")
+            .addMD("#X;8-> { #B;[1.0,1.5] #C;[2.0,2.5] }")
+            .addMD("#Y;8->#B;[1.0,1.5]")
+            .addMD("#B;1.4->#D;1.5")
+            .addMD("#B;1.5->#D;2.0")
+            .addMD("#C;2.5->#D;[1.0,1.6]")
+            .addMD("#D;1.5").addMD("#D;1.6").addMD("#D;2.0")
+            .init();
+        ResolveReport report = resolveAndAssert("#A;8", "#B;1.4, #C;2.5, #D;1.5, #X;8, #Y;8");
+        assertEquals(1, report.getRestarts());
+        assertEquals(0, report.getAvoidedRestarts());
+    }
+
     public void testCompatibilityResolveCircularDependency1() throws Exception {
         fixture
             .addMD("#A;6->{ #B;[3.0,3.5] #C;4.6 }")
@@ -196,12 +229,13 @@ public class LatestCompatibleConflictManagerTest extends TestCase {
         }
     }
 
-    private void resolveAndAssert(String mrid, String expectedModuleSet) 
+    private ResolveReport resolveAndAssert(String mrid, String expectedModuleSet) 
         throws ParseException, IOException {
         ResolveReport report = fixture.resolve(mrid);
         assertFalse(report.hasError());
         ConfigurationResolveReport defaultReport = report.getConfigurationReport("default");
         TestHelper.assertModuleRevisionIds(expectedModuleSet, 
             defaultReport.getModuleRevisionIds());
+        return report;
     }
 }
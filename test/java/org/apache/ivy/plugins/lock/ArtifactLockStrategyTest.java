@@ -78,6 +78,88 @@ public class ArtifactLockStrategyTest extends TestCase {
         assertFound("org6#mod6.4;3", t3.getFinalResult());
     }    
 
+
+    public void testLockOwnedByThread() throws Exception {
+        final ArtifactLockStrategy strategy = new ArtifactLockStrategy();
+        final File file = new File("build/test/cache/locked.jar");
+        assertTrue(strategy.lockArtifact(null, file));
+        // reentrant for the owner thread
+        assertTrue(strategy.lockArtifact(null, file));
+
+        final long[] acquiredAt = new long[1];
+        Thread other = new Thread() {
+            public void run() {
+                try {
+                    if (strategy.lockArtifact(null, file)) {
+                        acquiredAt[0] = System.currentTimeMillis();
+                        strategy.unlockArtifact(null, file);
+                    }
+                } catch (InterruptedException e) {
+                    // the test fails
+                }
+            }
+        };
+        other.start();
+        sleepSilently(100);
+        strategy.unlockArtifact(null, file);
+        sleepSilently(100);
+        assertEquals(0, acquiredAt[0]);
+        long releasedAt = System.currentTimeMillis();
+        strategy.unlockArtifact(null, file);
+        other.join(5000);
+        assertTrue(acquiredAt[0] >= releasedAt);
+        assertFalse(new File(file.getPath() + ".lck").exists());
+
+        assertEquals(2, strategy.getLockCount());
+        assertEquals(1, strategy.getContendedLockCount());
+        assertEquals(0, strategy.getFailedLockCount());
+        assertTrue(strategy.getMaxWaitTime() >= 200);
+    }
+
+    public void testLockTimeout() throws Exception {
+        final ArtifactLockStrategy strategy = new ArtifactLockStrategy();
+        strategy.setTimeout(300);
+        final File file = new File("build/test/cache/locked.jar");
+        assertTrue(strategy.lockArtifact(null, file));
+        final boolean[] acquired = new boolean[] {true};
+        final boolean[] released = new boolean[] {true};
+        Thread other = new Thread() {
+            public void run() {
+                try {
+                    acquired[0] = strategy.lockArtifact(null, file);
+                } catch (InterruptedException e) {
+                    // the test fails
+                }
+                try {
+                    strategy.unlockArtifact(null, file);
+                } catch (IllegalStateException e) {
+                    // a lock not held by the current thread must not be released
+                    released[0] = false;
+                }
+            }
+        };
+        other.start();
+        other.join(5000);
+        assertFalse(acquired[0]);
+        assertFalse(released[0]);
+        assertEquals(1, strategy.getFailedLockCount());
+        strategy.unlockArtifact(null, file);
+    }
+
+    public void testNIOLocker() throws Exception {
+        ArtifactLockStrategy strategy1 = new ArtifactLockStrategy(
+            new FileBasedLockStrategy.NIOFileLocker(false), false);
+        ArtifactLockStrategy strategy2 = new ArtifactLockStrategy(
+            new FileBasedLockStrategy.NIOFileLocker(false), false);
+        strategy2.setTimeout(300);
+        File file = new File("build/test/cache/locked.jar");
+        assertTrue(strategy1.lockArtifact(null, file));
+        // the file lock is held until released
+        assertFalse(strategy2.lockArtifact(null, file));
+        strategy1.unlockArtifact(null, file);
+        assertTrue(strategy2.lockArtifact(null, file));
+        strategy2.unlockArtifact(null, file);
+    }
     
     private RepositoryCacheManager newCacheManager(IvySettings settings) {
         DefaultRepositoryCacheManager cacheManager 
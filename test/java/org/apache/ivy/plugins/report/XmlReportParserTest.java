@@ -18,14 +18,18 @@
 package org.apache.ivy.plugins.report;
 
 import java.io.File;
+import java.util.Arrays;
 
 import junit.framework.TestCase;
 
 import org.apache.ivy.Ivy;
 import org.apache.ivy.core.cache.DefaultResolutionCacheManager;
 import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.core.report.ArtifactDownloadReport;
+import org.apache.ivy.core.report.MetadataArtifactDownloadReport;
 import org.apache.ivy.core.report.ResolveReport;
 import org.apache.ivy.core.resolve.ResolveOptions;
+import org.apache.ivy.util.FileUtil;
 import org.apache.tools.ant.Project;
 import org.apache.tools.ant.taskdefs.Delete;
 
@@ -73,6 +77,76 @@ public class XmlReportParserTest extends TestCase {
         assertEquals("Resolved module doesn't equals parsed module", modRevId, parsedModRevId);
     }
 
+    public void testIndex() throws Exception {
+        ResolveReport report = _ivy.resolve(new File(
+                "test/repositories/1/org6/mod6.2/ivys/ivy-0.4.xml").toURL(),
+            getResolveOptions(new String[] {"*"}).setResolveId("testIndex"));
+        assertNotNull(report);
+        assertFalse(report.hasError());
+
+        File reportFile = _ivy.getResolutionCacheManager().getConfigurationResolveReportInCache(
+            "testIndex", "default");
+        assertIndexMatchesXml(reportFile, 2);
+        // with an evicted module
+        assertIndexMatchesXml(_ivy.getResolutionCacheManager()
+                .getConfigurationResolveReportInCache("testIndex", "extension"), 2);
+
+        // the index is not used once the report has changed
+        FileUtil.copy(new File("test/java/org/apache/ivy/plugins/report/ivy-with-info.xml"), 
+            reportFile, null, true);
+        assertNull(XmlReportIndex.open(reportFile));
+    }
+
+    private void assertIndexMatchesXml(File reportFile, int artifacts) throws Exception {
+        File indexFile = XmlReportIndex.getIndexFile(reportFile);
+        assertTrue(indexFile.exists());
+        XmlReportParser indexParser = new XmlReportParser();
+        indexParser.parse(reportFile);
+
+        // the information read from the index is the same as the one parsed from the xml
+        File copy = new File(_cache, "copy.xml");
+        FileUtil.copy(reportFile, copy, null, true);
+        XmlReportParser xmlParser = new XmlReportParser();
+        xmlParser.parse(copy);
+
+        assertEquals(Arrays.asList(xmlParser.getDependencyRevisionIds()), 
+            Arrays.asList(indexParser.getDependencyRevisionIds()));
+        assertEquals(Arrays.asList(xmlParser.getRealDependencyRevisionIds()), 
+            Arrays.asList(indexParser.getRealDependencyRevisionIds()));
+        assertEquals(Arrays.asList(xmlParser.getArtifacts()), 
+            Arrays.asList(indexParser.getArtifacts()));
+        ArtifactDownloadReport[] xmlReports = xmlParser.getArtifactReports();
+        ArtifactDownloadReport[] indexReports = indexParser.getArtifactReports();
+        assertEquals(artifacts, indexReports.length);
+        assertEquals(xmlReports.length, indexReports.length);
+        for (int i = 0; i < xmlReports.length; i++) {
+            assertEquals(xmlReports[i].getArtifact(), indexReports[i].getArtifact());
+            assertEquals(xmlReports[i].getDownloadStatus(), indexReports[i].getDownloadStatus());
+            assertEquals(xmlReports[i].getDownloadDetails(), 
+                indexReports[i].getDownloadDetails());
+            assertEquals(xmlReports[i].getSize(), indexReports[i].getSize());
+            assertEquals(xmlReports[i].getLocalFile(), indexReports[i].getLocalFile());
+            assertEquals(xmlReports[i].getArtifactOrigin(), indexReports[i].getArtifactOrigin());
+        }
+        ModuleRevisionId[] realMrids = xmlParser.getRealDependencyRevisionIds();
+        for (int i = 0; i < realMrids.length; i++) {
+            MetadataArtifactDownloadReport xmlMadr = 
+                xmlParser.getMetadataArtifactReport(realMrids[i]);
+            MetadataArtifactDownloadReport indexMadr = 
+                indexParser.getMetadataArtifactReport(realMrids[i]);
+            assertNotNull(indexMadr);
+            assertEquals(xmlMadr.getArtifact().getModuleRevisionId(), 
+                indexMadr.getArtifact().getModuleRevisionId());
+            assertEquals(xmlMadr.getDownloadStatus(), indexMadr.getDownloadStatus());
+            assertEquals(xmlMadr.getLocalFile(), indexMadr.getLocalFile());
+            assertEquals(xmlMadr.isSearched(), indexMadr.isSearched());
+            assertEquals(xmlMadr.getOriginalLocalFile(), indexMadr.getOriginalLocalFile());
+            assertEquals(xmlMadr.getArtifactOrigin(), indexMadr.getArtifactOrigin());
+        }
+        assertEquals(xmlParser.getResolvedModule(), indexParser.getResolvedModule());
+        assertEquals(xmlParser.hasError(), indexParser.hasError());
+    }
+
     private ResolveOptions getResolveOptions(String[] confs) {
         return new ResolveOptions().setConfs(confs);
     }
@@ -23,7 +23,10 @@ import java.io.FileReader;
 import java.io.IOException;
 import java.util.Date;
 import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.Map;
 
+import org.apache.ivy.core.IvyPatternHelper;
 import org.apache.ivy.core.cache.DefaultRepositoryCacheManager;
 import org.apache.ivy.core.event.EventManager;
 import org.apache.ivy.core.module.descriptor.Artifact;
@@ -45,6 +48,7 @@ import org.apache.ivy.core.settings.IvySettings;
 import org.apache.ivy.core.sort.SortEngine;
 import org.apache.ivy.plugins.latest.LatestRevisionStrategy;
 import org.apache.ivy.plugins.latest.LatestTimeStrategy;
+import org.apache.ivy.plugins.matcher.ExactPatternMatcher;
 import org.apache.ivy.plugins.resolver.util.ResolvedResource;
 import org.apache.ivy.util.CacheCleaner;
 import org.apache.ivy.util.FileUtil;
@@ -166,6 +170,71 @@ public class FileSystemResolverTest extends AbstractDependencyResolverTest {
             new File(ivyRef.getResource().getName()).getCanonicalPath());
     }
 
+    public void testKnownMissing() throws Exception {
+        File repo = new File("build/test/missing");
+        try {
+            FileSystemResolver resolver = new FileSystemResolver();
+            resolver.setName("test");
+            resolver.setSettings(settings);
+            resolver.addArtifactPattern(
+                repo.getAbsolutePath() + "/[module]/[artifact]-[revision].[ext]");
+            cacheManager.setDefaultMissingTTL("1h");
+
+            ModuleRevisionId mrid = ModuleRevisionId.newInstance("org", "mod", "1.0");
+            Artifact artifact = new DefaultArtifact(mrid, new Date(), "mod", "jar", "jar");
+            assertNull(resolver.findArtifactRef(artifact, null));
+            touch(new File(repo, "mod/mod-1.0.jar"));
+            // the miss is remembered
+            assertNull(resolver.findArtifactRef(artifact, null));
+
+            // but not for other resolvers
+            FileSystemResolver resolver2 = new FileSystemResolver();
+            resolver2.setName("test2");
+            resolver2.setSettings(settings);
+            resolver2.addArtifactPattern(
+                repo.getAbsolutePath() + "/[module]/[artifact]-[revision].[ext]");
+            assertNotNull(resolver2.findArtifactRef(artifact, null));
+
+            Map attributes = new HashMap();
+            attributes.put(IvyPatternHelper.MODULE_KEY, "mod");
+            cacheManager.addMissingTTL(attributes, ExactPatternMatcher.INSTANCE, 0);
+            assertNotNull(resolver.findArtifactRef(artifact, null));
+        } finally {
+            FileUtil.forceDelete(repo);
+        }
+    }
+
+    public void testKnownMissingByRule() throws Exception {
+        File repo = new File("build/test/missing");
+        try {
+            FileSystemResolver resolver = new FileSystemResolver();
+            resolver.setName("test");
+            resolver.setSettings(settings);
+            resolver.addArtifactPattern(
+                repo.getAbsolutePath() + "/[module]/[artifact]-[revision].[ext]");
+            assertFalse(cacheManager.isMissingCached());
+
+            // only a rule caches missing resources
+            Map attributes = new HashMap();
+            attributes.put(IvyPatternHelper.MODULE_KEY, "mod");
+            cacheManager.addMissingTTL(attributes, ExactPatternMatcher.INSTANCE, 3600 * 1000);
+            assertTrue(cacheManager.isMissingCached());
+
+            ModuleRevisionId mrid = ModuleRevisionId.newInstance("org", "mod", "1.0");
+            Artifact artifact = new DefaultArtifact(mrid, new Date(), "mod", "jar", "jar");
+            ModuleRevisionId other = ModuleRevisionId.newInstance("org", "other", "1.0");
+            Artifact otherArtifact = new DefaultArtifact(other, new Date(), "other", "jar", "jar");
+            assertNull(resolver.findArtifactRef(artifact, null));
+            assertNull(resolver.findArtifactRef(otherArtifact, null));
+            touch(new File(repo, "mod/mod-1.0.jar"));
+            touch(new File(repo, "other/other-1.0.jar"));
+            assertNull(resolver.findArtifactRef(artifact, null));
+            assertNotNull(resolver.findArtifactRef(otherArtifact, null));
+        } finally {
+            FileUtil.forceDelete(repo);
+        }
+    }
+
     private DownloadOptions getDownloadOptions() {
         return new DownloadOptions();
     }
@@ -18,6 +18,7 @@
 package org.apache.ivy.util;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 
@@ -27,7 +28,7 @@ public class MockMessageLogger extends AbstractMessageLogger {
 
     private List _endProgress = new ArrayList();
 
-    private List _logs = new ArrayList();
+    private List _logs = Collections.synchronizedList(new ArrayList());
 
     private List _rawLogs = new ArrayList();
 